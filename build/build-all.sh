@@ -147,6 +147,17 @@ fi
 echo
 echo
 
+echo "build-benchmarks.sh"
+bash build-benchmarks.sh
+
+if [ "$?" != "0" ]; then
+    echo "Execution failed for build-benchmarks.sh."
+    exit -1
+fi
+
+echo
+echo
+
 echo "build-grapheditor.sh"
 bash build-grapheditor.sh
 
@@ -0,0 +1,46 @@
+#!/bin/bash
+
+# Building Benchmarks
+if [ -d ../lib ]; then
+    if [ -d lib ]; then
+        cp -r ../lib/*.jar lib/
+    else
+        cp -r ../lib .        
+    fi 
+fi
+
+
+
+if [ ! -f lib/DENOPTIM.jar ]; then
+	echo "Failed to create Benchmarks.jar. Cannot locate DENOPTIM.jar in lib"
+    exit -1
+fi
+
+find ../src/misc/Benchmarks/src/ -name *.java > javafiles.txt
+javac -cp lib/cdk-1.4.19.jar:lib/commons-math3-3.6.1.jar:lib/DENOPTIM.jar:DenoptimGA.jar:FragSpaceExplorer.jar @javafiles.txt -encoding utf-8 -d .
+
+if [ "$?" != "0" ]; then
+    rm javafiles.txt
+	echo "Failed to create Benchmarks.jar."
+    exit -1
+fi
+
+rm javafiles.txt
+
+
+echo "Manifest-Version: 1.0" > manifest.mf
+echo "Main-Class: benchmarks.Benchmarks" >> manifest.mf
+echo "Class-Path: lib/cdk-1.4.19.jar lib/vecmath.jar lib/commons-io-2.4.jar lib/commons-lang3-3.1.jar lib/commons-math3-3.6.1.jar lib/DENOPTIM.jar DenoptimGA.jar FragSpaceExplorer.jar" >> manifest.mf
+echo >> manifest.mf
+
+jar cvfm Benchmarks.jar manifest.mf benchmarks 
+
+
+if [ "$?" = "0" ]; then
+     rm -rf manifest.mf benchmarks
+else
+	echo "Failed to create Benchmarks.jar."
+    exit -1
+fi
+
+echo "--------------------- Done building Benchmarks.jar ---------------------"
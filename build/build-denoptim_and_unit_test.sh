@@ -32,7 +32,7 @@ echo "Manifest-Version: 1.0" > manifest.mf
 echo "Class-Path: $jars" >> manifest.mf
 echo >> manifest.mf
 
-jar cvfm DENOPTIM.jar manifest.mf denoptim
+jar cvfm DENOPTIM.jar manifest.mf denoptim -C ../src/DENOPTIM/src META-INF/services
 
 if [ "$?" = "0" ]; then
     rm manifest.mf
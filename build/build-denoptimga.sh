@@ -17,7 +17,7 @@ if [ ! -f lib/DENOPTIM.jar ]; then
 fi
 
 find ../src/DenoptimGA/src/ -name *.java > javafiles.txt
-javac -cp lib/cdk-1.4.19.jar:lib/commons-io-2.4.jar:lib/commons-lang3-3.1.jar:lib/vecmath.jar:lib/commons-math3-3.6.1.jar:lib/DENOPTIM.jar @javafiles.txt -encoding utf-8 -d .
+javac -cp lib/cdk-1.4.19.jar:lib/commons-io-2.4.jar:lib/commons-lang3-3.1.jar:lib/vecmath.jar:lib/commons-math3-3.6.1.jar:lib/DENOPTIM.jar:lib/apiguardian-api-1.1.0.jar:lib/junit-jupiter-api-5.5.2.jar @javafiles.txt -encoding utf-8 -d .
 
 if [ "$?" != "0" ]; then
     rm javafiles.txt
@@ -43,3 +43,6 @@ else
 fi
 
 echo "--------------------- Done building DenoptimGA.jar ---------------------"
+
+# To run the unit tests
+#java -jar ../test/junit/junit-platform-console-standalone-1.5.2.jar -cp DenoptimGA.jar:lib/DENOPTIM.jar:../lib/cdk-1.4.19.jar -p denoptimga
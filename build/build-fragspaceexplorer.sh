@@ -17,7 +17,7 @@ if [ ! -f lib/DENOPTIM.jar ]; then
 fi
 
 find ../src/FragSpaceExplorer/src/ -name *.java > javafiles.txt
-javac -cp lib/cdk-1.4.19.jar:lib/vecmath.jar:lib/commons-io-2.4.jar:lib/commons-lang3-3.1.jar:lib/DENOPTIM.jar @javafiles.txt -encoding utf-8 -d .
+javac -cp lib/cdk-1.4.19.jar:lib/vecmath.jar:lib/commons-io-2.4.jar:lib/commons-lang3-3.1.jar:lib/DENOPTIM.jar:lib/apiguardian-api-1.1.0.jar:lib/junit-jupiter-api-5.5.2.jar @javafiles.txt -encoding utf-8 -d .
 
 
 if [ "$?" != "0" ]; then
@@ -44,3 +44,6 @@ else
 fi
 
 echo "--------------------- Done building FragSpaceExplorer.jar ---------------------"
+
+# To run the unit tests
+#java -jar ../test/junit/junit-platform-console-standalone-1.5.2.jar -cp FragSpaceExplorer.jar:lib/DENOPTIM.jar:../lib/cdk-1.4.19.jar -p fragspaceexplorer
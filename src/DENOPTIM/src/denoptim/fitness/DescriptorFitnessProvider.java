@@ -0,0 +1,371 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2026 agent <agent@local>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.fitness;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.qsar.DescriptorValue;
+import org.openscience.cdk.qsar.IMolecularDescriptor;
+import org.openscience.cdk.qsar.descriptors.molecular.ALOGPDescriptor;
+import org.openscience.cdk.qsar.descriptors.molecular.AromaticAtomsCountDescriptor;
+import org.openscience.cdk.qsar.descriptors.molecular.AromaticBondsCountDescriptor;
+import org.openscience.cdk.qsar.descriptors.molecular.AtomCountDescriptor;
+import org.openscience.cdk.qsar.descriptors.molecular.BondCountDescriptor;
+import org.openscience.cdk.qsar.descriptors.molecular.HBondAcceptorCountDescriptor;
+import org.openscience.cdk.qsar.descriptors.molecular.HBondDonorCountDescriptor;
+import org.openscience.cdk.qsar.descriptors.molecular.LargestChainDescriptor;
+import org.openscience.cdk.qsar.descriptors.molecular.RotatableBondsCountDescriptor;
+import org.openscience.cdk.qsar.descriptors.molecular.RuleOfFiveDescriptor;
+import org.openscience.cdk.qsar.descriptors.molecular.TPSADescriptor;
+import org.openscience.cdk.qsar.descriptors.molecular.WeightDescriptor;
+import org.openscience.cdk.qsar.descriptors.molecular.XLogPDescriptor;
+import org.openscience.cdk.qsar.result.BooleanResult;
+import org.openscience.cdk.qsar.result.DoubleArrayResult;
+import org.openscience.cdk.qsar.result.DoubleResult;
+import org.openscience.cdk.qsar.result.IDescriptorResult;
+import org.openscience.cdk.qsar.result.IntegerArrayResult;
+import org.openscience.cdk.qsar.result.IntegerResult;
+
+import denoptim.exception.DENOPTIMException;
+import denoptim.molecule.DENOPTIMGraph;
+
+
+/**
+ * Built-in fitness provider computing the fitness as a linear combination
+ * of CDK molecular descriptors. The formulation is given with the
+ * <code>FP-Equation</code> keyword as a sum of terms, each being either a
+ * number or a descriptor name, optionally multiplied by a coefficient, as in
+ * <pre>
+ * FP-Equation=1.0*MW - 25.0*nRotB + 10.0
+ * </pre>
+ * Descriptors are identified by the names CDK gives to their values (e.g.,
+ * <code>MW</code>, <code>nRotB</code>, <code>XLogP</code>,
+ * <code>TopoPSA</code>, <code>nHBAcc</code>, <code>nHBDon</code>,
+ * <code>nAtom</code>). The value of each descriptor is also stored as a
+ * property of the evaluated molecule. Candidates for which any descriptor
+ * cannot be calculated are rejected.
+ *
+ * @author agent
+ */
+
+public class DescriptorFitnessProvider implements FitnessProvider
+{
+    /**
+     * The name of this provider
+     */
+    public static final String NAME = "Descriptors";
+
+    /**
+     * The descriptors that can be used in the formulation of the fitness
+     */
+    private static final Class<?>[] DESCRIPTORS = new Class<?>[] {
+            WeightDescriptor.class,
+            RotatableBondsCountDescriptor.class,
+            XLogPDescriptor.class,
+            ALOGPDescriptor.class,
+            TPSADescriptor.class,
+            HBondAcceptorCountDescriptor.class,
+            HBondDonorCountDescriptor.class,
+            AtomCountDescriptor.class,
+            BondCountDescriptor.class,
+            AromaticAtomsCountDescriptor.class,
+            AromaticBondsCountDescriptor.class,
+            LargestChainDescriptor.class,
+            RuleOfFiveDescriptor.class};
+
+    /**
+     * The class of the descriptor providing each named value
+     */
+    private final Map<String,Class<?>> descClasses =
+            new HashMap<String,Class<?>>();
+
+    /**
+     * The position of each named value in the result of its descriptor
+     */
+    private final Map<String,Integer> descIndexes =
+            new HashMap<String,Integer>();
+
+    /**
+     * The descriptor name of each term, or <code>null</code> for constants
+     */
+    private final ArrayList<String> termNames = new ArrayList<String>();
+
+    /**
+     * The coefficient of each term
+     */
+    private final ArrayList<Double> termCoeffs = new ArrayList<Double>();
+
+    /**
+     * Descriptor instances, which are not thread-safe, of each thread
+     */
+    private final ThreadLocal<Map<Class<?>,IMolecularDescriptor>> descriptors =
+            new ThreadLocal<Map<Class<?>,IMolecularDescriptor>>()
+    {
+        @Override
+        protected Map<Class<?>,IMolecularDescriptor> initialValue()
+        {
+            return new HashMap<Class<?>,IMolecularDescriptor>();
+        }
+    };
+
+//------------------------------------------------------------------------------
+
+    @Override
+    public String getName()
+    {
+        return NAME;
+    }
+
+//------------------------------------------------------------------------------
+
+    @Override
+    public void configure(String formulation) throws DENOPTIMException
+    {
+        descClasses.clear();
+        descIndexes.clear();
+        for (Class<?> clazz : DESCRIPTORS)
+        {
+            String[] names = newDescriptor(clazz).getDescriptorNames();
+            for (int i=0; i<names.length; i++)
+            {
+                descClasses.put(names[i], clazz);
+                descIndexes.put(names[i], i);
+            }
+        }
+        parseFormulation(formulation);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Reads the linear combination of descriptors defining the fitness
+     * @param formulation the string to parse
+     * @throws DENOPTIMException if the string is not a linear combination
+     * of known descriptors
+     */
+
+    private void parseFormulation(String formulation) throws DENOPTIMException
+    {
+        termNames.clear();
+        termCoeffs.clear();
+        String s = formulation.replaceAll("\\s+", "");
+        if (s.isEmpty())
+        {
+            throw new DENOPTIMException("Fitness provider '" + NAME
+                                 + "' requires a formulation (FP-Equation).");
+        }
+
+        int start = 0;
+        for (int i=1; i<=s.length(); i++)
+        {
+            if (i < s.length() && !isTermSeparator(s, i))
+            {
+                continue;
+            }
+            String term = s.substring(start, i);
+            double coeff = 1.0;
+            if (term.startsWith("-") || term.startsWith("+"))
+            {
+                if (term.startsWith("-"))
+                {
+                    coeff = -1.0;
+                }
+                term = term.substring(1);
+            }
+            String name = null;
+            for (String factor : term.split("\\*", -1))
+            {
+                try
+                {
+                    coeff = coeff * Double.parseDouble(factor);
+                    continue;
+                }
+                catch (NumberFormatException e)
+                {
+                    // not a number: must be a descriptor
+                }
+                if (!descClasses.containsKey(factor))
+                {
+                    throw new DENOPTIMException("Unknown descriptor '"
+                            + factor + "' in fitness formulation '"
+                            + formulation + "'. Known descriptors: "
+                            + descClasses.keySet());
+                }
+                if (name != null)
+                {
+                    throw new DENOPTIMException("Fitness formulation '"
+                            + formulation + "' is not a linear combination "
+                            + "of descriptors.");
+                }
+                name = factor;
+            }
+            termNames.add(name);
+            termCoeffs.add(coeff);
+            start = i;
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return <code>true</code> if the sign at the given position starts a
+     * new term, rather than being the sign of an exponent (as in 1.0e-3)
+     */
+
+    private static boolean isTermSeparator(String s, int i)
+    {
+        char c = s.charAt(i);
+        if (c != '+' && c != '-')
+        {
+            return false;
+        }
+        char prev = s.charAt(i-1);
+        if (prev == '*')
+        {
+            return false;
+        }
+        if ((prev == 'e' || prev == 'E') && i > 1)
+        {
+            char prevPrev = s.charAt(i-2);
+            return !(Character.isDigit(prevPrev) || prevPrev == '.');
+        }
+        return true;
+    }
+
+//------------------------------------------------------------------------------
+
+    @Override
+    public void computeFitness(IAtomContainer mol, DENOPTIMGraph graph)
+                                                       throws DENOPTIMException
+    {
+        Map<Class<?>,DescriptorValue> results =
+                new HashMap<Class<?>,DescriptorValue>();
+        double fitness = 0.0;
+        for (int i=0; i<termNames.size(); i++)
+        {
+            String name = termNames.get(i);
+            if (name == null)
+            {
+                fitness = fitness + termCoeffs.get(i);
+                continue;
+            }
+            double value = getValue(name, mol, results);
+            if (Double.isNaN(value) || Double.isInfinite(value))
+            {
+                mol.setProperty("MOL_ERROR", "#" + NAME
+                            + ": descriptor " + name + " not available.");
+                return;
+            }
+            mol.setProperty(name, value);
+            fitness = fitness + termCoeffs.get(i) * value;
+        }
+        if (Double.isNaN(fitness) || Double.isInfinite(fitness))
+        {
+            mol.setProperty("MOL_ERROR", "#" + NAME + ": fitness is "
+                                                                  + fitness);
+            return;
+        }
+        mol.setProperty("FITNESS", fitness);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Calculates the value of a descriptor. Descriptors calculating more than
+     * one value are calculated only once per molecule.
+     * @return the value or NaN if the descriptor could not be calculated
+     */
+
+    private double getValue(String name, IAtomContainer mol,
+           Map<Class<?>,DescriptorValue> results) throws DENOPTIMException
+    {
+        Class<?> clazz = descClasses.get(name);
+        DescriptorValue dv = results.get(clazz);
+        if (dv == null)
+        {
+            Map<Class<?>,IMolecularDescriptor> mine = descriptors.get();
+            IMolecularDescriptor descriptor = mine.get(clazz);
+            if (descriptor == null)
+            {
+                descriptor = newDescriptor(clazz);
+                mine.put(clazz, descriptor);
+            }
+            try
+            {
+                dv = descriptor.calculate(mol);
+            }
+            catch (Exception e)
+            {
+                return Double.NaN;
+            }
+            results.put(clazz, dv);
+        }
+        if (dv.getException() != null)
+        {
+            return Double.NaN;
+        }
+
+        int idx = descIndexes.get(name);
+        IDescriptorResult res = dv.getValue();
+        if (res instanceof DoubleResult)
+        {
+            return ((DoubleResult) res).doubleValue();
+        }
+        else if (res instanceof IntegerResult)
+        {
+            return ((IntegerResult) res).intValue();
+        }
+        else if (res instanceof BooleanResult)
+        {
+            return ((BooleanResult) res).booleanValue() ? 1.0 : 0.0;
+        }
+        else if (res instanceof DoubleArrayResult)
+        {
+            return ((DoubleArrayResult) res).get(idx);
+        }
+        else if (res instanceof IntegerArrayResult)
+        {
+            return ((IntegerArrayResult) res).get(idx);
+        }
+        throw new DENOPTIMException("Unsupported type of result for "
+                                                       + "descriptor " + name);
+    }
+
+//------------------------------------------------------------------------------
+
+    private static IMolecularDescriptor newDescriptor(Class<?> clazz)
+                                                       throws DENOPTIMException
+    {
+        try
+        {
+            return (IMolecularDescriptor) clazz.newInstance();
+        }
+        catch (InstantiationException | IllegalAccessException e)
+        {
+            throw new DENOPTIMException("Cannot create descriptor "
+                                                      + clazz.getName(), e);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,107 @@
+package denoptim.fitness;
+
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2026 agent <agent@local>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import org.junit.jupiter.api.Test;
+import org.openscience.cdk.AtomContainer;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+import denoptim.exception.DENOPTIMException;
+
+/**
+ * Unit test for the fitness provider based on molecular descriptors
+ *
+ * @author agent
+ */
+
+public class DescriptorFitnessProviderTest
+{
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the fitness given to a molecule without atoms
+     */
+
+    private double getFitness(String formulation) throws Exception
+    {
+        DescriptorFitnessProvider fp = new DescriptorFitnessProvider();
+        fp.configure(formulation);
+        IAtomContainer mol = new AtomContainer();
+        fp.computeFitness(mol, null);
+        assertNull(mol.getProperty("MOL_ERROR"), "Error for " + formulation);
+        return ((Number) mol.getProperty("FITNESS")).doubleValue();
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testParseValidFormulation() throws Exception
+    {
+        assertEquals(2.5, getFitness("2.5"), 1.0e-9);
+        assertEquals(9.0, getFitness(" 1.5e1 - 2 * 3 "), 1.0e-9);
+        assertEquals(-0.25, getFitness("-2.5e-1"), 1.0e-9);
+        assertEquals(1.0, getFitness("+3-2"), 1.0e-9);
+        assertEquals(0.5, getFitness("1.0E+2*5.0e-3"), 1.0e-9);
+
+        // descriptors, with and without coefficients and in any position
+        DescriptorFitnessProvider fp = new DescriptorFitnessProvider();
+        fp.configure("0.1*MW - 1.0e-2*XLogP + nRotB");
+        fp.configure("TopoPSA*-2 + 3");
+        fp.configure("-nHBDon+nHBAcc");
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testParseMalformedFormulation() throws Exception
+    {
+        String[] malformed = new String[] {
+                "",
+                "   ",
+                "FOO",
+                "2*FOO + MW",
+                "MW*nRotB",
+                "2*",
+                "MW+",
+                "MW/2"};
+        for (String formulation : malformed)
+        {
+            DescriptorFitnessProvider fp = new DescriptorFitnessProvider();
+            try
+            {
+                fp.configure(formulation);
+                fail("Malformed formulation accepted: '" + formulation + "'");
+            }
+            catch (DENOPTIMException de)
+            {
+                assertTrue(de.getMessage().length() > 0,
+                                    "No explanation for '" + formulation + "'");
+            }
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,764 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2026 agent <agent@local>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.fitness;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.openscience.cdk.CDKConstants;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+import denoptim.constants.DENOPTIMConstants;
+import denoptim.exception.DENOPTIMException;
+import denoptim.io.DenoptimIO;
+import denoptim.logging.DENOPTIMLogger;
+
+/**
+ * Persistent cache of the results of fitness evaluations, keyed by the
+ * unique identifier (UID, i.e., InChI key) of the candidates. For each UID,
+ * the cache stores either the fitness value or the error message that led
+ * to the rejection of the candidate, and the pathname of the SDF file
+ * produced by the fitness provider.
+ * <p>
+ * The cache file is an append-only sequence of length-prefixed binary
+ * records, and can be shared by any number of concurrent runs: records are
+ * appended while holding an exclusive lock on the file, and records appended
+ * by others are read as needed. The in-memory index (UID to position of the
+ * record) is saved in the file <i>&lt;file&gt;.idx</i> when the cache is
+ * closed, so that a later run only needs to read the records appended after
+ * that point.
+ * </p>
+ *
+ * @author agent
+ */
+
+public class FitnessCache
+{
+    /**
+     * Marker of the beginning of the body of a record
+     */
+    private static final byte RECORDMARK = (byte) 0xFC;
+
+    /**
+     * Identifier of the format of the saved index
+     */
+    private static final int MAGIC = 0x46434931;
+
+    /**
+     * Maximum length of the stored error messages
+     */
+    private static final int MAXMSGLENGTH = 1000;
+
+    /**
+     * Properties identifying the candidate rather than its fitness. These
+     * are taken from the candidate being evaluated, not from the cached SDF
+     * file, which was written for another candidate with the same UID.
+     */
+    private static final Object[] IDENTITYTAGS = new Object[] {
+            CDKConstants.TITLE,
+            DENOPTIMConstants.GCODETAG,
+            DENOPTIMConstants.GRAPHTAG,
+            DENOPTIMConstants.GMSGTAG,
+            DENOPTIMConstants.PARENTGRAPHTAG,
+            DENOPTIMConstants.GRAPHLEVELTAG};
+
+    /**
+     * JVM-wide lock objects, one per cache file. File locks are held on
+     * behalf of the whole JVM, so threads must be serialized before
+     * requesting the file lock.
+     */
+    private static final ConcurrentHashMap<String,Object> FILELOCKS =
+            new ConcurrentHashMap<String,Object>();
+
+    /**
+     * The cache shared by the tasks of a run
+     */
+    private static FitnessCache sharedCache = null;
+
+    /**
+     * Pathname of the cache file
+     */
+    private final String cacheFile;
+
+    /**
+     * Lock object used to serialize the access to the cache file
+     */
+    private final Object fileLock;
+
+    /**
+     * Position of the record of each UID
+     */
+    private final Map<String,Long> index = new HashMap<String,Long>();
+
+    /**
+     * Position in the cache file up to which records have been indexed
+     */
+    private long logOffset = 0;
+
+//------------------------------------------------------------------------------
+
+    /**
+     * A cached result of a fitness evaluation
+     */
+
+    public static class Entry
+    {
+        private final double fitness;
+        private final String error;
+        private final String sdfFile;
+
+        public Entry(double fitness, String error, String sdfFile)
+        {
+            this.fitness = fitness;
+            this.error = error;
+            this.sdfFile = sdfFile;
+        }
+
+        /**
+         * @return <code>true</code> if the candidate was rejected
+         */
+        public boolean hasError()
+        {
+            return error != null;
+        }
+
+        public double getFitness()
+        {
+            return fitness;
+        }
+
+        /**
+         * @return the error message (i.e., <code>MOL_ERROR</code>) or
+         * <code>null</code>
+         */
+        public String getError()
+        {
+            return error;
+        }
+
+        /**
+         * @return the pathname of the SDF file returned by the fitness
+         * provider
+         */
+        public String getSDFFile()
+        {
+            return sdfFile;
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Constructor. The saved index of any existing cache file is loaded and
+     * completed with the records appended afterwards.
+     * @param cacheFile the pathname of the cache file
+     * @throws DENOPTIMException if the cache file cannot be read
+     */
+
+    public FitnessCache(String cacheFile) throws DENOPTIMException
+    {
+        this.cacheFile = cacheFile;
+        String path = new File(cacheFile).getAbsolutePath();
+        FILELOCKS.putIfAbsent(path, new Object());
+        this.fileLock = FILELOCKS.get(path);
+        synchronized (fileLock)
+        {
+            boolean restored = loadIndex();
+            int before = index.size();
+            readNewRecords(false);
+            DENOPTIMLogger.appLogger.info("Fitness cache " + cacheFile + ": "
+                    + (restored ? "restored " + before + " entries from index, "
+                                : "")
+                    + "read " + (index.size() - before)
+                    + " entries from file.");
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Gets the cache defined by the {@link FitnessParameters}. The cache is
+     * opened the first time this method is called.
+     * @return the shared cache
+     * @throws DENOPTIMException if the cache file cannot be read
+     */
+
+    public static synchronized FitnessCache getSharedCache()
+                                                      throws DENOPTIMException
+    {
+        if (sharedCache == null)
+        {
+            sharedCache = new FitnessCache(FitnessParameters.getCacheFile());
+        }
+        return sharedCache;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Closes the shared cache, if any.
+     */
+
+    public static synchronized void closeSharedCache()
+    {
+        if (sharedCache != null)
+        {
+            try
+            {
+                sharedCache.close();
+            }
+            catch (DENOPTIMException de)
+            {
+                DENOPTIMLogger.appLogger.warning(de.getMessage());
+            }
+            sharedCache = null;
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Gets the cached result for a UID, including results appended to the
+     * cache file by other processes.
+     * @param uid the UID
+     * @return the cached result or <code>null</code> if the UID is not in the
+     * cache
+     * @throws DENOPTIMException if the cache file cannot be read
+     */
+
+    public Entry get(String uid) throws DENOPTIMException
+    {
+        uid = uid.trim();
+        synchronized (fileLock)
+        {
+            Long pos = index.get(uid);
+            if (pos == null)
+            {
+                readNewRecords(false);
+                pos = index.get(uid);
+                if (pos == null)
+                {
+                    return null;
+                }
+            }
+            RandomAccessFile rafile = null;
+            try
+            {
+                rafile = new RandomAccessFile(cacheFile, "r");
+                Object[] rec = readRecord(rafile, pos);
+                if (rec == null || !uid.equals(rec[0]))
+                {
+                    // the file does not correspond to the saved index
+                    DENOPTIMLogger.appLogger.warning("Rebuilding index of "
+                                            + "fitness cache " + cacheFile);
+                    index.clear();
+                    logOffset = 0;
+                    readNewRecords(false);
+                    pos = index.get(uid);
+                    rec = pos == null ? null : readRecord(rafile, pos);
+                    if (rec == null)
+                    {
+                        return null;
+                    }
+                }
+                return (Entry) rec[1];
+            }
+            catch (IOException ioe)
+            {
+                throw new DENOPTIMException("Cannot read fitness cache "
+                                                          + cacheFile, ioe);
+            }
+            finally
+            {
+                closeQuietly(rafile);
+            }
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Adds a result unless the UID is already in the cache. The record is
+     * appended while holding an exclusive lock on the cache file.
+     * @param uid the UID
+     * @param entry the result
+     * @return <code>true</code> if the result has been added
+     * @throws DENOPTIMException if the cache file cannot be written
+     */
+
+    public boolean put(String uid, Entry entry) throws DENOPTIMException
+    {
+        uid = uid.trim();
+        if (uid.length() == 0)
+        {
+            return false;
+        }
+        synchronized (fileLock)
+        {
+            RandomAccessFile rafile = null;
+            FileLock lock = null;
+            try
+            {
+                rafile = new RandomAccessFile(cacheFile, "rw");
+                FileChannel channel = rafile.getChannel();
+                lock = channel.lock();
+
+                // Catch up with what other processes have written
+                readNewRecords(true);
+                if (index.containsKey(uid))
+                {
+                    return false;
+                }
+                if (channel.size() > logOffset)
+                {
+                    // a previous writer terminated while writing
+                    channel.truncate(logOffset);
+                }
+
+                byte[] body = encode(uid, entry);
+                ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                DataOutputStream dos = new DataOutputStream(baos);
+                dos.writeInt(body.length);
+                dos.write(body);
+                dos.flush();
+                rafile.seek(logOffset);
+                rafile.write(baos.toByteArray());
+                channel.force(false);
+                index.put(uid, logOffset);
+                logOffset = rafile.getFilePointer();
+            }
+            catch (IOException ioe)
+            {
+                throw new DENOPTIMException("Cannot write fitness cache "
+                                                          + cacheFile, ioe);
+            }
+            finally
+            {
+                try
+                {
+                    if (lock != null && lock.isValid())
+                    {
+                        lock.release();
+                    }
+                }
+                catch (IOException ioe)
+                {
+                    DENOPTIMLogger.appLogger.warning("Cannot release lock on "
+                                     + cacheFile + ": " + ioe.getMessage());
+                }
+                closeQuietly(rafile);
+            }
+        }
+        return true;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Gets the cached result for a candidate as the molecular representation
+     * that the fitness provider would return, i.e., the content of the cached
+     * SDF file, if still available, or the given molecule with the
+     * <code>FITNESS</code> or <code>MOL_ERROR</code> property. In either
+     * case, the result carries the properties of the given molecule that
+     * identify the candidate (i.e., title, graph ID and graph encoding).
+     * @param uid the UID of the candidate
+     * @param mol the molecular representation of the candidate
+     * @return the result or <code>null</code> if the UID is not in the cache
+     * @throws DENOPTIMException if the cache file cannot be read
+     */
+
+    public IAtomContainer getResult(String uid, IAtomContainer mol)
+                                                       throws DENOPTIMException
+    {
+        Entry entry = get(uid);
+        if (entry == null)
+        {
+            return null;
+        }
+        String sdfFile = entry.getSDFFile();
+        if (sdfFile.length() > 0 && new File(sdfFile).canRead())
+        {
+            try
+            {
+                IAtomContainer res = DenoptimIO.readSingleSDFFile(sdfFile);
+                if (!res.isEmpty())
+                {
+                    for (Object tag : IDENTITYTAGS)
+                    {
+                        res.removeProperty(tag);
+                    }
+                    for (Map.Entry<Object,Object> p :
+                                              mol.getProperties().entrySet())
+                    {
+                        if (!DENOPTIMConstants.FITNESSTAG.equals(p.getKey())
+                             && !DENOPTIMConstants.MOLERRORTAG.equals(
+                                                                 p.getKey()))
+                        {
+                            res.setProperty(p.getKey(), p.getValue());
+                        }
+                    }
+                    return res;
+                }
+            }
+            catch (DENOPTIMException de)
+            {
+                // fall back to the cached values
+            }
+        }
+        if (entry.hasError())
+        {
+            mol.setProperty("MOL_ERROR", entry.getError());
+        }
+        else
+        {
+            mol.setProperty("FITNESS", entry.getFitness());
+        }
+        return mol;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Adds the result returned by a fitness provider, i.e., a molecular
+     * representation with either the <code>MOL_ERROR</code> or a numerical
+     * <code>FITNESS</code> property. Other results are ignored.
+     * Only results actually produced by the fitness provider must be given
+     * to this method: errors set by DENOPTIM when the fitness provider
+     * does not deliver any result (e.g., unreadable output) may not be
+     * reproducible and must not be cached.
+     * @param uid the UID of the candidate
+     * @param result the molecular representation returned by the fitness
+     * provider
+     * @param sdfFile the pathname of the SDF file with the result
+     * @throws DENOPTIMException if the cache file cannot be written
+     */
+
+    public void putResult(String uid, IAtomContainer result, String sdfFile)
+                                                       throws DENOPTIMException
+    {
+        Object err = result.getProperty("MOL_ERROR");
+        Object fit = result.getProperty("FITNESS");
+        if (err != null)
+        {
+            put(uid, new Entry(Double.NaN, err.toString(), sdfFile));
+        }
+        else if (fit != null)
+        {
+            double value;
+            try
+            {
+                value = Double.parseDouble(fit.toString());
+            }
+            catch (NumberFormatException e)
+            {
+                return;
+            }
+            if (!Double.isNaN(value))
+            {
+                put(uid, new Entry(value, null, sdfFile));
+            }
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the number of results in the cache
+     */
+
+    public int size()
+    {
+        synchronized (fileLock)
+        {
+            return index.size();
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Saves the index, so that the next instance does not need to read the
+     * whole cache file.
+     * @throws DENOPTIMException if the index cannot be written
+     */
+
+    public void close() throws DENOPTIMException
+    {
+        synchronized (fileLock)
+        {
+            File idxFile = getIndexFile();
+            File tmp = new File(idxFile.getPath() + ".tmp");
+            DataOutputStream dos = null;
+            try
+            {
+                dos = new DataOutputStream(new BufferedOutputStream(
+                                                 new FileOutputStream(tmp)));
+                dos.writeInt(MAGIC);
+                dos.writeLong(logOffset);
+                dos.writeInt(index.size());
+                for (Map.Entry<String,Long> e : index.entrySet())
+                {
+                    dos.writeUTF(e.getKey());
+                    dos.writeLong(e.getValue());
+                }
+                dos.close();
+                dos = null;
+                Files.move(tmp.toPath(), idxFile.toPath(),
+                                       StandardCopyOption.REPLACE_EXISTING);
+            }
+            catch (IOException ioe)
+            {
+                throw new DENOPTIMException("Cannot save index of fitness "
+                                                  + "cache " + cacheFile, ioe);
+            }
+            finally
+            {
+                closeQuietly(dos);
+            }
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    private File getIndexFile()
+    {
+        return new File(cacheFile + ".idx");
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Loads the saved index, if it corresponds to the cache file.
+     * @return <code>true</code> if the index has been loaded
+     */
+
+    private boolean loadIndex()
+    {
+        File idxFile = getIndexFile();
+        if (!idxFile.exists())
+        {
+            return false;
+        }
+        DataInputStream dis = null;
+        try
+        {
+            dis = new DataInputStream(new BufferedInputStream(
+                                              new FileInputStream(idxFile)));
+            if (dis.readInt() != MAGIC)
+            {
+                return false;
+            }
+            long offset = dis.readLong();
+            if (offset > new File(cacheFile).length())
+            {
+                return false;
+            }
+            int n = dis.readInt();
+            for (int i=0; i<n; i++)
+            {
+                String uid = dis.readUTF();
+                index.put(uid, dis.readLong());
+            }
+            logOffset = offset;
+            return true;
+        }
+        catch (IOException ioe)
+        {
+            index.clear();
+            logOffset = 0;
+            return false;
+        }
+        finally
+        {
+            closeQuietly(dis);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Reads and indexes the complete records written after the current
+     * offset. Must be called holding the lock object.
+     * @param locked use <code>true</code> if holding the lock on the file
+     */
+
+    private void readNewRecords(boolean locked) throws DENOPTIMException
+    {
+        File file = new File(cacheFile);
+        if (!file.exists() || file.length() <= logOffset)
+        {
+            return;
+        }
+        RandomAccessFile rafile = null;
+        try
+        {
+            rafile = new RandomAccessFile(cacheFile, "r");
+            long length = rafile.length();
+            rafile.seek(logOffset);
+            DataInputStream dis = new DataInputStream(new BufferedInputStream(
+                    Channels.newInputStream(rafile.getChannel()), 65536));
+            long pos = logOffset;
+            while (pos + 4 <= length)
+            {
+                int len = dis.readInt();
+                if (len <= 0 || pos + 4 + len > length)
+                {
+                    // incomplete record, possibly still being written
+                    break;
+                }
+                byte[] body = new byte[len];
+                dis.readFully(body);
+                Object[] rec = decode(body);
+                if (rec == null)
+                {
+                    break;
+                }
+                index.put((String) rec[0], pos);
+                pos = pos + 4 + len;
+            }
+            if (locked && pos < length)
+            {
+                DENOPTIMLogger.appLogger.warning("Discarding incomplete "
+                        + "record at the end of fitness cache " + cacheFile);
+            }
+            logOffset = pos;
+        }
+        catch (IOException ioe)
+        {
+            throw new DENOPTIMException("Cannot read fitness cache "
+                                                          + cacheFile, ioe);
+        }
+        finally
+        {
+            closeQuietly(rafile);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Reads the record at the given position
+     * @return the UID and the {@link Entry}, or <code>null</code> if there
+     * is no valid record
+     */
+
+    private static Object[] readRecord(RandomAccessFile rafile, long pos)
+                                                            throws IOException
+    {
+        if (pos + 4 > rafile.length())
+        {
+            return null;
+        }
+        rafile.seek(pos);
+        int len = rafile.readInt();
+        if (len <= 0 || pos + 4 + len > rafile.length())
+        {
+            return null;
+        }
+        byte[] body = new byte[len];
+        rafile.readFully(body);
+        return decode(body);
+    }
+
+//------------------------------------------------------------------------------
+
+    private static byte[] encode(String uid, Entry entry) throws IOException
+    {
+        String error = entry.getError();
+        if (error != null && error.length() > MAXMSGLENGTH)
+        {
+            error = error.substring(0, MAXMSGLENGTH);
+        }
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DataOutputStream dos = new DataOutputStream(baos);
+        dos.writeByte(RECORDMARK);
+        dos.writeUTF(uid);
+        dos.writeBoolean(error != null);
+        dos.writeDouble(entry.getFitness());
+        dos.writeUTF(error == null ? "" : error);
+        dos.writeUTF(entry.getSDFFile() == null ? "" : entry.getSDFFile());
+        dos.flush();
+        return baos.toByteArray();
+    }
+
+//------------------------------------------------------------------------------
+
+    private static Object[] decode(byte[] body)
+    {
+        try
+        {
+            DataInputStream dis = new DataInputStream(
+                                              new ByteArrayInputStream(body));
+            if (dis.readByte() != RECORDMARK)
+            {
+                return null;
+            }
+            String uid = dis.readUTF();
+            boolean hasError = dis.readBoolean();
+            double fitness = dis.readDouble();
+            String error = dis.readUTF();
+            String sdfFile = dis.readUTF();
+            return new Object[] {uid,
+                    new Entry(fitness, hasError ? error : null, sdfFile)};
+        }
+        catch (IOException ioe)
+        {
+            return null;
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    private static void closeQuietly(Closeable c)
+    {
+        if (c == null)
+        {
+            return;
+        }
+        try
+        {
+            c.close();
+        }
+        catch (IOException ioe)
+        {
+            // nothing to do
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+}
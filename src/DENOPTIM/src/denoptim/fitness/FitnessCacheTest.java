@@ -0,0 +1,148 @@
+package denoptim.fitness;
+
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2026 agent <agent@local>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+
+import org.junit.jupiter.api.Test;
+import org.openscience.cdk.Atom;
+import org.openscience.cdk.AtomContainer;
+import org.openscience.cdk.CDKConstants;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+import denoptim.constants.DENOPTIMConstants;
+import denoptim.io.DenoptimIO;
+
+/**
+ * Unit test for the persistent cache of fitness results
+ *
+ * @author agent
+ */
+
+public class FitnessCacheTest
+{
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testPersistenceAndConcurrentWriters() throws Exception
+    {
+        File tmpDir = Files.createTempDirectory("_unitFitCache").toFile();
+        String file = tmpDir + System.getProperty("file.separator")
+                                                              + "fit.cache";
+
+        FitnessCache cache = new FitnessCache(file);
+        assertNull(cache.get("KEY-A"), "Empty cache");
+        assertTrue(cache.put("KEY-A",
+                        new FitnessCache.Entry(1.5, null, "a_FIT.sdf")));
+        assertTrue(cache.put("KEY-B",
+                        new FitnessCache.Entry(Double.NaN, "#bad", "b.sdf")));
+        assertFalse(cache.put("KEY-A",
+                        new FitnessCache.Entry(9.9, null, "other.sdf")),
+                        "Known UID is not replaced");
+
+        // another writer of the same file (e.g., another run)
+        FitnessCache other = new FitnessCache(file);
+        assertEquals(2, other.size(), "Entries read by second instance");
+        assertTrue(other.put("KEY-C",
+                        new FitnessCache.Entry(-3.0, null, "c_FIT.sdf")));
+        FitnessCache.Entry c = cache.get("KEY-C");
+        assertEquals(-3.0, c.getFitness(), 0.0, "Record of other writer");
+
+        FitnessCache.Entry a = cache.get("KEY-A");
+        assertFalse(a.hasError());
+        assertEquals(1.5, a.getFitness(), 0.0);
+        assertEquals("a_FIT.sdf", a.getSDFFile());
+        FitnessCache.Entry b = cache.get("KEY-B");
+        assertTrue(b.hasError());
+        assertEquals("#bad", b.getError());
+        cache.close();
+        other.close();
+
+        // a writer terminated while appending a record
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.seek(raf.length());
+        raf.writeInt(1000);
+        raf.write(new byte[10]);
+        raf.close();
+
+        FitnessCache restarted = new FitnessCache(file);
+        assertEquals(3, restarted.size(), "Entries after restart");
+        assertTrue(restarted.put("KEY-D",
+                        new FitnessCache.Entry(4.0, null, "d_FIT.sdf")));
+        restarted.close();
+
+        new File(file + ".idx").delete();
+        FitnessCache rebuilt = new FitnessCache(file);
+        assertEquals(4, rebuilt.size(), "Entries after rebuild");
+        assertEquals(4.0, rebuilt.get("KEY-D").getFitness(), 0.0);
+        assertEquals(-3.0, rebuilt.get("KEY-C").getFitness(), 0.0);
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testResultCarriesIdentityOfCandidate() throws Exception
+    {
+        File tmpDir = Files.createTempDirectory("_unitFitCache").toFile();
+        String fsep = System.getProperty("file.separator");
+        String file = tmpDir + fsep + "fit.cache";
+        String sdfFile = tmpDir + fsep + "M00000001_FIT.sdf";
+
+        // result of the first candidate with this UID
+        IAtomContainer first = new AtomContainer();
+        first.addAtom(new Atom("C"));
+        first.setProperty(CDKConstants.TITLE, "M00000001");
+        first.setProperty(DENOPTIMConstants.GCODETAG, 1);
+        first.setProperty(DENOPTIMConstants.GRAPHTAG, "graph-1");
+        first.setProperty(DENOPTIMConstants.GMSGTAG, "msg-1");
+        first.setProperty(DENOPTIMConstants.FITNESSTAG, 2.5);
+        DenoptimIO.writeMolecule(sdfFile, first, false);
+
+        FitnessCache cache = new FitnessCache(file);
+        cache.putResult("KEY-A", first, sdfFile);
+
+        // another candidate with the same UID
+        IAtomContainer second = new AtomContainer();
+        second.addAtom(new Atom("C"));
+        second.setProperty(CDKConstants.TITLE, "M00000007");
+        second.setProperty(DENOPTIMConstants.GCODETAG, 7);
+        second.setProperty(DENOPTIMConstants.GRAPHTAG, "graph-7");
+
+        IAtomContainer res = cache.getResult("KEY-A", second);
+        assertEquals("M00000007", res.getProperty(CDKConstants.TITLE));
+        assertEquals("7", res.getProperty(
+                                DENOPTIMConstants.GCODETAG).toString());
+        assertEquals("graph-7", res.getProperty(DENOPTIMConstants.GRAPHTAG));
+        assertNull(res.getProperty(DENOPTIMConstants.GMSGTAG),
+                                                  "Message of other graph");
+        assertEquals(2.5, Double.parseDouble(res.getProperty(
+                        DENOPTIMConstants.FITNESSTAG).toString()), 0.0);
+        cache.close();
+    }
+
+//------------------------------------------------------------------------------
+
+}
@@ -19,6 +19,7 @@
 package denoptim.fitness;
 
 import java.lang.reflect.Field;
+import java.util.ServiceLoader;
 
 import denoptim.exception.DENOPTIMException;
 import denoptim.io.DenoptimIO;
@@ -36,12 +37,12 @@ public class FitnessParameters
     /**
      * Flag indicating that at least one FS-parameter has been defined
      */
-    private static boolean fitParamsInUse = false;
+    protected static boolean fitParamsInUse = false;
     
     /**
      * Flag indication we want to use external fitness provider
      */
-    private static boolean useExternalFitness = true;
+    protected static boolean useExternalFitness = true;
 
     /**
      * Pathname of an external fitness provider executable
@@ -53,11 +54,74 @@ public class FitnessParameters
      */
     protected static String interpreterExternalExe = "BASH";
 
+    /**
+     * Number of persistent workers running the external fitness provider.
+     * When zero, the external fitness provider is run once per candidate.
+     */
+    protected static int numWorkers = 0;
+
+    /**
+     * TCP port where remote fitness workers connect. When zero, candidates
+     * are not given to remote workers.
+     */
+    protected static int coordinatorPort = 0;
+
+    /**
+     * Address of the network interface where remote fitness workers connect.
+     * When empty, only the loopback interface is used.
+     */
+    protected static String coordinatorAddress = "";
+
+    /**
+     * Duration (seconds) of the lease on a candidate given to a remote
+     * fitness worker
+     */
+    protected static long leaseTime = 60;
+
+    /**
+     * Maximum number of candidates submitted together to the external
+     * fitness provider. Values lower than 2 disable batch evaluation.
+     */
+    protected static int batchSize = 0;
+
+    /**
+     * Maximum time (milliseconds) a candidate waits for its batch to fill up
+     */
+    protected static long batchLatency = 1000;
+
+    /**
+     * Flag requesting to re-evaluate each candidate on its own when a batch
+     * fails as a whole
+     */
+    protected static boolean isolateBatchFailures = true;
+
+    /**
+     * Maximum wall-clock time (seconds) given to each run of the external
+     * fitness provider. Zero means no limit.
+     */
+    protected static long timeout = 0;
+
+    /**
+     * Pathname of the persistent cache of fitness results. When empty, no
+     * cache is used.
+     */
+    protected static String cacheFile = "";
+
     /**
      * Formulation of the internally provided fitness
      */
     protected static Object fitEquation = "";
 
+    /**
+     * Name of the fitness provider running within the JVM
+     */
+    protected static String providerName = "";
+
+    /**
+     * The fitness provider running within the JVM, if any
+     */
+    private static FitnessProvider provider = null;
+
 
 //------------------------------------------------------------------------------
 
@@ -95,6 +159,198 @@ public class FitnessParameters
         return interpreterExternalExe;
     }
 
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the number of persistent workers running the external fitness
+     * provider
+     */
+    public static int getNumberOfWorkers()
+    {
+        return numWorkers;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return <code>true</code> if candidates are sent to persistent workers
+     * running the external fitness provider, rather than to one
+     * process per candidate
+     */
+    public static boolean useFitnessWorkers()
+    {
+        return useExternalFitness && (numWorkers > 0 || coordinatorPort > 0);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return <code>true</code> if candidates are served to remote fitness
+     * workers connecting to this JVM
+     */
+    public static boolean useRemoteWorkers()
+    {
+        return useExternalFitness && coordinatorPort > 0;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the TCP port where remote fitness workers connect
+     */
+    public static int getCoordinatorPort()
+    {
+        return coordinatorPort;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the address of the network interface where remote fitness
+     * workers connect, or an empty string for the loopback interface
+     */
+    public static String getCoordinatorAddress()
+    {
+        return coordinatorAddress;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the duration (milliseconds) of the lease on a candidate given
+     * to a remote fitness worker
+     */
+    public static long getLeaseTime()
+    {
+        return leaseTime * 1000;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the maximum number of candidates submitted together to the
+     * external fitness provider
+     */
+    public static int getBatchSize()
+    {
+        return batchSize;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the maximum time (milliseconds) a candidate waits for its batch
+     * to fill up
+     */
+    public static long getBatchLatency()
+    {
+        return batchLatency;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return <code>true</code> if candidates of a failed batch are to be
+     * re-evaluated one by one
+     */
+    public static boolean isolateBatchFailures()
+    {
+        return isolateBatchFailures;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return <code>true</code> if candidates are submitted in batches to
+     * the external fitness provider
+     */
+    public static boolean useFitnessBatches()
+    {
+        return useExternalFitness && batchSize > 1;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the maximum wall-clock time (milliseconds) given to each run
+     * of the external fitness provider, or zero for no limit
+     */
+    public static long getTimeout()
+    {
+        return timeout * 1000;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the pathname of the persistent cache of fitness results
+     */
+    public static String getCacheFile()
+    {
+        return cacheFile;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return <code>true</code> if results of previous evaluations are
+     * taken from the persistent cache of fitness results
+     */
+    public static boolean useFitnessCache()
+    {
+        return cacheFile.length() > 0;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Gets the fitness provider running within the JVM. The provider is
+     * selected by name among those available via {@link ServiceLoader} and
+     * the built-in ones, and it is configured the first time this method is
+     * called. When no name is given, the built-in
+     * {@link DescriptorFitnessProvider} is used.
+     * @return the configured fitness provider
+     * @throws DENOPTIMException if the provider is not found or cannot be
+     * configured
+     */
+    public static synchronized FitnessProvider getFitnessProvider()
+                                                      throws DENOPTIMException
+    {
+        if (provider == null)
+        {
+            String name = providerName;
+            if (name.length() == 0)
+            {
+                name = DescriptorFitnessProvider.NAME;
+            }
+            FitnessProvider fp = null;
+            for (FitnessProvider candidate :
+                                  ServiceLoader.load(FitnessProvider.class))
+            {
+                if (candidate.getName().equalsIgnoreCase(name))
+                {
+                    fp = candidate;
+                    break;
+                }
+            }
+            // built-in providers are available also when the service
+            // configuration file is not in the class path
+            if (fp == null
+                && DescriptorFitnessProvider.NAME.equalsIgnoreCase(name))
+            {
+                fp = new DescriptorFitnessProvider();
+            }
+            if (fp == null)
+            {
+                throw new DENOPTIMException("Fitness provider '" + name
+                                                        + "' not found.");
+            }
+            fp.configure(fitEquation.toString());
+            provider = fp;
+        }
+        return provider;
+    }
+
 //------------------------------------------------------------------------------
     
     public static void interpretKeyword(String line) throws DENOPTIMException
@@ -134,10 +390,114 @@ public class FitnessParameters
         	fitParamsInUse = true;
             break;
             
+        case "FP-WORKERS=":
+            try
+            {
+                numWorkers = Integer.parseInt(value);
+            }
+            catch (NumberFormatException e)
+            {
+                msg = "Unable to parse the number of fitness workers '"
+                                                              + value + "'.";
+                throw new DENOPTIMException(msg);
+            }
+            fitParamsInUse = true;
+            break;
+
+        case "FP-COORDINATORPORT=":
+            try
+            {
+                coordinatorPort = Integer.parseInt(value);
+            }
+            catch (NumberFormatException e)
+            {
+                msg = "Unable to parse the port for remote fitness workers '"
+                                                              + value + "'.";
+                throw new DENOPTIMException(msg);
+            }
+            fitParamsInUse = true;
+            break;
+
+        case "FP-COORDINATORADDRESS=":
+            coordinatorAddress = value;
+            fitParamsInUse = true;
+            break;
+
+        case "FP-LEASE=":
+            try
+            {
+                leaseTime = Long.parseLong(value);
+            }
+            catch (NumberFormatException e)
+            {
+                msg = "Unable to parse the lease time '" + value + "'.";
+                throw new DENOPTIMException(msg);
+            }
+            fitParamsInUse = true;
+            break;
+
+        case "FP-BATCHSIZE=":
+            try
+            {
+                batchSize = Integer.parseInt(value);
+            }
+            catch (NumberFormatException e)
+            {
+                msg = "Unable to parse the batch size '" + value + "'.";
+                throw new DENOPTIMException(msg);
+            }
+            fitParamsInUse = true;
+            break;
+
+        case "FP-BATCHLATENCY=":
+            try
+            {
+                batchLatency = Long.parseLong(value);
+            }
+            catch (NumberFormatException e)
+            {
+                msg = "Unable to parse the batch latency '" + value + "'.";
+                throw new DENOPTIMException(msg);
+            }
+            fitParamsInUse = true;
+            break;
+
+        case "FP-BATCHISOLATION=":
+            isolateBatchFailures = Boolean.parseBoolean(value);
+            fitParamsInUse = true;
+            break;
+
+        case "FP-TIMEOUT=":
+            try
+            {
+                timeout = Long.parseLong(value);
+            }
+            catch (NumberFormatException e)
+            {
+                msg = "Unable to parse the timeout '" + value + "'.";
+                throw new DENOPTIMException(msg);
+            }
+            fitParamsInUse = true;
+            break;
+
+        case "FP-CACHE=":
+            cacheFile = value;
+            fitParamsInUse = true;
+            break;
+
         case "FP-EQUATION=":
         	fitEquation = value;
         	fitParamsInUse = true;
         	useExternalFitness = false;
+            // the provider is configured again with the new formulation
+            provider = null;
+            break;
+
+        case "FP-PROVIDER=":
+            providerName = value;
+            provider = null;
+            fitParamsInUse = true;
+            useExternalFitness = false;
             break;
 
         default:
@@ -164,6 +524,64 @@ public class FitnessParameters
             throw new DENOPTIMException(msg);
         }
 
+        if (numWorkers < 0)
+        {
+            msg = "Number of fitness workers must be zero or positive.";
+            throw new DENOPTIMException(msg);
+        }
+
+        if (numWorkers > 0 && externalExe.length() == 0)
+        {
+            msg = "Fitness workers require the pathname of the fitness "
+                  + "provider (FP-Source).";
+            throw new DENOPTIMException(msg);
+        }
+
+        if (coordinatorPort < 0 || coordinatorPort > 65535)
+        {
+            msg = "Port for remote fitness workers must be between 0 and "
+                  + "65535.";
+            throw new DENOPTIMException(msg);
+        }
+
+        if (coordinatorPort > 0 && numWorkers > 0)
+        {
+            msg = "Local (FP-Workers) and remote (FP-CoordinatorPort) "
+                  + "fitness workers cannot be used together.";
+            throw new DENOPTIMException(msg);
+        }
+
+        if (leaseTime <= 0)
+        {
+            msg = "Lease time for remote fitness workers must be positive.";
+            throw new DENOPTIMException(msg);
+        }
+
+        if (batchLatency < 0)
+        {
+            msg = "Batch latency must be zero or positive.";
+            throw new DENOPTIMException(msg);
+        }
+
+        if (timeout < 0)
+        {
+            msg = "Timeout of the fitness provider must be zero or positive.";
+            throw new DENOPTIMException(msg);
+        }
+
+        if (batchSize > 1 && externalExe.length() == 0)
+        {
+            msg = "Batch evaluation requires the pathname of the fitness "
+                  + "provider (FP-Source).";
+            throw new DENOPTIMException(msg);
+        }
+
+        if (!useExternalFitness)
+        {
+            // fails early on unknown providers or wrong formulations
+            getFitnessProvider();
+        }
+
         if (interpreterExternalExe.length() != 0)
         {
         	switch (interpreterExternalExe.toUpperCase())
@@ -0,0 +1,100 @@
+package denoptim.fitness;
+
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2026 agent <agent@local>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import org.junit.jupiter.api.Test;
+
+import denoptim.exception.DENOPTIMException;
+
+/**
+ * Unit test for the fitness-related parameters
+ *
+ * @author agent
+ */
+
+public class FitnessParametersTest
+{
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testGetFitnessProvider() throws Exception
+    {
+        String oldName = FitnessParameters.providerName;
+        Object oldEquation = FitnessParameters.fitEquation;
+        boolean oldInUse = FitnessParameters.fitParamsInUse;
+        boolean oldExternal = FitnessParameters.useExternalFitness;
+        try
+        {
+            // default provider
+            FitnessParameters.interpretKeyword("FP-PROVIDER=");
+            FitnessParameters.interpretKeyword("FP-EQUATION=2*nAtom");
+            FitnessProvider fp = FitnessParameters.getFitnessProvider();
+            assertTrue(fp instanceof DescriptorFitnessProvider,
+                                                "Default provider " + fp);
+            assertSame(fp, FitnessParameters.getFitnessProvider(),
+                                                    "Provider configured once");
+
+            // by name, case insensitive
+            FitnessParameters.interpretKeyword("FP-PROVIDER=descriptors");
+            FitnessProvider named = FitnessParameters.getFitnessProvider();
+            assertTrue(named instanceof DescriptorFitnessProvider,
+                                                   "Named provider " + named);
+
+            // unknown name
+            FitnessParameters.interpretKeyword("FP-PROVIDER=NoSuchProvider");
+            try
+            {
+                FitnessParameters.getFitnessProvider();
+                fail("Unknown provider found");
+            }
+            catch (DENOPTIMException de)
+            {
+                assertTrue(de.getMessage().contains("NoSuchProvider"));
+            }
+
+            // wrong formulation
+            FitnessParameters.interpretKeyword("FP-PROVIDER=Descriptors");
+            FitnessParameters.interpretKeyword("FP-EQUATION=2*FOO");
+            try
+            {
+                FitnessParameters.getFitnessProvider();
+                fail("Provider configured with unknown descriptor");
+            }
+            catch (DENOPTIMException de)
+            {
+                assertTrue(de.getMessage().contains("FOO"));
+            }
+        }
+        finally
+        {
+            FitnessParameters.interpretKeyword("FP-PROVIDER=" + oldName);
+            FitnessParameters.interpretKeyword("FP-EQUATION=" + oldEquation);
+            FitnessParameters.fitParamsInUse = oldInUse;
+            FitnessParameters.useExternalFitness = oldExternal;
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,72 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2026 agent <agent@local>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.fitness;
+
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+import denoptim.exception.DENOPTIMException;
+import denoptim.molecule.DENOPTIMGraph;
+
+
+/**
+ * Fitness provider running within the Java virtual machine of DENOPTIM.
+ * Implementations are discovered with {@link java.util.ServiceLoader}, i.e.,
+ * by listing the fully qualified class name in a
+ * <code>META-INF/services/denoptim.fitness.FitnessProvider</code> file
+ * available in the class path, and are selected by name with the
+ * <code>FP-Provider</code> keyword. Implementations must have a public
+ * constructor without arguments.
+ * <p>
+ * The result of the evaluation is reported in the same way external fitness
+ * providers do in their output file: by setting the <code>FITNESS</code>
+ * property of the molecule or, for candidates that must be rejected, the
+ * <code>MOL_ERROR</code> property.
+ * <p>
+ * A single instance is shared by all the tasks of a run, so implementations
+ * must be thread-safe.
+ *
+ * @author agent
+ */
+
+public interface FitnessProvider
+{
+    /**
+     * @return the name used to select this provider
+     */
+    public String getName();
+
+    /**
+     * Configures this provider before any evaluation.
+     * @param formulation the formulation of the fitness as given by the
+     * <code>FP-Equation</code> keyword, or an empty string.
+     * @throws DENOPTIMException if the formulation cannot be used
+     */
+    public void configure(String formulation) throws DENOPTIMException;
+
+    /**
+     * Evaluates the fitness of a candidate and stores the result as
+     * property <code>FITNESS</code> or <code>MOL_ERROR</code> of the
+     * molecular representation.
+     * @param mol the molecular representation of the candidate
+     * @param graph the graph representation of the candidate
+     * @throws DENOPTIMException if the evaluation cannot be performed
+     */
+    public void computeFitness(IAtomContainer mol, DENOPTIMGraph graph)
+                                                      throws DENOPTIMException;
+}
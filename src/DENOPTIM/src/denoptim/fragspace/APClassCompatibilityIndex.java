@@ -0,0 +1,429 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2026 agent <agent@local>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.fragspace;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable index of the attachment points (APs) found on the fragments of
+ * the library of fragments (i.e., type 1). Each AP is given a position in
+ * the index, and APs are sorted by fragment index and AP index.
+ * The index collects, for each APClass, the positions of the APs with that
+ * class, the fragments carrying any AP with that class, and the
+ * positions of the APs that are compatible with that class according to the
+ * compatibility matrix.
+ * The latter are stored both as arrays, which preserve the order defined
+ * by the compatibility matrix, and as bit sets, which allow to
+ * intersect the sets of APs compatible with several APClasses by means of
+ * bitwise operations.
+ *
+ * @author agent
+ */
+
+public class APClassCompatibilityIndex
+{
+    private static final int[] EMPTY = new int[0];
+
+    /**
+     * Index of the fragment owning the AP at each position
+     */
+    private final int[] fragOfAP;
+
+    /**
+     * Index of the AP (in the list of APs of its fragment) at each position
+     */
+    private final int[] idOfAP;
+
+    /**
+     * Index of the APClass of the AP at each position
+     */
+    private final int[] classOfAP;
+
+    /**
+     * First position of the APs of each fragment. The APs of fragment
+     * <code>i</code> occupy the positions from <code>firstAPOfFrag[i]</code>
+     * to <code>firstAPOfFrag[i+1]</code> (excluded).
+     */
+    private final int[] firstAPOfFrag;
+
+    /**
+     * Index of each APClass found in the library
+     */
+    private final HashMap<String,Integer> classIds;
+
+    /**
+     * Name of each APClass by class index
+     */
+    private final String[] classNames;
+
+    /**
+     * Positions of the APs having a given class (by class index)
+     */
+    private final int[][] apsPerClass;
+
+    /**
+     * Fragments having at least one AP with a given class (by class index)
+     */
+    private final int[][] fragsPerClass;
+
+    /**
+     * Positions of the APs compatible with a given APClass, in the order
+     * defined by the compatibility matrix
+     */
+    private final HashMap<String,int[]> compatAPs;
+
+    /**
+     * Positions of the APs compatible with a given APClass as bit set
+     */
+    private final HashMap<String,BitSet> compatAPsBits;
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Constructs the index.
+     * @param numFrags the number of fragments in the library of fragments.
+     * @param fragsApsPerApClass the map of APClass to list of APs with that
+     * class. Each AP is identified by a pair of integers: the index of
+     * the fragment, and the index of the AP in the fragment.
+     * @param compatMap the APClass compatibility matrix: map of the
+     * APClass on the growing graph to the list of APClasses permitted on the
+     * incoming fragment.
+     */
+
+    public APClassCompatibilityIndex(int numFrags,
+                    Map<String,ArrayList<ArrayList<Integer>>> fragsApsPerApClass,
+                    Map<String,ArrayList<String>> compatMap)
+    {
+        classIds = new HashMap<String,Integer>();
+        classNames = new String[fragsApsPerApClass.size()];
+        int numAPs = 0;
+        int[] apsOnFrag = new int[numFrags];
+        for (Map.Entry<String,ArrayList<ArrayList<Integer>>> e :
+                                                 fragsApsPerApClass.entrySet())
+        {
+            classNames[classIds.size()] = e.getKey();
+            classIds.put(e.getKey(), classIds.size());
+            for (ArrayList<Integer> fragAndAp : e.getValue())
+            {
+                apsOnFrag[fragAndAp.get(0)]++;
+                numAPs++;
+            }
+        }
+
+        firstAPOfFrag = new int[numFrags + 1];
+        for (int i=0; i<numFrags; i++)
+        {
+            firstAPOfFrag[i+1] = firstAPOfFrag[i] + apsOnFrag[i];
+        }
+
+        // Place APs sorted by fragment and AP index
+        fragOfAP = new int[numAPs];
+        idOfAP = new int[numAPs];
+        classOfAP = new int[numAPs];
+        int[] filled = new int[numFrags];
+        for (Map.Entry<String,ArrayList<ArrayList<Integer>>> e :
+                                                 fragsApsPerApClass.entrySet())
+        {
+            int clsId = classIds.get(e.getKey());
+            for (ArrayList<Integer> fragAndAp : e.getValue())
+            {
+                int frgId = fragAndAp.get(0);
+                int apId = fragAndAp.get(1);
+                int pos = firstAPOfFrag[frgId] + filled[frgId];
+                // insertion sort within the block of this fragment
+                while (pos > firstAPOfFrag[frgId] && idOfAP[pos-1] > apId)
+                {
+                    fragOfAP[pos] = fragOfAP[pos-1];
+                    idOfAP[pos] = idOfAP[pos-1];
+                    classOfAP[pos] = classOfAP[pos-1];
+                    pos--;
+                }
+                fragOfAP[pos] = frgId;
+                idOfAP[pos] = apId;
+                classOfAP[pos] = clsId;
+                filled[frgId]++;
+            }
+        }
+
+        // Group APs and fragments per class
+        int numClasses = classIds.size();
+        int[] apsCount = new int[numClasses];
+        int[] fragsCount = new int[numClasses];
+        int[] lastFrag = new int[numClasses];
+        Arrays.fill(lastFrag, -1);
+        for (int pos=0; pos<numAPs; pos++)
+        {
+            int clsId = classOfAP[pos];
+            apsCount[clsId]++;
+            if (lastFrag[clsId] != fragOfAP[pos])
+            {
+                fragsCount[clsId]++;
+                lastFrag[clsId] = fragOfAP[pos];
+            }
+        }
+        apsPerClass = new int[numClasses][];
+        fragsPerClass = new int[numClasses][];
+        for (int clsId=0; clsId<numClasses; clsId++)
+        {
+            apsPerClass[clsId] = new int[apsCount[clsId]];
+            fragsPerClass[clsId] = new int[fragsCount[clsId]];
+        }
+        Arrays.fill(apsCount, 0);
+        Arrays.fill(fragsCount, 0);
+        Arrays.fill(lastFrag, -1);
+        for (int pos=0; pos<numAPs; pos++)
+        {
+            int clsId = classOfAP[pos];
+            apsPerClass[clsId][apsCount[clsId]++] = pos;
+            if (lastFrag[clsId] != fragOfAP[pos])
+            {
+                fragsPerClass[clsId][fragsCount[clsId]++] = fragOfAP[pos];
+                lastFrag[clsId] = fragOfAP[pos];
+            }
+        }
+
+        // Collect compatible APs for each APClass in the compatibility matrix
+        compatAPs = new HashMap<String,int[]>();
+        compatAPsBits = new HashMap<String,BitSet>();
+        for (Map.Entry<String,ArrayList<String>> e : compatMap.entrySet())
+        {
+            if (e.getValue() == null)
+            {
+                continue;
+            }
+            int size = 0;
+            for (String compCls : e.getValue())
+            {
+                size = size + getAPsWithClassPositions(compCls).length;
+            }
+            int[] positions = new int[size];
+            BitSet bits = new BitSet(numAPs);
+            int n = 0;
+            for (String compCls : e.getValue())
+            {
+                int[] aps = getAPsWithClassPositions(compCls);
+                System.arraycopy(aps, 0, positions, n, aps.length);
+                n = n + aps.length;
+                for (int pos : aps)
+                {
+                    bits.set(pos);
+                }
+            }
+            compatAPs.put(e.getKey(), positions);
+            compatAPsBits.put(e.getKey(), bits);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the number of APs in the index
+     */
+
+    public int getAPCount()
+    {
+        return fragOfAP.length;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @param pos the position of an AP in the index
+     * @return the index of the fragment owning the AP
+     */
+
+    public int getFragmentId(int pos)
+    {
+        return fragOfAP[pos];
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @param pos the position of an AP in the index
+     * @return the index of the AP in the list of APs of its fragment
+     */
+
+    public int getAPId(int pos)
+    {
+        return idOfAP[pos];
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Returns the APClass of a specific AP.
+     * @param fragId the index of the fragment in the library of fragments
+     * @param apId the index of the AP in the fragment
+     * @return the APClass or <code>null</code> if the AP is not in the index
+     */
+
+    public String getAPClass(int fragId, int apId)
+    {
+        if (fragId < 0 || fragId >= firstAPOfFrag.length - 1)
+        {
+            return null;
+        }
+        for (int pos=firstAPOfFrag[fragId]; pos<firstAPOfFrag[fragId+1]; pos++)
+        {
+            if (idOfAP[pos] == apId)
+            {
+                return classNames[classOfAP[pos]];
+            }
+        }
+        return null;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Returns the positions of the APs with the given class, sorted by
+     * fragment and AP index.
+     * @param apClass the APClass
+     * @return the positions of the APs in this index
+     */
+
+    public int[] getAPsWithClass(String apClass)
+    {
+        return getAPsWithClassPositions(apClass).clone();
+    }
+
+//------------------------------------------------------------------------------
+
+    int[] getAPsWithClassPositions(String apClass)
+    {
+        Integer clsId = classIds.get(apClass);
+        if (clsId == null)
+        {
+            return EMPTY;
+        }
+        return apsPerClass[clsId];
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Returns the fragments that have at least one AP with the given class.
+     * @param apClass the APClass
+     * @return the sorted indexes of the fragments in the library of fragments
+     */
+
+    public int[] getFragmentsWithClass(String apClass)
+    {
+        Integer clsId = classIds.get(apClass);
+        if (clsId == null)
+        {
+            return EMPTY;
+        }
+        return fragsPerClass[clsId].clone();
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Returns the positions of the APs that are compatible with the given
+     * APClass. The order is that of the compatible classes in the
+     * compatibility matrix, and, within each class, that of fragment and AP
+     * indexes.
+     * @param srcApClass the APClass of the AP that should hold the fragment
+     * @return the positions of the APs in this index
+     */
+
+    public int[] getAPsCompatibleWithClass(String srcApClass)
+    {
+        return getAPsCompatibleWithClassPositions(srcApClass).clone();
+    }
+
+//------------------------------------------------------------------------------
+
+    int[] getAPsCompatibleWithClassPositions(String srcApClass)
+    {
+        int[] positions = compatAPs.get(srcApClass);
+        if (positions == null)
+        {
+            return EMPTY;
+        }
+        return positions;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Returns the positions of the APs that are compatible with all the
+     * given APClasses. The order is that of
+     * {@link #getAPsCompatibleWithClass(String)} for the first class.
+     * @param srcApClasses the APClasses of the APs that should hold the
+     * fragment
+     * @return the positions of the APs in this index
+     */
+
+    public int[] getAPsCompatibleWithAllClasses(List<String> srcApClasses)
+    {
+        if (srcApClasses.isEmpty())
+        {
+            return EMPTY;
+        }
+        int[] first = getAPsCompatibleWithClassPositions(srcApClasses.get(0));
+        if (srcApClasses.size() == 1 || first.length == 0)
+        {
+            return first.clone();
+        }
+
+        BitSet common = null;
+        for (int i=1; i<srcApClasses.size(); i++)
+        {
+            BitSet bits = compatAPsBits.get(srcApClasses.get(i));
+            if (bits == null)
+            {
+                return EMPTY;
+            }
+            if (common == null)
+            {
+                common = (BitSet) bits.clone();
+            }
+            else
+            {
+                common.and(bits);
+            }
+            if (common.isEmpty())
+            {
+                return EMPTY;
+            }
+        }
+
+        int[] tmp = new int[first.length];
+        int n = 0;
+        for (int pos : first)
+        {
+            if (common.get(pos))
+            {
+                tmp[n++] = pos;
+            }
+        }
+        return Arrays.copyOf(tmp, n);
+    }
+
+//------------------------------------------------------------------------------
+
+}
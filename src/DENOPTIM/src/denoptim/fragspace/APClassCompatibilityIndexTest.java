@@ -0,0 +1,256 @@
+package denoptim.fragspace;
+
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2026 agent <agent@local>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test for APClassCompatibilityIndex
+ *
+ * @author agent
+ */
+
+public class APClassCompatibilityIndexTest
+{
+    private static final String A = "A:0";
+    private static final String B = "B:1";
+    private static final String C = "C:0";
+    private static final String D = "D:1";
+
+//------------------------------------------------------------------------------
+
+    private static ArrayList<Integer> fragAndAp(int frgId, int apId)
+    {
+        return new ArrayList<Integer>(Arrays.asList(frgId, apId));
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Builds a small space. APs per fragment:
+     * <ul>
+     * <li>0: A, B</li>
+     * <li>1: C</li>
+     * <li>2: A, C, A</li>
+     * <li>3: D</li>
+     * </ul>
+     */
+
+    private static HashMap<String,ArrayList<ArrayList<Integer>>> getAPsMap()
+    {
+        HashMap<String,ArrayList<ArrayList<Integer>>> map =
+                new HashMap<String,ArrayList<ArrayList<Integer>>>();
+        map.put(A, new ArrayList<ArrayList<Integer>>(Arrays.asList(
+                fragAndAp(0,0), fragAndAp(2,0), fragAndAp(2,2))));
+        map.put(B, new ArrayList<ArrayList<Integer>>(Arrays.asList(
+                fragAndAp(0,1))));
+        map.put(C, new ArrayList<ArrayList<Integer>>(Arrays.asList(
+                fragAndAp(1,0), fragAndAp(2,1))));
+        map.put(D, new ArrayList<ArrayList<Integer>>(Arrays.asList(
+                fragAndAp(3,0))));
+        return map;
+    }
+
+//------------------------------------------------------------------------------
+
+    private static HashMap<String,ArrayList<String>> getCompatMap()
+    {
+        HashMap<String,ArrayList<String>> map =
+                new HashMap<String,ArrayList<String>>();
+        map.put(A, new ArrayList<String>(Arrays.asList(C, A)));
+        map.put(B, new ArrayList<String>(Arrays.asList(A)));
+        map.put(C, new ArrayList<String>(Arrays.asList(D)));
+        return map;
+    }
+
+//------------------------------------------------------------------------------
+
+    private static String toString(APClassCompatibilityIndex idx, int[] pos)
+    {
+        StringBuilder sb = new StringBuilder();
+        for (int p : pos)
+        {
+            sb.append(idx.getFragmentId(p)).append("-")
+                .append(idx.getAPId(p)).append(" ");
+        }
+        return sb.toString().trim();
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testLookups() throws Exception
+    {
+        APClassCompatibilityIndex idx = new APClassCompatibilityIndex(4,
+                getAPsMap(), getCompatMap());
+
+        assertEquals(7, idx.getAPCount(), "Number of APs");
+        assertEquals(A, idx.getAPClass(2, 2), "Class of AP 2-2");
+        assertEquals(C, idx.getAPClass(2, 1), "Class of AP 2-1");
+        assertNull(idx.getAPClass(3, 1), "Class of missing AP");
+        assertNull(idx.getAPClass(4, 0), "Class of missing fragment");
+
+        assertEquals("0-0 2-0 2-2", toString(idx, idx.getAPsWithClass(A)),
+                "APs with class A");
+        assertEquals("", toString(idx, idx.getAPsWithClass("none:0")),
+                "APs with unknown class");
+        assertEquals("[0, 2]",
+                Arrays.toString(idx.getFragmentsWithClass(A)),
+                "Fragments with class A");
+
+        assertEquals("1-0 2-1 0-0 2-0 2-2",
+                toString(idx, idx.getAPsCompatibleWithClass(A)),
+                "Order follows compatibility matrix");
+        assertEquals("", toString(idx, idx.getAPsCompatibleWithClass(D)),
+                "Class without compatible classes");
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testIntersection() throws Exception
+    {
+        APClassCompatibilityIndex idx = new APClassCompatibilityIndex(4,
+                getAPsMap(), getCompatMap());
+
+        assertEquals("0-0 2-0 2-2", toString(idx,
+                idx.getAPsCompatibleWithAllClasses(Arrays.asList(A, B))),
+                "Compatible with A and B");
+        assertEquals("0-0 2-0 2-2", toString(idx,
+                idx.getAPsCompatibleWithAllClasses(Arrays.asList(B, A))),
+                "Compatible with B and A");
+        assertEquals("", toString(idx,
+                idx.getAPsCompatibleWithAllClasses(Arrays.asList(A, C))),
+                "Compatible with A and C");
+        assertEquals("", toString(idx,
+                idx.getAPsCompatibleWithAllClasses(Arrays.asList(A, D))),
+                "Compatible with A and D");
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Compares the index against the nested-loop intersection on a
+     * random space.
+     */
+
+    @Test
+    public void testIntersectionOnRandomSpace() throws Exception
+    {
+        Random rng = new Random(1234);
+        int numFrags = 60;
+        String[] classes = new String[8];
+        for (int i=0; i<classes.length; i++)
+        {
+            classes[i] = "cls" + i + ":" + (i % 2);
+        }
+        HashMap<String,ArrayList<ArrayList<Integer>>> apsMap =
+                new HashMap<String,ArrayList<ArrayList<Integer>>>();
+        for (int f=0; f<numFrags; f++)
+        {
+            int nAPs = 1 + rng.nextInt(4);
+            for (int ap=0; ap<nAPs; ap++)
+            {
+                String cls = classes[rng.nextInt(classes.length)];
+                if (!apsMap.containsKey(cls))
+                {
+                    apsMap.put(cls, new ArrayList<ArrayList<Integer>>());
+                }
+                apsMap.get(cls).add(fragAndAp(f, ap));
+            }
+        }
+        HashMap<String,ArrayList<String>> compatMap =
+                new HashMap<String,ArrayList<String>>();
+        for (String cls : classes)
+        {
+            ArrayList<String> comp = new ArrayList<String>();
+            for (String other : classes)
+            {
+                if (rng.nextBoolean())
+                {
+                    comp.add(other);
+                }
+            }
+            compatMap.put(cls, comp);
+        }
+
+        APClassCompatibilityIndex idx = new APClassCompatibilityIndex(
+                numFrags, apsMap, compatMap);
+
+        for (int i=0; i<50; i++)
+        {
+            ArrayList<String> src = new ArrayList<String>();
+            int n = 1 + rng.nextInt(3);
+            for (int j=0; j<n; j++)
+            {
+                src.add(classes[rng.nextInt(classes.length)]);
+            }
+
+            // Reference: intersection of lists of [fragId, apId] pairs
+            ArrayList<ArrayList<Integer>> expected = null;
+            for (String srcCls : src)
+            {
+                ArrayList<ArrayList<Integer>> compForOne =
+                        new ArrayList<ArrayList<Integer>>();
+                for (String compCls : compatMap.get(srcCls))
+                {
+                    if (apsMap.containsKey(compCls))
+                    {
+                        compForOne.addAll(apsMap.get(compCls));
+                    }
+                }
+                if (expected == null)
+                {
+                    expected = compForOne;
+                    continue;
+                }
+                ArrayList<ArrayList<Integer>> toKeep =
+                        new ArrayList<ArrayList<Integer>>();
+                for (ArrayList<Integer> cand : expected)
+                {
+                    if (compForOne.contains(cand))
+                    {
+                        toKeep.add(cand);
+                    }
+                }
+                expected = toKeep;
+            }
+
+            int[] found = idx.getAPsCompatibleWithAllClasses(src);
+            assertEquals(expected.size(), found.length, "Size for " + src);
+            for (int k=0; k<found.length; k++)
+            {
+                assertEquals(expected.get(k), fragAndAp(
+                        idx.getFragmentId(found[k]), idx.getAPId(found[k])),
+                        "Entry " + k + " for " + src);
+            }
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+}
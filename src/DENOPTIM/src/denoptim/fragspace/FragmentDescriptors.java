@@ -0,0 +1,214 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2026 agent <agent@local>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.fragspace;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+import denoptim.constants.DENOPTIMConstants;
+import denoptim.exception.DENOPTIMException;
+import denoptim.molecule.DENOPTIMAttachmentPoint;
+import denoptim.molecule.DENOPTIMFragment;
+import denoptim.utils.DENOPTIMMoleculeUtils;
+
+/**
+ * Immutable collection of per-fragment descriptors that can be used to
+ * evaluate properties of a graph without building its molecular
+ * representation.
+ *
+ * @author agent
+ */
+
+public class FragmentDescriptors
+{
+    /**
+     * Number of non-hydrogen atoms, including ring closing attractors
+     */
+    private final int heavyAtomCount;
+
+    /**
+     * Number of ring closing attractors per type (i.e., element symbol)
+     */
+    private final Map<String,Integer> rcaCounts;
+
+    /**
+     * Molecular weight of the fragment or NaN if not available
+     */
+    private final double molecularWeight;
+
+    /**
+     * Number of rotatable bonds or -1 if not available
+     */
+    private final int rotatableBondCount;
+
+    /**
+     * AP classes of the attachment points (one entry per AP)
+     */
+    private final List<String> apClasses;
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Calculates the descriptors of a fragment. The calculation of
+     * descriptors may alter flags on atoms and bonds, thus the given
+     * molecular representation should not be the one held in any of the
+     * libraries of the fragment space.
+     * @param mol the molecular representation of the fragment
+     * @throws DENOPTIMException if the attachment points cannot be read
+     */
+
+    public FragmentDescriptors(IAtomContainer mol) throws DENOPTIMException
+    {
+        heavyAtomCount = DENOPTIMMoleculeUtils.getHeavyAtomCount(mol);
+
+        HashMap<String,Integer> rcas = new HashMap<String,Integer>();
+        for (IAtom atm : mol.atoms())
+        {
+            String el = atm.getSymbol();
+            if (DENOPTIMConstants.RCATYPEMAP.containsKey(el))
+            {
+                if (rcas.containsKey(el))
+                {
+                    rcas.put(el, rcas.get(el) + 1);
+                }
+                else
+                {
+                    rcas.put(el, 1);
+                }
+            }
+        }
+        rcaCounts = Collections.unmodifiableMap(rcas);
+
+        ArrayList<String> classes = new ArrayList<String>();
+        for (DENOPTIMAttachmentPoint ap : new DENOPTIMFragment(mol).getAllAPs())
+        {
+            classes.add(ap.getAPClass());
+        }
+        apClasses = Collections.unmodifiableList(classes);
+
+        double mw = Double.NaN;
+        try
+        {
+            mw = DENOPTIMMoleculeUtils.getMolecularWeight(mol);
+        }
+        catch (Throwable t)
+        {
+            // descriptor not available
+        }
+        molecularWeight = mw;
+
+        int nrot = -1;
+        try
+        {
+            nrot = DENOPTIMMoleculeUtils.getNumberOfRotatableBonds(mol);
+        }
+        catch (Throwable t)
+        {
+            // descriptor not available
+        }
+        rotatableBondCount = nrot;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the number of non-hydrogen atoms in the fragment, including
+     * ring closing attractors
+     */
+
+    public int getHeavyAtomCount()
+    {
+        return heavyAtomCount;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @param rcaType the element symbol of the ring closing attractor
+     * @return the number of ring closing attractors of the given type
+     */
+
+    public int getRCACount(String rcaType)
+    {
+        Integer n = rcaCounts.get(rcaType);
+        if (n == null)
+        {
+            return 0;
+        }
+        return n;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the molecular weight of the isolated fragment, or NaN if it
+     * could not be calculated
+     */
+
+    public double getMolecularWeight()
+    {
+        return molecularWeight;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the number of rotatable bonds in the isolated fragment, or -1
+     * if it could not be calculated
+     */
+
+    public int getRotatableBondCount()
+    {
+        return rotatableBondCount;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the number of attachment points
+     */
+
+    public int getAPCount()
+    {
+        return apClasses.size();
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the unmodifiable list of AP classes, one per attachment point,
+     * in the same order as the APs of {@link DENOPTIMFragment#getAllAPs()}.
+     * Entries are <code>null</code> if the fragment space does not use
+     * AP classes.
+     */
+
+    public List<String> getAPClasses()
+    {
+        return apClasses;
+    }
+
+//------------------------------------------------------------------------------
+
+}
@@ -37,7 +37,6 @@ import denoptim.io.DenoptimIO;
 import denoptim.logging.DENOPTIMLogger;
 import denoptim.molecule.DENOPTIMFragment;
 import denoptim.rings.RingClosureParameters;
-import denoptim.utils.FragmentUtils;
 import denoptim.utils.GraphUtils;
 
 
@@ -116,6 +115,20 @@ public class FragmentSpace
     private static HashMap<String, ArrayList<ArrayList<Integer>>> 
 							    fragsApsPerApClass;
 
+    /**
+     * Index of the APs on the fragments and of their compatibility according
+     * to the APClass compatibility matrix. Read by concurrent offspring
+     * generators and combination producers: readers must work on the 
+     * reference returned by {@link #getAPClassIndex()}.
+     */
+    private static volatile APClassCompatibilityIndex apClassIndex;
+
+    /**
+     * Descriptors of the fragments in each library (scaffolds, fragments, and
+     * capping groups)
+     */
+    private static FragmentDescriptors[][] fragDescriptors;
+
     /**
      * APclass-specific constraints to constitutional symmetry
      */
@@ -206,6 +219,8 @@ public class FragmentSpace
     	setRCCompatibilityMatrix(rcCpMap);
    
     	FragmentSpaceUtils.groupAndClassifyFragments(apClassBasedApproch);
+    	resetAPClassIndex();
+    	getAPClassIndex();
     	
     	isValid = true;
     }
@@ -314,6 +329,16 @@ public class FragmentSpace
     public static String getAPClassForFragment(IdFragmentAndAP apId)
     {
     	String cls = null;
+    	APClassCompatibilityIndex idx = getAPClassIndex();
+    	if (apId.getVertexMolType() == 1 && idx != null)
+    	{
+    	    cls = idx.getAPClass(apId.getVertexMolId(),
+    	            apId.getApId());
+    	    if (cls != null)
+    	    {
+    	        return cls;
+    	    }
+    	}
     	try
     	{
         	DENOPTIMFragment frg = new DENOPTIMFragment(FragmentSpace.getFragment(
@@ -331,8 +356,12 @@ public class FragmentSpace
 //------------------------------------------------------------------------------
 
     /**
-     * Return the molecular representation of a fragment of any type (i.e., 
-     * scaffold, fragment, capping).
+     * Return a copy of the molecular representation of a fragment of any 
+     * type (i.e., scaffold, fragment, capping). Use this method only when
+     * the molecular representation has to be altered, for instance when
+     * assembling molecules from graphs. Otherwise, see 
+     * {@link #getFragmentView(int, int)} and 
+     * {@link #getFragmentDescriptors(int, int)}.
      * @param frgTyp the type of fragment - selects the library from which the
      * fragment is taken
      * @param molIdx the index (0-based) of the fragment in
@@ -343,6 +372,37 @@ public class FragmentSpace
 
     public static IAtomContainer getFragment(int frgTyp, int molIdx) 
 						        throws DENOPTIMException
+    {
+        IAtomContainer molClone = null;
+        try
+        {
+            molClone = (IAtomContainer) getFragmentView(frgTyp, molIdx).clone();
+        }
+        catch (CloneNotSupportedException cnse)
+        {
+            throw new DENOPTIMException(cnse);
+        }
+
+        return molClone;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Return the molecular representation of a fragment of any type (i.e.,
+     * scaffold, fragment, capping) as held in the library. The returned
+     * object is shared by all threads and
+     * <b>must not be modified</b>: not even atom or bond properties and flags.
+     * @param frgTyp the type of fragment - selects the library from which the
+     * fragment is taken
+     * @param molIdx the index (0-based) of the fragment in
+     * the proper library, which is defied by the type of fragment
+     * @return the read-only molecular representation of the fragment
+     * @throws DENOPTIMException
+     */
+
+    public static IAtomContainer getFragmentView(int frgTyp, int molIdx) 
+						        throws DENOPTIMException
     {
 	String msg = "";
 	if (fragmentLib == null || scaffoldLib == null || cappingLib == null)
@@ -350,7 +410,7 @@ public class FragmentSpace
 	    msg = "Cannot retrieve fragments before defining the FragmentSpace";
 	    throw new DENOPTIMException(msg);
 	}
-        IAtomContainer iac = null, molClone = null;
+        IAtomContainer iac = null;
 	switch (frgTyp)
 	{
 	case 0:
@@ -397,17 +457,71 @@ public class FragmentSpace
             DENOPTIMLogger.appLogger.log(Level.SEVERE, msg);
 	    throw new DENOPTIMException(msg);
 	}
-	
-        try
+
+        return iac;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Returns the descriptors of a fragment of any type (i.e., scaffold,
+     * fragment, capping). Descriptors are calculated upon first request and
+     * then stored for the lifetime of the library.
+     * @param frgTyp the type of fragment - selects the library from which the
+     * fragment is taken
+     * @param molIdx the index (0-based) of the fragment in
+     * the proper library, which is defied by the type of fragment
+     * @return the descriptors of the fragment
+     * @throws DENOPTIMException
+     */
+
+    public static FragmentDescriptors getFragmentDescriptors(int frgTyp, 
+                                      int molIdx) throws DENOPTIMException
+    {
+        IAtomContainer iac = getFragmentView(frgTyp, molIdx);
+        FragmentDescriptors[][] tables = fragDescriptors;
+        if (tables == null)
         {
-            molClone = (IAtomContainer) iac.clone();
+            tables = new FragmentDescriptors[3][];
+            fragDescriptors = tables;
         }
-        catch (CloneNotSupportedException cnse)
+        FragmentDescriptors[] table = tables[frgTyp];
+        if (table == null || table.length <= molIdx)
         {
-            throw new DENOPTIMException(cnse);
+            table = new FragmentDescriptors[getLibrary(frgTyp).size()];
+            tables[frgTyp] = table;
+        }
+        // NB: concurrent requests may calculate the same descriptors twice,
+        // but the result is the same immutable object
+        FragmentDescriptors desc = table[molIdx];
+        if (desc == null)
+        {
+            try
+            {
+                desc = new FragmentDescriptors((IAtomContainer) iac.clone());
+            }
+            catch (CloneNotSupportedException cnse)
+            {
+                throw new DENOPTIMException(cnse);
+            }
+            table[molIdx] = desc;
         }
+        return desc;
+    }
 
-        return molClone;
+//------------------------------------------------------------------------------
+
+    private static ArrayList<IAtomContainer> getLibrary(int frgTyp)
+    {
+        switch (frgTyp)
+        {
+            case 0:
+                return scaffoldLib;
+            case 1:
+                return fragmentLib;
+            default:
+                return cappingLib;
+        }
     }
 
 //------------------------------------------------------------------------------
@@ -445,7 +559,7 @@ public class FragmentSpace
 	    String apc = "";
 	    try 
 	    {
-		apc = FragmentUtils.getAPForFragment(i,2).get(0).getAPClass();
+		apc = getFragmentDescriptors(2,i).getAPClasses().get(0);
 		if (apc.equals(query))
 		{
 		    selected.add(i);
@@ -686,23 +800,96 @@ public class FragmentSpace
     public static ArrayList<IdFragmentAndAP> getFragsWithAPClass(
 								 String apclass)
     {
-		ArrayList<IdFragmentAndAP> lst = new ArrayList<IdFragmentAndAP>();
-		
-		if (fragsApsPerApClass.containsKey(apclass))
-		{
-		    for (ArrayList<Integer> idxs : fragsApsPerApClass.get(apclass))
-		    {
-		    	IdFragmentAndAP apId = new IdFragmentAndAP(-1, //vertexId
-		    											   idxs.get(0), //MolId,
-														   1, //FragType
-														   idxs.get(1), //ApId
-														   -1, //noVSym
-														   -1);//noAPSym
-		    	lst.add(apId);
-		    }
-		}
+        ArrayList<IdFragmentAndAP> lst = new ArrayList<IdFragmentAndAP>();
+        APClassCompatibilityIndex idx = getAPClassIndex();
+        if (idx != null)
+        {
+            addFragAPs(idx, idx.getAPsWithClassPositions(apclass), lst);
+        }
         return lst;
     }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Returns the list of fragments that have at least one attachment point 
+     * with the given class.
+     * @param apclass 
+     * @return the sorted list of indexes of fragments in the library.
+     */
+
+    public static ArrayList<Integer> getFragmentsWithAPClass(String apclass)
+    {
+        ArrayList<Integer> lst = new ArrayList<Integer>();
+        APClassCompatibilityIndex idx = getAPClassIndex();
+        if (idx != null)
+        {
+            for (int fragId : idx.getFragmentsWithClass(apclass))
+            {
+                lst.add(fragId);
+            }
+        }
+        return lst;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Returns the index of the APs on the fragments of the library, and of
+     * their compatibility with APClasses. The index is built when needed
+     * and dropped when any of the data it is made of is replaced.
+     * @return the index, or <code>null</code> if the fragment space does not
+     * define APClasses.
+     */
+
+    public static APClassCompatibilityIndex getAPClassIndex()
+    {
+        APClassCompatibilityIndex idx = apClassIndex;
+        if (idx == null && fragmentLib != null 
+                && fragsApsPerApClass != null && compatMap != null)
+        {
+            idx = new APClassCompatibilityIndex(fragmentLib.size(),
+                    fragsApsPerApClass, compatMap);
+            apClassIndex = idx;
+        }
+        return idx;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Forces the index of APs and APClass compatibility to be rebuilt.
+     * To be called whenever the content of the fragment library, 
+     * of the compatibility matrix, or of the classification of APs is 
+     * changed in place.
+     */
+
+    public static void resetAPClassIndex()
+    {
+        apClassIndex = null;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Appends the identifiers of the APs at the given positions of the
+     * APClass index.
+     */
+
+    private static void addFragAPs(APClassCompatibilityIndex idx,
+            int[] positions, ArrayList<IdFragmentAndAP> lst)
+    {
+        lst.ensureCapacity(lst.size() + positions.length);
+        for (int pos : positions)
+        {
+            lst.add(new IdFragmentAndAP(-1, //vertexId
+                                        idx.getFragmentId(pos), //MolId,
+                                        1, //FragType
+                                        idx.getAPId(pos), //ApId
+                                        -1, //noVSym
+                                        -1));//noAPSym
+        }
+    }
     
 //------------------------------------------------------------------------------
     
@@ -751,42 +938,20 @@ public class FragmentSpace
     public static ArrayList<IdFragmentAndAP> getFragAPsCompatibleWithTheseAPs(
     		ArrayList<IdFragmentAndAP> srcAPs)
     {
-		ArrayList<IdFragmentAndAP> compFrAps = new ArrayList<IdFragmentAndAP>();
-		boolean first = true;
-		for (IdFragmentAndAP apId : srcAPs)
-		{
-			String srcApCls = getAPClassForFragment(apId);
-			ArrayList<IdFragmentAndAP> compForOne = 
-                                         getFragAPsCompatibleWithClass(srcApCls);
-			if (first)
-			{
-				compFrAps.addAll(compForOne);
-				first = false;
-				continue;
-			}
-			
-			ArrayList<IdFragmentAndAP> toKeep = new ArrayList<IdFragmentAndAP>();
-			for (IdFragmentAndAP candAp : compFrAps)
-			{
-				for (IdFragmentAndAP newId : compForOne)
-				{
-					if (newId.sameFragAndAp(candAp))
-					{
-						toKeep.add(candAp);
-						break;
-					}
-				}
-			}
-			
-			compFrAps = toKeep;
-			
-			if (compFrAps.size()==0)
-			{
-				break;
-			}
-		}
-
-		return compFrAps;
+        ArrayList<IdFragmentAndAP> compFrAps = new ArrayList<IdFragmentAndAP>();
+        APClassCompatibilityIndex idx = getAPClassIndex();
+        if (srcAPs.isEmpty() || idx == null)
+        {
+            return compFrAps;
+        }
+        ArrayList<String> srcApClasses = new ArrayList<String>();
+        for (IdFragmentAndAP apId : srcAPs)
+        {
+            srcApClasses.add(getAPClassForFragment(apId));
+        }
+        addFragAPs(idx, idx.getAPsCompatibleWithAllClasses(srcApClasses),
+                compFrAps);
+        return compFrAps;
     }
     
 //------------------------------------------------------------------------------
@@ -804,24 +969,15 @@ public class FragmentSpace
     public static ArrayList<IdFragmentAndAP> getFragAPsCompatibleWithClass(
     		String srcApCls)
     {
-    	ArrayList<IdFragmentAndAP> compatFragAps = 
-    			new ArrayList<IdFragmentAndAP>();
-    	
-    	// Take the compatible AP classes
-		ArrayList<String> compatApClasses = 
-		     FragmentSpace.getCompatibleAPClasses(srcApCls);
-		
-		// Find all APs with any compatible class
-		if (compatApClasses != null)
-		{
-			for (String compClass : compatApClasses)
-			{
-			    compatFragAps.addAll(
-			    		FragmentSpace.getFragsWithAPClass(compClass));
-			}
-		}
-		
-		return compatFragAps;
+        ArrayList<IdFragmentAndAP> compatFragAps = 
+                new ArrayList<IdFragmentAndAP>();
+        APClassCompatibilityIndex idx = getAPClassIndex();
+        if (idx != null)
+        {
+            addFragAPs(idx, idx.getAPsCompatibleWithClassPositions(srcApCls),
+                    compatFragAps);
+        }
+        return compatFragAps;
     }
 
 //------------------------------------------------------------------------------
@@ -896,6 +1052,7 @@ public class FragmentSpace
     public static void setScaffoldLibrary(ArrayList<IAtomContainer> lib)
     {
 	scaffoldLib = lib;
+	fragDescriptors = null;
     }
 
 //------------------------------------------------------------------------------
@@ -903,6 +1060,8 @@ public class FragmentSpace
     public static void setFragmentLibrary(ArrayList<IAtomContainer> lib)
     {
 	fragmentLib = lib;
+	fragDescriptors = null;
+	apClassIndex = null;
     }
 
 //------------------------------------------------------------------------------
@@ -910,6 +1069,7 @@ public class FragmentSpace
     public static void setCappingLibrary(ArrayList<IAtomContainer> lib)
     {
 	cappingLib = lib;
+	fragDescriptors = null;
     }
 
 //------------------------------------------------------------------------------
@@ -918,6 +1078,7 @@ public class FragmentSpace
 					HashMap<String,ArrayList<String>> map)
     {
         compatMap = map;
+        apClassIndex = null;
     }
 
 //------------------------------------------------------------------------------
@@ -963,6 +1124,7 @@ public class FragmentSpace
 			      HashMap<String,ArrayList<ArrayList<Integer>>> map)
     {
         fragsApsPerApClass = map;
+        apClassIndex = null;
     }
 
 //------------------------------------------------------------------------------
@@ -999,6 +1161,8 @@ public class FragmentSpace
         fragPoolPerNumAP = null;
         apClassesPerFrag = null;
         fragsApsPerApClass = null;
+        apClassIndex = null;
+        fragDescriptors = null;
         symmConstraints = null;
 		isValid = false;
     }
@@ -333,10 +333,42 @@ public class FragmentSpaceTest
     			FragmentSpace.getFragmentsCompatibleWithTheseAPs(srcAPs);
     	
     	assertEquals(3,lst.size(),"Wrong number of compatible fragments.");
-    	
-    	FragmentSpace.clearAll();	
+
+    	FragmentSpace.clearAll();
     }
-    
+
 //------------------------------------------------------------------------------
-    
+
+    @Test
+    public void testGetFragmentViewAndDescriptors() throws Exception
+    {
+    	buildFragmentSpace();
+
+    	assertTrue(FragmentSpace.getFragmentLibrary().get(0) ==
+    			FragmentSpace.getFragmentView(1, 0),
+    			"View is not the library entry.");
+    	assertFalse(FragmentSpace.getFragmentLibrary().get(0) ==
+    			FragmentSpace.getFragment(1, 0),
+    			"Copy is the library entry.");
+
+    	FragmentDescriptors d1 = FragmentSpace.getFragmentDescriptors(1, 0);
+    	assertEquals(3, d1.getHeavyAtomCount(), "Heavy atoms in fragment 0");
+    	assertTrue(d1 == FragmentSpace.getFragmentDescriptors(1, 0),
+    			"Descriptors are not stored.");
+    	assertEquals(1, FragmentSpace.getFragmentDescriptors(1, 1)
+    			.getHeavyAtomCount(), "Heavy atoms in fragment 1");
+    	assertEquals(3, FragmentSpace.getFragmentDescriptors(0, 0)
+    			.getHeavyAtomCount(), "Heavy atoms in scaffold 0");
+    	assertEquals(0, FragmentSpace.getFragmentDescriptors(2, 0)
+    			.getHeavyAtomCount(), "Heavy atoms in capping group 0");
+
+    	FragmentDescriptors d3 = FragmentSpace.getFragmentDescriptors(1, 2);
+    	assertEquals(3, d3.getAPCount(), "Number of APs in fragment 2");
+    	assertTrue(d3.getAPClasses().contains(APC3), "Missing APClass.");
+
+    	FragmentSpace.clearAll();
+    }
+
+//------------------------------------------------------------------------------
+
 }
@@ -42,6 +42,12 @@ import denoptim.utils.GraphUtils;
  * combinations of fragments one after the other (sequentially) in a 
  * low-memory usage fashion, that is, without 
  * generating and storing the complete list of combinations.
+ * The combinations are numbered by reading the set of indeces 
+ * (see {@link #getNextIds()}) as a number in which the digit of each source 
+ * AP has as base the size of the set of candidates for that AP. An iterator
+ * may cover only a range of such numbers, and can be split into 
+ * iterators covering disjoint ranges (see {@link #trySplit()}) that can be
+ * used by different threads.
  *
  * @author Marco Foscato
  */
@@ -90,15 +96,26 @@ public class FragsCombinationIterator
     private ArrayList<Integer> totCandsPerAP = new ArrayList<Integer>();
 
     /**
-     * Total number for combinations
+     * Total number for combinations, or <code>Long.MAX_VALUE</code> if there
+     * are too many combinations to number them
      */
-    private int totCombs = 0;
+    private long totCombs = 0;
 
     /**
      * Current number of generated combinations
      */
     private int numbGenCombs = 0;
 
+    /**
+     * Number of the next combination
+     */
+    private long nextComb = 0;
+
+    /**
+     * Number following that of the last combination covered by this iterator
+     */
+    private long endComb = 0;
+
     /**
      * Verbosity lvel
      */
@@ -213,7 +230,7 @@ public class FragsCombinationIterator
             int fTyp = candSrcAp.getVertexMolType();
             int fIdx = candSrcAp.getVertexMolId();
             int apId = candSrcAp.getApId();
-            IAtomContainer frag = FragmentSpace.getFragment(fTyp, fIdx); 
+            IAtomContainer frag = FragmentSpace.getFragmentView(fTyp, fIdx); 
             String srcApCls = 
                     FragmentUtils.getAPForFragment(frag).get(apId).getAPClass();
 
@@ -222,16 +239,17 @@ public class FragsCombinationIterator
                                                new ArrayList<IdFragmentAndAP>();
 
             // Get all compatible fragments
-            ArrayList<IdFragmentAndAP> compatFragAps = 
-                           FragmentSpace.getFragAPsCompatibleWithClass(srcApCls);
-
-            for (IdFragmentAndAP compatApId : compatFragAps)
+            APClassCompatibilityIndex apcIdx = FragmentSpace.getAPClassIndex();
+            int[] compatPos = 
+                     apcIdx.getAPsCompatibleWithClassPositions(srcApCls);
+            candsForThisSrc.ensureCapacity(compatPos.length);
+            for (int pos : compatPos)
             {
                 int vid = GraphUtils.getUniqueVertexIndex();
                 IdFragmentAndAP trgFrgAp = new IdFragmentAndAP(vid, //vertexId
-                		            compatApId.getVertexMolId(), //MolId,
+                		            apcIdx.getFragmentId(pos), //MolId,
                                     1, //FragType
-                                    compatApId.getApId(), //ApId
+                                    apcIdx.getAPId(pos), //ApId
 							        -1, //noVSym
 							        -1);//noAPSym
 
@@ -304,6 +322,19 @@ public class FragsCombinationIterator
             }
         }
 
+	// To keep track of which incoming fragments are related by symmetry
+	// we set the symmetric set ID for each incoming vertex. This allows
+	// an easy update of the graph's SymmetricSet list
+        for (int curSrcApIdx=0; curSrcApIdx<actvSrcAps.size(); curSrcApIdx++)
+        {
+            IdFragmentAndAP src = actvSrcAps.get(curSrcApIdx);
+	    src.setVrtSymSetId(curSrcApIdx);
+	    for (IdFragmentAndAP fap : candFragsPerAP.get(src))
+	    {
+		fap.setVrtSymSetId(curSrcApIdx);
+	    }
+        }
+
         // Calculate to total number of combinations
         boolean emptySets = true;
         for (int curSrcApIdx=0; curSrcApIdx<actvSrcAps.size(); curSrcApIdx++)
@@ -328,6 +359,12 @@ public class FragsCombinationIterator
                 {
                     factor = totCandsPerAP.get(srcApIdx);
                 }
+                if (totCombs > Long.MAX_VALUE / factor)
+                {
+                    // combinations cannot be numbered, nor split
+                    totCombs = Long.MAX_VALUE;
+                    break;
+                }
                 totCombs = totCombs * factor;
             }
         }
@@ -335,6 +372,34 @@ public class FragsCombinationIterator
         {
             finished = true;
         }
+        endComb = totCombs;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Constructs an iterator over a range of the combinations of another
+     * iterator. The two iterators share the sets of candidates.
+     * @param other the iterator to take the candidates from
+     * @param startComb the number of the first combination of the range
+     * @param endComb the number following that of the last combination of the
+     * range
+     */
+
+    private FragsCombinationIterator(FragsCombinationIterator other,
+                                                   long startComb, long endComb)
+    {
+        this.rootGraph = other.rootGraph;
+        this.allSrcAps = other.allSrcAps;
+        this.actvSrcAps = other.actvSrcAps;
+        this.candFragsPerAP = other.candFragsPerAP;
+        this.totCandsPerAP = other.totCandsPerAP;
+        this.totCombs = other.totCombs;
+        this.verbosity = other.verbosity;
+        this.nextIds = getIdsOfComb(startComb);
+        this.nextComb = startComb;
+        this.endComb = endComb;
+        this.finished = nextComb >= endComb;
     }
 
 //------------------------------------------------------------------------------
@@ -349,6 +414,14 @@ public class FragsCombinationIterator
     public void setStartingPoint(ArrayList<Integer> nextIds)
     {
         this.nextIds = nextIds;
+        if (totCombs < Long.MAX_VALUE)
+        {
+            nextComb = getCombOfIds(nextIds);
+
+            // Check for completion
+            finished = nextComb >= endComb;
+            return;
+        }
 
         // Check for completion
         finished = true;
@@ -362,6 +435,106 @@ public class FragsCombinationIterator
         }
     }
 
+//------------------------------------------------------------------------------
+
+    /**
+     * Splits the combinations that this iterator has yet to generate: this
+     * iterator keeps the first half, and the second half is given to a new
+     * iterator sharing the sets of candidates with this one.
+     * @return the iterator over the second half, or <code>null</code> if there
+     * are less than two combinations left or too many combinations to number
+     * them
+     */
+
+    public FragsCombinationIterator trySplit()
+    {
+        if (finished || totCombs == Long.MAX_VALUE || endComb - nextComb < 2)
+        {
+            return null;
+        }
+        long midComb = nextComb + (endComb - nextComb) / 2;
+        FragsCombinationIterator other = new FragsCombinationIterator(this,
+                                                              midComb, endComb);
+        endComb = midComb;
+        return other;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Creates an iterator over a range of the combinations of this one. 
+     * This method is meant for restarting an iterator obtained by 
+     * {@link #trySplit()} from where it terminated in a previous run.
+     * @param nextIds the set of indeces for the next iteration in the range 
+     * @param endComb the number following that of the last combination of
+     * the range (see {@link #getEndOfRange()})
+     * @return the iterator over the range, sharing the sets of candidates
+     * with this one
+     */
+
+    public FragsCombinationIterator getRange(ArrayList<Integer> nextIds,
+                                                                   long endComb)
+    {
+        FragsCombinationIterator other = new FragsCombinationIterator(this,
+                                                              endComb, endComb);
+        other.setStartingPoint(nextIds);
+        return other;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the number following that of the last combination covered by
+     * this iterator
+     */
+
+    public long getEndOfRange()
+    {
+        return endComb;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Computes the number of the combination identified by a set of indeces.
+     * The index of the last source AP may exceed the size of its set of
+     * candidates, as it happens after generating the last combination with a
+     * given set of indeces on the other APs.
+     */
+
+    private long getCombOfIds(ArrayList<Integer> ids)
+    {
+        long comb = 0;
+        long weight = 1;
+        for (int i=ids.size()-1; i>-1; i--)
+        {
+            comb = comb + ids.get(i) * weight;
+            weight = weight * totCandsPerAP.get(i);
+        }
+        return comb;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Computes the set of indeces identifying a combination
+     */
+
+    private ArrayList<Integer> getIdsOfComb(long comb)
+    {
+        ArrayList<Integer> ids = new ArrayList<Integer>();
+        for (int i=0; i<totCandsPerAP.size(); i++)
+        {
+            ids.add(0);
+        }
+        for (int i=totCandsPerAP.size()-1; i>-1; i--)
+        {
+            ids.set(i, (int) (comb % totCandsPerAP.get(i)));
+            comb = comb / totCandsPerAP.get(i);
+        }
+        return ids;
+    }
+
 //------------------------------------------------------------------------------
 
     /**
@@ -394,22 +567,13 @@ public class FragsCombinationIterator
                                + nextIds + ", size:" + totCandsPerAP + ")"); 
         }
 
-	// While defining the combination of fragments we aso keep track
-	// of which incoming fragments are related by symmetry (i.e., we
-	// set the symmetric set ID for each incoming vertex) to allow
-	// an easy update of the graph's SymmetricSet list
         FragsCombination currentComb = new FragsCombination();
         ArrayList<Integer> currentIds = new ArrayList<Integer>();
         String msg = "";
         for (int curSrcApIdx=0; curSrcApIdx<actvSrcAps.size(); curSrcApIdx++)
         {
             IdFragmentAndAP src = actvSrcAps.get(curSrcApIdx);
-	    src.setVrtSymSetId(curSrcApIdx);
             ArrayList<IdFragmentAndAP> locCandsList = candFragsPerAP.get(src);
-	    for (IdFragmentAndAP fap : locCandsList)
-	    {
-		fap.setVrtSymSetId(curSrcApIdx);
-	    }
             int locTotCands = candFragsPerAP.get(src).size();
             int locCurCandId = nextIds.get(curSrcApIdx);
 
@@ -527,6 +691,11 @@ public class FragsCombinationIterator
         }
 
         numbGenCombs++;
+        nextComb++;
+        if (nextComb >= endComb)
+        {
+            finished = true;
+        }
 
         if (verbosity > 2)
         {
@@ -712,10 +881,12 @@ public class FragsCombinationIterator
 
     /**
      * @return the total number of <code>FragsCombination</code>s
-     * that can be generated from the set of candidates set.
+     * that can be generated from the set of candidates set, or
+     * <code>Long.MAX_VALUE</code> if the number exceeds the range of
+     * <code>long</code>.
      */
 
-    public int getTotNumbCombs()
+    public long getTotNumbCombs()
     {
         return totCombs;
     }
@@ -0,0 +1,424 @@
+package denoptim.fragspace;
+
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2026 agent <agent@local>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+
+import javax.vecmath.Point3d;
+
+import org.junit.jupiter.api.Test;
+import org.openscience.cdk.Atom;
+import org.openscience.cdk.AtomContainer;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.silent.Bond;
+
+import denoptim.constants.DENOPTIMConstants;
+import denoptim.exception.DENOPTIMException;
+import denoptim.molecule.DENOPTIMFragment;
+import denoptim.molecule.DENOPTIMGraph;
+import denoptim.molecule.DENOPTIMVertex;
+import denoptim.molecule.SymmetricSet;
+import denoptim.utils.FragmentUtils;
+
+/**
+ * Unit test for the iterator over combinations of fragments
+ *
+ * @author agent
+ */
+
+public class FragsCombinationIteratorTest
+{
+    /**
+     * Number of attachment points on the scaffold
+     */
+    private static final int NUMAPS = 3;
+
+    /**
+     * Number of fragments
+     */
+    private static final int NUMFRAGS = 3;
+
+    private final String APCS = "apc-S"
+                                + DENOPTIMConstants.SEPARATORAPPROPSCL + "0";
+    private final String APC1 = "apc-1"
+                                + DENOPTIMConstants.SEPARATORAPPROPSCL + "0";
+
+//------------------------------------------------------------------------------
+
+    private void buildFragmentSpace() throws DENOPTIMException
+    {
+        buildFragmentSpace(NUMAPS, NUMFRAGS);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Defines a fragment space where each attachment point of the scaffold
+     * can take any fragment or be left empty
+     * @param numAPs the number of attachment points on the scaffold (max 12)
+     * @param numFrags the number of fragments
+     */
+
+    private void buildFragmentSpace(int numAPs, int numFrags)
+                                                       throws DENOPTIMException
+    {
+        ArrayList<IAtomContainer> scaffLib = new ArrayList<IAtomContainer>();
+        DENOPTIMFragment scaff = new DENOPTIMFragment();
+        // Different elements to avoid symmetric attachment points
+        String[] elements = new String[] {"C", "N", "O", "S", "P", "Si", "B",
+                                          "Se", "Ge", "As", "Te", "Sn"};
+        Atom prev = null;
+        for (int i=0; i<numAPs; i++)
+        {
+            Atom a = new Atom(elements[i],
+                              new Point3d(new double[]{1.5*i, 0.0, 0.0}));
+            scaff.addAtom(a);
+            if (prev != null)
+            {
+                scaff.addBond(new Bond(prev, a));
+            }
+            prev = a;
+        }
+        for (int i=0; i<numAPs; i++)
+        {
+            scaff.addAP(i, APCS, new Point3d(new double[]{1.5*i, 1.0, 0.0}));
+        }
+        scaffLib.add(new AtomContainer(scaff));
+
+        ArrayList<IAtomContainer> fragLib = new ArrayList<IAtomContainer>();
+        for (int i=0; i<numFrags; i++)
+        {
+            DENOPTIMFragment frag = new DENOPTIMFragment();
+            frag.addAtom(new Atom("C", new Point3d(new double[]{0.0, 0.0,
+                                                                   1.0*i})));
+            frag.addAP(0, APC1, new Point3d(new double[]{0.0, 1.0, 1.0*i}));
+            fragLib.add(new AtomContainer(frag));
+        }
+
+        ArrayList<IAtomContainer> cappLib = new ArrayList<IAtomContainer>();
+
+        HashMap<String,ArrayList<String>> cpMap =
+                                     new HashMap<String,ArrayList<String>>();
+        ArrayList<String> compatible = new ArrayList<String>();
+        compatible.add(APC1);
+        cpMap.put(APCS, compatible);
+
+        HashMap<String,Integer> boMap = new HashMap<String,Integer>();
+        boMap.put(APCS,1);
+        boMap.put(APC1,1);
+
+        HashMap<String,String> capMap = new HashMap<String,String>();
+        HashSet<String> ends = new HashSet<String>();
+        HashMap<String,ArrayList<String>> rcCpMap =
+                                     new HashMap<String,ArrayList<String>>();
+
+        FragmentSpace.defineFragmentSpace(scaffLib,fragLib,cappLib,cpMap,boMap,
+                                                       capMap,ends,rcCpMap);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return a graph made only of the scaffold
+     */
+
+    private DENOPTIMGraph makeRootGraph() throws DENOPTIMException
+    {
+        DENOPTIMGraph g = new DENOPTIMGraph();
+        g.setGraphId(0);
+        DENOPTIMVertex v = new DENOPTIMVertex(1, 0,
+                                   FragmentUtils.getAPForFragment(0,0), 0);
+        v.setLevel(-1);
+        v.setSymmetricAP(new ArrayList<SymmetricSet>());
+        g.addVertex(v);
+        return g;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return a description of a combination that does not depend on the
+     * vertex IDs given to the incoming fragments
+     */
+
+    private static String describe(FragsCombination comb)
+    {
+        TreeMap<Integer,String> bySrcAP = new TreeMap<Integer,String>();
+        for (Map.Entry<IdFragmentAndAP,IdFragmentAndAP> e : comb.entrySet())
+        {
+            IdFragmentAndAP trg = e.getValue();
+            bySrcAP.put(e.getKey().getApId(), trg.getVertexMolType() + ":"
+                               + trg.getVertexMolId() + ":" + trg.getApId());
+        }
+        return bySrcAP.toString();
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the descriptions of all the combinations left in the iterator
+     */
+
+    private static ArrayList<String> drain(FragsCombinationIterator fcf)
+    {
+        ArrayList<String> combs = new ArrayList<String>();
+        while (fcf.hasNext())
+        {
+            combs.add(describe(fcf.next()));
+        }
+        return combs;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the descriptions of all the combinations of the root graph
+     */
+
+    private ArrayList<String> getAllCombinations() throws DENOPTIMException
+    {
+        FragsCombinationIterator fcf = new FragsCombinationIterator(
+                                                             makeRootGraph());
+        ArrayList<String> all = drain(fcf);
+        assertEquals(fcf.getTotNumbCombs(), all.size(), "Combinations");
+        assertEquals(all.size(), new HashSet<String>(all).size(),
+                                                     "Repeated combinations");
+        return all;
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testSplitCoversEachCombinationOnce() throws Exception
+    {
+        buildFragmentSpace();
+        ArrayList<String> all = getAllCombinations();
+        assertEquals((int) Math.pow(NUMFRAGS + 1, NUMAPS), all.size(),
+                                                              "Combinations");
+
+        // split before generating any combination, and with uneven halves
+        for (int consumed : new int[] {0, 1, 7})
+        {
+            FragsCombinationIterator fcf = new FragsCombinationIterator(
+                                                             makeRootGraph());
+            ArrayList<String> found = new ArrayList<String>();
+            for (int j=0; j<consumed; j++)
+            {
+                found.add(describe(fcf.next()));
+            }
+            ArrayList<FragsCombinationIterator> ranges =
+                                   new ArrayList<FragsCombinationIterator>();
+            ranges.add(fcf);
+            // ranges are kept in the order of their combinations
+            int i = 0;
+            while (ranges.size() < 5)
+            {
+                FragsCombinationIterator other = ranges.get(i).trySplit();
+                assertNotNull(other, "Split of range " + i);
+                ranges.add(i+1, other);
+                i = (i+2) % ranges.size();
+            }
+            for (FragsCombinationIterator range : ranges)
+            {
+                found.addAll(drain(range));
+            }
+            assertEquals(all, found, "Combinations after consuming "
+                                                                   + consumed);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testRestartFromCombination() throws Exception
+    {
+        buildFragmentSpace();
+        ArrayList<String> all = getAllCombinations();
+
+        // includes restarts after the last candidate of the last AP
+        for (int restart : new int[] {0, 1, 3, 4, 15, 16, all.size()-1})
+        {
+            FragsCombinationIterator fcf = new FragsCombinationIterator(
+                                                             makeRootGraph());
+            for (int i=0; i<restart; i++)
+            {
+                fcf.next();
+            }
+            ArrayList<Integer> nextIds = new ArrayList<Integer>(
+                                                           fcf.getNextIds());
+
+            FragsCombinationIterator restarted = new FragsCombinationIterator(
+                                                             makeRootGraph());
+            restarted.setStartingPoint(nextIds);
+            assertEquals(all.subList(restart, all.size()), drain(restarted),
+                                               "Restart from " + restart);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testLastCombination() throws Exception
+    {
+        buildFragmentSpace();
+        ArrayList<String> all = getAllCombinations();
+
+        FragsCombinationIterator fcf = new FragsCombinationIterator(
+                                                             makeRootGraph());
+        for (int i=0; i<all.size()-1; i++)
+        {
+            fcf.next();
+        }
+        assertTrue(fcf.hasNext(), "Last combination missing");
+        assertNull(fcf.trySplit(), "Split of a single combination");
+        assertEquals(all.get(all.size()-1), describe(fcf.next()));
+        assertFalse(fcf.hasNext(), "Combinations after the last one");
+        assertEquals(all.size(), fcf.getNumGeneratedCombs());
+        try
+        {
+            fcf.next();
+            fail("Combination generated after the last one");
+        }
+        catch (NoSuchElementException e)
+        {
+            // expected
+        }
+
+        // restart from after the last combination
+        FragsCombinationIterator restarted = new FragsCombinationIterator(
+                                                             makeRootGraph());
+        restarted.setStartingPoint(new ArrayList<Integer>(fcf.getNextIds()));
+        assertFalse(restarted.hasNext(), "Restart after the last combination");
+
+        // last combination of a range that is not the last one
+        FragsCombinationIterator first = new FragsCombinationIterator(
+                                                             makeRootGraph());
+        FragsCombinationIterator second = first.trySplit();
+        int mid = (int) first.getEndOfRange();
+        ArrayList<String> firstHalf = drain(first);
+        assertEquals(all.subList(0, mid), firstHalf, "First half");
+        assertFalse(first.hasNext(), "Combinations beyond the range");
+        assertEquals(all.subList(mid, all.size()), drain(second),
+                                                              "Second half");
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testRestartOfSplitRoot() throws Exception
+    {
+        buildFragmentSpace();
+        ArrayList<String> all = getAllCombinations();
+
+        // ranges as they are made by the explorer
+        FragsCombinationIterator fcf = new FragsCombinationIterator(
+                                                             makeRootGraph());
+        ArrayList<FragsCombinationIterator> ranges =
+                                   new ArrayList<FragsCombinationIterator>();
+        ranges.add(fcf);
+        for (int i=0; i<ranges.size() && ranges.size()<4; i++)
+        {
+            ranges.add(ranges.get(i).trySplit());
+        }
+
+        // consume part of each range and record what a checkpoint stores
+        ArrayList<ArrayList<Integer>> chkNextIds =
+                                           new ArrayList<ArrayList<Integer>>();
+        ArrayList<Long> chkEnds = new ArrayList<Long>();
+        ArrayList<ArrayList<String>> expected =
+                                              new ArrayList<ArrayList<String>>();
+        for (int r=0; r<ranges.size(); r++)
+        {
+            FragsCombinationIterator range = ranges.get(r);
+            ArrayList<String> remaining = new ArrayList<String>();
+            for (int i=0; i<r+1 && range.hasNext(); i++)
+            {
+                range.next();
+            }
+            chkNextIds.add(new ArrayList<Integer>(range.getNextIds()));
+            chkEnds.add(range.getEndOfRange());
+            remaining.addAll(drain(range));
+            expected.add(remaining);
+        }
+
+        // restart from the checkpoint
+        FragsCombinationIterator restarted = new FragsCombinationIterator(
+                                                             makeRootGraph());
+        HashSet<String> seen = new HashSet<String>();
+        for (int r=0; r<chkEnds.size(); r++)
+        {
+            ArrayList<String> found = drain(restarted.getRange(
+                                          chkNextIds.get(r), chkEnds.get(r)));
+            assertEquals(expected.get(r), found, "Range " + r);
+            for (String comb : found)
+            {
+                assertTrue(seen.add(comb), "Repeated combination " + comb);
+                assertTrue(all.contains(comb), "Unknown combination " + comb);
+            }
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testCombinationsBeyondIntegerRange() throws Exception
+    {
+        // 51^6 combinations: more than Integer.MAX_VALUE
+        buildFragmentSpace(6, 50);
+        FragsCombinationIterator fcf = new FragsCombinationIterator(
+                                                             makeRootGraph());
+        assertEquals((long) Math.pow(51, 6), fcf.getTotNumbCombs());
+        HashSet<String> found = new HashSet<String>();
+        for (int i=0; i<1000; i++)
+        {
+            assertTrue(fcf.hasNext(), "Iteration stopped after " + i);
+            assertTrue(found.add(describe(fcf.next())), "Repeated combination");
+        }
+        FragsCombinationIterator other = fcf.trySplit();
+        assertNotNull(other, "Split of large root");
+        assertTrue(fcf.hasNext(), "Combinations in the first half");
+        assertTrue(found.add(describe(other.next())), "Repeated combination");
+
+        // 51^12 combinations: more than Long.MAX_VALUE
+        buildFragmentSpace(12, 50);
+        fcf = new FragsCombinationIterator(makeRootGraph());
+        assertEquals(Long.MAX_VALUE, fcf.getTotNumbCombs());
+        assertNull(fcf.trySplit(), "Split of combinations without numbers");
+        for (int i=0; i<1000; i++)
+        {
+            assertTrue(fcf.hasNext(), "Iteration stopped after " + i);
+            fcf.next();
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+}
@@ -430,6 +430,42 @@ public class DenoptimIO
         }
     }
 
+//------------------------------------------------------------------------------
+
+    /**
+     * Writes a single molecule in SDF format into a string
+     *
+     * @param mol The molecule to be written
+     * @return the SDF representation of the molecule
+     * @throws DENOPTIMException
+     */
+    public static String writeMoleculeToString(IAtomContainer mol)
+            throws DENOPTIMException
+    {
+        StringWriter sw = new StringWriter();
+        SDFWriter sdfWriter = new SDFWriter(sw);
+        try
+        {
+            sdfWriter.write(mol);
+        }
+        catch (CDKException cdke)
+        {
+            throw new DENOPTIMException(cdke);
+        }
+        finally
+        {
+            try
+            {
+                sdfWriter.close();
+            }
+            catch (IOException ioe)
+            {
+                throw new DENOPTIMException(ioe);
+            }
+        }
+        return sw.toString();
+    }
+
 //------------------------------------------------------------------------------
 
     public static void writeMol2File(String fileName, IAtomContainer mol,
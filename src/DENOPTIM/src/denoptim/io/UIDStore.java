@@ -0,0 +1,903 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2026 agent <agent@local>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import denoptim.exception.DENOPTIMException;
+import denoptim.logging.DENOPTIMLogger;
+import denoptim.utils.BloomFilter;
+
+/**
+ * Run-wide store of unique identifiers (UIDs, i.e., InChI keys) of the
+ * candidates. The UIDs are kept in a text file with one UID per line. This
+ * file is an append-only log that can be shared with the external tools
+ * (i.e., fitness providers) that register UIDs by appending them to the file
+ * while holding a lock on the file.
+ * <p>
+ * The UIDs in the log are indexed in the directory <i>&lt;file&gt;.idx</i>,
+ * which contains the hashed segment files (UIDs grouped into buckets
+ * according to their hash), and a snapshot of the in-memory bloom filter
+ * that is used to avoid reading any segment when a UID is new. At startup,
+ * the snapshot is loaded and only the part of the log written after the
+ * snapshot is read. The index is rebuilt from the log when the snapshot is
+ * missing or does not correspond to the log, e.g., after an unclean shutdown.
+ * The index must be used by only one instance of this class at a time.
+ * </p>
+ * <p>
+ * The most recently used segments are kept in memory as hash sets, so that
+ * a lookup reads a segment file only the first time its bucket is needed.
+ * UIDs added concurrently by threads of this JVM are appended to the log
+ * together, with a single lock on the file and a single write to the
+ * storage device (group commit).
+ * </p>
+ *
+ * @author agent
+ */
+
+public class UIDStore
+{
+    /**
+     * Default number of UIDs the bloom filter is sized for
+     */
+    public static final int DEFAULTCAPACITY = 1 << 20;
+
+    /**
+     * Number of hashed segment files
+     */
+    private static final int NUMBUCKETS = 512;
+
+    /**
+     * Wanted probability of false positives from the bloom filter
+     */
+    private static final double FPP = 0.01;
+
+    /**
+     * Max number of UIDs kept in memory before writing them to the segments
+     */
+    private static final int MAXPENDING = 10000;
+
+    /**
+     * Max number of segments kept in memory
+     */
+    private static final int MAXLOADEDSEGMENTS = 64;
+
+    /**
+     * Number of bytes at the end of the indexed log used to recognize it
+     */
+    private static final int TAILSIZE = 4096;
+
+    /**
+     * Identifier of the snapshot format
+     */
+    private static final int MAGIC = 0x55494431;
+
+    /**
+     * JVM-wide lock objects, one per log file. File locks are held on
+     * behalf of the whole JVM, so threads must be serialized before
+     * requesting the file lock.
+     */
+    private static final ConcurrentHashMap<String,Object> FILELOCKS =
+            new ConcurrentHashMap<String,Object>();
+
+    /**
+     * Pathname of the log file
+     */
+    private final String uidFile;
+
+    /**
+     * Directory containing the index
+     */
+    private final File idxDir;
+
+    /**
+     * Lock object used to serialize the access to the log file and index
+     */
+    private final Object fileLock;
+
+    /**
+     * Front end to the segments
+     */
+    private BloomFilter bloom;
+
+    /**
+     * Number of UIDs the bloom filter is sized for
+     */
+    private int capacity;
+
+    /**
+     * Number of indexed UIDs
+     */
+    private long count = 0;
+
+    /**
+     * Position in the log file up to which UIDs have been indexed
+     */
+    private long logOffset = 0;
+
+    /**
+     * Indexed UIDs not yet written to the segments
+     */
+    private final ArrayList<ArrayList<String>> pending =
+            new ArrayList<ArrayList<String>>(NUMBUCKETS);
+
+    /**
+     * Number of indexed UIDs not yet written to the segments
+     */
+    private int numPending = 0;
+
+    /**
+     * Segments kept in memory, including their pending UIDs, in order of
+     * last use
+     */
+    private final LinkedHashMap<Integer,HashSet<String>> loadedSegments =
+            new LinkedHashMap<Integer,HashSet<String>>(16, 0.75f, true)
+            {
+                @Override
+                protected boolean removeEldestEntry(
+                                  Map.Entry<Integer,HashSet<String>> eldest)
+                {
+                    return size() > MAXLOADEDSEGMENTS;
+                }
+            };
+
+    /**
+     * UIDs waiting to be appended to the log
+     */
+    private final ArrayList<Addition> queue = new ArrayList<Addition>();
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Request to add a UID to the log. Completed by whichever thread
+     * appends the queued UIDs to the log.
+     */
+
+    private static class Addition
+    {
+        private final String uid;
+        private boolean done = false;
+        private boolean added = false;
+        private IOException error;
+
+        private Addition(String uid)
+        {
+            this.uid = uid;
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Constructor for a store sized for the default number of UIDs
+     * @param uidFile the pathname of the text file with the UIDs
+     * @throws DENOPTIMException if the log or the index cannot be read
+     */
+
+    public UIDStore(String uidFile) throws DENOPTIMException
+    {
+        this(uidFile, DEFAULTCAPACITY);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Constructor. The index of any existing log file is loaded, or built
+     * if needed.
+     * @param uidFile the pathname of the text file with the UIDs
+     * @param expectedSize the expected number of UIDs. The bloom filter is
+     * enlarged if this number is exceeded.
+     * @throws DENOPTIMException if the log or the index cannot be read
+     */
+
+    public UIDStore(String uidFile, int expectedSize) throws DENOPTIMException
+    {
+        this.uidFile = uidFile;
+        this.idxDir = new File(uidFile + ".idx");
+        this.capacity = Math.max(1024, expectedSize);
+        String path = new File(uidFile).getAbsolutePath();
+        FILELOCKS.putIfAbsent(path, new Object());
+        this.fileLock = FILELOCKS.get(path);
+        for (int i=0; i<NUMBUCKETS; i++)
+        {
+            pending.add(new ArrayList<String>());
+        }
+
+        synchronized (fileLock)
+        {
+            if (!idxDir.exists() && !idxDir.mkdirs())
+            {
+                throw new DENOPTIMException("Cannot create directory "
+                                                                    + idxDir);
+            }
+            boolean restored = loadSnapshot();
+            if (!restored)
+            {
+                resetIndex();
+            }
+
+            // Any unclean shutdown from now on will trigger a rebuild
+            getSnapshotFile().delete();
+
+            long before = count;
+            if (new File(uidFile).exists())
+            {
+                RandomAccessFile rafile = null;
+                try
+                {
+                    rafile = new RandomAccessFile(uidFile, "r");
+                    readNewEntries(rafile, false);
+                }
+                catch (IOException ioe)
+                {
+                    throw new DENOPTIMException("Cannot read UIDs from "
+                                                             + uidFile, ioe);
+                }
+                finally
+                {
+                    closeQuietly(rafile);
+                }
+            }
+            DENOPTIMLogger.appLogger.info("UID store " + uidFile + ": "
+                    + (restored ? "restored " + before + " UIDs from index, "
+                                : "index rebuilt, ")
+                    + "read " + (count - before) + " UIDs from file.");
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Adds a UID unless it is already in the store. The UID is appended to
+     * the log while holding an exclusive lock on the file.
+     * @param uid the UID
+     * @return <code>true</code> if the UID has been added, or
+     * <code>false</code> if it was already present.
+     * @throws DENOPTIMException if the log or the index cannot be accessed
+     */
+
+    public boolean addIfAbsent(String uid) throws DENOPTIMException
+    {
+        uid = uid.trim();
+        if (uid.length() == 0)
+        {
+            return false;
+        }
+
+        Addition addition = new Addition(uid);
+        synchronized (queue)
+        {
+            queue.add(addition);
+        }
+        synchronized (fileLock)
+        {
+            // another thread may have appended our UID while we waited
+            if (!addition.done)
+            {
+                appendQueued();
+            }
+        }
+        if (addition.error != null)
+        {
+            throw new DENOPTIMException("Cannot add UID to " + uidFile,
+                                                           addition.error);
+        }
+        return addition.added;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Appends all the queued UIDs that are not in the store to the log.
+     * The file is locked and forced to the storage device once for the
+     * whole group. To be called while holding the lock object.
+     */
+
+    private void appendQueued()
+    {
+        ArrayList<Addition> group;
+        synchronized (queue)
+        {
+            group = new ArrayList<Addition>(queue);
+            queue.clear();
+        }
+
+        RandomAccessFile rafile = null;
+        FileLock lock = null;
+        try
+        {
+            rafile = new RandomAccessFile(uidFile, "rw");
+            FileChannel channel = rafile.getChannel();
+            lock = channel.lock();
+
+            // Catch up with what other processes have written
+            readNewEntries(rafile, true);
+
+            ArrayList<String> newUIDs = new ArrayList<String>();
+            HashSet<String> inGroup = new HashSet<String>();
+            for (Addition addition : group)
+            {
+                addition.added = !isIndexed(addition.uid)
+                                 && inGroup.add(addition.uid);
+                if (addition.added)
+                {
+                    newUIDs.add(addition.uid);
+                }
+            }
+
+            if (!newUIDs.isEmpty())
+            {
+                StringBuilder sb = new StringBuilder();
+                if (rafile.length() > 0)
+                {
+                    rafile.seek(rafile.length() - 1);
+                    if (rafile.read() != '\n')
+                    {
+                        sb.append("\n");
+                    }
+                }
+                for (String uid : newUIDs)
+                {
+                    sb.append(uid).append("\n");
+                }
+                rafile.seek(rafile.length());
+                rafile.writeBytes(sb.toString());
+                channel.force(true);
+                logOffset = rafile.getFilePointer();
+                for (String uid : newUIDs)
+                {
+                    index(uid);
+                }
+            }
+        }
+        catch (IOException ioe)
+        {
+            for (Addition addition : group)
+            {
+                addition.added = false;
+                addition.error = ioe;
+            }
+        }
+        finally
+        {
+            try
+            {
+                if (lock != null && lock.isValid())
+                {
+                    lock.release();
+                }
+            }
+            catch (IOException ioe)
+            {
+                DENOPTIMLogger.appLogger.warning("Cannot release lock on "
+                                     + uidFile + ": " + ioe.getMessage());
+            }
+            closeQuietly(rafile);
+            for (Addition addition : group)
+            {
+                addition.done = true;
+            }
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Checks whether a UID is in the store, including any UID appended to
+     * the log by other processes.
+     * @param uid the UID
+     * @return <code>true</code> if the UID is in the store
+     * @throws DENOPTIMException if the log or the index cannot be read
+     */
+
+    public boolean contains(String uid) throws DENOPTIMException
+    {
+        uid = uid.trim();
+        synchronized (fileLock)
+        {
+            if (new File(uidFile).length() > logOffset)
+            {
+                RandomAccessFile rafile = null;
+                try
+                {
+                    rafile = new RandomAccessFile(uidFile, "r");
+                    readNewEntries(rafile, false);
+                }
+                catch (IOException ioe)
+                {
+                    throw new DENOPTIMException("Cannot read UIDs from "
+                                                             + uidFile, ioe);
+                }
+                finally
+                {
+                    closeQuietly(rafile);
+                }
+            }
+            try
+            {
+                return isIndexed(uid);
+            }
+            catch (IOException ioe)
+            {
+                throw new DENOPTIMException("Cannot read UID index of "
+                                                             + uidFile, ioe);
+            }
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the number of UIDs in the store
+     */
+
+    public long size()
+    {
+        synchronized (fileLock)
+        {
+            return count;
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Writes all the indexed UIDs to the segments and saves a snapshot of
+     * the index, so that the next instance does not need to rebuild it.
+     * @throws DENOPTIMException if the index cannot be written
+     */
+
+    public void close() throws DENOPTIMException
+    {
+        synchronized (fileLock)
+        {
+            try
+            {
+                flushPending();
+                saveSnapshot();
+            }
+            catch (IOException ioe)
+            {
+                throw new DENOPTIMException("Cannot save UID index of "
+                                                             + uidFile, ioe);
+            }
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Reads and indexes the UIDs written in the log after the current
+     * offset.
+     * @param rafile the open log file
+     * @param locked use <code>true</code> if holding the lock on the file,
+     * in which case an unterminated last line is complete.
+     */
+
+    private void readNewEntries(RandomAccessFile rafile, boolean locked)
+                                                            throws IOException
+    {
+        long length = rafile.length();
+        if (length <= logOffset)
+        {
+            return;
+        }
+        rafile.seek(logOffset);
+        long pos = logOffset;
+        long lastComplete = logOffset;
+        StringBuilder line = new StringBuilder();
+        byte[] buf = new byte[65536];
+        while (pos < length)
+        {
+            int n = rafile.read(buf, 0, (int) Math.min(buf.length,
+                                                               length - pos));
+            if (n < 0)
+            {
+                break;
+            }
+            for (int i=0; i<n; i++)
+            {
+                if (buf[i] == '\n')
+                {
+                    addIfNotIndexed(line.toString().trim());
+                    line.setLength(0);
+                    lastComplete = pos + i + 1;
+                }
+                else
+                {
+                    line.append((char) buf[i]);
+                }
+            }
+            pos += n;
+        }
+        if (locked && line.length() > 0)
+        {
+            addIfNotIndexed(line.toString().trim());
+            lastComplete = pos;
+        }
+        // otherwise, an unterminated entry is read once completed
+        logOffset = lastComplete;
+    }
+
+//------------------------------------------------------------------------------
+
+    private void addIfNotIndexed(String uid) throws IOException
+    {
+        if (uid.length() > 0 && !isIndexed(uid))
+        {
+            index(uid);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    private boolean isIndexed(String uid) throws IOException
+    {
+        if (!bloom.mightContain(uid))
+        {
+            return false;
+        }
+        return getSegment(getBucket(uid)).contains(uid);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the UIDs of a bucket, i.e., those in the segment file and
+     * those pending. The segment file is read only if the bucket is not
+     * in memory.
+     */
+
+    private HashSet<String> getSegment(int b) throws IOException
+    {
+        HashSet<String> uids = loadedSegments.get(b);
+        if (uids != null)
+        {
+            return uids;
+        }
+        uids = new HashSet<String>();
+        File segment = getSegmentFile(b);
+        if (segment.exists())
+        {
+            BufferedReader br = null;
+            try
+            {
+                br = new BufferedReader(new FileReader(segment));
+                for (String line; (line = br.readLine()) != null; )
+                {
+                    uids.add(line);
+                }
+            }
+            finally
+            {
+                if (br != null)
+                {
+                    br.close();
+                }
+            }
+        }
+        uids.addAll(pending.get(b));
+        loadedSegments.put(b, uids);
+        return uids;
+    }
+
+//------------------------------------------------------------------------------
+
+    private void index(String uid) throws IOException
+    {
+        bloom.add(uid);
+        int b = getBucket(uid);
+        pending.get(b).add(uid);
+        HashSet<String> loaded = loadedSegments.get(b);
+        if (loaded != null)
+        {
+            loaded.add(uid);
+        }
+        numPending++;
+        count++;
+        if (numPending >= MAXPENDING)
+        {
+            flushPending();
+        }
+        if (count > capacity)
+        {
+            enlargeBloomFilter();
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    private void flushPending() throws IOException
+    {
+        if (numPending == 0)
+        {
+            return;
+        }
+        for (int b=0; b<NUMBUCKETS; b++)
+        {
+            ArrayList<String> uids = pending.get(b);
+            if (uids.isEmpty())
+            {
+                continue;
+            }
+            BufferedWriter bw = null;
+            try
+            {
+                bw = new BufferedWriter(new FileWriter(getSegmentFile(b),
+                                                                      true));
+                for (String uid : uids)
+                {
+                    bw.write(uid);
+                    bw.newLine();
+                }
+            }
+            finally
+            {
+                if (bw != null)
+                {
+                    bw.close();
+                }
+            }
+            uids.clear();
+        }
+        numPending = 0;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Doubles the capacity of the bloom filter and refills it from the
+     * segments.
+     */
+
+    private void enlargeBloomFilter() throws IOException
+    {
+        flushPending();
+        capacity = capacity * 2;
+        bloom = new BloomFilter(capacity, FPP);
+        for (int b=0; b<NUMBUCKETS; b++)
+        {
+            File segment = getSegmentFile(b);
+            if (!segment.exists())
+            {
+                continue;
+            }
+            BufferedReader br = null;
+            try
+            {
+                br = new BufferedReader(new FileReader(segment));
+                for (String line; (line = br.readLine()) != null; )
+                {
+                    bloom.add(line);
+                }
+            }
+            finally
+            {
+                if (br != null)
+                {
+                    br.close();
+                }
+            }
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    private void resetIndex() throws DENOPTIMException
+    {
+        for (int b=0; b<NUMBUCKETS; b++)
+        {
+            File segment = getSegmentFile(b);
+            if (segment.exists() && !segment.delete())
+            {
+                throw new DENOPTIMException("Cannot delete " + segment);
+            }
+        }
+        loadedSegments.clear();
+        bloom = new BloomFilter(capacity, FPP);
+        count = 0;
+        logOffset = 0;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Loads the snapshot of the index, if it exists and corresponds to the
+     * current log.
+     * @return <code>true</code> if the snapshot has been loaded
+     */
+
+    private boolean loadSnapshot()
+    {
+        File snapshot = getSnapshotFile();
+        if (!snapshot.exists())
+        {
+            return false;
+        }
+        DataInputStream in = null;
+        try
+        {
+            in = new DataInputStream(new BufferedInputStream(
+                                               new FileInputStream(snapshot)));
+            if (in.readInt() != MAGIC || in.readInt() != NUMBUCKETS)
+            {
+                return false;
+            }
+            long offset = in.readLong();
+            long tailHash = in.readLong();
+            long savedCount = in.readLong();
+            int savedCapacity = in.readInt();
+            BloomFilter savedBloom = BloomFilter.read(in);
+            if (offset > new File(uidFile).length()
+                || tailHash != getTailHash(offset))
+            {
+                return false;
+            }
+            logOffset = offset;
+            count = savedCount;
+            capacity = savedCapacity;
+            bloom = savedBloom;
+            return true;
+        }
+        catch (IOException ioe)
+        {
+            DENOPTIMLogger.appLogger.warning("Cannot use UID index "
+                                    + snapshot + ": " + ioe.getMessage());
+            return false;
+        }
+        finally
+        {
+            if (in != null)
+            {
+                try
+                {
+                    in.close();
+                }
+                catch (IOException ioe)
+                {
+                    DENOPTIMLogger.appLogger.warning("Cannot close file: "
+                                                        + ioe.getMessage());
+                }
+            }
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    private void saveSnapshot() throws IOException
+    {
+        File tmp = new File(idxDir, "snapshot.tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                                                   new FileOutputStream(tmp)));
+        try
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(NUMBUCKETS);
+            out.writeLong(logOffset);
+            out.writeLong(getTailHash(logOffset));
+            out.writeLong(count);
+            out.writeInt(capacity);
+            bloom.write(out);
+        }
+        finally
+        {
+            out.close();
+        }
+        Files.move(tmp.toPath(), getSnapshotFile().toPath(),
+                                        StandardCopyOption.REPLACE_EXISTING);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Hash of the last bytes of the log before the given offset. Used to
+     * recognize the log that has been indexed.
+     */
+
+    private long getTailHash(long offset) throws IOException
+    {
+        long h = 0xcbf29ce484222325L ^ offset;
+        if (offset == 0)
+        {
+            return h;
+        }
+        RandomAccessFile rafile = new RandomAccessFile(uidFile, "r");
+        try
+        {
+            long start = Math.max(0, offset - TAILSIZE);
+            byte[] tail = new byte[(int) (offset - start)];
+            rafile.seek(start);
+            rafile.readFully(tail);
+            for (byte b : tail)
+            {
+                h ^= (b & 0xff);
+                h *= 0x100000001b3L;
+            }
+        }
+        finally
+        {
+            rafile.close();
+        }
+        return h;
+    }
+
+//------------------------------------------------------------------------------
+
+    private static int getBucket(String uid)
+    {
+        return (uid.hashCode() & Integer.MAX_VALUE) % NUMBUCKETS;
+    }
+
+//------------------------------------------------------------------------------
+
+    private File getSegmentFile(int bucket)
+    {
+        return new File(idxDir, "segment_" + bucket + ".txt");
+    }
+
+//------------------------------------------------------------------------------
+
+    private File getSnapshotFile()
+    {
+        return new File(idxDir, "snapshot.bin");
+    }
+
+//------------------------------------------------------------------------------
+
+    private static void closeQuietly(RandomAccessFile rafile)
+    {
+        if (rafile == null)
+        {
+            return;
+        }
+        try
+        {
+            rafile.close();
+        }
+        catch (IOException ioe)
+        {
+            DENOPTIMLogger.appLogger.warning("Cannot close file: "
+                                                        + ioe.getMessage());
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,154 @@
+package denoptim.io;
+
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2026 agent <agent@local>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test for UIDStore
+ *
+ * @author agent
+ */
+
+public class UIDStoreTest
+{
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testAddIfAbsentAndRestart() throws Exception
+    {
+        File tmpDir = Files.createTempDirectory("_unitUID").toFile();
+        String uidFile = tmpDir + System.getProperty("file.separator")
+                                                                + "UID.txt";
+
+        // A file written by an external tool
+        FileWriter fw = new FileWriter(uidFile);
+        fw.write("KEY-A\nKEY-B\n");
+        fw.close();
+
+        UIDStore store = new UIDStore(uidFile, 10);
+        assertEquals(2, store.size());
+        assertTrue(store.contains("KEY-A"));
+        assertFalse(store.addIfAbsent("KEY-B"));
+        for (int i=0; i<3000; i++)
+        {
+            assertTrue(store.addIfAbsent("KEY-" + i), "New UID " + i);
+        }
+        assertFalse(store.addIfAbsent("KEY-42"));
+        store.close();
+
+        // UIDs added by an external tool after closing the store
+        fw = new FileWriter(uidFile, true);
+        fw.write("KEY-C\n");
+        fw.close();
+
+        store = new UIDStore(uidFile, 10);
+        assertEquals(3003, store.size());
+        assertTrue(store.contains("KEY-2999"));
+        assertTrue(store.contains("KEY-C"));
+        assertFalse(store.contains("KEY-D"));
+
+        // UIDs added by an external tool while the store is in use
+        fw = new FileWriter(uidFile, true);
+        fw.write("KEY-D\n");
+        fw.close();
+        assertTrue(store.contains("KEY-D"));
+        assertFalse(store.addIfAbsent("KEY-D"));
+        store.close();
+
+        assertEquals(3004, Files.readAllLines(new File(uidFile).toPath())
+                                                                    .size());
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testConcurrentAdditions() throws Exception
+    {
+        File tmpDir = Files.createTempDirectory("_unitUID").toFile();
+        String uidFile = tmpDir + System.getProperty("file.separator")
+                                                                + "UID.txt";
+        final UIDStore store = new UIDStore(uidFile, 10);
+        final AtomicInteger added = new AtomicInteger();
+        final int numUIDs = 500;
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try
+        {
+            // every thread tries to add every UID
+            Future<?>[] futures = new Future<?>[8];
+            for (int t=0; t<futures.length; t++)
+            {
+                futures[t] = pool.submit(new Runnable() {
+                    public void run()
+                    {
+                        try
+                        {
+                            for (int i=0; i<numUIDs; i++)
+                            {
+                                if (store.addIfAbsent("KEY-" + i))
+                                {
+                                    added.incrementAndGet();
+                                }
+                            }
+                        }
+                        catch (Exception e)
+                        {
+                            throw new RuntimeException(e);
+                        }
+                    }
+                });
+            }
+            for (Future<?> f : futures)
+            {
+                f.get(60, TimeUnit.SECONDS);
+            }
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+        store.close();
+
+        assertEquals(numUIDs, added.get(), "UIDs reported as added");
+        assertEquals(numUIDs, store.size());
+        List<String> lines = Files.readAllLines(new File(uidFile).toPath());
+        assertEquals(numUIDs, lines.size(), "Lines in the file");
+        assertEquals(numUIDs, new HashSet<String>(lines).size(),
+                                                       "Distinct UIDs in file");
+    }
+
+//------------------------------------------------------------------------------
+
+}
@@ -474,6 +474,28 @@ public class DENOPTIMAttachmentPoint implements Serializable
         return dirVec;
     }    
 
+//------------------------------------------------------------------------------
+
+    /**
+     * Returns a deep copy of this attachment point
+     * @return the copy
+     */
+
+    public DENOPTIMAttachmentPoint deepCopy()
+    {
+        DENOPTIMAttachmentPoint c = new DENOPTIMAttachmentPoint(
+                          atomPostionNumber, atomConnections, apConnections);
+        c.apRule = apRule;
+        c.apSubClass = apSubClass;
+        c.apClass = apClass;
+        if (dirVec != null)
+        {
+            c.dirVec = new double[dirVec.length];
+            System.arraycopy(dirVec, 0, c.dirVec, 0, dirVec.length);
+        }
+        return c;
+    }
+
 //------------------------------------------------------------------------------
 
     /**
@@ -185,6 +185,22 @@ public class DENOPTIMEdge implements Serializable
         return bondType;
     }
     
+//------------------------------------------------------------------------------
+
+    /**
+     * Returns a deep copy of this edge
+     * @return the copy
+     */
+
+    public DENOPTIMEdge deepCopy()
+    {
+        DENOPTIMEdge c = new DENOPTIMEdge(srcVertex, trgVertex, srcDAP, trgDAP,
+                                                                     bondType);
+        c.srcRcn = srcRcn;
+        c.trgRcn = trgRcn;
+        return c;
+    }
+
 //------------------------------------------------------------------------------
     
     /**
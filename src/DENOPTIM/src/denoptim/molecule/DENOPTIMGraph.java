@@ -20,11 +20,17 @@
 package denoptim.molecule;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 
 import denoptim.exception.DENOPTIMException;
@@ -56,14 +62,34 @@ public class DENOPTIMGraph implements Serializable, Cloneable
     
     String localMsg;
 
+    /*
+     * Lookup tables from vertex IDs to positions in the list of vertexes and
+     * in the list of edges. These are built lazily and rebuilt whenever the
+     * lists are changed (see TrackedList), except when vertexes and edges are
+     * appended by addVertex and addEdge, which update the tables in place.
+     * Like any other change of a graph, this happens while the graph is
+     * confined to the thread changing it, and the updated table is assigned
+     * again to publish the update. Threads only reading a graph may build
+     * the tables concurrently: each thread builds its own table and assigns
+     * it only when complete.
+     */
+    private transient volatile VertexIndex vIndex;
+    private transient volatile EdgeIndex eIndex;
+
+    /*
+     * Below this number of vertexes/edges, a linear search is faster than
+     * using and maintaining the lookup tables.
+     */
+    private static final int MINSIZEFORINDEX = 16;
+
 
 //------------------------------------------------------------------------------
 
     public DENOPTIMGraph(ArrayList<DENOPTIMVertex> m_vertices,
                             ArrayList<DENOPTIMEdge> m_edges)
     {
-        gVertices = m_vertices;
-        gEdges = m_edges;
+        gVertices = tracked(m_vertices);
+        gEdges = tracked(m_edges);
         gRings = new ArrayList<>();
         closableChains = new ArrayList<>();
         symVertices = new ArrayList<>();
@@ -76,8 +102,8 @@ public class DENOPTIMGraph implements Serializable, Cloneable
                             ArrayList<DENOPTIMEdge> m_edges,
                             ArrayList<DENOPTIMRing> m_rings)
     {
-        gVertices = m_vertices;
-        gEdges = m_edges;
+        gVertices = tracked(m_vertices);
+        gEdges = tracked(m_edges);
         gRings = m_rings;
         closableChains = new ArrayList<>();
         symVertices = new ArrayList<>();
@@ -91,8 +117,8 @@ public class DENOPTIMGraph implements Serializable, Cloneable
                             ArrayList<DENOPTIMRing> m_rings,
                             ArrayList<SymmetricSet> m_symVerts)
     {
-        gVertices = m_vertices;
-        gEdges = m_edges;
+        gVertices = tracked(m_vertices);
+        gEdges = tracked(m_edges);
         gRings = m_rings;
         closableChains = new ArrayList<>();
         symVertices = m_symVerts;
@@ -107,8 +133,8 @@ public class DENOPTIMGraph implements Serializable, Cloneable
                             ArrayList<ClosableChain> m_closableChains,
                             ArrayList<SymmetricSet> m_symVerts)
     {
-        gVertices = m_vertices;
-        gEdges = m_edges;
+        gVertices = tracked(m_vertices);
+        gEdges = tracked(m_edges);
         gRings = m_rings;
         closableChains = m_closableChains;
         symVertices = m_symVerts;
@@ -119,8 +145,8 @@ public class DENOPTIMGraph implements Serializable, Cloneable
 
     public DENOPTIMGraph()
     {
-        gVertices = new ArrayList<>();
-        gEdges = new ArrayList<>();
+        gVertices = new TrackedList<>();
+        gEdges = new TrackedList<>();
         gRings = new ArrayList<>();
         symVertices = new ArrayList<>();
         localMsg = "";
@@ -258,14 +284,16 @@ public class DENOPTIMGraph implements Serializable, Cloneable
 
     public void setVertexList(ArrayList<DENOPTIMVertex> m_vertices)
     {
-        gVertices = m_vertices;
+        gVertices = tracked(m_vertices);
+        vIndex = null;
     }
 
 //------------------------------------------------------------------------------
 
     public void setEdgeList(ArrayList<DENOPTIMEdge> m_edges)
     {
-        gEdges = m_edges;
+        gEdges = tracked(m_edges);
+        eIndex = null;
     }
 
 //------------------------------------------------------------------------------
@@ -314,15 +342,7 @@ public class DENOPTIMGraph implements Serializable, Cloneable
     
     public ArrayList<DENOPTIMEdge> getEdgesWithSrc(DENOPTIMVertex v)
     {
-    	ArrayList<DENOPTIMEdge> edges = new ArrayList<DENOPTIMEdge>();
-    	for (DENOPTIMEdge e : this.getEdgeList())
-    	{
-    		if (e.getSourceVertex() == v.getVertexId())
-    		{
-    			edges.add(e);
-    		}
-    	}
-    	return edges;
+        return getEdgesWithChild(v.getVertexId());
     }
 
 //------------------------------------------------------------------------------
@@ -459,7 +479,15 @@ public class DENOPTIMGraph implements Serializable, Cloneable
 
     public void addEdge(DENOPTIMEdge m_edge)
     {
+        EdgeIndex idx = eIndex;
+        boolean inSync = isInSync(idx, gEdges);
         gEdges.add(m_edge);
+        if (inSync)
+        {
+            idx.add(m_edge, gEdges.size()-1);
+            idx.modCount = ((TrackedList<DENOPTIMEdge>) gEdges).getModCount();
+            eIndex = idx;
+        }
     }
 
 //------------------------------------------------------------------------------
@@ -473,7 +501,16 @@ public class DENOPTIMGraph implements Serializable, Cloneable
 
     public void addVertex(DENOPTIMVertex m_vertex)
     {
+        VertexIndex idx = vIndex;
+        boolean inSync = isInSync(idx, gVertices);
         gVertices.add(m_vertex);
+        if (inSync)
+        {
+            idx.add(m_vertex, gVertices.size()-1);
+            idx.modCount = 
+                        ((TrackedList<DENOPTIMVertex>) gVertices).getModCount();
+            vIndex = idx;
+        }
     }
 
 //------------------------------------------------------------------------------
@@ -584,16 +621,7 @@ public class DENOPTIMGraph implements Serializable, Cloneable
      */
     public boolean containsVertexId(int vId)
     {
-    	boolean res = false;
-    	for (DENOPTIMVertex v : gVertices)
-    	{
-    		if (vId == v.getVertexId())
-    		{
-    			res = true;
-    			break;
-    		}
-    	}
-    	return res;
+        return getIndexOfVertex(vId) != -1;
     }
 
 //------------------------------------------------------------------------------
@@ -634,17 +662,32 @@ public class DENOPTIMGraph implements Serializable, Cloneable
 
     public int getIndexOfVertex(int m_vertexId)
     {
-        int idx = -1;
-        for (int i=0; i<gVertices.size(); i++)
+        if (gVertices.size() < MINSIZEFORINDEX)
         {
-            DENOPTIMVertex v = gVertices.get(i);
-            if (v.getVertexId() == m_vertexId)
+            for (int i=0; i<gVertices.size(); i++)
             {
-                idx = i;
-                break;
+                if (gVertices.get(i).getVertexId() == m_vertexId)
+                {
+                    return i;
+                }
             }
+            return -1;
         }
-        return idx;
+        Integer pos = getVertexIndex().posById.get(m_vertexId);
+        if (pos == null)
+        {
+            return -1;
+        }
+        if (gVertices.get(pos).getVertexId() != m_vertexId)
+        {
+            // IDs have changed behind our back: re-index and try again
+            pos = buildVertexIndex().posById.get(m_vertexId);
+            if (pos == null)
+            {
+                return -1;
+            }
+        }
+        return pos;
     }
 
 //------------------------------------------------------------------------------
@@ -756,7 +799,7 @@ public class DENOPTIMGraph implements Serializable, Cloneable
     public ArrayList<Integer> getAdjacentVertices(int m_vid)
     {
         ArrayList<Integer> lst = new ArrayList<>();
-        for (int i=0; i<gEdges.size(); i++)
+        for (Integer i : getPositionsOfIncidentEdges(m_vid))
         {
             DENOPTIMEdge edge = gEdges.get(i);
             if (edge.getTargetVertex() == m_vid)
@@ -795,14 +838,9 @@ public class DENOPTIMGraph implements Serializable, Cloneable
     public ArrayList<DENOPTIMEdge> getIncidentEdges(int vid)
     {         
         ArrayList<DENOPTIMEdge> lst = new ArrayList<DENOPTIMEdge>();
-        for (int i=0; i<gEdges.size(); i++)
+        for (Integer i : getPositionsOfIncidentEdges(vid))
         {
-            DENOPTIMEdge edge = gEdges.get(i);
-            if (edge.getTargetVertex() == vid ||
-                edge.getSourceVertex() == vid)
-            {
-                lst.add(edge);
-            }
+            lst.add(gEdges.get(i));
         }
         return lst;
     }
@@ -820,7 +858,7 @@ public class DENOPTIMGraph implements Serializable, Cloneable
     
     public int getBondType(int vidSrc, int vidDest, int dapSrc, int dapDest)
     {
-        for (int i=0; i<gEdges.size(); i++)
+        for (Integer i : getPositionsOfEdgesWithSrc(vidSrc))
         {
             DENOPTIMEdge edge = gEdges.get(i);
             if (edge.getSourceVertex() == vidSrc && 
@@ -855,10 +893,9 @@ public class DENOPTIMGraph implements Serializable, Cloneable
     public DENOPTIMVertex getBondingVertex(DENOPTIMVertex vertex, int dapidx, 
                                                 String rcn)
     {
-        int n = getEdgeCount();
-        for (int i = 0; i < n; i++)
+        for (Integer i : getPositionsOfEdgesWithSrc(vertex.getVertexId()))
         {
-            DENOPTIMEdge edge = getEdgeList().get(i);
+            DENOPTIMEdge edge = gEdges.get(i);
 
             // get the vertex ids
             int v1_id = edge.getSourceVertex();
@@ -898,10 +935,9 @@ public class DENOPTIMGraph implements Serializable, Cloneable
     public int getBondingAPIndex(DENOPTIMVertex srcVert, int dapidx, 
                                     DENOPTIMVertex dstVert)
     {
-        int n = getEdgeCount();
-        for (int i = 0; i < n; i++)
+        for (Integer i : getPositionsOfEdgesWithSrc(srcVert.getVertexId()))
         {
-            DENOPTIMEdge edge = getEdgeList().get(i);
+            DENOPTIMEdge edge = gEdges.get(i);
 
             // get the vertex ids
             int v1_id = edge.getSourceVertex();
@@ -929,25 +965,114 @@ public class DENOPTIMGraph implements Serializable, Cloneable
     public ArrayList<Integer> getChildVertices(int m_vid)
     {
         ArrayList<Integer> lst = new ArrayList<>();
-        for (int i=0; i<gEdges.size(); i++)
+        for (Integer i : getPositionsOfEdgesWithSrc(m_vid))
         {
-            DENOPTIMEdge edge = gEdges.get(i);
-            if (edge.getSourceVertex() == m_vid)
-            {
-                lst.add(edge.getTargetVertex());
-            }
+            lst.add(gEdges.get(i).getTargetVertex());
         }
         return lst;
     }
 
 //------------------------------------------------------------------------------
 
-//TODO: define whether this is a shallow or deep copy... might return a shallow
-// copy. Have a look at DenoptimIO.deepCopy method
+    /**
+     * Returns a deep copy of this graph (see {@link #deepCopy()}).
+     */
     @Override
     public Object clone() throws CloneNotSupportedException
     {
-        return super.clone();
+        return deepCopy();
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Returns a deep copy of this graph. Vertexes, attachment points, edges,
+     * rings, symmetric sets and closable chains are all copied, and the rings
+     * of the copy refer to the vertexes of the copy. Vertex IDs and graph ID
+     * are the same as in this graph. This produces the same result as
+     * {@link denoptim.io.DenoptimIO#deepCopy(Object)} without the cost of
+     * serialization.
+     * @return the copy
+     */
+    public DENOPTIMGraph deepCopy()
+    {
+        DENOPTIMGraph c = new DENOPTIMGraph();
+        c.graphId = graphId;
+        c.localMsg = localMsg;
+
+        IdentityHashMap<DENOPTIMVertex,DENOPTIMVertex> vMap =
+                       new IdentityHashMap<DENOPTIMVertex,DENOPTIMVertex>();
+        for (DENOPTIMVertex v : gVertices)
+        {
+            DENOPTIMVertex vc = vMap.get(v);
+            if (vc == null)
+            {
+                vc = v.deepCopy();
+                vMap.put(v, vc);
+            }
+            c.gVertices.add(vc);
+        }
+
+        for (DENOPTIMEdge e : gEdges)
+        {
+            c.gEdges.add(e.deepCopy());
+        }
+
+        if (gRings == null)
+        {
+            c.gRings = null;
+        }
+        else
+        {
+            c.gRings = new ArrayList<>(gRings.size());
+            for (DENOPTIMRing r : gRings)
+            {
+                ArrayList<DENOPTIMVertex> rVerts =
+                                 new ArrayList<DENOPTIMVertex>(r.getSize());
+                for (int i=0; i<r.getSize(); i++)
+                {
+                    DENOPTIMVertex v = r.getVertexAtPosition(i);
+                    DENOPTIMVertex vc = vMap.get(v);
+                    if (vc == null)
+                    {
+                        vc = v.deepCopy();
+                        vMap.put(v, vc);
+                    }
+                    rVerts.add(vc);
+                }
+                DENOPTIMRing rc = new DENOPTIMRing(rVerts);
+                rc.setBondType(r.getBondType());
+                c.gRings.add(rc);
+            }
+        }
+
+        if (symVertices == null)
+        {
+            c.symVertices = null;
+        }
+        else
+        {
+            c.symVertices = new ArrayList<>(symVertices.size());
+            for (SymmetricSet ss : symVertices)
+            {
+                c.symVertices.add(ss.deepCopy());
+            }
+        }
+
+        if (closableChains == null)
+        {
+            c.closableChains = null;
+        }
+        else
+        {
+            c.closableChains = new ArrayList<>(closableChains.size());
+            for (ClosableChain cc : closableChains)
+            {
+                c.closableChains.add(cc.deepCopy());
+            }
+        }
+
+        return c;
     }
 
 //------------------------------------------------------------------------------
@@ -1001,16 +1126,23 @@ public class DENOPTIMGraph implements Serializable, Cloneable
 
     public int getIndexOfEdgeWithParent(int m_vid)
     {
-        for (int j=0; j<getEdgeCount(); j++)
+        if (gEdges.size() < MINSIZEFORINDEX)
         {
-            DENOPTIMEdge edge = getEdgeAtPosition(j);
-
-            if (edge.getTargetVertex() == m_vid)
+            for (int j=0; j<gEdges.size(); j++)
             {
-                return j;
+                if (gEdges.get(j).getTargetVertex() == m_vid)
+                {
+                    return j;
+                }
             }
+            return -1;
         }
-        return -1;
+        ArrayList<Integer> pos = getPositionsOfEdgesWithTrg(m_vid);
+        if (pos.isEmpty())
+        {
+            return -1;
+        }
+        return pos.get(0);
     }
 
 //------------------------------------------------------------------------------
@@ -1023,14 +1155,10 @@ public class DENOPTIMGraph implements Serializable, Cloneable
 
     public DENOPTIMEdge getEdgeWithParent(int m_vid)
     {
-        for (int j=0; j<getEdgeCount(); j++)
+        int idx = getIndexOfEdgeWithParent(m_vid);
+        if (idx != -1)
         {
-            DENOPTIMEdge edge = getEdgeAtPosition(j);
-
-            if (edge.getTargetVertex() == m_vid)
-            {
-                return edge;
-            }
+            return gEdges.get(idx);
         }
         return null;
     }
@@ -1045,17 +1173,7 @@ public class DENOPTIMGraph implements Serializable, Cloneable
 
     public ArrayList<Integer> getIndexOfEdgesWithChild(int m_vid)
     {
-        ArrayList<Integer> lstEdges = new ArrayList<>();
-        for (int j=0; j<getEdgeCount(); j++)
-        {
-            DENOPTIMEdge edge = getEdgeAtPosition(j);
-
-            if (edge.getSourceVertex() == m_vid)
-            {
-                lstEdges.add(j);
-            }
-        }
-        return lstEdges;
+        return new ArrayList<>(getPositionsOfEdgesWithSrc(m_vid));
     }
 
 //------------------------------------------------------------------------------
@@ -1069,14 +1187,9 @@ public class DENOPTIMGraph implements Serializable, Cloneable
     public ArrayList<DENOPTIMEdge> getEdgesWithChild(int m_vid)
     {
         ArrayList<DENOPTIMEdge> lstEdges = new ArrayList<>();
-        for (int j=0; j<getEdgeCount(); j++)
+        for (Integer i : getPositionsOfEdgesWithSrc(m_vid))
         {
-            DENOPTIMEdge edge = getEdgeAtPosition(j);
-
-            if (edge.getSourceVertex() == m_vid)
-            {
-                lstEdges.add(edge);
-            }
+            lstEdges.add(gEdges.get(i));
         }
         return lstEdges;
     }
@@ -1422,7 +1535,558 @@ public class DENOPTIMGraph implements Serializable, Cloneable
     	return true;
     }
     
-//------------------------------------------------------------------------------        
+//------------------------------------------------------------------------------
 
-}
+    /**
+     * Returns a string representation of this graph that does not depend on
+     * the vertex IDs nor on the order of vertexes and edges in their lists.
+     * Each tree of the spanning forest is visited depth-first from its root,
+     * i.e., a vertex that is not the target of any edge, and the children
+     * of each vertex are visited in the order of the source AP.
+     * The string collects vertexes (fragment type, molID, and APs),
+     * edges (APs, APClasses, and bond type), rings,
+     * and symmetric sets of vertexes, the latter two defined in terms of
+     * the canonical position of the vertexes.
+     * Two graphs that are the same according to
+     * {@link #sameAs(DENOPTIMGraph, StringBuilder)} have the same canonical
+     * form as long as corresponding APs have the same APClass.
+     * Direction vectors of APs and bond types of rings are not considered.
+     * @return the canonical form of this graph
+     */
 
+    public String getCanonicalForm()
+    {
+        // Roots of the spanning forest
+        ArrayList<DENOPTIMVertex> roots = new ArrayList<DENOPTIMVertex>();
+        for (DENOPTIMVertex v : gVertices)
+        {
+            if (getIndexOfEdgeWithParent(v.getVertexId()) == -1)
+            {
+                roots.add(v);
+            }
+        }
+
+        // Canonical representation of each tree
+        ArrayList<String> trees = new ArrayList<String>();
+        Map<String,ArrayList<ArrayList<DENOPTIMVertex>>> visitsPerTree =
+                new HashMap<String,ArrayList<ArrayList<DENOPTIMVertex>>>();
+        for (DENOPTIMVertex root : roots)
+        {
+            ArrayList<DENOPTIMVertex> visited = new ArrayList<DENOPTIMVertex>();
+            StringBuilder sb = new StringBuilder();
+            appendCanonicalTree(root, -1, null, visited, sb);
+            String tree = sb.toString();
+            trees.add(tree);
+            if (!visitsPerTree.containsKey(tree))
+            {
+                visitsPerTree.put(tree,
+                        new ArrayList<ArrayList<DENOPTIMVertex>>());
+            }
+            visitsPerTree.get(tree).add(visited);
+        }
+        Collections.sort(trees);
+
+        // Canonical position of each vertex
+        Map<DENOPTIMVertex,Integer> canonPos =
+                new IdentityHashMap<DENOPTIMVertex,Integer>();
+        StringBuilder sb = new StringBuilder();
+        Map<String,Integer> usedVisits = new HashMap<String,Integer>();
+        for (String tree : trees)
+        {
+            int n = usedVisits.containsKey(tree) ? usedVisits.get(tree) : 0;
+            usedVisits.put(tree, n + 1);
+            int offset = canonPos.size();
+            for (DENOPTIMVertex v : visitsPerTree.get(tree).get(n))
+            {
+                canonPos.put(v, canonPos.size());
+            }
+            sb.append("T").append(offset).append(tree);
+        }
+
+        // Rings, each read in the direction giving the smallest sequence
+        ArrayList<String> rings = new ArrayList<String>();
+        for (DENOPTIMRing r : gRings)
+        {
+            int sz = r.getSize();
+            int[] fwd = new int[sz];
+            for (int i=0; i<sz; i++)
+            {
+                Integer p = canonPos.get(r.getVertexAtPosition(i));
+                fwd[i] = p == null ? -1 : p;
+            }
+            boolean reverse = false;
+            for (int i=0; i<sz; i++)
+            {
+                if (fwd[i] != fwd[sz-1-i])
+                {
+                    reverse = fwd[sz-1-i] < fwd[i];
+                    break;
+                }
+            }
+            StringBuilder sbr = new StringBuilder("R");
+            for (int i=0; i<sz; i++)
+            {
+                sbr.append(reverse ? fwd[sz-1-i] : fwd[i]).append(",");
+            }
+            rings.add(sbr.toString());
+        }
+        Collections.sort(rings);
+        for (String r : rings)
+        {
+            sb.append(r);
+        }
+
+        // Symmetric sets of vertexes
+        ArrayList<String> symSets = new ArrayList<String>();
+        for (SymmetricSet ss : symVertices)
+        {
+            ArrayList<Integer> pos = new ArrayList<Integer>();
+            for (Integer vid : ss.getList())
+            {
+                DENOPTIMVertex v = getVertexWithId(vid);
+                pos.add(v == null ? -1 : canonPos.get(v));
+            }
+            Collections.sort(pos);
+            symSets.add("S" + pos.toString());
+        }
+        Collections.sort(symSets);
+        for (String s : symSets)
+        {
+            sb.append(s);
+        }
+
+        return sb.toString();
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Appends the canonical representation of the tree rooted on the given
+     * vertex and records the order in which vertexes are visited.
+     */
+
+    private void appendCanonicalTree(DENOPTIMVertex v, int parentPos,
+            DENOPTIMEdge edgeFromParent, ArrayList<DENOPTIMVertex> visited,
+            StringBuilder sb)
+    {
+        int pos = visited.size();
+        visited.add(v);
+
+        sb.append("[").append(parentPos);
+        if (edgeFromParent != null)
+        {
+            sb.append(":").append(edgeFromParent.getSourceDAP())
+                .append(">").append(edgeFromParent.getTargetDAP())
+                .append(":").append(edgeFromParent.getSourceReaction())
+                .append(">").append(edgeFromParent.getTargetReaction())
+                .append(":").append(edgeFromParent.getBondType());
+        }
+        sb.append("|").append(v.getFragmentType())
+            .append("/").append(v.getMolId());
+        ArrayList<String> aps = new ArrayList<String>();
+        for (DENOPTIMAttachmentPoint ap : v.getAttachmentPoints())
+        {
+            aps.add(ap.getAtomPositionNumber() + ":" + ap.getAtmConnections()
+                    + ":" + ap.getAPConnections() + ":" + ap.getAPClass());
+        }
+        Collections.sort(aps);
+        sb.append(aps.toString()).append("]");
+
+        ArrayList<DENOPTIMEdge> edges = getEdgesWithSrc(v);
+        Collections.sort(edges,
+                new Comparator<DENOPTIMEdge>() {
+            @Override
+            public int compare(DENOPTIMEdge e1, DENOPTIMEdge e2)
+            {
+                int res = Integer.compare(e1.getSourceDAP(),
+                        e2.getSourceDAP());
+                if (res == 0)
+                {
+                    res = Integer.compare(e1.getTargetDAP(),
+                            e2.getTargetDAP());
+                }
+                return res;
+            }
+        });
+        for (DENOPTIMEdge e : edges)
+        {
+            DENOPTIMVertex child = getVertexWithId(e.getTargetVertex());
+            if (child == null || visited.contains(child))
+            {
+                continue;
+            }
+            appendCanonicalTree(child, pos, e, visited, sb);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Returns a 64-bit hash of the canonical form of this graph
+     * (see {@link #getCanonicalForm()}). Graphs that are the same have the
+     * same hash, while different graphs have the same hash only in case of
+     * hash collision.
+     * @return the canonical hash of this graph
+     */
+
+    public long getCanonicalHash()
+    {
+        return getCanonicalHash(getCanonicalForm());
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Returns the 64-bit FNV-1a hash of a canonical form.
+     * @param canonicalForm the canonical form of a graph, as given by
+     * {@link #getCanonicalForm()}
+     * @return the hash
+     */
+
+    public static long getCanonicalHash(String canonicalForm)
+    {
+        long h = 0xcbf29ce484222325L;
+        for (int i=0; i<canonicalForm.length(); i++)
+        {
+            h ^= canonicalForm.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Discards the lookup tables used to find vertexes and edges by vertex ID.
+     * Changes to the lists of vertexes and edges are detected automatically,
+     * but changes of the IDs of vertexes and edges that are already part of
+     * this graph are not. Therefore, this method must be called after
+     * changing such IDs (see {@link denoptim.utils.GraphUtils#renumberGraphVertices}).
+     */
+    public void invalidateIndexes()
+    {
+        vIndex = null;
+        eIndex = null;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return <code>true</code> if the given index reflects the current
+     * content of the given list
+     */
+    private static boolean isInSync(Index idx, ArrayList<?> list)
+    {
+        return idx != null && idx.list == list
+                        && idx.modCount == ((TrackedList<?>) list).getModCount();
+    }
+
+//------------------------------------------------------------------------------
+
+    private VertexIndex getVertexIndex()
+    {
+        VertexIndex idx = vIndex;
+        if (isInSync(idx, gVertices))
+        {
+            return idx;
+        }
+        return buildVertexIndex();
+    }
+
+//------------------------------------------------------------------------------
+
+    private VertexIndex buildVertexIndex()
+    {
+        VertexIndex idx = new VertexIndex(gVertices, 
+                       ((TrackedList<DENOPTIMVertex>) gVertices).getModCount());
+        for (int i=0; i<gVertices.size(); i++)
+        {
+            idx.add(gVertices.get(i), i);
+        }
+        vIndex = idx;
+        return idx;
+    }
+
+//------------------------------------------------------------------------------
+
+    private EdgeIndex getEdgeIndex()
+    {
+        EdgeIndex idx = eIndex;
+        if (isInSync(idx, gEdges))
+        {
+            return idx;
+        }
+        return buildEdgeIndex();
+    }
+
+//------------------------------------------------------------------------------
+
+    private EdgeIndex buildEdgeIndex()
+    {
+        EdgeIndex idx = new EdgeIndex(gEdges, 
+                           ((TrackedList<DENOPTIMEdge>) gEdges).getModCount());
+        for (int i=0; i<gEdges.size(); i++)
+        {
+            idx.add(gEdges.get(i), i);
+        }
+        eIndex = idx;
+        return idx;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @param vid the vertex ID
+     * @return the ordered positions of the edges having the given vertex as
+     * source. The returned list must not be modified.
+     */
+    private ArrayList<Integer> getPositionsOfEdgesWithSrc(int vid)
+    {
+        if (gEdges.size() < MINSIZEFORINDEX)
+        {
+            ArrayList<Integer> pos = new ArrayList<Integer>();
+            for (int i=0; i<gEdges.size(); i++)
+            {
+                if (gEdges.get(i).getSourceVertex() == vid)
+                {
+                    pos.add(i);
+                }
+            }
+            return pos;
+        }
+        ArrayList<Integer> pos = getEdgeIndex().bySrc.get(vid);
+        if (pos == null)
+        {
+            return EdgeIndex.NONE;
+        }
+        for (Integer i : pos)
+        {
+            if (gEdges.get(i).getSourceVertex() != vid)
+            {
+                // IDs have changed behind our back: re-index and try again
+                pos = buildEdgeIndex().bySrc.get(vid);
+                return pos == null ? EdgeIndex.NONE : pos;
+            }
+        }
+        return pos;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @param vid the vertex ID
+     * @return the ordered positions of the edges having the given vertex as
+     * target. The returned list must not be modified.
+     */
+    private ArrayList<Integer> getPositionsOfEdgesWithTrg(int vid)
+    {
+        if (gEdges.size() < MINSIZEFORINDEX)
+        {
+            ArrayList<Integer> pos = new ArrayList<Integer>();
+            for (int i=0; i<gEdges.size(); i++)
+            {
+                if (gEdges.get(i).getTargetVertex() == vid)
+                {
+                    pos.add(i);
+                }
+            }
+            return pos;
+        }
+        ArrayList<Integer> pos = getEdgeIndex().byTrg.get(vid);
+        if (pos == null)
+        {
+            return EdgeIndex.NONE;
+        }
+        for (Integer i : pos)
+        {
+            if (gEdges.get(i).getTargetVertex() != vid)
+            {
+                // IDs have changed behind our back: re-index and try again
+                pos = buildEdgeIndex().byTrg.get(vid);
+                return pos == null ? EdgeIndex.NONE : pos;
+            }
+        }
+        return pos;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @param vid the vertex ID
+     * @return the ordered positions of the edges having the given vertex as
+     * either source or target.
+     */
+    private ArrayList<Integer> getPositionsOfIncidentEdges(int vid)
+    {
+        ArrayList<Integer> asSrc = getPositionsOfEdgesWithSrc(vid);
+        ArrayList<Integer> asTrg = getPositionsOfEdgesWithTrg(vid);
+        ArrayList<Integer> merged = new ArrayList<Integer>(
+                                                   asSrc.size() + asTrg.size());
+        int iS = 0;
+        int iT = 0;
+        while (iS < asSrc.size() || iT < asTrg.size())
+        {
+            int pS = iS < asSrc.size() ? asSrc.get(iS) : Integer.MAX_VALUE;
+            int pT = iT < asTrg.size() ? asTrg.get(iT) : Integer.MAX_VALUE;
+            if (pS < pT)
+            {
+                merged.add(pS);
+                iS++;
+            }
+            else if (pT < pS)
+            {
+                merged.add(pT);
+                iT++;
+            }
+            else
+            {
+                merged.add(pS);
+                iS++;
+                iT++;
+            }
+        }
+        return merged;
+    }
+
+//------------------------------------------------------------------------------
+
+    private void readObject(ObjectInputStream in) 
+                                    throws IOException, ClassNotFoundException
+    {
+        in.defaultReadObject();
+        gVertices = tracked(gVertices);
+        gEdges = tracked(gEdges);
+    }
+
+//------------------------------------------------------------------------------
+
+    private static <T> ArrayList<T> tracked(ArrayList<T> lst)
+    {
+        if (lst == null || lst instanceof TrackedList)
+        {
+            return lst;
+        }
+        return new TrackedList<T>(lst);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * List that exposes the count of structural modifications, i.e., any 
+     * addition or removal also when done via iterators or by the code using
+     * the list returned by {@link DENOPTIMGraph#getVertexList()} and 
+     * {@link DENOPTIMGraph#getEdgeList()}. It is serialized as a plain 
+     * <code>ArrayList</code>.
+     */
+    private static class TrackedList<T> extends ArrayList<T>
+    {
+        private static final long serialVersionUID = 1L;
+
+        TrackedList()
+        {
+            super();
+        }
+
+        TrackedList(Collection<? extends T> c)
+        {
+            super(c);
+        }
+
+        int getModCount()
+        {
+            return modCount;
+        }
+
+        private Object writeReplace()
+        {
+            return new ArrayList<T>(this);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Lookup table built on a list. The table reflects the content of the
+     * list as it was when the list had the given modification count.
+     */
+    private static class Index
+    {
+        final ArrayList<?> list;
+        int modCount;
+
+        Index(ArrayList<?> list, int modCount)
+        {
+            this.list = list;
+            this.modCount = modCount;
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Maps vertex IDs to the position of the first vertex with that ID.
+     */
+    private static class VertexIndex extends Index
+    {
+        final HashMap<Integer,Integer> posById;
+
+        VertexIndex(ArrayList<DENOPTIMVertex> list, int modCount)
+        {
+            super(list, modCount);
+            this.posById = new HashMap<Integer,Integer>(list.size()*2);
+        }
+
+        void add(DENOPTIMVertex v, int pos)
+        {
+            if (!posById.containsKey(v.getVertexId()))
+            {
+                posById.put(v.getVertexId(), pos);
+            }
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Maps vertex IDs to the ordered positions of the edges that have that
+     * vertex as source (i.e., edges to child vertexes) and as target (i.e.,
+     * edges to parent vertexes).
+     */
+    private static class EdgeIndex extends Index
+    {
+        static final ArrayList<Integer> NONE = new ArrayList<Integer>(0);
+
+        final HashMap<Integer,ArrayList<Integer>> bySrc;
+        final HashMap<Integer,ArrayList<Integer>> byTrg;
+
+        EdgeIndex(ArrayList<DENOPTIMEdge> list, int modCount)
+        {
+            super(list, modCount);
+            this.bySrc = new HashMap<Integer,ArrayList<Integer>>(
+                                                               list.size()*2);
+            this.byTrg = new HashMap<Integer,ArrayList<Integer>>(
+                                                               list.size()*2);
+        }
+
+        void add(DENOPTIMEdge e, int pos)
+        {
+            addTo(bySrc, e.getSourceVertex(), pos);
+            addTo(byTrg, e.getTargetVertex(), pos);
+        }
+
+        private static void addTo(HashMap<Integer,ArrayList<Integer>> map, 
+                                                              int vid, int pos)
+        {
+            ArrayList<Integer> lst = map.get(vid);
+            if (lst == null)
+            {
+                lst = new ArrayList<Integer>(2);
+                map.put(vid, lst);
+            }
+            lst.add(pos);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+}
@@ -25,9 +25,17 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
 
 import org.junit.jupiter.api.Test;
 
+import denoptim.rings.ClosableChain;
+import denoptim.utils.GraphUtils;
+
 /**
  * Unit test for DENOPTIMGraph
  * 
@@ -926,5 +934,572 @@ public class DENOPTIMGraphTest
     	assertFalse(graphA.sameAs(graphB,reason));	
     }
     
+//------------------------------------------------------------------------------
+    
+    @Test
+    public void testIndexedLookups() throws Exception
+    {
+    	DENOPTIMGraph graph = new DENOPTIMGraph();
+    	ArrayList<DENOPTIMAttachmentPoint> aps0 = 
+    			new ArrayList<DENOPTIMAttachmentPoint>();
+    	aps0.add(new DENOPTIMAttachmentPoint(0, 1, 1));
+    	aps0.add(new DENOPTIMAttachmentPoint(1, 1, 1));
+    	aps0.add(new DENOPTIMAttachmentPoint(2, 1, 1));
+    	DENOPTIMVertex v0 = new DENOPTIMVertex(0, 0, aps0, 0);
+    	graph.addVertex(v0);
+    	
+    	ArrayList<DENOPTIMAttachmentPoint> aps1 = 
+    			new ArrayList<DENOPTIMAttachmentPoint>();
+    	aps1.add(new DENOPTIMAttachmentPoint(0, 1, 1));
+    	aps1.add(new DENOPTIMAttachmentPoint(1, 1, 1));
+    	DENOPTIMVertex v1 = new DENOPTIMVertex(1, 0, aps1, 1);
+    	graph.addVertex(v1);
+    	graph.addEdge(new DENOPTIMEdge(0, 1, 0, 0, 1));
+    	
+    	ArrayList<DENOPTIMAttachmentPoint> aps2 = 
+    			new ArrayList<DENOPTIMAttachmentPoint>();
+    	aps2.add(new DENOPTIMAttachmentPoint(0, 1, 1));
+    	DENOPTIMVertex v2 = new DENOPTIMVertex(2, 0, aps2, 1);
+    	graph.addVertex(v2);
+    	graph.addEdge(new DENOPTIMEdge(1, 2, 1, 0, 1));
+    	
+    	ArrayList<DENOPTIMAttachmentPoint> aps3 = 
+    			new ArrayList<DENOPTIMAttachmentPoint>();
+    	aps3.add(new DENOPTIMAttachmentPoint(0, 1, 1));
+    	DENOPTIMVertex v3 = new DENOPTIMVertex(3, 0, aps3, 1);
+    	graph.addVertex(v3);
+    	graph.addEdge(new DENOPTIMEdge(0, 3, 1, 0, 1));
+    	
+    	assertTrue(graph.getVertexWithId(2) == v2);
+    	assertEquals(3, graph.getIndexOfVertex(3));
+    	assertTrue(graph.getParent(2) == v1);
+    	assertTrue(graph.getParent(0) == null);
+    	assertEquals(Arrays.asList(1, 3), graph.getChildVertices(0));
+    	assertEquals(Arrays.asList(0, 2), graph.getAdjacentVertices(1));
+    	assertEquals(2, graph.getIndexOfEdgeWithParent(3));
+    	assertEquals(1, graph.getParentAPIndex(3));
+    	
+    	// removal of a vertex shifts positions in both lists
+    	graph.removeVertex(v1);
+    	assertEquals(-1, graph.getIndexOfVertex(1));
+    	assertTrue(graph.getVertexWithId(3) == v3);
+    	assertEquals(2, graph.getIndexOfVertex(3));
+    	assertTrue(graph.getParent(2) == null);
+    	assertEquals(Arrays.asList(3), graph.getChildVertices(0));
+    	assertEquals(0, graph.getIndexOfEdgeWithParent(3));
+    	
+    	// changes made on the list of edges by other code
+    	graph.getEdgeList().remove(0);
+    	assertTrue(graph.getParent(3) == null);
+    	assertTrue(graph.getChildVertices(0).isEmpty());
+    	graph.addEdge(new DENOPTIMEdge(3, 2, 0, 0, 1));
+    	assertTrue(graph.getParent(2) == v3);
+    	
+    	// change of IDs followed by invalidation of the indexes
+    	v3.setVertexId(33);
+    	graph.getEdgeList().get(0).setSourceVertex(33);
+    	graph.invalidateIndexes();
+    	assertFalse(graph.containsVertexId(3));
+    	assertTrue(graph.getVertexWithId(33) == v3);
+    	assertTrue(graph.getParent(2) == v3);
+    	assertEquals(Arrays.asList(2), graph.getChildVertices(33));
+    }
+    
+//------------------------------------------------------------------------------
+    
+    /**
+     * Adds a vertex to a balanced binary tree where each vertex uses one
+     * attachment point to bind the parent and two to bind children.
+     * @return the new vertex
+     */
+    private static DENOPTIMVertex addToTree(DENOPTIMGraph graph, int vid, 
+    		int parentId, int parentAP)
+    {
+    	ArrayList<DENOPTIMAttachmentPoint> aps = 
+    			new ArrayList<DENOPTIMAttachmentPoint>();
+    	for (int j=0; j<3; j++)
+    	{
+    		aps.add(new DENOPTIMAttachmentPoint(j, 1, 1));
+    	}
+    	DENOPTIMVertex v = new DENOPTIMVertex(vid, 0, aps, 1);
+    	graph.addVertex(v);
+    	if (parentId > -1)
+    	{
+    		graph.addEdge(new DENOPTIMEdge(parentId, vid, parentAP, 0, 1));
+    	}
+    	return v;
+    }
+    
+//------------------------------------------------------------------------------
+    
+    /**
+     * Checks the lookups of every vertex against a linear search of the 
+     * lists of vertexes and edges.
+     */
+    private static void checkLookups(DENOPTIMGraph graph)
+    {
+    	for (int i=0; i<graph.getVertexCount(); i++)
+    	{
+    		DENOPTIMVertex v = graph.getVertexAtPosition(i);
+    		int vid = v.getVertexId();
+    		assertEquals(i, graph.getIndexOfVertex(vid), "Position of " + vid);
+    		assertTrue(graph.getVertexWithId(vid) == v, "Vertex " + vid);
+    		
+    		ArrayList<Integer> children = new ArrayList<Integer>();
+    		int edgeToParent = -1;
+    		for (int j=0; j<graph.getEdgeCount(); j++)
+    		{
+    			DENOPTIMEdge e = graph.getEdgeAtPosition(j);
+    			if (e.getSourceVertex() == vid)
+    			{
+    				children.add(e.getTargetVertex());
+    			}
+    			if (e.getTargetVertex() == vid && edgeToParent == -1)
+    			{
+    				edgeToParent = j;
+    			}
+    		}
+    		assertEquals(children, graph.getChildVertices(vid), 
+    				"Children of " + vid);
+    		assertEquals(edgeToParent, graph.getIndexOfEdgeWithParent(vid),
+    				"Edge to parent of " + vid);
+    		if (edgeToParent == -1)
+    		{
+    			assertTrue(graph.getParent(vid) == null, "Parent of " + vid);
+    		}
+    		else
+    		{
+    			assertEquals(graph.getEdgeAtPosition(edgeToParent)
+    					.getSourceVertex(), 
+    					graph.getParent(vid).getVertexId(), "Parent of " + vid);
+    		}
+    	}
+    }
+    
+//------------------------------------------------------------------------------
+    
+    @Test
+    public void testIndexedLookupsOnLargeGraph() throws Exception
+    {
+    	// well above the size where lookup tables replace linear searches
+    	int size = 40;
+    	DENOPTIMGraph graph = new DENOPTIMGraph();
+    	for (int i=0; i<size; i++)
+    	{
+    		addToTree(graph, i, i==0 ? -1 : (i-1)/2, (i-1)%2 + 1);
+    		// lookups between additions use tables updated in place
+    		if (i > 0)
+    		{
+    			assertEquals((i-1)/2, graph.getParent(i).getVertexId());
+    		}
+    		assertEquals(i, graph.getIndexOfVertex(i));
+    		assertTrue(graph.getChildVertices(i).isEmpty());
+    		if (i % 10 == 0)
+    		{
+    			checkLookups(graph);
+    		}
+    	}
+    	checkLookups(graph);
+    	assertEquals(Arrays.asList(15, 16), graph.getChildVertices(7));
+    	
+    	// removals shift positions in both lists
+    	graph.removeVertex(graph.getVertexWithId(size-1));
+    	assertEquals(-1, graph.getIndexOfVertex(size-1));
+    	checkLookups(graph);
+    	graph.removeVertex(graph.getVertexWithId(5));
+    	assertEquals(-1, graph.getIndexOfVertex(5));
+    	assertTrue(graph.getParent(11) == null);
+    	assertEquals(Arrays.asList(6), graph.getChildVertices(2));
+    	checkLookups(graph);
+    	
+    	// additions after removals
+    	addToTree(graph, 100, 2, 1);
+    	assertEquals(2, graph.getParent(100).getVertexId());
+    	assertEquals(Arrays.asList(6, 100), graph.getChildVertices(2));
+    	addToTree(graph, 101, 100, 1);
+    	addToTree(graph, 102, 11, 1);
+    	checkLookups(graph);
+    	
+    	// changes made on the list of edges by other code
+    	graph.getEdgeList().remove(graph.getIndexOfEdgeWithParent(100));
+    	assertTrue(graph.getParent(100) == null);
+    	assertEquals(Arrays.asList(6), graph.getChildVertices(2));
+    	checkLookups(graph);
+    	
+    	// change of a vertex ID that is not followed by invalidation
+    	DENOPTIMVertex v = graph.getVertexWithId(20);
+    	v.setVertexId(120);
+    	assertEquals(-1, graph.getIndexOfVertex(20));
+    	assertTrue(graph.getVertexWithId(120) == v);
+    	
+    	// change of edges followed by invalidation
+    	graph.getEdgeAtPosition(graph.getIndexOfEdgeWithParent(20))
+    			.setTargetVertex(120);
+    	graph.invalidateIndexes();
+    	assertEquals(9, graph.getParent(120).getVertexId());
+    	assertTrue(graph.getParent(20) == null);
+    	checkLookups(graph);
+    	
+    	// renumbering
+    	ArrayList<Integer> parents = new ArrayList<Integer>();
+    	for (int i=0; i<graph.getVertexCount(); i++)
+    	{
+    		DENOPTIMVertex p = graph.getParent(
+    				graph.getVertexAtPosition(i).getVertexId());
+    		parents.add(p == null ? -1 : p.getVertexId());
+    	}
+    	Map<Integer,Integer> newIds = GraphUtils.renumberVerticesGetMap(graph);
+    	for (int i=0; i<graph.getVertexCount(); i++)
+    	{
+    		int vid = graph.getVertexAtPosition(i).getVertexId();
+    		assertEquals(i, graph.getIndexOfVertex(vid));
+    		DENOPTIMVertex p = graph.getParent(vid);
+    		if (parents.get(i) == -1)
+    		{
+    			assertTrue(p == null, "Parent of " + vid);
+    		}
+    		else
+    		{
+    			assertEquals(newIds.get(parents.get(i)).intValue(), 
+    					p.getVertexId(), "Parent of " + vid);
+    		}
+    	}
+    	checkLookups(graph);
+    }
+    
+//------------------------------------------------------------------------------
+    
+    @Test
+    public void testDeepCopy() throws Exception
+    {
+    	DENOPTIMGraph graph = new DENOPTIMGraph();
+    	ArrayList<DENOPTIMAttachmentPoint> aps0 = 
+    			new ArrayList<DENOPTIMAttachmentPoint>();
+    	aps0.add(new DENOPTIMAttachmentPoint(0, 1, 1, 
+    			new double[] {1.0, 2.0, 3.0}));
+    	aps0.add(new DENOPTIMAttachmentPoint(1, 1, 1));
+    	aps0.add(new DENOPTIMAttachmentPoint(2, 1, 1));
+    	aps0.get(0).setAPClass("rule:1");
+    	DENOPTIMVertex v0 = new DENOPTIMVertex(0, 0, aps0, 0);
+    	ArrayList<SymmetricSet> symAPs = new ArrayList<SymmetricSet>();
+    	symAPs.add(new SymmetricSet(new ArrayList<Integer>(
+    			Arrays.asList(1, 2))));
+    	v0.setSymmetricAP(symAPs);
+    	graph.addVertex(v0);
+    	
+    	ArrayList<DENOPTIMAttachmentPoint> aps1 = 
+    			new ArrayList<DENOPTIMAttachmentPoint>();
+    	aps1.add(new DENOPTIMAttachmentPoint(0, 1, 1));
+    	aps1.add(new DENOPTIMAttachmentPoint(1, 1, 1));
+    	DENOPTIMVertex v1 = new DENOPTIMVertex(1, 0, aps1, 1);
+    	v1.setLevel(0);
+    	graph.addVertex(v1);
+    	graph.addEdge(new DENOPTIMEdge(0, 1, 1, 0, 1));
+    	
+    	ArrayList<DENOPTIMAttachmentPoint> aps2 = 
+    			new ArrayList<DENOPTIMAttachmentPoint>();
+    	aps2.add(new DENOPTIMAttachmentPoint(0, 1, 1));
+    	aps2.add(new DENOPTIMAttachmentPoint(1, 1, 1));
+    	DENOPTIMVertex v2 = new DENOPTIMVertex(2, 0, aps2, 1);
+    	v2.setLevel(0);
+    	graph.addVertex(v2);
+    	graph.addEdge(new DENOPTIMEdge(0, 2, 2, 0, 1));
+    	
+    	ArrayList<DENOPTIMVertex> vr = new ArrayList<DENOPTIMVertex>();
+    	vr.add(v1);
+    	vr.add(v0);
+    	vr.add(v2);
+    	graph.addRing(new DENOPTIMRing(vr));
+    	graph.addSymmetricSetOfVertices(new SymmetricSet(
+    			new ArrayList<Integer>(Arrays.asList(1, 2))));
+    	ArrayList<ClosableChain> chains = new ArrayList<ClosableChain>();
+    	chains.add(new ClosableChain("1/1/ap0ap1_0/0/ap1ap2_1/1/ap0ap1"));
+    	graph.setCandidateClosableChains(chains);
+    	graph.setGraphId(7);
+    	graph.setMsg("msg");
+    	
+    	DENOPTIMGraph copy = graph.deepCopy();
+    	
+    	StringBuilder reason = new StringBuilder();
+    	assertTrue(graph.sameAs(copy, reason), reason.toString());
+    	assertEquals(7, copy.getGraphId());
+    	assertEquals("msg", copy.getMsg());
+    	for (int i=0; i<graph.getVertexCount(); i++)
+    	{
+    		DENOPTIMVertex vo = graph.getVertexAtPosition(i);
+    		DENOPTIMVertex vc = copy.getVertexAtPosition(i);
+    		assertFalse(vo == vc);
+    		assertEquals(vo.getVertexId(), vc.getVertexId());
+    		assertEquals(vo.getLevel(), vc.getLevel());
+    		assertEquals(vo.toString(), vc.toString());
+    	}
+    	for (int i=0; i<graph.getEdgeCount(); i++)
+    	{
+    		assertFalse(graph.getEdgeAtPosition(i) == copy.getEdgeAtPosition(i));
+    		assertEquals(graph.getEdgeAtPosition(i).toString(), 
+    				copy.getEdgeAtPosition(i).toString());
+    	}
+    	
+    	// rings refer to the vertexes of the copy
+    	DENOPTIMRing rc = copy.getRings().get(0);
+    	assertEquals(3, rc.getSize());
+    	assertTrue(rc.getVertexAtPosition(0) == copy.getVertexWithId(1));
+    	assertTrue(rc.getVertexAtPosition(1) == copy.getVertexWithId(0));
+    	assertTrue(rc.getVertexAtPosition(2) == copy.getVertexWithId(2));
+    	
+    	// attachment points
+    	DENOPTIMAttachmentPoint apo = v0.getAttachmentPoints().get(0);
+    	DENOPTIMAttachmentPoint apc = 
+    			copy.getVertexWithId(0).getAttachmentPoints().get(0);
+    	assertFalse(apo == apc);
+    	assertTrue(apo.equals(apc));
+    	assertEquals("rule:1", apc.getAPClass());
+    	assertFalse(apo.getDirectionVector() == apc.getDirectionVector());
+    	assertEquals(3.0, apc.getDirectionVector()[2]);
+    	
+    	// changes to the copy do not affect the original
+    	copy.getVertexWithId(0).updateAttachmentPoint(1, -1);
+    	assertEquals(1, v0.getAttachmentPoints().get(1).getAPConnections());
+    	copy.getVertexWithId(0).getSymmetricAP().get(0).add(0);
+    	assertEquals(2, v0.getSymmetricAP().get(0).size());
+    	copy.getSymSetForVertexID(1).add(3);
+    	assertEquals(2, graph.getSymSetForVertexID(1).size());
+    	copy.getEdgeAtPosition(0).setBondType(2);
+    	assertEquals(1, graph.getEdgeAtPosition(0).getBondType());
+    	copy.getClosableChains().get(0).getLinks().remove(0);
+    	assertEquals(3, graph.getClosableChains().get(0).getSize());
+    	assertEquals(2, copy.getClosableChains().get(0).getSize());
+    	copy.removeVertex(2);
+    	assertEquals(3, graph.getVertexCount());
+    	assertEquals(1, graph.getRingCount());
+    }
+    
+//------------------------------------------------------------------------------
+
+    /**
+     * Builds a random graph. Vertexes with the same molID have the same
+     * attachment points, as if taken from a library of fragments.
+     */
+    private static DENOPTIMGraph makeRandomGraph(Random rng, 
+    		int maxVertexes, int numMolIds, boolean withRingAndSymmetry) 
+    				throws Exception
+    {
+    	DENOPTIMGraph graph = new DENOPTIMGraph();
+    	graph.addVertex(makeVertex(0, rng.nextInt(numMolIds), 0));
+    	int nVertexes = 1 + rng.nextInt(maxVertexes);
+    	for (int vid=1; vid<nVertexes; vid++)
+    	{
+    		ArrayList<int[]> freeAPs = new ArrayList<int[]>();
+    		for (DENOPTIMVertex v : graph.getVertexList())
+    		{
+    			for (int ap : v.getFreeAPList())
+    			{
+    				freeAPs.add(new int[] {v.getVertexId(), ap});
+    			}
+    		}
+    		if (freeAPs.isEmpty())
+    		{
+    			break;
+    		}
+    		int[] src = freeAPs.get(rng.nextInt(freeAPs.size()));
+    		DENOPTIMVertex srcVrtx = graph.getVertexWithId(src[0]);
+    		DENOPTIMVertex trgVrtx = makeVertex(vid, rng.nextInt(numMolIds), 1);
+    		int trgAP = rng.nextInt(trgVrtx.getNumberOfAP());
+    		DENOPTIMEdge e = new DENOPTIMEdge(src[0], vid, src[1], trgAP, 
+    				1 + rng.nextInt(2));
+    		e.setSourceReaction(srcVrtx.getAttachmentPoints().get(src[1])
+    				.getAPClass());
+    		e.setTargetReaction(trgVrtx.getAttachmentPoints().get(trgAP)
+    				.getAPClass());
+    		srcVrtx.updateAttachmentPoint(src[1], -1);
+    		trgVrtx.updateAttachmentPoint(trgAP, -1);
+    		graph.addVertex(trgVrtx);
+    		graph.addEdge(e);
+    	}
+    	
+    	if (withRingAndSymmetry && graph.getVertexCount() > 2)
+    	{
+    		// ring along the path from a leaf towards the root
+    		DENOPTIMVertex v = graph.getVertexAtPosition(
+    				1 + rng.nextInt(graph.getVertexCount() - 1));
+    		ArrayList<DENOPTIMVertex> path = new ArrayList<DENOPTIMVertex>();
+    		path.add(v);
+    		while (graph.getParent(v.getVertexId()) != null)
+    		{
+    			v = graph.getParent(v.getVertexId());
+    			path.add(v);
+    		}
+    		if (path.size() > 2 && rng.nextBoolean())
+    		{
+    			graph.addRing(new DENOPTIMRing(new ArrayList<DENOPTIMVertex>(
+    					path.subList(0, 3))));
+    		}
+    		if (rng.nextBoolean())
+    		{
+    			graph.addSymmetricSetOfVertices(new SymmetricSet(
+    					new ArrayList<Integer>(Arrays.asList(1, 2))));
+    		}
+    	}
+    	return graph;
+    }
+    
+//------------------------------------------------------------------------------
+    
+    private static DENOPTIMVertex makeVertex(int vid, int molId, int type) 
+    		throws Exception
+    {
+    	ArrayList<DENOPTIMAttachmentPoint> aps = 
+    			new ArrayList<DENOPTIMAttachmentPoint>();
+    	for (int i=0; i<2+molId%3; i++)
+    	{
+    		DENOPTIMAttachmentPoint ap = new DENOPTIMAttachmentPoint(i, 1, 1);
+    		ap.setAPClass("c" + ((molId + i) % 2) + ":0");
+    		aps.add(ap);
+    	}
+    	return new DENOPTIMVertex(vid, molId, aps, type);
+    }
+    
+//------------------------------------------------------------------------------
+    
+    /**
+     * Makes a copy of the graph where vertex IDs are changed, vertexes 
+     * (but the root), edges, rings, and symmetric sets are shuffled, 
+     * and rings are possibly reversed.
+     */
+    private static DENOPTIMGraph renumberAndPermute(DENOPTIMGraph graph, 
+    		Random rng)
+    {
+    	DENOPTIMGraph copy = graph.deepCopy();
+    	ArrayList<Integer> newIds = new ArrayList<Integer>();
+    	for (int i=0; i<copy.getVertexCount(); i++)
+    	{
+    		newIds.add(100 + i);
+    	}
+    	Collections.shuffle(newIds, rng);
+    	Map<Integer,Integer> idMap = 
+    			new HashMap<Integer,Integer>();
+    	for (int i=0; i<copy.getVertexCount(); i++)
+    	{
+    		DENOPTIMVertex v = copy.getVertexAtPosition(i);
+    		idMap.put(v.getVertexId(), newIds.get(i));
+    		v.setVertexId(newIds.get(i));
+    	}
+    	for (DENOPTIMEdge e : copy.getEdgeList())
+    	{
+    		e.setSourceVertex(idMap.get(e.getSourceVertex()));
+    		e.setTargetVertex(idMap.get(e.getTargetVertex()));
+    	}
+    	ArrayList<SymmetricSet> symSets = new ArrayList<SymmetricSet>();
+    	Iterator<SymmetricSet> iter = copy.getSymSetsIterator();
+    	while (iter.hasNext())
+    	{
+    		ArrayList<Integer> ids = new ArrayList<Integer>();
+    		for (Integer vid : iter.next().getList())
+    		{
+    			ids.add(idMap.get(vid));
+    		}
+    		Collections.shuffle(ids, rng);
+    		symSets.add(new SymmetricSet(ids));
+    	}
+    	Collections.shuffle(symSets, rng);
+    	copy.setSymMap(symSets);
+    	copy.invalidateIndexes();
+    	
+    	ArrayList<DENOPTIMVertex> vertexes = copy.getVertexList();
+    	if (vertexes.size() > 1)
+    	{
+    		Collections.shuffle(vertexes.subList(1, vertexes.size()), 
+    				rng);
+    	}
+    	Collections.shuffle(copy.getEdgeList(), rng);
+    	
+    	ArrayList<DENOPTIMRing> rings = new ArrayList<DENOPTIMRing>();
+    	for (DENOPTIMRing r : copy.getRings())
+    	{
+    		ArrayList<DENOPTIMVertex> rv = new ArrayList<DENOPTIMVertex>();
+    		for (int i=0; i<r.getSize(); i++)
+    		{
+    			rv.add(r.getVertexAtPosition(i));
+    		}
+    		if (rng.nextBoolean())
+    		{
+    			Collections.reverse(rv);
+    		}
+    		rings.add(new DENOPTIMRing(rv));
+    	}
+    	Collections.shuffle(rings, rng);
+    	copy.setRings(rings);
+    	return copy;
+    }
+    
+//------------------------------------------------------------------------------
+    
+    @Test
+    public void testCanonicalHashOfRenumberedGraphs() throws Exception
+    {
+    	Random rng = new Random(1234);
+    	for (int i=0; i<300; i++)
+    	{
+    		DENOPTIMGraph graph = makeRandomGraph(rng, 8, 6, true);
+    		DENOPTIMGraph copy = renumberAndPermute(graph, rng);
+    		
+    		StringBuilder reason = new StringBuilder();
+    		assertTrue(graph.sameAs(copy, reason), reason.toString());
+    		assertEquals(graph.getCanonicalForm(), copy.getCanonicalForm(), 
+    				"Canonical form of " + graph + " and " + copy);
+    		assertEquals(graph.getCanonicalHash(), copy.getCanonicalHash());
+    	}
+    }
+    
+//------------------------------------------------------------------------------
+    
+    @Test
+    public void testCanonicalHashOfDifferentGraphs() throws Exception
+    {
+    	Random rng = new Random(5678);
+    	int numSame = 0;
+    	int numDifferent = 0;
+    	for (int i=0; i<2000; i++)
+    	{
+    		DENOPTIMGraph gA = makeRandomGraph(rng, 4, 2, i%2==0);
+    		DENOPTIMGraph gB = renumberAndPermute(
+    				makeRandomGraph(rng, 4, 2, i%2==0), rng);
+    		
+    		boolean same = gA.sameAs(gB, new StringBuilder());
+    		assertEquals(same, gA.getCanonicalHash() == gB.getCanonicalHash(),
+    				"Hash equality for " + gA + " and " + gB);
+    		if (same)
+    		{
+    			numSame++;
+    		}
+    		else
+    		{
+    			numDifferent++;
+    		}
+    	}
+    	assertTrue(numSame > 10, "Too few pairs of equivalent graphs");
+    	assertTrue(numDifferent > 10, "Too few pairs of different graphs");
+    	
+    	// Any single change makes the hash change
+    	DENOPTIMGraph graph = makeRandomGraph(new Random(1), 8, 6, 
+    			false);
+    	while (graph.getEdgeCount() < 2)
+    	{
+    		graph = makeRandomGraph(rng, 8, 6, false);
+    	}
+    	long hash = graph.getCanonicalHash();
+    	DENOPTIMGraph mod = graph.deepCopy();
+    	DENOPTIMEdge e = mod.getEdgeAtPosition(1);
+    	e.setBondType(e.getBondType() == 1 ? 2 : 1);
+    	assertFalse(hash == mod.getCanonicalHash(), "Changed bond type");
+    	mod = graph.deepCopy();
+    	mod.getVertexAtPosition(1).setMolId(99);
+    	assertFalse(hash == mod.getCanonicalHash(), "Changed molID");
+    	mod = graph.deepCopy();
+    	mod.addSymmetricSetOfVertices(new SymmetricSet(
+    			new ArrayList<Integer>(Arrays.asList(0, 1))));
+    	assertFalse(hash == mod.getCanonicalHash(), "Added symmetric set");
+    }
+    
 //------------------------------------------------------------------------------
 }
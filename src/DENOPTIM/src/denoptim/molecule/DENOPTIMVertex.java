@@ -308,6 +308,48 @@ public class DENOPTIMVertex implements Cloneable, Serializable
         return sb.toString();
     }
 
+//------------------------------------------------------------------------------
+
+    /**
+     * Returns a deep copy of this vertex. The copy has the same vertex ID.
+     * @return the copy
+     */
+
+    public DENOPTIMVertex deepCopy()
+    {
+        DENOPTIMVertex c = new DENOPTIMVertex();
+        c.vertexId = vertexId;
+        c.molId = molId;
+        c.fragmentType = fragmentType;
+        c.recursiveLevel = recursiveLevel;
+        c.isRCV = isRCV;
+        if (lstAP == null)
+        {
+            c.lstAP = null;
+        }
+        else
+        {
+            c.lstAP = new ArrayList<>(lstAP.size());
+            for (DENOPTIMAttachmentPoint ap : lstAP)
+            {
+                c.lstAP.add(ap.deepCopy());
+            }
+        }
+        if (lstSymmAP == null)
+        {
+            c.lstSymmAP = null;
+        }
+        else
+        {
+            c.lstSymmAP = new ArrayList<>(lstSymmAP.size());
+            for (SymmetricSet ss : lstSymmAP)
+            {
+                c.lstSymmAP.add(ss.deepCopy());
+            }
+        }
+        return c;
+    }
+
 //------------------------------------------------------------------------------
     
     public void cleanup()
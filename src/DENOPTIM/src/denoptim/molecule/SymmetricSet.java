@@ -128,6 +128,17 @@ public class SymmetricSet implements Serializable
 	return symVrtxIds.size();	
     }
 
+//------------------------------------------------------------------------------
+
+    /**
+     * Returns a deep copy of this set
+     * @return the copy
+     */
+    public SymmetricSet deepCopy()
+    {
+        return new SymmetricSet(symVrtxIds);
+    }
+
 //------------------------------------------------------------------------------
 
     public String toString()
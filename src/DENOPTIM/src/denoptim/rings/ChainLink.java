@@ -127,6 +127,19 @@ public class ChainLink implements Cloneable, Serializable
         return apRight;
     }
 
+//-----------------------------------------------------------------------------
+
+    /**
+     * Returns a deep copy of this ChainLink
+     */
+
+    public ChainLink deepCopy()
+    {
+        ChainLink c = new ChainLink(molID, ftype, apLeft, apRight);
+        c.numAPs = numAPs;
+        return c;
+    }
+
 //-----------------------------------------------------------------------------
 
     /**
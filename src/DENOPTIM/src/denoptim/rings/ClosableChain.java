@@ -212,6 +212,23 @@ public class ClosableChain implements Cloneable, Serializable
         return result;
     }
 
+//-----------------------------------------------------------------------------
+
+    /**
+     * Returns a deep copy of this ClosableChain
+     */
+
+    public ClosableChain deepCopy()
+    {
+	ClosableChain c = new ClosableChain();
+	for (ChainLink cl : links)
+	{
+	    c.links.add(cl.deepCopy());
+	}
+	c.tuningPoint = tuningPoint;
+	return c;
+    }
+
 //-----------------------------------------------------------------------------
 
     /**
@@ -0,0 +1,662 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2026 agent <agent@local>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.task;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+import org.apache.commons.io.FileUtils;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+import denoptim.exception.DENOPTIMException;
+import denoptim.fitness.FitnessParameters;
+import denoptim.io.DenoptimIO;
+import denoptim.logging.DENOPTIMLogger;
+
+/**
+ * Collects candidates from concurrent fitness evaluation tasks and submits
+ * them to the external fitness provider in batches. Each batch is given to
+ * the fitness provider as a single multi-record SDF file, which is
+ * processed by a single run of the fitness provider (or by one of the
+ * persistent workers, see {@link FitnessWorkerPool}). The records of the
+ * output file are mapped back to the candidates by the <code>UID</code>
+ * property.
+ * <p>
+ * A batch is submitted as soon as it reaches the maximum size, or when its
+ * oldest candidate has waited for the maximum latency. Batches are
+ * evaluated by threads owned by the batcher, and the result of each
+ * candidate is delivered asynchronously by a {@link Future}. Thus, the size
+ * of the batches is not limited by the number of threads of the caller, but
+ * by the number of candidates in flight, see
+ * {@link #getNumberOfTasksInFlight(int)}.
+ * <p>
+ * Candidates not found in the output of the fitness provider get no result
+ * (i.e., <code>null</code>), and the caller decides how to reject them.
+ * If the whole batch fails, e.g.,
+ * the fitness provider terminates with an error, then either each candidate
+ * is re-evaluated on its own, so that the failure is confined to the
+ * candidates causing it, or all the candidates of the batch fail.
+ *
+ * @author agent
+ */
+
+public class FitnessBatcher
+{
+    /**
+     * The batcher shared by the tasks of a run
+     */
+    private static FitnessBatcher sharedBatcher = null;
+
+    /**
+     * Counter of the batches for naming files
+     */
+    private static final AtomicInteger BATCHCOUNTER = new AtomicInteger(0);
+
+    /**
+     * Maximum number of candidates per batch
+     */
+    private final int maxSize;
+
+    /**
+     * Maximum time (milliseconds) a candidate waits for its batch to fill up
+     */
+    private final long maxLatency;
+
+    /**
+     * Flag requesting the re-evaluation of single candidates when a batch
+     * fails
+     */
+    private final boolean isolateFailures;
+
+    /**
+     * The candidates waiting for their batch to be submitted
+     */
+    private final ArrayList<Record> pending = new ArrayList<Record>();
+
+    /**
+     * Threads evaluating the batches
+     */
+    private final ExecutorService runners;
+
+    /**
+     * Thread submitting the batches that reached the maximum latency
+     */
+    private final ScheduledExecutorService timer;
+
+//------------------------------------------------------------------------------
+
+    /**
+     * A candidate waiting for its fitness
+     */
+
+    private class Record implements Future<IAtomContainer>
+    {
+        private final IAtomContainer mol;
+        private final String uid;
+        private final String workDir;
+        private final String uidFile;
+        private final long enqueued = System.currentTimeMillis();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private boolean inBatch = false;
+        private boolean cancelled = false;
+        private IAtomContainer result = null;
+        private DENOPTIMException error = null;
+
+        private Record(IAtomContainer mol, String uid, String workDir,
+                                                               String uidFile)
+        {
+            this.mol = mol;
+            this.uid = uid;
+            this.workDir = workDir;
+            this.uidFile = uidFile;
+        }
+
+        private void complete(IAtomContainer result, DENOPTIMException error)
+        {
+            this.result = result;
+            this.error = error;
+            done.countDown();
+        }
+
+        /**
+         * Removes the candidate from its batch, if the batch has not been
+         * submitted yet.
+         */
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning)
+        {
+            synchronized (pending)
+            {
+                if (inBatch || cancelled)
+                {
+                    return false;
+                }
+                boolean wasOldest = pending.indexOf(this) == 0;
+                pending.remove(this);
+                cancelled = true;
+                if (wasOldest && !pending.isEmpty())
+                {
+                    scheduleFlush(pending.get(0));
+                }
+            }
+            done.countDown();
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled()
+        {
+            synchronized (pending)
+            {
+                return cancelled;
+            }
+        }
+
+        @Override
+        public boolean isDone()
+        {
+            return done.getCount() == 0;
+        }
+
+        @Override
+        public IAtomContainer get() throws InterruptedException,
+                                                           ExecutionException
+        {
+            done.await();
+            return getOutcome();
+        }
+
+        @Override
+        public IAtomContainer get(long timeout, TimeUnit unit) throws
+                   InterruptedException, ExecutionException, TimeoutException
+        {
+            if (!done.await(timeout, unit))
+            {
+                throw new TimeoutException();
+            }
+            return getOutcome();
+        }
+
+        private IAtomContainer getOutcome() throws ExecutionException
+        {
+            if (isCancelled())
+            {
+                throw new CancellationException();
+            }
+            if (error != null)
+            {
+                throw new ExecutionException(error);
+            }
+            return result;
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Constructor
+     * @param maxSize the maximum number of candidates per batch
+     * @param maxLatency the maximum time (milliseconds) a candidate waits for
+     * its batch to fill up
+     * @param isolateFailures use <code>true</code> to re-evaluate each
+     * candidate on its own when a whole batch fails
+     */
+
+    public FitnessBatcher(int maxSize, long maxLatency, boolean isolateFailures)
+    {
+        this.maxSize = maxSize;
+        this.maxLatency = maxLatency;
+        this.isolateFailures = isolateFailures;
+        ThreadFactory daemons = new ThreadFactory() {
+            private final AtomicInteger n = new AtomicInteger(0);
+            @Override
+            public Thread newThread(Runnable r)
+            {
+                Thread t = new Thread(r, "FitnessBatcher-"
+                                                      + n.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        };
+        this.runners = Executors.newCachedThreadPool(daemons);
+        this.timer = Executors.newSingleThreadScheduledExecutor(daemons);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Gets the batcher configured by the {@link FitnessParameters}. The
+     * batcher is created the first time this method is called.
+     * @return the shared batcher
+     */
+
+    public static synchronized FitnessBatcher getSharedBatcher()
+    {
+        if (sharedBatcher == null)
+        {
+            sharedBatcher = new FitnessBatcher(
+                    FitnessParameters.getBatchSize(),
+                    FitnessParameters.getBatchLatency(),
+                    FitnessParameters.isolateBatchFailures());
+        }
+        return sharedBatcher;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Gets the number of fitness evaluation tasks that a run should keep in
+     * flight. Tasks waiting for their batch cost only a thread, so when
+     * candidates are evaluated in batches, each thread is given as many
+     * tasks as there are candidates in a batch, and the number of runs of
+     * the fitness provider remains equal to the number of threads.
+     * @param numThreads the number of threads of the run
+     * @return the number of tasks to keep in flight
+     */
+
+    public static int getNumberOfTasksInFlight(int numThreads)
+    {
+        if (FitnessParameters.useFitnessBatches())
+        {
+            return numThreads * FitnessParameters.getBatchSize();
+        }
+        return numThreads;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Adds a candidate to the current batch and returns immediately.
+     * @param mol the molecular representation of the candidate
+     * @param uid the unique identifier of the candidate
+     * @param workDir the working directory of the task
+     * @param uidFile the pathname of the file collecting the unique
+     * identifiers
+     * @return the future result, i.e., the record of the output of the
+     * fitness provider that corresponds to the candidate, or
+     * <code>null</code> if the output of the fitness provider contains no
+     * such record
+     */
+
+    public Future<IAtomContainer> submit(IAtomContainer mol, String uid,
+                                             String workDir, String uidFile)
+    {
+        Record rec = new Record(mol, uid, workDir, uidFile);
+        List<Record> batch = null;
+        synchronized (pending)
+        {
+            pending.add(rec);
+            if (pending.size() >= maxSize)
+            {
+                batch = takePending();
+            }
+            else if (pending.size() == 1)
+            {
+                scheduleFlush(rec);
+            }
+        }
+        if (batch != null)
+        {
+            runBatch(batch);
+        }
+        return rec;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Evaluates a candidate as part of a batch. This method returns when the
+     * batch including the candidate has been evaluated.
+     * @param mol the molecular representation of the candidate
+     * @param uid the unique identifier of the candidate
+     * @param workDir the working directory of the task
+     * @param uidFile the pathname of the file collecting the unique
+     * identifiers
+     * @return the record of the output of the fitness provider that
+     * corresponds to the candidate, or <code>null</code> if the output of the
+     * fitness provider contains no such record
+     * @throws DENOPTIMException if the evaluation of the batch failed
+     */
+
+    public IAtomContainer evaluate(IAtomContainer mol, String uid,
+                 String workDir, String uidFile) throws DENOPTIMException
+    {
+        Future<IAtomContainer> f = submit(mol, uid, workDir, uidFile);
+        try
+        {
+            return f.get();
+        }
+        catch (InterruptedException ie)
+        {
+            f.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new DENOPTIMException("Interrupted while waiting for the "
+                                             + "batch fitness evaluation", ie);
+        }
+        catch (ExecutionException ee)
+        {
+            if (ee.getCause() instanceof DENOPTIMException)
+            {
+                throw (DENOPTIMException) ee.getCause();
+            }
+            throw new DENOPTIMException(ee.getCause());
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Submits the batch including the given candidate once the candidate has
+     * waited for the maximum latency, unless the batch has been submitted
+     * already.
+     */
+
+    private void scheduleFlush(final Record oldest)
+    {
+        long delay = Math.max(0,
+                   oldest.enqueued + maxLatency - System.currentTimeMillis());
+        timer.schedule(new Runnable() {
+            @Override
+            public void run()
+            {
+                List<Record> batch = null;
+                synchronized (pending)
+                {
+                    if (!oldest.inBatch && pending.contains(oldest))
+                    {
+                        batch = takePending();
+                    }
+                }
+                if (batch != null)
+                {
+                    runBatch(batch);
+                }
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Takes all the pending candidates. Must be called holding the lock on
+     * the list of pending candidates.
+     */
+
+    private List<Record> takePending()
+    {
+        List<Record> batch = new ArrayList<Record>(pending);
+        pending.clear();
+        for (Record r : batch)
+        {
+            r.inBatch = true;
+        }
+        return batch;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Hands a batch to one of the threads of the batcher.
+     */
+
+    private void runBatch(final List<Record> batch)
+    {
+        runners.execute(new Runnable() {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    processBatch(batch);
+                }
+                catch (Throwable t)
+                {
+                    // no candidate may be left waiting
+                    DENOPTIMException e = new DENOPTIMException(t);
+                    for (Record r : batch)
+                    {
+                        if (!r.isDone())
+                        {
+                            r.complete(null, e);
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Evaluates a batch and hands the results to the waiting candidates.
+     */
+
+    private void processBatch(List<Record> batch)
+    {
+        Map<Record,IAtomContainer> results;
+        try
+        {
+            results = evaluateBatch(batch);
+        }
+        catch (Throwable t)
+        {
+            DENOPTIMException e = t instanceof DENOPTIMException ?
+                    (DENOPTIMException) t : new DENOPTIMException(t);
+            if (isolateFailures && batch.size() > 1)
+            {
+                DENOPTIMLogger.appLogger.log(Level.WARNING, "Batch of {0} "
+                        + "candidates failed. Evaluating candidates one by "
+                        + "one.", batch.size());
+                for (Record r : batch)
+                {
+                    processBatch(Collections.singletonList(r));
+                }
+            }
+            else
+            {
+                for (Record r : batch)
+                {
+                    r.complete(null, e);
+                }
+            }
+            return;
+        }
+        for (Record r : batch)
+        {
+            r.complete(results.get(r), null);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Runs the fitness provider on a batch of candidates.
+     * @return the output record of each candidate
+     */
+
+    private Map<Record,IAtomContainer> evaluateBatch(List<Record> batch)
+                                                      throws DENOPTIMException
+    {
+        String batchId = "B" + BATCHCOUNTER.incrementAndGet();
+        Record first = batch.get(0);
+
+        ArrayList<IAtomContainer> mols = new ArrayList<IAtomContainer>();
+        for (Record r : batch)
+        {
+            r.mol.setProperty("UID", r.uid);
+            mols.add(r.mol);
+        }
+
+        Map<String,List<IAtomContainer>> byUID =
+                new HashMap<String,List<IAtomContainer>>();
+        for (IAtomContainer mol : runFitnessProvider(batchId, mols,
+                                                first.workDir, first.uidFile))
+        {
+            Object uid = mol.getProperty("UID");
+            if (uid == null)
+            {
+                continue;
+            }
+            List<IAtomContainer> lst = byUID.get(uid.toString().trim());
+            if (lst == null)
+            {
+                lst = new ArrayList<IAtomContainer>();
+                byUID.put(uid.toString().trim(), lst);
+            }
+            lst.add(mol);
+        }
+
+        Map<Record,IAtomContainer> results =
+                new HashMap<Record,IAtomContainer>();
+        Set<String> served = new HashSet<String>();
+        for (Record r : batch)
+        {
+            List<IAtomContainer> lst = byUID.get(r.uid);
+            IAtomContainer res;
+            if (lst == null || lst.isEmpty())
+            {
+                DENOPTIMLogger.appLogger.log(Level.WARNING, "No result for "
+                         + "{0} in the output of batch {1}",
+                         new Object[]{r.uid, batchId});
+                res = null;
+            }
+            else if (lst.size() > 1)
+            {
+                res = lst.remove(0);
+            }
+            else if (served.contains(r.uid))
+            {
+                // candidates with the same UID get their own copy
+                try
+                {
+                    res = (IAtomContainer) lst.get(0).clone();
+                }
+                catch (CloneNotSupportedException e)
+                {
+                    throw new DENOPTIMException(e);
+                }
+            }
+            else
+            {
+                res = lst.get(0);
+            }
+            served.add(r.uid);
+            results.put(r, res);
+        }
+        return results;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Runs the fitness provider, or hands the batch to a persistent worker.
+     * @param batchId the identifier of the batch
+     * @param mols the candidates, each with the <code>UID</code> property
+     * @param workDir the working directory
+     * @param uidFile the pathname of the file collecting the unique
+     * identifiers
+     * @return the records of the output of the fitness provider, in any order
+     * @throws DENOPTIMException if the fitness provider fails
+     */
+
+    protected List<IAtomContainer> runFitnessProvider(String batchId,
+            List<IAtomContainer> mols, String workDir, String uidFile)
+                                                      throws DENOPTIMException
+    {
+        String fsep = System.getProperty("file.separator");
+        String inFile = workDir + fsep + "Batch_" + batchId + "_I.sdf";
+        String outFile = workDir + fsep + "Batch_" + batchId + "_FIT.sdf";
+
+        if (FitnessParameters.useFitnessWorkers())
+        {
+            StringBuilder sb = new StringBuilder();
+            for (IAtomContainer mol : mols)
+            {
+                sb.append(DenoptimIO.writeMoleculeToString(mol));
+            }
+            String sdf = FitnessWorkerPool.getSharedPool().evaluate(batchId,
+                    sb.toString(), workDir, uidFile);
+            try
+            {
+                FileUtils.writeStringToFile(new File(outFile), sdf);
+            }
+            catch (IOException ioe)
+            {
+                throw new DENOPTIMException("Cannot write " + outFile, ioe);
+            }
+        }
+        else
+        {
+            DenoptimIO.writeMoleculeSet(inFile, new ArrayList<IAtomContainer>(
+                                                                       mols));
+            String cmdStr = System.getenv("SHELL") + " "
+                    + FitnessParameters.getExternalFitnessProvider() + " "
+                    + inFile + " " + outFile + " " + workDir + " "
+                    + batchId + " " + uidFile;
+            DENOPTIMLogger.appLogger.log(Level.INFO, "Executing: {0}", cmdStr);
+            ProcessHandler ph = new ProcessHandler(cmdStr, batchId);
+            try
+            {
+                ph.runProcess(FitnessParameters.getTimeout());
+            }
+            catch (Exception e)
+            {
+                throw new DENOPTIMException("Failed to execute " + cmdStr, e);
+            }
+            if (ph.getExitCode() != 0)
+            {
+                String msg = "Failed to execute "
+                             + System.getenv("SHELL")
+                             + " script '"
+                             + FitnessParameters.getExternalFitnessProvider()
+                             + "' on " + inFile;
+                if (ph.isTimedOut())
+                {
+                    msg = msg + " (time limit exceeded)";
+                }
+                DENOPTIMLogger.appLogger.severe(msg);
+                DENOPTIMLogger.appLogger.severe(ph.getErrorOutput());
+                throw new DENOPTIMException(msg);
+            }
+        }
+        return DenoptimIO.readSDFFile(outFile);
+    }
+
+//------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,236 @@
+package denoptim.task;
+
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2026 agent <agent@local>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.openscience.cdk.AtomContainer;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+import denoptim.exception.DENOPTIMException;
+
+/**
+ * Unit test for the batch evaluation of fitness
+ *
+ * @author agent
+ */
+
+public class FitnessBatcherTest
+{
+    /**
+     * UID that the fitness provider never returns
+     */
+    private static final String MISSING = "KEY-MISSING";
+
+    /**
+     * UID that makes the fitness provider fail
+     */
+    private static final String BAD = "KEY-BAD";
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Batcher where the fitness provider gives to each candidate the value
+     * of its <code>VALUE</code> property as fitness
+     */
+
+    private static class EchoBatcher extends FitnessBatcher
+    {
+        private final List<Integer> batchSizes =
+                          Collections.synchronizedList(new ArrayList<Integer>());
+
+        private EchoBatcher(int maxSize, long maxLatency)
+        {
+            super(maxSize, maxLatency, true);
+        }
+
+        @Override
+        protected List<IAtomContainer> runFitnessProvider(String batchId,
+                List<IAtomContainer> mols, String workDir, String uidFile)
+                                                      throws DENOPTIMException
+        {
+            batchSizes.add(mols.size());
+            List<IAtomContainer> out = new ArrayList<IAtomContainer>();
+            for (IAtomContainer mol : mols)
+            {
+                Object uid = mol.getProperty("UID");
+                if (BAD.equals(uid))
+                {
+                    throw new DENOPTIMException("Provider failed on " + uid);
+                }
+                if (MISSING.equals(uid))
+                {
+                    continue;
+                }
+                IAtomContainer res = new AtomContainer();
+                res.setProperty("UID", uid);
+                res.setProperty("FITNESS", mol.getProperty("VALUE"));
+                out.add(0, res);
+            }
+            return out;
+        }
+
+        private List<Integer> getBatchSizes()
+        {
+            synchronized (batchSizes)
+            {
+                return new ArrayList<Integer>(batchSizes);
+            }
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    private static Future<IAtomContainer> submit(FitnessBatcher fb,
+                                                     String uid, double value)
+    {
+        IAtomContainer mol = new AtomContainer();
+        mol.setProperty("VALUE", value);
+        return fb.submit(mol, uid, ".", "UID.txt");
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testBatchesAreNotLimitedByCallerThreads() throws Exception
+    {
+        // a single thread fills two complete batches
+        EchoBatcher fb = new EchoBatcher(4, 60000);
+        List<Future<IAtomContainer>> futures =
+                                      new ArrayList<Future<IAtomContainer>>();
+        for (int i=0; i<8; i++)
+        {
+            futures.add(submit(fb, "KEY-" + i, i));
+        }
+        for (int i=0; i<8; i++)
+        {
+            IAtomContainer res = futures.get(i).get(10, TimeUnit.SECONDS);
+            assertEquals(i, ((Number) res.getProperty("FITNESS")).intValue(),
+                                                     "Fitness of candidate " + i);
+        }
+        assertEquals(Arrays.asList(4, 4), fb.getBatchSizes(), "Batch sizes");
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testLatencyFlush() throws Exception
+    {
+        EchoBatcher fb = new EchoBatcher(10, 200);
+        long start = System.currentTimeMillis();
+        List<Future<IAtomContainer>> futures =
+                                      new ArrayList<Future<IAtomContainer>>();
+        for (int i=0; i<3; i++)
+        {
+            futures.add(submit(fb, "KEY-" + i, i));
+        }
+        for (Future<IAtomContainer> f : futures)
+        {
+            f.get(10, TimeUnit.SECONDS);
+        }
+        long elapsed = System.currentTimeMillis() - start;
+        assertTrue(elapsed >= 190, "Batch submitted before the latency "
+                                                       + "(" + elapsed + " ms)");
+        assertEquals(Arrays.asList(3), fb.getBatchSizes(), "Batch sizes");
+
+        // the next batch has its own deadline
+        Future<IAtomContainer> late = submit(fb, "KEY-3", 3);
+        assertEquals(3, ((Number) late.get(10, TimeUnit.SECONDS).getProperty(
+                                                       "FITNESS")).intValue());
+        assertEquals(Arrays.asList(3, 1), fb.getBatchSizes(), "Batch sizes");
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testResultsSplitByUID() throws Exception
+    {
+        EchoBatcher fb = new EchoBatcher(5, 60000);
+        Future<IAtomContainer> a = submit(fb, "KEY-A", 1.0);
+        Future<IAtomContainer> b = submit(fb, "KEY-B", 2.0);
+        Future<IAtomContainer> dup1 = submit(fb, "KEY-C", 3.0);
+        Future<IAtomContainer> dup2 = submit(fb, "KEY-C", 3.0);
+        Future<IAtomContainer> missing = submit(fb, MISSING, 5.0);
+
+        assertEquals(1.0, a.get(10, TimeUnit.SECONDS).getProperty("FITNESS"));
+        assertEquals(2.0, b.get(10, TimeUnit.SECONDS).getProperty("FITNESS"));
+        IAtomContainer c1 = dup1.get(10, TimeUnit.SECONDS);
+        IAtomContainer c2 = dup2.get(10, TimeUnit.SECONDS);
+        assertEquals(3.0, c1.getProperty("FITNESS"));
+        assertEquals(3.0, c2.getProperty("FITNESS"));
+        assertNotSame(c1, c2, "Candidates with the same UID share a result");
+        assertNull(missing.get(10, TimeUnit.SECONDS), "Missing result");
+        assertEquals(Arrays.asList(5), fb.getBatchSizes(), "Batch sizes");
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testFailureIsConfinedToCandidate() throws Exception
+    {
+        EchoBatcher fb = new EchoBatcher(3, 60000);
+        Future<IAtomContainer> a = submit(fb, "KEY-A", 1.0);
+        Future<IAtomContainer> bad = submit(fb, BAD, 2.0);
+        Future<IAtomContainer> c = submit(fb, "KEY-C", 3.0);
+
+        assertEquals(1.0, a.get(10, TimeUnit.SECONDS).getProperty("FITNESS"));
+        assertEquals(3.0, c.get(10, TimeUnit.SECONDS).getProperty("FITNESS"));
+        try
+        {
+            bad.get(10, TimeUnit.SECONDS);
+            fail("Failure of the fitness provider not reported");
+        }
+        catch (ExecutionException ee)
+        {
+            assertTrue(ee.getCause() instanceof DENOPTIMException);
+        }
+        assertEquals(Arrays.asList(3, 1, 1, 1), fb.getBatchSizes(),
+                                                               "Batch sizes");
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testCancelledCandidateLeavesBatch() throws Exception
+    {
+        EchoBatcher fb = new EchoBatcher(10, 200);
+        Future<IAtomContainer> a = submit(fb, "KEY-A", 1.0);
+        Future<IAtomContainer> b = submit(fb, "KEY-B", 2.0);
+        assertTrue(a.cancel(false), "Pending candidate not cancelled");
+        assertTrue(a.isCancelled());
+        assertEquals(2.0, b.get(10, TimeUnit.SECONDS).getProperty("FITNESS"));
+        assertEquals(Arrays.asList(1), fb.getBatchSizes(), "Batch sizes");
+    }
+
+//------------------------------------------------------------------------------
+
+}
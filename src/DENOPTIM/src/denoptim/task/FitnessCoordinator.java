@@ -0,0 +1,736 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2026 agent <agent@local>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.task;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+import denoptim.exception.DENOPTIMException;
+import denoptim.logging.DENOPTIMLogger;
+
+/**
+ * Serves candidates to {@link RemoteFitnessWorker}s connecting over TCP, so
+ * that fitness evaluations can be performed on other hosts. Remote workers
+ * pull one task at a time (see {@link FitnessWorkerProtocol}). Each task
+ * given to a worker is leased: the worker renews the lease while
+ * evaluating the candidate. A task is put back at the head of the queue,
+ * and given to another worker, when its lease expires or when its worker
+ * disconnects. A task that is lost by {@link #MAXATTEMPTS} workers fails.
+ * Only the worker currently holding the lease on a task can complete it:
+ * results sent by workers that lost the lease are discarded.
+ * <p>
+ * Unless otherwise specified, the coordinator listens only to the loopback
+ * interface, i.e., remote workers must reach it through a tunnel.
+ *
+ * @author agent
+ */
+
+public class FitnessCoordinator
+{
+    /**
+     * Maximum number of times a task is given to a worker
+     */
+    public static final int MAXATTEMPTS = 3;
+
+    /**
+     * The socket accepting connections from remote workers
+     */
+    private final ServerSocket server;
+
+    /**
+     * Duration (milliseconds) of the lease on a task
+     */
+    private final long leaseTime;
+
+    /**
+     * Maximum time (milliseconds) given to each evaluation, or zero
+     */
+    private final long timeout;
+
+    /**
+     * The tasks waiting for a worker
+     */
+    private final LinkedBlockingDeque<Job> queue =
+            new LinkedBlockingDeque<Job>();
+
+    /**
+     * The tasks being evaluated by a worker
+     */
+    private final Map<Job,Boolean> leased =
+            new ConcurrentHashMap<Job,Boolean>();
+
+    /**
+     * The tasks that have been submitted and not completed, by key
+     */
+    private final Map<String,Job> jobs = new ConcurrentHashMap<String,Job>();
+
+    /**
+     * The connected workers
+     */
+    private final Map<Connection,Boolean> connections =
+            new ConcurrentHashMap<Connection,Boolean>();
+
+    /**
+     * The thread checking the expiration of leases
+     */
+    private final ScheduledThreadPoolExecutor leaseChecker;
+
+    private final AtomicLong numSubmitted = new AtomicLong(0);
+    private final AtomicLong numRequeued = new AtomicLong(0);
+    private final AtomicInteger numConnections = new AtomicInteger(0);
+
+    /**
+     * Flag signaling that this coordinator has been shut down
+     */
+    private volatile boolean isShutdown = false;
+
+//------------------------------------------------------------------------------
+
+    /**
+     * A task submitted to the coordinator. Its state is guarded by its
+     * monitor.
+     */
+
+    private static class Job
+    {
+        private final String key;
+        private final String taskId;
+        private final String sdf;
+        private final String workDir;
+        private final String uidFile;
+        private Connection owner = null;
+        private long expiry = 0;
+        private int attempts = 0;
+        private boolean done = false;
+        private String result = null;
+        private String error = null;
+
+        private Job(String key, String taskId, String sdf, String workDir,
+                                                            String uidFile)
+        {
+            this.key = key;
+            this.taskId = taskId;
+            this.sdf = sdf;
+            this.workDir = workDir;
+            this.uidFile = uidFile;
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * The connection with a remote worker, served by a dedicated thread
+     */
+
+    private class Connection implements Runnable
+    {
+        private final Socket socket;
+        private final InputStream in;
+        private final OutputStream out;
+        private volatile Thread thread = null;
+        private volatile String name;
+
+        private Connection(Socket socket) throws IOException
+        {
+            this.socket = socket;
+            this.in = new BufferedInputStream(socket.getInputStream());
+            this.out = new BufferedOutputStream(socket.getOutputStream());
+            this.name = socket.getRemoteSocketAddress().toString();
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                FitnessWorkerProtocol.Frame frame;
+                while ((frame = FitnessWorkerProtocol.readFrame(in)) != null)
+                {
+                    String type = frame.getType();
+                    if (FitnessWorkerProtocol.PULL.equals(type))
+                    {
+                        name = frame.getId();
+                        Job job = nextJob(this);
+                        if (job == null)
+                        {
+                            break;
+                        }
+                        FitnessWorkerProtocol.writeFrame(out,
+                                new FitnessWorkerProtocol.Frame(
+                                        FitnessWorkerProtocol.TASK, job.key,
+                                        job.sdf, job.workDir, job.uidFile,
+                                        Long.toString(leaseTime),
+                                        Long.toString(timeout)));
+                    }
+                    else if (FitnessWorkerProtocol.BEAT.equals(type))
+                    {
+                        renew(frame.getId(), this);
+                    }
+                    else if (FitnessWorkerProtocol.RESULT.equals(type))
+                    {
+                        completeLeased(jobs.get(frame.getId()), this,
+                                                   frame.getPayload(), null);
+                    }
+                    else if (FitnessWorkerProtocol.ERROR.equals(type))
+                    {
+                        Job job = jobs.get(frame.getId());
+                        if (job != null)
+                        {
+                            completeLeased(job, this, null, "Remote fitness "
+                                    + "worker " + name + " failed on task "
+                                    + job.taskId + ": " + frame.getPayload());
+                        }
+                    }
+                }
+            }
+            catch (IOException ioe)
+            {
+                // the connection is lost
+            }
+            finally
+            {
+                close();
+                connections.remove(this);
+                for (Job job : new ArrayList<Job>(leased.keySet()))
+                {
+                    release(job, this, "worker " + name + " disconnected");
+                }
+                if (!isShutdown)
+                {
+                    DENOPTIMLogger.appLogger.info("Remote fitness worker "
+                                                   + name + " disconnected.");
+                }
+            }
+        }
+
+        private void close()
+        {
+            try
+            {
+                socket.close();
+            }
+            catch (IOException ioe)
+            {
+                // nothing to do
+            }
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Constructor. Starts accepting connections from remote workers on the
+     * loopback interface.
+     * @param port the TCP port to listen to. Use zero for any free port.
+     * @param leaseTime the duration (milliseconds) of the lease on a task
+     * @throws DENOPTIMException if the port cannot be opened
+     */
+
+    public FitnessCoordinator(int port, long leaseTime)
+                                                      throws DENOPTIMException
+    {
+        this("", port, leaseTime);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Constructor. Starts accepting connections from remote workers.
+     * @param address the address (or host name) of the network interface to
+     * listen to. Use an empty string for the loopback interface, and
+     * <code>0.0.0.0</code> for all interfaces.
+     * @param port the TCP port to listen to. Use zero for any free port.
+     * @param leaseTime the duration (milliseconds) of the lease on a task
+     * @throws DENOPTIMException if the port cannot be opened
+     */
+
+    public FitnessCoordinator(String address, int port, long leaseTime)
+                                                      throws DENOPTIMException
+    {
+        this(address, port, leaseTime, 0);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Constructor. Starts accepting connections from remote workers.
+     * @param address the address (or host name) of the network interface to
+     * listen to. Use an empty string for the loopback interface, and
+     * <code>0.0.0.0</code> for all interfaces.
+     * @param port the TCP port to listen to. Use zero for any free port.
+     * @param leaseTime the duration (milliseconds) of the lease on a task
+     * @param timeout the maximum time (milliseconds) the remote workers give
+     * to each evaluation. Use zero for no limit.
+     * @throws DENOPTIMException if the port cannot be opened
+     */
+
+    public FitnessCoordinator(String address, int port, long leaseTime,
+                                   long timeout) throws DENOPTIMException
+    {
+        this.leaseTime = leaseTime;
+        this.timeout = timeout;
+        try
+        {
+            InetAddress bindAddr = address.trim().length() == 0 ?
+                    InetAddress.getLoopbackAddress() :
+                    InetAddress.getByName(address.trim());
+            server = new ServerSocket(port, 50, bindAddr);
+        }
+        catch (IOException ioe)
+        {
+            throw new DENOPTIMException("Cannot listen to port " + port
+                    + " of '" + address + "' for remote fitness workers.",
+                    ioe);
+        }
+
+        Thread acceptor = new Thread("FitnessCoordinator")
+        {
+            @Override
+            public void run()
+            {
+                acceptConnections();
+            }
+        };
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        leaseChecker = new ScheduledThreadPoolExecutor(1, new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(Runnable r)
+            {
+                Thread t = new Thread(r, "FitnessLeaseChecker");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        long period = Math.max(10, leaseTime / 4);
+        leaseChecker.scheduleAtFixedRate(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                checkLeases();
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+
+        DENOPTIMLogger.appLogger.info("Waiting for remote fitness workers "
+                                      + "on " + getAddress().getHostAddress()
+                                      + " port " + getPort() + ".");
+    }
+
+//------------------------------------------------------------------------------
+
+    private void acceptConnections()
+    {
+        while (!isShutdown)
+        {
+            Socket socket;
+            try
+            {
+                socket = server.accept();
+            }
+            catch (IOException ioe)
+            {
+                if (!isShutdown)
+                {
+                    DENOPTIMLogger.appLogger.log(Level.SEVERE, "Cannot "
+                            + "accept remote fitness workers.", ioe);
+                }
+                return;
+            }
+            try
+            {
+                socket.setTcpNoDelay(true);
+                socket.setKeepAlive(true);
+                Connection conn = new Connection(socket);
+                Thread t = new Thread(conn, "FitnessCoordinator-"
+                                       + numConnections.incrementAndGet());
+                t.setDaemon(true);
+                conn.thread = t;
+                connections.put(conn, Boolean.TRUE);
+                if (isShutdown)
+                {
+                    conn.close();
+                    return;
+                }
+                t.start();
+            }
+            catch (IOException ioe)
+            {
+                DENOPTIMLogger.appLogger.log(Level.WARNING, "Cannot talk to "
+                        + "remote fitness worker.", ioe);
+            }
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Evaluates a candidate with the first remote worker asking for a task.
+     * @param taskId the identifier of the task
+     * @param sdf the SDF representation of the candidate
+     * @param workDir the working directory of the task
+     * @param uidFile the pathname of the file collecting the unique
+     * identifiers
+     * @return the SDF representation of the evaluated candidate
+     * @throws DENOPTIMException if the evaluation fails
+     */
+
+    public String evaluate(String taskId, String sdf, String workDir,
+                                   String uidFile) throws DENOPTIMException
+    {
+        if (isShutdown)
+        {
+            throw new DENOPTIMException("Fitness coordinator is shut down");
+        }
+        Job job = new Job(taskId + "-" + numSubmitted.incrementAndGet(),
+                                             taskId, sdf, workDir, uidFile);
+        jobs.put(job.key, job);
+        queue.addLast(job);
+        if (isShutdown)
+        {
+            // shut down while submitting
+            complete(job, null, "Fitness coordinator is shut down");
+        }
+        try
+        {
+            synchronized (job)
+            {
+                while (!job.done)
+                {
+                    job.wait();
+                }
+            }
+        }
+        catch (InterruptedException ie)
+        {
+            Thread.currentThread().interrupt();
+            complete(job, null, "Interrupted");
+            throw new DENOPTIMException("Interrupted while waiting for the "
+                              + "remote evaluation of task " + taskId, ie);
+        }
+        finally
+        {
+            jobs.remove(job.key);
+        }
+        if (job.error != null)
+        {
+            throw new DENOPTIMException(job.error);
+        }
+        return job.result;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Waits for a task and leases it to a worker.
+     * @return the task, or <code>null</code> if this coordinator has been
+     * shut down
+     */
+
+    private Job nextJob(Connection conn)
+    {
+        while (!isShutdown)
+        {
+            Job job;
+            try
+            {
+                job = queue.take();
+            }
+            catch (InterruptedException ie)
+            {
+                return null;
+            }
+            synchronized (job)
+            {
+                if (job.done)
+                {
+                    // completed by another worker after being re-queued
+                    continue;
+                }
+                job.owner = conn;
+                job.attempts++;
+                job.expiry = System.currentTimeMillis() + leaseTime;
+                leased.put(job, Boolean.TRUE);
+                return job;
+            }
+        }
+        return null;
+    }
+
+//------------------------------------------------------------------------------
+
+    private void renew(String key, Connection conn)
+    {
+        Job job = jobs.get(key);
+        if (job == null)
+        {
+            return;
+        }
+        synchronized (job)
+        {
+            if (job.owner == conn)
+            {
+                job.expiry = System.currentTimeMillis() + leaseTime;
+            }
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Records the outcome of a task sent by a worker, unless the worker does
+     * not hold the lease on the task, e.g., because the lease expired and the
+     * task has been given to another worker.
+     */
+
+    private void completeLeased(Job job, Connection conn, String result,
+                                                                 String error)
+    {
+        if (job == null)
+        {
+            return;
+        }
+        synchronized (job)
+        {
+            if (job.owner != conn)
+            {
+                if (!job.done)
+                {
+                    DENOPTIMLogger.appLogger.warning("Discarding outcome of "
+                            + "task " + job.taskId + " from remote fitness "
+                            + "worker " + conn.name + ", which does not hold "
+                            + "the lease.");
+                }
+                return;
+            }
+            complete(job, result, error);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Records the outcome of a task, unless the task is already completed.
+     */
+
+    private void complete(Job job, String result, String error)
+    {
+        if (job == null)
+        {
+            return;
+        }
+        synchronized (job)
+        {
+            if (job.done)
+            {
+                return;
+            }
+            job.done = true;
+            job.owner = null;
+            job.result = result;
+            job.error = error;
+            leased.remove(job);
+            job.notifyAll();
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Takes a task away from a worker and puts it back in the queue, or
+     * fails it if it has been given to too many workers.
+     */
+
+    private void release(Job job, Connection conn, String reason)
+    {
+        synchronized (job)
+        {
+            if (job.done || job.owner != conn)
+            {
+                return;
+            }
+            job.owner = null;
+            leased.remove(job);
+            if (job.attempts >= MAXATTEMPTS)
+            {
+                complete(job, null, "Task " + job.taskId + " lost by "
+                        + job.attempts + " remote fitness workers ("
+                        + reason + ").");
+                return;
+            }
+        }
+        numRequeued.incrementAndGet();
+        DENOPTIMLogger.appLogger.warning("Re-queueing task " + job.taskId
+                                                    + ": " + reason + ".");
+        queue.addFirst(job);
+    }
+
+//------------------------------------------------------------------------------
+
+    private void checkLeases()
+    {
+        long now = System.currentTimeMillis();
+        for (Job job : leased.keySet())
+        {
+            Connection owner = null;
+            synchronized (job)
+            {
+                if (!job.done && job.expiry < now)
+                {
+                    owner = job.owner;
+                }
+            }
+            if (owner != null)
+            {
+                release(job, owner, "lease of worker " + owner.name
+                                                             + " expired");
+            }
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the address of the network interface accepting remote workers
+     */
+
+    public InetAddress getAddress()
+    {
+        return server.getInetAddress();
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the TCP port accepting remote workers
+     */
+
+    public int getPort()
+    {
+        return server.getLocalPort();
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the number of connected remote workers
+     */
+
+    public int getNumberOfWorkers()
+    {
+        return connections.size();
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the number of tasks waiting for a worker
+     */
+
+    public int getQueueLength()
+    {
+        return queue.size();
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the number of times a task has been taken away from a worker
+     * and put back in the queue
+     */
+
+    public long getNumberOfRequeuedTasks()
+    {
+        return numRequeued.get();
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return a summary of the activity of this coordinator
+     */
+
+    public String getSummary()
+    {
+        return "Remote fitness workers: " + numSubmitted.get()
+                + " tasks submitted, " + getNumberOfRequeuedTasks()
+                + " re-queued, " + getNumberOfWorkers() + " workers connected.";
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Stops accepting workers and closes the connections with the workers,
+     * which then terminate. Any pending evaluation fails.
+     */
+
+    public void shutdown()
+    {
+        if (isShutdown)
+        {
+            return;
+        }
+        isShutdown = true;
+        DENOPTIMLogger.appLogger.info(getSummary());
+        try
+        {
+            server.close();
+        }
+        catch (IOException ioe)
+        {
+            // nothing to do
+        }
+        leaseChecker.shutdownNow();
+        for (Connection conn : connections.keySet())
+        {
+            conn.close();
+            Thread t = conn.thread;
+            if (t != null)
+            {
+                t.interrupt();
+            }
+        }
+        queue.clear();
+        for (Job job : jobs.values())
+        {
+            complete(job, null, "Fitness coordinator is shut down");
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,267 @@
+package denoptim.task;
+
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2026 agent <agent@local>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test for the evaluation of candidates by remote workers
+ *
+ * @author agent
+ */
+
+public class FitnessCoordinatorTest
+{
+    private static final String SEP = System.getProperty("file.separator");
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testLostWorkersAndWorkerJVMs() throws Exception
+    {
+        final FitnessCoordinator coordinator = new FitnessCoordinator(0, 500);
+        ExecutorService submitters = Executors.newFixedThreadPool(6);
+        ArrayList<Process> jvms = new ArrayList<Process>();
+        Socket silent = null;
+        try
+        {
+            ArrayList<Future<String>> results = new ArrayList<Future<String>>();
+            for (int i=1; i<=6; i++)
+            {
+                final int numAtoms = i;
+                results.add(submitters.submit(new Callable<String>()
+                {
+                    @Override
+                    public String call() throws Exception
+                    {
+                        return coordinator.evaluate("T" + numAtoms,
+                                getSDF(numAtoms), "/tmp", "/tmp/uid.txt");
+                    }
+                }));
+            }
+            long start = System.currentTimeMillis();
+            while (coordinator.getQueueLength() < 6
+                   && System.currentTimeMillis() - start < 10000)
+            {
+                Thread.sleep(10);
+            }
+
+            // a worker that disconnects while holding a task
+            Socket lost = new Socket("localhost", coordinator.getPort());
+            pullTask(lost);
+            lost.close();
+
+            // a worker that stops renewing its lease
+            silent = new Socket("localhost", coordinator.getPort());
+            pullTask(silent);
+
+            String cp = new File(FitnessCoordinator.class.getProtectionDomain()
+                    .getCodeSource().getLocation().toURI()).getPath()
+                    + File.pathSeparator
+                    + System.getProperty("java.class.path");
+            String java = System.getProperty("java.home") + SEP + "bin" + SEP
+                    + "java";
+            for (int i=0; i<2; i++)
+            {
+                ProcessBuilder pb = new ProcessBuilder(java, "-cp", cp,
+                        "denoptim.task.RemoteFitnessWorker", "localhost",
+                        "" + coordinator.getPort(), "2", java, "-cp",
+                        "'" + cp + "'", "denoptim.task.ReferenceFitnessWorker");
+                pb.redirectErrorStream(true);
+                pb.redirectOutput(ProcessBuilder.Redirect.INHERIT);
+                jvms.add(pb.start());
+            }
+
+            for (int i=1; i<=6; i++)
+            {
+                String sdf = results.get(i-1).get(60, TimeUnit.SECONDS);
+                assertTrue(sdf.contains("> <FITNESS>\n" + i + ".0"),
+                        "Result of task " + i);
+            }
+            assertEquals(2, coordinator.getNumberOfRequeuedTasks(),
+                    "Re-queued tasks");
+        }
+        finally
+        {
+            coordinator.shutdown();
+            submitters.shutdownNow();
+            if (silent != null)
+            {
+                silent.close();
+            }
+            for (Process p : jvms)
+            {
+                if (!p.waitFor(20, TimeUnit.SECONDS))
+                {
+                    p.destroy();
+                }
+            }
+        }
+        for (Process p : jvms)
+        {
+            assertEquals(0, p.exitValue(), "Exit code of worker JVM");
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testListensToLoopbackByDefault() throws Exception
+    {
+        FitnessCoordinator coordinator = new FitnessCoordinator(0, 500);
+        try
+        {
+            assertTrue(coordinator.getAddress().isLoopbackAddress(),
+                    "Default address " + coordinator.getAddress());
+        }
+        finally
+        {
+            coordinator.shutdown();
+        }
+
+        coordinator = new FitnessCoordinator("0.0.0.0", 0, 500);
+        try
+        {
+            assertTrue(coordinator.getAddress().isAnyLocalAddress(),
+                    "Wildcard address " + coordinator.getAddress());
+        }
+        finally
+        {
+            coordinator.shutdown();
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testResultWithoutLeaseIsDiscarded() throws Exception
+    {
+        final FitnessCoordinator coordinator = new FitnessCoordinator(0, 500);
+        ExecutorService submitters = Executors.newFixedThreadPool(1);
+        Socket expired = null;
+        Socket current = null;
+        try
+        {
+            Future<String> result = submitters.submit(new Callable<String>()
+            {
+                @Override
+                public String call() throws Exception
+                {
+                    return coordinator.evaluate("T1", getSDF(1), "/tmp",
+                                                             "/tmp/uid.txt");
+                }
+            });
+
+            // a worker that lets its lease expire
+            expired = new Socket("localhost", coordinator.getPort());
+            String key = pullTask(expired).getId();
+            long start = System.currentTimeMillis();
+            while (coordinator.getNumberOfRequeuedTasks() < 1
+                   && System.currentTimeMillis() - start < 10000)
+            {
+                Thread.sleep(10);
+            }
+            assertEquals(1, coordinator.getNumberOfRequeuedTasks(),
+                    "Re-queued tasks");
+
+            current = new Socket("localhost", coordinator.getPort());
+            assertEquals(key, pullTask(current).getId(), "Re-queued task");
+
+            sendResult(expired, key, "stale");
+            Thread.sleep(100);
+            assertFalse(result.isDone(), "Result of the expired lease");
+
+            sendResult(current, key, "fresh");
+            assertEquals("fresh", result.get(10, TimeUnit.SECONDS));
+        }
+        finally
+        {
+            coordinator.shutdown();
+            submitters.shutdownNow();
+            if (expired != null)
+            {
+                expired.close();
+            }
+            if (current != null)
+            {
+                current.close();
+            }
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    private static FitnessWorkerProtocol.Frame pullTask(Socket socket)
+                                                              throws Exception
+    {
+        OutputStream out = socket.getOutputStream();
+        InputStream in = new BufferedInputStream(socket.getInputStream());
+        FitnessWorkerProtocol.writeFrame(out, new FitnessWorkerProtocol.Frame(
+                FitnessWorkerProtocol.PULL, "fake", ""));
+        FitnessWorkerProtocol.Frame task = FitnessWorkerProtocol.readFrame(in);
+        assertEquals(FitnessWorkerProtocol.TASK, task.getType());
+        return task;
+    }
+
+//------------------------------------------------------------------------------
+
+    private static void sendResult(Socket socket, String key, String result)
+                                                              throws Exception
+    {
+        FitnessWorkerProtocol.writeFrame(socket.getOutputStream(),
+                new FitnessWorkerProtocol.Frame(FitnessWorkerProtocol.RESULT,
+                        key, result));
+    }
+
+//------------------------------------------------------------------------------
+
+    private static String getSDF(int numAtoms)
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append("mol\n  test\n\n");
+        sb.append(String.format("%3d  0  0  0  0  0  0  0  0  0999 V2000\n",
+                                                                 numAtoms));
+        for (int i=0; i<numAtoms; i++)
+        {
+            sb.append("    0.0000    0.0000    0.0000 C   0  0  0  0  0  0  "
+                    + "0  0  0  0  0  0\n");
+        }
+        sb.append("M  END\n$$$$\n");
+        return sb.toString();
+    }
+
+//------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,303 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2026 agent <agent@local>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.task;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import denoptim.exception.DENOPTIMException;
+import denoptim.logging.DENOPTIMLogger;
+
+/**
+ * A long-lived external process that evaluates the fitness of one candidate
+ * at a time. Candidates and results are exchanged over the standard input
+ * and output of the process according to the {@link FitnessWorkerProtocol}.
+ * The process is started on demand and restarted if it terminated. A
+ * worker process that exceeds the time limit of an evaluation is killed,
+ * and restarted for the next evaluation.
+ *
+ * @author agent
+ */
+
+public class FitnessWorker
+{
+    /**
+     * The command starting the worker process
+     */
+    private final String cmdStr;
+
+    /**
+     * Name of this worker for logging
+     */
+    private final String name;
+
+    /**
+     * Maximum time (milliseconds) given to each evaluation
+     */
+    private final long timeout;
+
+    private volatile Process proc = null;
+    private volatile OutputStream toWorker = null;
+    private volatile InputStream fromWorker = null;
+    private volatile ProcessRegistry.Registration registration = null;
+
+    /**
+     * Last part of the error output of the worker process
+     */
+    private volatile StreamPump.Tail errTail = null;
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Constructor for a worker with no time limit
+     * @param cmdStr the command starting the worker process
+     * @param name the name of this worker
+     */
+
+    public FitnessWorker(String cmdStr, String name)
+    {
+        this(cmdStr, name, 0);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Constructor
+     * @param cmdStr the command starting the worker process
+     * @param name the name of this worker
+     * @param timeout the maximum time (milliseconds) given to each
+     * evaluation. Use zero for no limit.
+     */
+
+    public FitnessWorker(String cmdStr, String name, long timeout)
+    {
+        this.cmdStr = cmdStr;
+        this.name = name;
+        this.timeout = timeout;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Sends a candidate to the worker and waits for the result.
+     * @param taskId the identifier of the task
+     * @param sdf the SDF representation of the candidate
+     * @param workDir the working directory of the task
+     * @param uidFile the pathname of the file collecting the unique
+     * identifiers
+     * @return the SDF representation of the evaluated candidate
+     * @throws DENOPTIMException if the worker reports an error, terminates,
+     * or exceeds the time limit
+     */
+
+    public String evaluate(String taskId, String sdf, String workDir,
+                                   String uidFile) throws DENOPTIMException
+    {
+        return evaluate(taskId, sdf, workDir, uidFile, timeout);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Sends a candidate to the worker and waits for the result.
+     * @param taskId the identifier of the task
+     * @param sdf the SDF representation of the candidate
+     * @param workDir the working directory of the task
+     * @param uidFile the pathname of the file collecting the unique
+     * identifiers
+     * @param timeout the maximum time (milliseconds) given to this
+     * evaluation. Use zero for no limit.
+     * @return the SDF representation of the evaluated candidate
+     * @throws DENOPTIMException if the worker reports an error, terminates,
+     * or exceeds the time limit
+     */
+
+    public synchronized String evaluate(String taskId, String sdf,
+                 String workDir, String uidFile, long timeout)
+                                                      throws DENOPTIMException
+    {
+        if (!isAlive())
+        {
+            start();
+        }
+
+        FitnessWorkerProtocol.Frame reply;
+        try
+        {
+            FitnessWorkerProtocol.writeFrame(toWorker,
+                    new FitnessWorkerProtocol.Frame(
+                         FitnessWorkerProtocol.TASK, taskId, sdf,
+                         workDir, uidFile));
+            final Process p = proc;
+            reply = FitnessWorkerProtocol.readFrame(fromWorker, timeout,
+                    new Closeable()
+                    {
+                        @Override
+                        public void close()
+                        {
+                            p.destroy();
+                        }
+                    });
+        }
+        catch (FitnessWorkerProtocol.FrameTimeoutException fte)
+        {
+            stop();
+            throw new DENOPTIMException("Fitness worker " + name
+                    + " exceeded the time limit (" + timeout + " ms) on "
+                    + "task " + taskId + ".");
+        }
+        catch (IOException ioe)
+        {
+            stop();
+            throw new DENOPTIMException("Communication with fitness worker "
+                    + name + " failed. " + getErrorOutput(), ioe);
+        }
+
+        if (reply == null)
+        {
+            stop();
+            throw new DENOPTIMException("Fitness worker " + name
+                    + " terminated while evaluating task " + taskId + ". "
+                    + getErrorOutput());
+        }
+        if (!taskId.equals(reply.getId()))
+        {
+            stop();
+            throw new DENOPTIMException("Fitness worker " + name
+                    + " replied to task " + reply.getId() + " instead of "
+                    + taskId);
+        }
+        if (FitnessWorkerProtocol.ERROR.equals(reply.getType()))
+        {
+            throw new DENOPTIMException("Fitness worker " + name
+                    + " failed on task " + taskId + ": "
+                    + reply.getPayload());
+        }
+        return reply.getPayload();
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return <code>true</code> if the worker process is running
+     */
+
+    public boolean isAlive()
+    {
+        Process p = proc;
+        if (p == null)
+        {
+            return false;
+        }
+        try
+        {
+            p.exitValue();
+            return false;
+        }
+        catch (IllegalThreadStateException e)
+        {
+            return true;
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    private void start() throws DENOPTIMException
+    {
+        if (registration != null)
+        {
+            // the previous process terminated on its own
+            ProcessRegistry.unregister(registration);
+            errTail.finish();
+        }
+        try
+        {
+            ProcessBuilder pb = new ProcessBuilder("/bin/bash", "-c", cmdStr);
+            proc = pb.start();
+            // the time limit applies to each evaluation, not to the
+            // lifetime of the worker process (see readFrame)
+            registration = ProcessRegistry.register(proc, name, 0);
+        }
+        catch (IOException ioe)
+        {
+            throw new DENOPTIMException("Cannot start fitness worker "
+                                                + name + ": " + cmdStr, ioe);
+        }
+        toWorker = new BufferedOutputStream(proc.getOutputStream());
+        fromWorker = new BufferedInputStream(proc.getInputStream());
+        errTail = StreamPump.pump(proc.getErrorStream(), proc, "ERR",
+                                                StreamPump.DEFAULTTAILSIZE);
+
+        DENOPTIMLogger.appLogger.info("Started fitness worker " + name
+                                                        + ": " + cmdStr);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Stops the worker process, if running. The worker is expected to
+     * terminate when its standard input is closed. Can be called while
+     * another thread is waiting for the result of an evaluation, which then
+     * fails.
+     */
+
+    public void stop()
+    {
+        Process p = proc;
+        if (p == null)
+        {
+            return;
+        }
+        proc = null;
+        if (registration != null)
+        {
+            ProcessRegistry.unregister(registration);
+        }
+        try
+        {
+            toWorker.close();
+            fromWorker.close();
+        }
+        catch (IOException ioe)
+        {
+            // the process is terminated anyway
+        }
+        p.destroy();
+        errTail.finish();
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the last lines of the error output of the worker process
+     */
+
+    public String getErrorOutput()
+    {
+        StreamPump.Tail tail = errTail;
+        return tail == null ? "" : tail.getMessages();
+    }
+
+//------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,254 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2026 agent <agent@local>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.task;
+
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+
+import denoptim.exception.DENOPTIMException;
+import denoptim.fitness.FitnessParameters;
+
+/**
+ * Pool of persistent fitness workers (see {@link FitnessWorker}). Each
+ * evaluation is performed by the first available worker, so the number of
+ * workers limits the number of concurrent evaluations. The workers can
+ * also be remote ones, served by a {@link FitnessCoordinator}.
+ *
+ * @author agent
+ */
+
+public class FitnessWorkerPool
+{
+    /**
+     * The pool shared by the tasks of a run
+     */
+    private static FitnessWorkerPool sharedPool = null;
+
+    /**
+     * All the workers
+     */
+    private final ArrayList<FitnessWorker> workers =
+            new ArrayList<FitnessWorker>();
+
+    /**
+     * The workers waiting for a task
+     */
+    private final ArrayBlockingQueue<FitnessWorker> idleWorkers;
+
+    /**
+     * The coordinator of remote workers, or <code>null</code> if the workers
+     * run on the local host
+     */
+    private final FitnessCoordinator coordinator;
+
+    /**
+     * Flag signaling that this pool has been shut down
+     */
+    private volatile boolean isShutdown = false;
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Constructor. Worker processes are started on demand.
+     * @param cmdStr the command starting a worker process
+     * @param size the number of workers
+     */
+
+    public FitnessWorkerPool(String cmdStr, int size)
+    {
+        this(cmdStr, size, 0);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Constructor. Worker processes are started on demand.
+     * @param cmdStr the command starting a worker process
+     * @param size the number of workers
+     * @param timeout the maximum time (milliseconds) given to each
+     * evaluation. Use zero for no limit.
+     */
+
+    public FitnessWorkerPool(String cmdStr, int size, long timeout)
+    {
+        coordinator = null;
+        idleWorkers = new ArrayBlockingQueue<FitnessWorker>(size);
+        for (int i=0; i<size; i++)
+        {
+            FitnessWorker worker = new FitnessWorker(cmdStr, "W" + i, timeout);
+            workers.add(worker);
+            idleWorkers.add(worker);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Constructor for a pool of remote workers.
+     * @param coordinator the coordinator serving the remote workers
+     */
+
+    public FitnessWorkerPool(FitnessCoordinator coordinator)
+    {
+        this.coordinator = coordinator;
+        idleWorkers = new ArrayBlockingQueue<FitnessWorker>(1);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Gets the pool of workers running the external fitness provider, as
+     * defined by the {@link FitnessParameters}. The pool is created the
+     * first time this method is called.
+     * @return the shared pool
+     * @throws DENOPTIMException if the coordinator of remote workers cannot
+     * be started
+     */
+
+    public static synchronized FitnessWorkerPool getSharedPool()
+                                                      throws DENOPTIMException
+    {
+        if (sharedPool == null)
+        {
+            if (FitnessParameters.useRemoteWorkers())
+            {
+                sharedPool = new FitnessWorkerPool(new FitnessCoordinator(
+                        FitnessParameters.getCoordinatorAddress(),
+                        FitnessParameters.getCoordinatorPort(),
+                        FitnessParameters.getLeaseTime(),
+                        FitnessParameters.getTimeout()));
+            }
+            else
+            {
+                String cmdStr = System.getenv("SHELL") + " "
+                        + FitnessParameters.getExternalFitnessProvider();
+                sharedPool = new FitnessWorkerPool(cmdStr,
+                        FitnessParameters.getNumberOfWorkers(),
+                        FitnessParameters.getTimeout());
+            }
+            final FitnessWorkerPool pool = sharedPool;
+            Runtime.getRuntime().addShutdownHook(new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    pool.shutdown();
+                }
+            });
+        }
+        return sharedPool;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Stops the workers of the shared pool, if any.
+     */
+
+    public static synchronized void shutdownSharedPool()
+    {
+        if (sharedPool != null)
+        {
+            sharedPool.shutdown();
+            sharedPool = null;
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Evaluates a candidate with the first available worker.
+     * @param taskId the identifier of the task
+     * @param sdf the SDF representation of the candidate
+     * @param workDir the working directory of the task
+     * @param uidFile the pathname of the file collecting the unique
+     * identifiers
+     * @return the SDF representation of the evaluated candidate
+     * @throws DENOPTIMException if the evaluation fails
+     */
+
+    public String evaluate(String taskId, String sdf, String workDir,
+                                   String uidFile) throws DENOPTIMException
+    {
+        if (isShutdown)
+        {
+            throw new DENOPTIMException("Pool of fitness workers is shut down");
+        }
+        if (coordinator != null)
+        {
+            return coordinator.evaluate(taskId, sdf, workDir, uidFile);
+        }
+        FitnessWorker worker;
+        try
+        {
+            worker = idleWorkers.take();
+        }
+        catch (InterruptedException ie)
+        {
+            Thread.currentThread().interrupt();
+            throw new DENOPTIMException("Interrupted while waiting for a "
+                                                    + "fitness worker", ie);
+        }
+        try
+        {
+            return worker.evaluate(taskId, sdf, workDir, uidFile);
+        }
+        finally
+        {
+            idleWorkers.add(worker);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the number of workers
+     */
+
+    public int size()
+    {
+        if (coordinator != null)
+        {
+            return coordinator.getNumberOfWorkers();
+        }
+        return workers.size();
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Stops all the workers. Any pending evaluation fails.
+     */
+
+    public void shutdown()
+    {
+        isShutdown = true;
+        if (coordinator != null)
+        {
+            coordinator.shutdown();
+        }
+        for (FitnessWorker worker : workers)
+        {
+            worker.stop();
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,151 @@
+package denoptim.task;
+
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2026 agent <agent@local>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+
+import org.junit.jupiter.api.Test;
+
+import denoptim.exception.DENOPTIMException;
+
+/**
+ * Unit test for the pool of persistent fitness workers
+ *
+ * @author agent
+ */
+
+public class FitnessWorkerPoolTest
+{
+    private static final String SDF = "M1\n  DENOPTIM\n\n"
+            + "  2  1  0  0  0  0  0  0  0  0999 V2000\n"
+            + "    0.0000    0.0000    0.0000 C   0  0  0  0  0  0  0  0  0  0  0  0\n"
+            + "    1.5000    0.0000    0.0000 O   0  0  0  0  0  0  0  0  0  0  0  0\n"
+            + "  1  2  1  0  0  0  0\n"
+            + "M  END\n"
+            + "> <UID>\nKEY-1\n\n"
+            + "$$$$\n";
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testEvaluationByReferenceWorker() throws Exception
+    {
+        String classPath = new File(ReferenceFitnessWorker.class
+                .getProtectionDomain().getCodeSource().getLocation().toURI())
+                .getPath();
+        String cmd = "\"" + System.getProperty("java.home") + File.separator
+                + "bin" + File.separator + "java\" -cp \"" + classPath + "\" "
+                + ReferenceFitnessWorker.class.getName();
+        final FitnessWorkerPool pool = new FitnessWorkerPool(cmd, 2);
+        try
+        {
+            final String[] results = new String[6];
+            Thread[] threads = new Thread[results.length];
+            for (int i=0; i<results.length; i++)
+            {
+                final int idx = i;
+                threads[i] = new Thread()
+                {
+                    @Override
+                    public void run()
+                    {
+                        try
+                        {
+                            results[idx] = pool.evaluate("" + idx, SDF,
+                                                           ".", "UID.txt");
+                        }
+                        catch (DENOPTIMException e)
+                        {
+                            results[idx] = e.getMessage();
+                        }
+                    }
+                };
+                threads[i].start();
+            }
+            for (Thread t : threads)
+            {
+                t.join();
+            }
+            for (String res : results)
+            {
+                assertTrue(res.contains("> <UID>\nKEY-1"), res);
+                assertTrue(res.contains("> <FITNESS>\n2.0\n"), res);
+                assertTrue(res.endsWith("$$$$\n"), res);
+            }
+
+            // errors are reported without killing the worker
+            boolean failed = false;
+            try
+            {
+                pool.evaluate("e", "not an SDF", ".", "UID.txt");
+            }
+            catch (DENOPTIMException e)
+            {
+                failed = e.getMessage().contains("not a V2000 SDF");
+            }
+            assertTrue(failed, "Error reported by the worker");
+            assertTrue(pool.evaluate("7", SDF, ".", "UID.txt")
+                                                      .contains("FITNESS"));
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testWorkerExceedingTimeLimit() throws Exception
+    {
+        // a worker that never replies
+        FitnessWorker worker = new FitnessWorker(
+                               "while read line; do :; done", "mute", 500);
+        try
+        {
+            for (int i=0; i<2; i++)
+            {
+                long start = System.currentTimeMillis();
+                boolean timedOut = false;
+                try
+                {
+                    worker.evaluate("T" + i, SDF, ".", "UID.txt");
+                }
+                catch (DENOPTIMException e)
+                {
+                    timedOut = e.getMessage().contains("time limit");
+                }
+                long elapsed = System.currentTimeMillis() - start;
+                assertTrue(timedOut, "Time limit of evaluation " + i);
+                assertTrue(elapsed < 10000, "Waited " + elapsed + " ms");
+                assertFalse(worker.isAlive(), "Worker killed");
+            }
+        }
+        finally
+        {
+            worker.stop();
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,374 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2026 agent <agent@local>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.task;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Framed protocol used to exchange candidates and fitness results with
+ * persistent fitness workers over the standard input and output of the
+ * worker process. Each frame is made of a header line and a payload.
+ * The header line contains tab-separated fields:
+ * <pre>
+ * TYPE &lt;tab&gt; ID &lt;tab&gt; LENGTH [&lt;tab&gt; ARGUMENT ...]
+ * </pre>
+ * where LENGTH is the number of bytes of the UTF-8 encoded payload that
+ * follows the newline character terminating the header. The frame types are:
+ * <ul>
+ * <li><code>TASK</code>: sent to the worker. The payload is the SDF
+ * representation of the candidate (i.e., the content of the input file of
+ * the fitness provider) and the arguments are the working directory and the
+ * pathname of the file collecting the unique identifiers.</li>
+ * <li><code>RESULT</code>: sent by the worker. The payload is the SDF
+ * representation of the evaluated candidate (i.e., the content of the output
+ * file of the fitness provider).</li>
+ * <li><code>ERROR</code>: sent by the worker when the task cannot be
+ * performed. The payload is the error message.</li>
+ * </ul>
+ * Any output line that is not a frame header is ignored. A worker terminates
+ * when its standard input is closed.
+ * <p>
+ * The same frames are exchanged over TCP connections between a
+ * {@link FitnessCoordinator} and {@link RemoteFitnessWorker}s, which also
+ * use the following frames:
+ * <ul>
+ * <li><code>PULL</code>: sent by the remote worker when it is ready to
+ * take a task. The identifier is the name of the worker and there is no
+ * payload. The coordinator replies with a <code>TASK</code> frame as soon
+ * as a task is available. In this case, the <code>TASK</code> frame has a
+ * third argument: the duration (milliseconds) of the lease, and an optional
+ * fourth argument: the maximum time (milliseconds) given to the
+ * evaluation.</li>
+ * <li><code>BEAT</code>: sent by the remote worker to renew the lease on
+ * the task with the given identifier. There is no payload.</li>
+ * </ul>
+ *
+ * @author agent
+ */
+
+public class FitnessWorkerProtocol
+{
+    /**
+     * Type of frame sent to the worker to request an evaluation
+     */
+    public static final String TASK = "TASK";
+
+    /**
+     * Type of frame sent by the worker with the result of an evaluation
+     */
+    public static final String RESULT = "RESULT";
+
+    /**
+     * Type of frame sent by the worker when an evaluation failed
+     */
+    public static final String ERROR = "ERROR";
+
+    /**
+     * Type of frame sent by a remote worker asking for a task
+     */
+    public static final String PULL = "PULL";
+
+    /**
+     * Type of frame sent by a remote worker to renew the lease on a task
+     */
+    public static final String BEAT = "BEAT";
+
+    /**
+     * Separator of the fields in the header line
+     */
+    private static final String SEP = "\t";
+
+    /**
+     * The thread enforcing the deadlines of the reads
+     */
+    private static ScheduledThreadPoolExecutor watchdog = null;
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Signals that a frame did not arrive within the given time
+     */
+
+    public static class FrameTimeoutException extends IOException
+    {
+        private static final long serialVersionUID = 1L;
+
+        public FrameTimeoutException(long timeout)
+        {
+            super("No frame received within " + timeout + " ms");
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * A frame of the protocol
+     */
+
+    public static class Frame
+    {
+        private final String type;
+        private final String id;
+        private final String[] args;
+        private final String payload;
+
+        public Frame(String type, String id, String payload, String... args)
+        {
+            this.type = type;
+            this.id = id;
+            this.payload = payload;
+            this.args = args;
+        }
+
+        public String getType()
+        {
+            return type;
+        }
+
+        public String getId()
+        {
+            return id;
+        }
+
+        public String[] getArguments()
+        {
+            return args;
+        }
+
+        public String getPayload()
+        {
+            return payload;
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Writes a frame and flushes the stream
+     * @param out the stream
+     * @param frame the frame to write
+     * @throws IOException
+     */
+
+    public static void writeFrame(OutputStream out, Frame frame)
+                                                            throws IOException
+    {
+        byte[] payload = frame.getPayload().getBytes(StandardCharsets.UTF_8);
+        StringBuilder sb = new StringBuilder();
+        sb.append(frame.getType()).append(SEP).append(frame.getId())
+          .append(SEP).append(payload.length);
+        for (String arg : frame.getArguments())
+        {
+            sb.append(SEP).append(arg);
+        }
+        sb.append("\n");
+        out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+        out.write(payload);
+        out.flush();
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Reads the next frame. Lines that are not frame headers are ignored.
+     * @param in the stream
+     * @return the frame, or <code>null</code> if the stream ended
+     * @throws IOException if the stream ends within a frame
+     */
+
+    public static Frame readFrame(InputStream in) throws IOException
+    {
+        while (true)
+        {
+            String line = readLine(in);
+            if (line == null)
+            {
+                return null;
+            }
+            String[] fields = line.split(SEP, -1);
+            if (fields.length < 3 || !isFrameType(fields[0]))
+            {
+                continue;
+            }
+            int length;
+            try
+            {
+                length = Integer.parseInt(fields[2]);
+            }
+            catch (NumberFormatException e)
+            {
+                continue;
+            }
+            byte[] payload = new byte[length];
+            int done = 0;
+            while (done < length)
+            {
+                int n = in.read(payload, done, length - done);
+                if (n < 0)
+                {
+                    throw new IOException("Stream ended within frame "
+                                                           + fields[1]);
+                }
+                done += n;
+            }
+            String[] args = new String[fields.length - 3];
+            System.arraycopy(fields, 3, args, 0, args.length);
+            return new Frame(fields[0], fields[1],
+                    new String(payload, StandardCharsets.UTF_8), args);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Reads the next frame, unless it does not arrive within the given time.
+     * A blocked read cannot be interrupted, so when the deadline expires the
+     * source of the stream is closed (e.g., the worker process is killed),
+     * which makes the read fail.
+     * @param in the stream
+     * @param timeout the maximum time (milliseconds) to wait for the frame.
+     * Use zero or a negative value for no limit.
+     * @param source what to close when the deadline expires
+     * @return the frame, or <code>null</code> if the stream ended
+     * @throws FrameTimeoutException if the frame did not arrive in time
+     * @throws IOException if the stream ends within a frame
+     */
+
+    public static Frame readFrame(InputStream in, long timeout,
+                                   final Closeable source) throws IOException
+    {
+        if (timeout <= 0)
+        {
+            return readFrame(in);
+        }
+        // set before closing the source, since the read may fail before the
+        // watchdog task returns
+        final AtomicBoolean expired = new AtomicBoolean(false);
+        ScheduledFuture<?> deadline = getWatchdog().schedule(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                expired.set(true);
+                try
+                {
+                    source.close();
+                }
+                catch (IOException ioe)
+                {
+                    // the read fails anyway
+                }
+            }
+        }, timeout, TimeUnit.MILLISECONDS);
+        Frame frame;
+        try
+        {
+            frame = readFrame(in);
+        }
+        catch (IOException ioe)
+        {
+            deadline.cancel(false);
+            if (!expired.get())
+            {
+                throw ioe;
+            }
+            throw new FrameTimeoutException(timeout);
+        }
+        deadline.cancel(false);
+        if (expired.get())
+        {
+            // the source has been closed: the frame, if any, is useless
+            throw new FrameTimeoutException(timeout);
+        }
+        return frame;
+    }
+
+//------------------------------------------------------------------------------
+
+    private static synchronized ScheduledThreadPoolExecutor getWatchdog()
+    {
+        if (watchdog == null)
+        {
+            watchdog = new ScheduledThreadPoolExecutor(1, new ThreadFactory()
+            {
+                @Override
+                public Thread newThread(Runnable r)
+                {
+                    Thread t = new Thread(r, "FrameWatchdog");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+            watchdog.setRemoveOnCancelPolicy(true);
+        }
+        return watchdog;
+    }
+
+//------------------------------------------------------------------------------
+
+    private static boolean isFrameType(String s)
+    {
+        return TASK.equals(s) || RESULT.equals(s) || ERROR.equals(s)
+                || PULL.equals(s) || BEAT.equals(s);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Reads a UTF-8 line without reading beyond its terminating newline
+     * @return the line or <code>null</code> if the stream ended
+     */
+
+    private static String readLine(InputStream in) throws IOException
+    {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1)
+        {
+            if (b == '\n')
+            {
+                break;
+            }
+            line.write(b);
+        }
+        if (b == -1 && line.size() == 0)
+        {
+            return null;
+        }
+        String s = new String(line.toByteArray(), StandardCharsets.UTF_8);
+        if (s.endsWith("\r"))
+        {
+            s = s.substring(0, s.length() - 1);
+        }
+        return s;
+    }
+
+//------------------------------------------------------------------------------
+
+}
@@ -46,6 +46,17 @@ public class ProcessHandler
 
     private String cmdStr = null;
 
+    /**
+     * Flag signalling that the process was killed for exceeding its time
+     * limit
+     */
+    private boolean timedOut = false;
+
+    /**
+     * Maximum number of bytes of standard and error output kept in memory
+     */
+    private int maxOutputSize = StreamPump.DEFAULTTAILSIZE;
+
 
 //------------------------------------------------------------------------------
 
@@ -61,181 +72,97 @@ public class ProcessHandler
      * Run the process associated with the command.
      * http://www.javaworld.com/javaworld/jw-12-2000/jw-1229-traps.html?page=4
      * For any Process, the input and error streams must read even if the data
-     * written to these streams is not used by the application. The generally
-     * accepted solution for this problem is a stream gobbler thread that does
-     * nothing but consume data from an input stream until stopped.
+     * written to these streams is not used by the application. The streams
+     * are consumed by the shared {@link StreamPump}, which keeps only the
+     * last part of the output (see {@link #setMaxOutputSize(int)}).
      * @throws Exception
      */
 
     public void runProcess() throws Exception
     {
-        try
-        {
-            ProcessBuilder pb = new ProcessBuilder("/bin/bash", "-c", cmdStr);
-            proc = pb.start();
-
-            Runtime.getRuntime().addShutdownHook(new Thread()
-            {
-                @Override
-                public void run()
-                {
-                    //System.out.println("Running Shutdown Hook");
-                    proc.destroy();
-                }
-            });
-
-            // Any error message?
-            StreamGobbler errorGobbler =
-                    new StreamGobbler(proc.getErrorStream(), "ERR");
-
-            // Any output?
-            StreamGobbler outputGobbler =
-                    new StreamGobbler(proc.getInputStream(), "OUT");
-
-
-            errorGobbler.start();
-            outputGobbler.start();
-
-            errorGobbler.join();
-            outputGobbler.join();
-
-            exitCode = proc.waitFor();
-
-            standardOutput = outputGobbler.getMessages();
-            outputGobbler.sb.setLength(0);
-            errorOutput = errorGobbler.getMessages();
-            errorGobbler.sb.setLength(0);
-
-        }
-        catch(IllegalArgumentException iae)
-        {
-            //iae.printStackTrace();
-            //System.out.println("Error: " + iae.getMessage());
-            proc.destroy();
-            throw iae;
-        }
-        catch(NullPointerException npe)
-        {
-            //ie.printStackTrace();
-            System.out.println("Error: " + npe.getMessage());
-            proc.destroy();
-            throw npe;
-        }
-        catch(IOException ioe)
-        {
-            //ioe.printStackTrace();
-            //System.err.println("Error: " + ioe.getMessage());
-            proc.destroy();
-            throw ioe;
-        }
-        catch(Exception e)
-        {
-            //e.printStackTrace();
-            //System.err.println("Error: " + e.getMessage());
-            proc.destroy();
-            throw e;
-        }
-        finally
-        {
-            if (proc != null)
-            {
-                proc.getOutputStream().close();
-                proc.getInputStream().close();
-                proc.getErrorStream().close();
-                proc.destroy();
-            }
-        }
+        runProcess(0);
     }
 
 //------------------------------------------------------------------------------
 
     /**
-     * Time in milliseconds that we will wait for the process
-     * to complete before timing out and killing it.
-     * @param fTimeout
+     * Run the process associated with the command, killing it if it does not
+     * complete within the given time. The process is registered in the
+     * {@link ProcessRegistry}, which enforces the time limit and kills the
+     * process if the JVM terminates.
+     * @param fTimeout time in milliseconds that we will wait for the process
+     * to complete before timing out and killing it. Zero or negative values
+     * mean no time limit.
      * @throws Exception 
      */
     
     public void runProcess(long fTimeout) throws Exception
     {
+        ProcessRegistry.Registration reg = null;
         try
         {
             ProcessBuilder pb = new ProcessBuilder("/bin/bash", "-c", cmdStr);
             proc = pb.start();
+            reg = ProcessRegistry.register(proc, id, fTimeout);
 
-            Runtime.getRuntime().addShutdownHook(new Thread()
-            {
-                @Override
-                public void run()
-                {
-                    //System.out.println("Running Shutdown Hook");
-                    proc.destroy();
-                }
-            });
-
-            ProcessWrapper processWrapper = new ProcessWrapper(proc);
-            processWrapper.start();
-
-            try
-            {
-                processWrapper.join(fTimeout);
-
-                // Check for an exit code from the process
-                if (processWrapper.getfExitCode() != null)
-                {
-                    exitCode = processWrapper.getfExitCode();
-                }
-                else
-                {
-                    // Set our exit code to 1
-                    exitCode = 1;
-                    proc.destroy();
-                }
-            }
-            catch (InterruptedException e)
+            // Any error message?
+            StreamPump.Tail errorTail = StreamPump.pump(proc.getErrorStream(),
+                    proc, "ERR", maxOutputSize);
+
+            // Any output?
+            StreamPump.Tail outputTail = StreamPump.pump(proc.getInputStream(),
+                    proc, "OUT", maxOutputSize);
+
+            exitCode = proc.waitFor();
+
+            outputTail.finish();
+            errorTail.finish();
+
+            if (reg.isTimedOut())
             {
-                processWrapper.interrupt();
-                Thread.currentThread().interrupt();
-                proc.getOutputStream().close();
-                proc.getInputStream().close();
-                proc.getErrorStream().close();
-                proc.destroy();
+                // Set our exit code to 1
+                timedOut = true;
+                exitCode = 1;
             }
 
-            standardOutput = "";
-            errorOutput = "";
+            standardOutput = outputTail.getMessages();
+            errorOutput = errorTail.getMessages();
 
         }
         catch(IllegalArgumentException iae)
         {
             //iae.printStackTrace();
             //System.out.println("Error: " + iae.getMessage());
-            proc.destroy();
+            stopProcess();
             throw iae;
         }
         catch(NullPointerException npe)
         {
             //ie.printStackTrace();
             System.out.println("Error: " + npe.getMessage());
-            proc.destroy();
+            stopProcess();
             throw npe;
         }
         catch(IOException ioe)
         {
             //ioe.printStackTrace();
             //System.err.println("Error: " + ioe.getMessage());
-            proc.destroy();
+            stopProcess();
             throw ioe;
         }
         catch(Exception e)
         {
             //e.printStackTrace();
             //System.err.println("Error: " + e.getMessage());
-            proc.destroy();
+            stopProcess();
             throw e;
         }
         finally
         {
+            if (reg != null)
+            {
+                ProcessRegistry.unregister(reg);
+            }
             if (proc != null)
             {
                 proc.getOutputStream().close();
@@ -246,6 +173,17 @@ public class ProcessHandler
         }
     }
 
+//------------------------------------------------------------------------------
+
+    /**
+     * Sets the maximum number of bytes of standard and error output kept in
+     * memory. Only the last part of longer outputs is kept.
+     * @param maxOutputSize the number of bytes
+     */
+    public void setMaxOutputSize(int maxOutputSize)
+    {
+        this.maxOutputSize = maxOutputSize;
+    }
 
 //------------------------------------------------------------------------------
 
@@ -296,6 +234,17 @@ public class ProcessHandler
         return exitCode;
     }
 
+//------------------------------------------------------------------------------
+
+    /**
+     * @return <code>true</code> if the process was killed for exceeding its
+     * time limit
+     */
+    public boolean isTimedOut()
+    {
+        return timedOut;
+    }
+
 //------------------------------------------------------------------------------
 
     public void stopProcess()
@@ -307,7 +256,7 @@ public class ProcessHandler
                 proc.getOutputStream().close();
                 proc.getInputStream().close();
                 proc.getErrorStream().close();
-                proc.destroy();
+                ProcessRegistry.destroyTree(proc);
             }
         }
         catch (IOException ioe)
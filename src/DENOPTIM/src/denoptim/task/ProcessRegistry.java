@@ -0,0 +1,307 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2026 agent <agent@local>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.task;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+import denoptim.logging.DENOPTIMLogger;
+
+/**
+ * Registry of the external processes started by DENOPTIM. A single shutdown
+ * hook kills all the processes that are still alive when the JVM terminates,
+ * and a single reaper thread kills the processes that exceed their
+ * wall-clock time limit. Processes must be registered right after being
+ * started, and unregistered once terminated.
+ *
+ * @author agent
+ */
+
+public class ProcessRegistry
+{
+    /**
+     * The processes currently alive
+     */
+    private static final Map<Registration,Boolean> LIVE =
+            new ConcurrentHashMap<Registration,Boolean>();
+
+    /**
+     * Number of processes that terminated within their time limit
+     */
+    private static final AtomicLong NUMCOMPLETED = new AtomicLong(0);
+
+    /**
+     * Number of processes killed for exceeding their time limit
+     */
+    private static final AtomicLong NUMTIMEDOUT = new AtomicLong(0);
+
+    /**
+     * The thread killing processes that exceeded their time limit
+     */
+    private static ScheduledThreadPoolExecutor reaper = null;
+
+    /**
+     * Flag signalling that the shutdown hook has been installed
+     */
+    private static boolean hookInstalled = false;
+
+//------------------------------------------------------------------------------
+
+    /**
+     * The registration of a live process
+     */
+
+    public static class Registration
+    {
+        private final Process proc;
+        private final String id;
+        private volatile ScheduledFuture<?> timer = null;
+        private volatile boolean timedOut = false;
+
+        private Registration(Process proc, String id)
+        {
+            this.proc = proc;
+            this.id = id;
+        }
+
+        /**
+         * @return <code>true</code> if the process has been killed for
+         * exceeding its time limit
+         */
+        public boolean isTimedOut()
+        {
+            return timedOut;
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Registers a process that has just been started.
+     * @param proc the process
+     * @param id an identifier used in log messages
+     * @param timeout the maximum wall-clock time (milliseconds) given to the
+     * process. Use zero or a negative value for no limit.
+     * @return the registration to be given to
+     * {@link #unregister(Registration)} when the process terminates
+     */
+
+    public static Registration register(Process proc, String id,
+                                                                 long timeout)
+    {
+        installShutdownHook();
+        final Registration reg = new Registration(proc, id);
+        LIVE.put(reg, Boolean.TRUE);
+        if (timeout > 0)
+        {
+            reg.timer = getReaper().schedule(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    reap(reg);
+                }
+            }, timeout, TimeUnit.MILLISECONDS);
+        }
+        return reg;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Unregisters a process that has terminated, or that is going to be
+     * stopped by its owner.
+     * @param reg the registration of the process
+     */
+
+    public static void unregister(Registration reg)
+    {
+        if (LIVE.remove(reg) == null)
+        {
+            // already reaped
+            return;
+        }
+        ScheduledFuture<?> timer = reg.timer;
+        if (timer != null)
+        {
+            timer.cancel(false);
+        }
+        NUMCOMPLETED.incrementAndGet();
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Kills a process that exceeded its time limit, unless it has been
+     * unregistered in the meantime.
+     */
+
+    private static void reap(Registration reg)
+    {
+        if (LIVE.remove(reg) == null)
+        {
+            return;
+        }
+        reg.timedOut = true;
+        NUMTIMEDOUT.incrementAndGet();
+        DENOPTIMLogger.appLogger.log(Level.WARNING, "Killing process {0}: "
+                                           + "time limit exceeded.", reg.id);
+        destroyTree(reg.proc);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Kills a process together with all the processes it started. External
+     * commands are run by a shell, so killing only the shell would leave
+     * running the tools started by the command. Descendants are killed 
+     * first, since they cannot be found once their parent has been killed.
+     * @param proc the process to kill
+     */
+
+    public static void destroyTree(Process proc)
+    {
+        ArrayList<ProcessHandle> descendants = new ArrayList<ProcessHandle>();
+        Iterator<ProcessHandle> it = proc.descendants().iterator();
+        while (it.hasNext())
+        {
+            descendants.add(it.next());
+        }
+        for (ProcessHandle ph : descendants)
+        {
+            ph.destroyForcibly();
+        }
+        proc.destroyForcibly();
+    }
+
+//------------------------------------------------------------------------------
+
+    private static synchronized ScheduledThreadPoolExecutor getReaper()
+    {
+        if (reaper == null)
+        {
+            reaper = new ScheduledThreadPoolExecutor(1, new ThreadFactory()
+            {
+                @Override
+                public Thread newThread(Runnable r)
+                {
+                    Thread t = new Thread(r, "ProcessReaper");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+            reaper.setRemoveOnCancelPolicy(true);
+        }
+        return reaper;
+    }
+
+//------------------------------------------------------------------------------
+
+    private static synchronized void installShutdownHook()
+    {
+        if (hookInstalled)
+        {
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread()
+        {
+            @Override
+            public void run()
+            {
+                destroyAll();
+            }
+        });
+        hookInstalled = true;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Kills all the live processes, and the processes they started.
+     */
+
+    public static void destroyAll()
+    {
+        for (Registration reg : new ArrayList<Registration>(LIVE.keySet()))
+        {
+            if (LIVE.remove(reg) != null)
+            {
+                destroyTree(reg.proc);
+            }
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the number of registered processes that are still alive
+     */
+
+    public static int getNumberOfLiveProcesses()
+    {
+        return LIVE.size();
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the number of processes that terminated within their time
+     * limit
+     */
+
+    public static long getNumberOfCompletedProcesses()
+    {
+        return NUMCOMPLETED.get();
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the number of processes killed for exceeding their time limit
+     */
+
+    public static long getNumberOfTimedOutProcesses()
+    {
+        return NUMTIMEDOUT.get();
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return a summary of the counts of processes
+     */
+
+    public static String getSummary()
+    {
+        return "External processes: " + getNumberOfCompletedProcesses()
+                + " completed, " + getNumberOfTimedOutProcesses()
+                + " timed out, " + getNumberOfLiveProcesses() + " alive.";
+    }
+
+//------------------------------------------------------------------------------
+
+}
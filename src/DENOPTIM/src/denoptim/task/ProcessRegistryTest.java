@@ -0,0 +1,92 @@
+package denoptim.task;
+
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2026 agent <agent@local>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test for the registry of external processes
+ *
+ * @author agent
+ */
+
+public class ProcessRegistryTest
+{
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testTimeoutAndCounts() throws Exception
+    {
+        long completed = ProcessRegistry.getNumberOfCompletedProcesses();
+        long timedOut = ProcessRegistry.getNumberOfTimedOutProcesses();
+
+        ProcessHandler ok = new ProcessHandler("echo done", "ok");
+        ok.runProcess(10000);
+        assertEquals(0, ok.getExitCode(), "Exit code of completed process");
+        assertFalse(ok.isTimedOut());
+        assertTrue(ok.getStandardOutput().contains("done"), "Output");
+
+        long start = System.currentTimeMillis();
+        ProcessHandler slow = new ProcessHandler("sleep 30", "slow");
+        slow.runProcess(200);
+        assertTrue(System.currentTimeMillis() - start < 20000,
+                "Process killed before its end");
+        assertTrue(slow.isTimedOut(), "Timed out process");
+        assertEquals(1, slow.getExitCode(), "Exit code of timed out process");
+
+        assertEquals(completed + 1,
+                ProcessRegistry.getNumberOfCompletedProcesses(), "Completed");
+        assertEquals(timedOut + 1,
+                ProcessRegistry.getNumberOfTimedOutProcesses(), "Timed out");
+        assertEquals(0, ProcessRegistry.getNumberOfLiveProcesses(), "Live");
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testTimeoutKillsChildProcesses() throws Exception
+    {
+        File pidFile = File.createTempFile("_unitProcessRegistry", ".pid");
+        pidFile.deleteOnExit();
+
+        // the child keeps the output of the shell open until it terminates
+        long start = System.currentTimeMillis();
+        ProcessHandler tree = new ProcessHandler("sleep 30 & echo $! > " 
+                + pidFile.getAbsolutePath() + "; wait", "tree");
+        tree.runProcess(500);
+        assertTrue(System.currentTimeMillis() - start < 20000,
+                "Child killed before its end");
+        assertTrue(tree.isTimedOut(), "Timed out process");
+
+        long pid = Long.parseLong(new String(
+                Files.readAllBytes(pidFile.toPath())).trim());
+        ProcessHandle child = ProcessHandle.of(pid).orElse(null);
+        assertTrue(child == null || !child.isAlive(), "Child process alive");
+    }
+
+//------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,112 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2026 agent <agent@local>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.task;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Reference implementation of a persistent fitness worker (see
+ * {@link FitnessWorkerProtocol}). The fitness of a candidate is the number
+ * of atoms found in the counts line of its V2000 molfile. This worker is
+ * meant to test the communication with persistent workers and to serve as
+ * a template for actual fitness providers. Run it with
+ * <pre>
+ * java -cp DENOPTIM.jar denoptim.task.ReferenceFitnessWorker
+ * </pre>
+ *
+ * @author agent
+ */
+
+public class ReferenceFitnessWorker
+{
+
+//------------------------------------------------------------------------------
+
+    public static void main(String[] args) throws IOException
+    {
+        InputStream in = new BufferedInputStream(System.in);
+        OutputStream out = new BufferedOutputStream(System.out);
+        FitnessWorkerProtocol.Frame task;
+        while ((task = FitnessWorkerProtocol.readFrame(in)) != null)
+        {
+            if (!FitnessWorkerProtocol.TASK.equals(task.getType()))
+            {
+                continue;
+            }
+            FitnessWorkerProtocol.Frame reply;
+            try
+            {
+                reply = new FitnessWorkerProtocol.Frame(
+                        FitnessWorkerProtocol.RESULT, task.getId(),
+                        evaluate(task.getPayload()));
+            }
+            catch (IllegalArgumentException e)
+            {
+                reply = new FitnessWorkerProtocol.Frame(
+                        FitnessWorkerProtocol.ERROR, task.getId(),
+                        e.getMessage());
+            }
+            FitnessWorkerProtocol.writeFrame(out, reply);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Adds the <code>FITNESS</code> property to the SDF representation of
+     * a candidate.
+     * @param sdf the SDF representation of the candidate
+     * @return the SDF representation of the evaluated candidate
+     */
+
+    static String evaluate(String sdf)
+    {
+        String[] lines = sdf.split("\r?\n", -1);
+        if (lines.length < 4 || lines[3].length() < 3
+            || !lines[3].contains("V2000"))
+        {
+            throw new IllegalArgumentException("#ReferenceFitnessWorker: "
+                                             + "not a V2000 SDF record.");
+        }
+        int numAtoms;
+        try
+        {
+            numAtoms = Integer.parseInt(lines[3].substring(0, 3).trim());
+        }
+        catch (NumberFormatException e)
+        {
+            throw new IllegalArgumentException("#ReferenceFitnessWorker: "
+                                          + "cannot read number of atoms.");
+        }
+        int end = sdf.lastIndexOf("$$$$");
+        if (end < 0)
+        {
+            end = sdf.length();
+        }
+        return sdf.substring(0, end) + "> <FITNESS>\n" + numAtoms + ".0\n\n"
+                                                                  + "$$$$\n";
+    }
+
+//------------------------------------------------------------------------------
+
+}
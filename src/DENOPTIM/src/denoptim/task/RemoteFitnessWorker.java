@@ -0,0 +1,270 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2026 agent <agent@local>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.task;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import denoptim.exception.DENOPTIMException;
+import denoptim.logging.DENOPTIMLogger;
+
+/**
+ * Worker evaluating candidates served by a {@link FitnessCoordinator},
+ * typically running on another host. Each slot of the worker keeps a TCP
+ * connection with the coordinator and a persistent {@link FitnessWorker}
+ * running the fitness provider on the local host. The slot pulls one task
+ * at a time, gives it to the local fitness worker, renews the lease on the
+ * task until the evaluation is done, and pushes the result back to the
+ * coordinator. The worker terminates when the coordinator closes the
+ * connections. Run it with
+ * <pre>
+ * java -cp DENOPTIM.jar denoptim.task.RemoteFitnessWorker HOST PORT SLOTS CMD
+ * </pre>
+ * where CMD is the command starting a persistent fitness worker (see
+ * {@link FitnessWorkerProtocol}), e.g., <code>bash fitness_worker.sh</code>.
+ * The working directory and the file of unique identifiers given with each
+ * task are pathnames on the host of the coordinator.
+ *
+ * @author agent
+ */
+
+public class RemoteFitnessWorker implements Runnable
+{
+    private final String host;
+    private final int port;
+
+    /**
+     * The command starting the local fitness worker
+     */
+    private final String cmdStr;
+
+    /**
+     * Name of this worker, used by the coordinator in log messages
+     */
+    private final String name;
+
+    /**
+     * The thread renewing the leases
+     */
+    private final ScheduledThreadPoolExecutor beater;
+
+    private OutputStream out = null;
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Constructor
+     * @param host the host of the coordinator
+     * @param port the port of the coordinator
+     * @param cmdStr the command starting the local fitness worker
+     * @param name the name of this worker
+     */
+
+    public RemoteFitnessWorker(String host, int port, String cmdStr,
+                                                                   String name)
+    {
+        this.host = host;
+        this.port = port;
+        this.cmdStr = cmdStr;
+        this.name = name;
+        this.beater = new ScheduledThreadPoolExecutor(1, new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(Runnable r)
+            {
+                Thread t = new Thread(r, "LeaseRenewer");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        this.beater.setRemoveOnCancelPolicy(true);
+    }
+
+//------------------------------------------------------------------------------
+
+    public static void main(String[] args) throws Exception
+    {
+        if (args.length < 4)
+        {
+            System.err.println("Usage: java -cp DENOPTIM.jar "
+                    + "denoptim.task.RemoteFitnessWorker HOST PORT SLOTS CMD");
+            System.exit(1);
+        }
+        String host = args[0];
+        int port = Integer.parseInt(args[1]);
+        int slots = Integer.parseInt(args[2]);
+        StringBuilder cmd = new StringBuilder();
+        for (int i=3; i<args.length; i++)
+        {
+            cmd.append(i > 3 ? " " : "").append(args[i]);
+        }
+
+        String hostName;
+        try
+        {
+            hostName = InetAddress.getLocalHost().getHostName();
+        }
+        catch (IOException ioe)
+        {
+            hostName = "worker";
+        }
+
+        ArrayList<Thread> threads = new ArrayList<Thread>();
+        for (int i=0; i<slots; i++)
+        {
+            Thread t = new Thread(new RemoteFitnessWorker(host, port,
+                    cmd.toString(), hostName + "-" + i), "Slot-" + i);
+            threads.add(t);
+            t.start();
+        }
+        for (Thread t : threads)
+        {
+            t.join();
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Serves the coordinator until it closes the connection.
+     */
+
+    @Override
+    public void run()
+    {
+        FitnessWorker local = new FitnessWorker(cmdStr, name);
+        Socket socket = null;
+        try
+        {
+            socket = new Socket(host, port);
+            socket.setTcpNoDelay(true);
+            socket.setKeepAlive(true);
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            out = new BufferedOutputStream(socket.getOutputStream());
+            while (true)
+            {
+                send(new FitnessWorkerProtocol.Frame(
+                        FitnessWorkerProtocol.PULL, name, ""));
+                FitnessWorkerProtocol.Frame task =
+                        FitnessWorkerProtocol.readFrame(in);
+                if (task == null)
+                {
+                    break;
+                }
+                if (!FitnessWorkerProtocol.TASK.equals(task.getType())
+                    || task.getArguments().length < 3)
+                {
+                    continue;
+                }
+                send(evaluate(local, task));
+            }
+        }
+        catch (IOException ioe)
+        {
+            DENOPTIMLogger.appLogger.log(Level.WARNING, "Connection of "
+                    + name + " with " + host + ":" + port + " failed.", ioe);
+        }
+        finally
+        {
+            local.stop();
+            beater.shutdownNow();
+            if (socket != null)
+            {
+                try
+                {
+                    socket.close();
+                }
+                catch (IOException ioe)
+                {
+                    // nothing to do
+                }
+            }
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Evaluates a task with the local fitness worker while renewing the
+     * lease on the task.
+     * @return the frame with the result for the coordinator
+     */
+
+    private FitnessWorkerProtocol.Frame evaluate(FitnessWorker local,
+                                      final FitnessWorkerProtocol.Frame task)
+    {
+        String[] args = task.getArguments();
+        long period = Math.max(10, Long.parseLong(args[2]) / 3);
+        long timeout = args.length > 3 ? Long.parseLong(args[3]) : 0;
+        ScheduledFuture<?> beat = beater.scheduleAtFixedRate(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    send(new FitnessWorkerProtocol.Frame(
+                            FitnessWorkerProtocol.BEAT, task.getId(), ""));
+                }
+                catch (IOException ioe)
+                {
+                    // the main loop will notice
+                }
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+        try
+        {
+            String sdf = local.evaluate(task.getId(), task.getPayload(),
+                                                  args[0], args[1], timeout);
+            return new FitnessWorkerProtocol.Frame(
+                    FitnessWorkerProtocol.RESULT, task.getId(), sdf);
+        }
+        catch (DENOPTIMException de)
+        {
+            return new FitnessWorkerProtocol.Frame(
+                    FitnessWorkerProtocol.ERROR, task.getId(), de.getMessage());
+        }
+        finally
+        {
+            beat.cancel(false);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    private synchronized void send(FitnessWorkerProtocol.Frame frame)
+                                                            throws IOException
+    {
+        FitnessWorkerProtocol.writeFrame(out, frame);
+    }
+
+//------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,297 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2026 agent <agent@local>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.task;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Consumes the standard output and error of external processes. For any
+ * process, these streams must be read even if the data is not used,
+ * otherwise the process blocks when the pipe buffer is full (see
+ * http://www.javaworld.com/javaworld/jw-12-2000/jw-1229-traps.html?page=4).
+ * Instead of having two threads per process, a single daemon thread polls
+ * all the streams of all the processes and reads the data that is available
+ * without blocking. Only the last part of each stream is kept in memory,
+ * in a {@link Tail}, for reporting errors.
+ *
+ * @author agent
+ */
+
+class StreamPump
+{
+    /**
+     * Default maximum number of bytes kept for each stream
+     */
+    static final int DEFAULTTAILSIZE = 32 * 1024;
+
+    /**
+     * Time (milliseconds) the pumping thread sleeps when no data is available
+     */
+    private static final long IDLETIME = 5;
+
+    /**
+     * The streams being consumed
+     */
+    private static final CopyOnWriteArrayList<Tail> TAILS =
+            new CopyOnWriteArrayList<Tail>();
+
+    /**
+     * The thread consuming the streams
+     */
+    private static Thread pumper = null;
+
+//------------------------------------------------------------------------------
+
+    /**
+     * The last part of the data read from a stream, kept in a ring buffer
+     */
+
+    static class Tail
+    {
+        private final InputStream is;
+        private final Process proc;
+        private final String type;
+        private final byte[] ring;
+        private int next = 0;
+        private long total = 0;
+        private boolean finished = false;
+
+        private Tail(InputStream is, Process proc, String type, int size)
+        {
+            this.is = is;
+            this.proc = proc;
+            this.type = type;
+            this.ring = new byte[size];
+        }
+
+        /**
+         * Reads the data available without blocking.
+         * @param buf the buffer to use for reading
+         * @return the number of bytes read, or -1 if this stream cannot
+         * provide any more data
+         */
+        private synchronized int pump(byte[] buf)
+        {
+            if (finished)
+            {
+                return -1;
+            }
+            try
+            {
+                int n = is.available();
+                if (n <= 0)
+                {
+                    return isTerminated() ? -1 : 0;
+                }
+                n = is.read(buf, 0, Math.min(n, buf.length));
+                if (n < 0)
+                {
+                    return -1;
+                }
+                append(buf, n);
+                return n;
+            }
+            catch (IOException ioe)
+            {
+                // the stream has been closed
+                return -1;
+            }
+        }
+
+        private boolean isTerminated()
+        {
+            if (proc == null)
+            {
+                return false;
+            }
+            try
+            {
+                proc.exitValue();
+                return true;
+            }
+            catch (IllegalThreadStateException e)
+            {
+                return false;
+            }
+        }
+
+        private void append(byte[] buf, int n)
+        {
+            int off = 0;
+            if (n > ring.length)
+            {
+                off = n - ring.length;
+            }
+            for (int i=off; i<n; i++)
+            {
+                ring[next] = buf[i];
+                next = (next + 1) % ring.length;
+            }
+            total = total + n;
+        }
+
+        /**
+         * Reads whatever is left in the stream and stops consuming it. To be
+         * called once the process has terminated.
+         */
+        void finish()
+        {
+            TAILS.remove(this);
+            byte[] buf = new byte[8192];
+            while (pump(buf) > 0)
+            {
+                // keep reading
+            }
+            synchronized (this)
+            {
+                finished = true;
+            }
+        }
+
+        /**
+         * @return the last part of the data read from the stream, with each
+         * line prefixed by the type of stream
+         */
+        synchronized String getMessages()
+        {
+            byte[] data;
+            boolean truncated = total > ring.length;
+            if (truncated)
+            {
+                data = new byte[ring.length];
+                System.arraycopy(ring, next, data, 0, ring.length - next);
+                System.arraycopy(ring, 0, data, ring.length - next, next);
+            }
+            else
+            {
+                data = new byte[next];
+                System.arraycopy(ring, 0, data, 0, next);
+            }
+            String s = new String(data);
+            StringBuilder sb = new StringBuilder();
+            if (truncated)
+            {
+                // the first line is likely incomplete
+                int nl = s.indexOf('\n');
+                s = nl < 0 ? "" : s.substring(nl + 1);
+                sb.append(type).append("> [... first ")
+                    .append(total - s.length()).append(" bytes not kept]\n");
+            }
+            if (!s.isEmpty())
+            {
+                for (String line : s.split("\n"))
+                {
+                    if (line.endsWith("\r"))
+                    {
+                        line = line.substring(0, line.length() - 1);
+                    }
+                    sb.append(type).append("> ").append(line).append("\n");
+                }
+            }
+            return sb.toString();
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Starts consuming a stream of a process.
+     * @param is the stream to consume
+     * @param proc the process producing the stream, or <code>null</code>
+     * @param type the label of the stream, used to prefix lines
+     * @param size the maximum number of bytes to keep
+     * @return the tail of the stream
+     */
+
+    static Tail pump(InputStream is, Process proc, String type, int size)
+    {
+        Tail tail = new Tail(is, proc, type, size);
+        startPumper();
+        synchronized (TAILS)
+        {
+            TAILS.add(tail);
+            TAILS.notifyAll();
+        }
+        return tail;
+    }
+
+//------------------------------------------------------------------------------
+
+    private static synchronized void startPumper()
+    {
+        if (pumper != null)
+        {
+            return;
+        }
+        pumper = new Thread("ProcessStreamPump")
+        {
+            @Override
+            public void run()
+            {
+                byte[] buf = new byte[8192];
+                while (true)
+                {
+                    boolean idle = true;
+                    for (Tail tail : TAILS)
+                    {
+                        int n = tail.pump(buf);
+                        if (n < 0)
+                        {
+                            TAILS.remove(tail);
+                        }
+                        else if (n > 0)
+                        {
+                            idle = false;
+                        }
+                    }
+                    if (!idle)
+                    {
+                        continue;
+                    }
+                    try
+                    {
+                        synchronized (TAILS)
+                        {
+                            if (TAILS.isEmpty())
+                            {
+                                // nothing to do until a stream is added
+                                TAILS.wait();
+                            }
+                            else
+                            {
+                                TAILS.wait(IDLETIME);
+                            }
+                        }
+                    }
+                    catch (InterruptedException ie)
+                    {
+                        // daemon thread: keep going
+                    }
+                }
+            }
+        };
+        pumper.setDaemon(true);
+        pumper.start();
+    }
+
+//------------------------------------------------------------------------------
+
+}
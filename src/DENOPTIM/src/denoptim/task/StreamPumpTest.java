@@ -0,0 +1,56 @@
+package denoptim.task;
+
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2026 agent <agent@local>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test for the consumption of the output of external processes
+ *
+ * @author agent
+ */
+
+public class StreamPumpTest
+{
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testTailOfLongOutput() throws Exception
+    {
+        ProcessHandler ph = new ProcessHandler(
+                "seq 1 200000; echo 'last words' 1>&2", "long");
+        ph.setMaxOutputSize(1024);
+        ph.runProcess();
+        assertEquals(0, ph.getExitCode(), "Exit code");
+
+        String out = ph.getStandardOutput();
+        assertTrue(out.length() < 2048, "Only the tail is kept");
+        assertTrue(out.endsWith("OUT> 200000\n"), "Last line of output");
+        assertFalse(out.contains("OUT> 1\n"), "First line is not kept");
+        assertEquals("ERR> last words\n", ph.getErrorOutput(), "Error");
+    }
+
+//------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,201 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2026 agent <agent@local>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.utils;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Probabilistic set of strings. A negative answer from
+ * {@link #mightContain(String)} is always correct, while a positive answer
+ * is wrong with a probability that depends on the number of entries and on
+ * the size of the filter. This class is not thread-safe.
+ *
+ * @author agent
+ */
+
+public class BloomFilter
+{
+    /**
+     * The bits of the filter
+     */
+    private final long[] bits;
+
+    /**
+     * Number of bits
+     */
+    private final long numBits;
+
+    /**
+     * Number of bits set for each entry
+     */
+    private final int numHashes;
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Constructor
+     * @param expectedEntries the number of entries the filter is sized for
+     * @param fpp the wanted probability of false positives when the
+     * filter contains the expected number of entries
+     */
+
+    public BloomFilter(int expectedEntries, double fpp)
+    {
+        int n = Math.max(1, expectedEntries);
+        long m = (long) Math.ceil(-n * Math.log(fpp)
+                                              / (Math.log(2) * Math.log(2)));
+        int nWords = (int) Math.max(1, (m + 63) / 64);
+        this.bits = new long[nWords];
+        this.numBits = nWords * 64L;
+        this.numHashes = Math.max(1,
+                           (int) Math.round((double) numBits / n * Math.log(2)));
+    }
+
+//------------------------------------------------------------------------------
+
+    private BloomFilter(long[] bits, int numHashes)
+    {
+        this.bits = bits;
+        this.numBits = bits.length * 64L;
+        this.numHashes = numHashes;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Adds an entry to this filter
+     * @param s the entry
+     */
+
+    public void add(String s)
+    {
+        long h1 = hash(s);
+        long h2 = mix(h1) | 1L;
+        for (int i=0; i<numHashes; i++)
+        {
+            long bit = ((h1 + i * h2) & Long.MAX_VALUE) % numBits;
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @param s the entry to look for
+     * @return <code>false</code> if the entry has never been added to this
+     * filter, or <code>true</code> if it might have been added.
+     */
+
+    public boolean mightContain(String s)
+    {
+        long h1 = hash(s);
+        long h2 = mix(h1) | 1L;
+        for (int i=0; i<numHashes; i++)
+        {
+            long bit = ((h1 + i * h2) & Long.MAX_VALUE) % numBits;
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Writes this filter to a stream
+     * @param out the stream
+     * @throws IOException
+     */
+
+    public void write(DataOutputStream out) throws IOException
+    {
+        out.writeInt(numHashes);
+        out.writeInt(bits.length);
+        for (long word : bits)
+        {
+            out.writeLong(word);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Reads a filter written by {@link #write(DataOutputStream)}
+     * @param in the stream
+     * @return the filter
+     * @throws IOException
+     */
+
+    public static BloomFilter read(DataInputStream in) throws IOException
+    {
+        int numHashes = in.readInt();
+        int nWords = in.readInt();
+        if (numHashes < 1 || nWords < 1)
+        {
+            throw new IOException("Corrupted bloom filter");
+        }
+        long[] bits = new long[nWords];
+        for (int i=0; i<nWords; i++)
+        {
+            bits[i] = in.readLong();
+        }
+        return new BloomFilter(bits, numHashes);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * 64-bit FNV-1a hash of the UTF-8 encoding of a string
+     */
+
+    private static long hash(String s)
+    {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : s.getBytes(StandardCharsets.UTF_8))
+        {
+            h ^= (b & 0xff);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Finalization step of MurmurHash3, used to derive a second hash
+     */
+
+    private static long mix(long h)
+    {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+//------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,232 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2026 agent <agent@local>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.utils;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import denoptim.molecule.DENOPTIMGraph;
+
+/**
+ * Thread-safe set of graphs identified by their canonical form
+ * (see {@link DENOPTIMGraph#getCanonicalForm()}). Canonical forms are
+ * grouped by canonical hash, and are compared only in case of hash
+ * collision. No reference to the graphs is kept, so graphs can be
+ * modified after having been added. The index can be bounded, in which case
+ * the graphs added first are forgotten when the maximum size is exceeded.
+ *
+ * @author agent
+ */
+
+public class CanonicalGraphIndex
+{
+    /**
+     * Canonical forms grouped by canonical hash
+     */
+    private final ConcurrentHashMap<Long,ArrayList<String>> buckets =
+            new ConcurrentHashMap<Long,ArrayList<String>>();
+
+    /**
+     * Number of graphs in this index
+     */
+    private final AtomicInteger size = new AtomicInteger(0);
+
+    /**
+     * Maximum number of graphs, or a non-positive number for no limit
+     */
+    private final int maxSize;
+
+    /**
+     * Canonical forms in the order they were added. Used only if the index
+     * is bounded.
+     */
+    private final ConcurrentLinkedQueue<String> order = 
+            new ConcurrentLinkedQueue<String>();
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Constructor of an index without limit of size
+     */
+
+    public CanonicalGraphIndex()
+    {
+        this(0);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Constructor of a bounded index
+     * @param maxSize the maximum number of graphs. When this number is 
+     * exceeded the graphs added first are removed. Use a non-positive number
+     * for an index without limit.
+     */
+
+    public CanonicalGraphIndex(int maxSize)
+    {
+        this.maxSize = maxSize;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Adds a graph to this index unless an equivalent graph is already
+     * present.
+     * @param graph the graph to add
+     * @return <code>true</code> if the graph has been added, or
+     * <code>false</code> if an equivalent graph was already present.
+     */
+
+    public boolean add(DENOPTIMGraph graph)
+    {
+        return add(graph.getCanonicalForm());
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Adds a canonical form to this index, unless already present.
+     * @param canonicalForm the canonical form of a graph
+     * @return <code>true</code> if the canonical form has been added
+     */
+
+    public boolean add(String canonicalForm)
+    {
+        Long hash = DENOPTIMGraph.getCanonicalHash(canonicalForm);
+        ArrayList<String> bucket = buckets.get(hash);
+        if (bucket == null)
+        {
+            ArrayList<String> newBucket = new ArrayList<String>(1);
+            bucket = buckets.putIfAbsent(hash, newBucket);
+            if (bucket == null)
+            {
+                bucket = newBucket;
+            }
+        }
+        synchronized (bucket)
+        {
+            if (bucket.contains(canonicalForm))
+            {
+                return false;
+            }
+            bucket.add(canonicalForm);
+        }
+        size.incrementAndGet();
+        if (maxSize > 0)
+        {
+            order.add(canonicalForm);
+            while (size.get() > maxSize)
+            {
+                String oldest = order.poll();
+                if (oldest == null)
+                {
+                    break;
+                }
+                remove(oldest);
+            }
+        }
+        return true;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Removes a canonical form from this index
+     */
+
+    private void remove(String canonicalForm)
+    {
+        ArrayList<String> bucket = buckets.get(
+                DENOPTIMGraph.getCanonicalHash(canonicalForm));
+        if (bucket == null)
+        {
+            return;
+        }
+        synchronized (bucket)
+        {
+            if (bucket.remove(canonicalForm))
+            {
+                size.decrementAndGet();
+            }
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @param graph the graph to look for
+     * @return <code>true</code> if an equivalent graph is in this index
+     */
+
+    public boolean contains(DENOPTIMGraph graph)
+    {
+        return contains(graph.getCanonicalForm());
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @param canonicalForm the canonical form of a graph
+     * @return <code>true</code> if the canonical form is in this index
+     */
+
+    public boolean contains(String canonicalForm)
+    {
+        ArrayList<String> bucket = buckets.get(
+                DENOPTIMGraph.getCanonicalHash(canonicalForm));
+        if (bucket == null)
+        {
+            return false;
+        }
+        synchronized (bucket)
+        {
+            return bucket.contains(canonicalForm);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the number of graphs in this index
+     */
+
+    public int size()
+    {
+        return size.get();
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Removes all graphs from this index
+     */
+
+    public void clear()
+    {
+        buckets.clear();
+        order.clear();
+        size.set(0);
+    }
+
+//------------------------------------------------------------------------------
+
+}
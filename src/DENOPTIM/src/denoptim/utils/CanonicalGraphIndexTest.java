@@ -0,0 +1,79 @@
+package denoptim.utils;
+
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2026 agent <agent@local>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test for CanonicalGraphIndex
+ *
+ * @author agent
+ */
+
+public class CanonicalGraphIndexTest
+{
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testUnboundedIndex() throws Exception
+    {
+        CanonicalGraphIndex index = new CanonicalGraphIndex();
+        for (int i=0; i<100; i++)
+        {
+            assertTrue(index.add("form" + i));
+        }
+        assertFalse(index.add("form0"), "Duplicate form");
+        assertEquals(100, index.size());
+        assertTrue(index.contains("form0"));
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testOldestFormsAreForgotten() throws Exception
+    {
+        CanonicalGraphIndex index = new CanonicalGraphIndex(3);
+        assertTrue(index.add("a"));
+        assertTrue(index.add("b"));
+        assertTrue(index.add("c"));
+        assertFalse(index.add("a"), "Duplicate form");
+
+        assertTrue(index.add("d"));
+        assertEquals(3, index.size());
+        assertFalse(index.contains("a"), "Oldest form");
+        assertTrue(index.contains("b"));
+        assertTrue(index.contains("d"));
+
+        assertTrue(index.add("a"), "Forgotten form");
+        assertFalse(index.contains("b"));
+        assertEquals(3, index.size());
+
+        index.clear();
+        assertEquals(0, index.size());
+        assertTrue(index.add("b"));
+    }
+
+//------------------------------------------------------------------------------
+
+}
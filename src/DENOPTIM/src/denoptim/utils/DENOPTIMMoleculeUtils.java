@@ -107,12 +107,46 @@ import denoptim.molecule.DENOPTIMVertex;
  */
 public class DENOPTIMMoleculeUtils
 {
-    private static final StructureDiagramGenerator SDG = new StructureDiagramGenerator();
-    private static final SmilesParser SMPARSER =
-                    new SmilesParser(DefaultChemObjectBuilder.getInstance());
-    private static final SmilesGenerator SMGEN = new SmilesGenerator(true);
-    private static final DummyAtomHandler DATMHDLR = new DummyAtomHandler(
-					      DENOPTIMConstants.DUMMYATMSYMBOL);
+    // NB: CDK helpers keep state between calls (e.g., the ring finder of the
+    // SMILES generator), and molecules are converted by concurrent threads, 
+    // so each thread has its own helpers.
+    private static final ThreadLocal<StructureDiagramGenerator> SDG =
+                                   new ThreadLocal<StructureDiagramGenerator>()
+    {
+        @Override
+        protected StructureDiagramGenerator initialValue()
+        {
+            return new StructureDiagramGenerator();
+        }
+    };
+    private static final ThreadLocal<SmilesParser> SMPARSER =
+                                                new ThreadLocal<SmilesParser>()
+    {
+        @Override
+        protected SmilesParser initialValue()
+        {
+            return new SmilesParser(DefaultChemObjectBuilder.getInstance());
+        }
+    };
+    private static final ThreadLocal<SmilesGenerator> SMGEN =
+                                             new ThreadLocal<SmilesGenerator>()
+    {
+        @Override
+        protected SmilesGenerator initialValue()
+        {
+            return new SmilesGenerator(true);
+        }
+    };
+    private static final Object INCHILOCK = new Object();
+    private static final ThreadLocal<DummyAtomHandler> DATMHDLR =
+                                            new ThreadLocal<DummyAtomHandler>()
+    {
+        @Override
+        protected DummyAtomHandler initialValue()
+        {
+            return new DummyAtomHandler(DENOPTIMConstants.DUMMYATMSYMBOL);
+        }
+    };
 
 //------------------------------------------------------------------------------
 
@@ -148,7 +182,7 @@ public class DENOPTIMMoleculeUtils
         IAtomContainer mol = null;
         try
         {
-            mol = SMPARSER.parseSmiles(smiles);
+            mol = SMPARSER.get().parseSmiles(smiles);
         }
         catch (InvalidSmilesException ise)
         {
@@ -291,8 +325,7 @@ public class DENOPTIMMoleculeUtils
         }
 
         // remove Dummy atoms
-        if (DATMHDLR != null)
-            fmol = DATMHDLR.removeDummyInHapto(fmol);
+        fmol = DATMHDLR.get().removeDummyInHapto(fmol);
 
         // convert PseudoAtoms to H
         removeRCA(fmol);
@@ -302,8 +335,9 @@ public class DENOPTIMMoleculeUtils
         {
             AllRingsFinder arf = new AllRingsFinder();
             arf.findAllRings(fmol);
-            SMGEN.setRingFinder(arf);
-            smiles = SMGEN.createSMILES(fmol);
+            SmilesGenerator smGen = SMGEN.get();
+            smGen.setRingFinder(arf);
+            smiles = smGen.createSMILES(fmol);
         }
         catch (CDKException cdke)
         {
@@ -375,8 +409,7 @@ public class DENOPTIMMoleculeUtils
         }
 
         // remove Dummy atoms before generating the inchi
-        if (DATMHDLR != null)
-            fmol = DATMHDLR.removeDummyInHapto(fmol);
+        fmol = DATMHDLR.get().removeDummyInHapto(fmol);
 
         // remove PseudoAtoms
         removeRCA(fmol);
@@ -385,27 +418,25 @@ public class DENOPTIMMoleculeUtils
         IAtomContainer ac2d = new AtomContainer();
         IMoleculeSet som = ConnectivityChecker.partitionIntoMolecules(fmol);
 
-        SDG.setUseTemplates(true);
+        StructureDiagramGenerator sdg = SDG.get();
+        sdg.setUseTemplates(true);
 
         for (int n = 0; n < som.getMoleculeCount(); n++)
         {
-            synchronized (SDG)
+            IMolecule mol = som.getMolecule(n);
+            sdg.setMolecule(mol, true);
+            try
             {
-                IMolecule mol = som.getMolecule(n);
-                SDG.setMolecule(mol, true);
-                try
-                {
-                    // Generate 2D coordinates for this molecule.
-                    SDG.generateCoordinates();
-                    mol = SDG.getMolecule();
-                }
-                catch (Exception e)
-                {
-                    throw new DENOPTIMException(e);
-                }
-
-                ac2d.add(mol);  // add 2D molecule.
+                // Generate 2D coordinates for this molecule.
+                sdg.generateCoordinates();
+                mol = sdg.getMolecule();
             }
+            catch (Exception e)
+            {
+                throw new DENOPTIMException(e);
+            }
+
+            ac2d.add(mol);  // add 2D molecule.
         }
 
         return GeometryTools.has2DCoordinates(ac2d) ? ac2d : null;
@@ -435,8 +466,7 @@ public class DENOPTIMMoleculeUtils
         }
 
         // remove Dummy atoms before generating the inchi
-        if (DATMHDLR != null)
-            fmol = DATMHDLR.removeDummyInHapto(fmol);
+        fmol = DATMHDLR.get().removeDummyInHapto(fmol);
 
         // remove PseudoAtoms
         removeRCA(fmol);
@@ -452,7 +482,12 @@ public class DENOPTIMMoleculeUtils
         {
             InChIGeneratorFactory factory = InChIGeneratorFactory.getInstance();
             // Get InChIGenerator, this is a non-standard inchi
-            InChIGenerator gen = factory.getInChIGenerator(fmol, "AuxNone RecMet SUU");
+            // NB: the native InChI library must not be used concurrently
+            InChIGenerator gen;
+            synchronized (INCHILOCK)
+            {
+                gen = factory.getInChIGenerator(fmol, "AuxNone RecMet SUU");
+            }
             INCHI_RET ret = gen.getReturnStatus();
             if (ret == INCHI_RET.WARNING)
             {
@@ -109,7 +109,7 @@ public class FragmentUtils
     public static  ArrayList<DENOPTIMAttachmentPoint> getAPForFragment(int idx ,
                                              int ftype) throws DENOPTIMException
     {
-        IAtomContainer mol = FragmentSpace.getFragment(ftype,idx);
+        IAtomContainer mol = FragmentSpace.getFragmentView(ftype,idx);
         ArrayList<DENOPTIMAttachmentPoint> lstAP = new ArrayList<>();
 		try
 		{
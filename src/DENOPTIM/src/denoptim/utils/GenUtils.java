@@ -133,7 +133,18 @@ public class GenUtils
         
         System.out.println(sb.toString());
     }
-        
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the amount of heap memory currently in use (bytes)
+     */
+
+    public static long getUsedMemory()
+    {
+        return RUNTIME.totalMemory() - RUNTIME.freeMemory();
+    }
+
 //------------------------------------------------------------------------------
 
     public static double roundValue(double d, int n)
@@ -336,7 +336,8 @@ public class GraphConversionTool
 
             if (useMolInfo)
             {
-                IAtomContainer mol = FragmentSpace.getFragment(fragtype,molid);
+                IAtomContainer mol = FragmentSpace.getFragmentView(fragtype,
+                                                                         molid);
                 ArrayList<SymmetricSet> simAP = 
                                         FragmentUtils.getMatchingAP(mol, lstAP);
                 dv.setSymmetricAP(simAP);
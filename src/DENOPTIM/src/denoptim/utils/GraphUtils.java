@@ -34,9 +34,9 @@ import org.openscience.cdk.interfaces.IAtom;
 
 import denoptim.constants.DENOPTIMConstants;
 import denoptim.exception.DENOPTIMException;
+import denoptim.fragspace.FragmentDescriptors;
 import denoptim.fragspace.FragmentSpace;
 import denoptim.fragspace.FragmentSpaceParameters;
-import denoptim.io.DenoptimIO;
 import denoptim.logging.DENOPTIMLogger;
 import denoptim.molecule.DENOPTIMAttachmentPoint;
 import denoptim.molecule.DENOPTIMEdge;
@@ -62,6 +62,17 @@ public class GraphUtils
     private static AtomicInteger vertexCounter = new AtomicInteger(1);
     private static AtomicInteger graphCounter = new AtomicInteger(1);
     private static AtomicInteger molCounter = new AtomicInteger(1);
+    private static AtomicInteger preFilterRejections = new AtomicInteger(0);
+    private static final MolecularRepresentationCache molReprCache =
+            new MolecularRepresentationCache(
+                    MolecularRepresentationCache.DEFAULTMAXSIZE);
+
+    /**
+     * Block of vertex IDs bound to the current thread, if any, as the next
+     * ID to give and the first ID beyond the block
+     */
+    private static final ThreadLocal<int[]> THREADVERTEXIDS =
+            new ThreadLocal<int[]>();
 
     private static boolean debug = false;
 
@@ -94,13 +105,69 @@ public class GraphUtils
 //-----------------------------------------------------------------------------
 
     /**
-     * Unique counter for the number of graph vertices generated.
+     * Unique counter for the number of graph vertices generated. If a block
+     * of IDs is bound to the current thread 
+     * (see {@link #bindVertexIndexes(int, int)}), IDs are taken from the 
+     * block until it is exhausted.
      * @return the new vertex id (number)
      */
 
-    public static synchronized int getUniqueVertexIndex()
+    public static int getUniqueVertexIndex()
     {
-        return vertexCounter.getAndIncrement();
+        int[] block = THREADVERTEXIDS.get();
+        if (block != null && block[0] < block[1])
+        {
+            return block[0]++;
+        }
+        synchronized (GraphUtils.class)
+        {
+            return vertexCounter.getAndIncrement();
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Reserves a block of consecutive vertex IDs that will not be given by
+     * {@link #getUniqueVertexIndex()} unless the block, or part of it, is
+     * bound to a thread.
+     * @param num the number of IDs to reserve
+     * @return the first ID of the block
+     */
+
+    public static synchronized int reserveVertexIndexes(int num)
+    {
+        return vertexCounter.getAndAdd(num);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Makes {@link #getUniqueVertexIndex()} give the IDs of a block 
+     * previously reserved with {@link #reserveVertexIndexes(int)} when
+     * called by the current thread, until {@link #unbindVertexIndexes()} is 
+     * called. Work units that bind a block identified by the index of the 
+     * unit give the same vertex IDs no matter which thread executes them.
+     * Once the block is exhausted, IDs are taken from the shared counter.
+     * @param first the first ID of the block
+     * @param num the number of IDs in the block
+     */
+
+    public static void bindVertexIndexes(int first, int num)
+    {
+        THREADVERTEXIDS.set(new int[] {first, first + num});
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Makes the current thread go back to take vertex IDs from the shared 
+     * counter.
+     */
+
+    public static void unbindVertexIndexes()
+    {
+        THREADVERTEXIDS.remove();
     }
 
 //------------------------------------------------------------------------------
@@ -370,14 +437,10 @@ public class GraphUtils
     public static int getParentVertex(DENOPTIMGraph g, int vid)
     {
         int pvid = -1;
-        for (int j=0; j<g.getEdgeCount(); j++)
+        DENOPTIMEdge edge = g.getEdgeWithParent(vid);
+        if (edge != null)
         {
-            DENOPTIMEdge edge = g.getEdgeAtPosition(j);
-            if (edge.getTargetVertex() == vid)
-            {
-                pvid = edge.getSourceVertex();
-                break;
-            }
+            pvid = edge.getSourceVertex();
         }
 
         return pvid;
@@ -397,12 +460,10 @@ public class GraphUtils
     public static int removeEdgeWithChild(DENOPTIMGraph g, int vid, int cvid)
     {
         int pvid = -1;
-        int eid = -1;
-        for (int j=0; j<g.getEdgeCount(); j++)
+        DENOPTIMEdge edgeToDel = null;
+        for (DENOPTIMEdge edge : g.getEdgesWithChild(vid))
         {
-            DENOPTIMEdge edge = g.getEdgeAtPosition(j);
-
-            if (edge.getSourceVertex() == vid && edge.getTargetVertex() == cvid)
+            if (edge.getTargetVertex() == cvid)
             {
                 int bndOrder = edge.getBondType();
 
@@ -420,16 +481,16 @@ public class GraphUtils
                 apB.updateAPConnections(bndOrder);
 
                 pvid = vid;
-                eid = j;
+                edgeToDel = edge;
 
                 break;
             }
         }
 
         // remove associated edge
-        if (eid != -1)
+        if (edgeToDel != null)
         {
-            g.removeEdge(g.getEdgeList().get(eid));
+            g.removeEdge(edgeToDel);
         }
 
         return pvid;
@@ -661,6 +722,7 @@ public class GraphUtils
                 ss.getList().set(i,nmap.get(ss.getList().get(i)));
             }
         }
+        molGraph.invalidateIndexes();
     }
 
 //------------------------------------------------------------------------------
@@ -732,6 +794,7 @@ public class GraphUtils
                 ss.getList().set(i,nmap.get(ss.getList().get(i)));
             }
         }
+        molGraph.invalidateIndexes();
     
         return nmap;    
     }
@@ -1021,6 +1084,210 @@ public class GraphUtils
         return molCounter.getAndIncrement();
     }
 
+//------------------------------------------------------------------------------
+
+    /**
+     * Checks the constraints on molecular size that can be evaluated from the
+     * descriptors of the fragments, i.e., without building the molecular
+     * representation of the graph. This includes the number of heavy atoms,
+     * the molecular weight, the number of ring closing attractors (RCAs), and,
+     * for acyclic graphs, the number of rotatable bonds. 
+     * Since the molecular representation built by 
+     * {@link GraphConversionTool#convertGraphToMolecule(DENOPTIMGraph,boolean)}
+     * contains all the atoms of all the fragments, atom counts and molecular 
+     * weight are additive. Instead, the number of rotatable bonds
+     * in the fragments is only a lower bound for that in the molecule, and 
+     * only for acyclic graphs with no triple bond between fragments. 
+     * Thus, any graph rejected by this method would also be rejected by 
+     * {@link #evaluateGraph(DENOPTIMGraph)}.
+     * @param molGraph the graph to check
+     * @return <code>true</code> if no constraint is violated
+     * @throws DENOPTIMException
+     */
+
+    public static boolean checkGraphSizeConstraints(DENOPTIMGraph molGraph)
+                                                        throws DENOPTIMException
+    {
+        int maxHeavyAtoms = FragmentSpaceParameters.getMaxHeavyAtom();
+        double maxMW = FragmentSpaceParameters.getMaxMW();
+        int maxRotBnd = FragmentSpaceParameters.getMaxRotatableBond();
+        boolean checkRCAs = RingClosureParameters.allowRingClosures();
+
+        int nHeavyAtoms = 0;
+        double mw = 0.0;
+        int nRotBnd = 0;
+        boolean useRotBnd = maxRotBnd > 0 && molGraph.getRings().isEmpty();
+        HashMap<String,Integer> rcaCounts = new HashMap<String,Integer>();
+        for (DENOPTIMVertex v : molGraph.getVertexList())
+        {
+            FragmentDescriptors desc = FragmentSpace.getFragmentDescriptors(
+                                          v.getFragmentType(), v.getMolId());
+            nHeavyAtoms = nHeavyAtoms + desc.getHeavyAtomCount();
+            mw = mw + desc.getMolecularWeight();
+            if (desc.getRotatableBondCount() < 0)
+            {
+                useRotBnd = false;
+            }
+            nRotBnd = nRotBnd + desc.getRotatableBondCount();
+            if (checkRCAs)
+            {
+                for (String rcaTyp : DENOPTIMConstants.RCATYPEMAP.keySet())
+                {
+                    int n = desc.getRCACount(rcaTyp);
+                    if (n > 0)
+                    {
+                        if (rcaCounts.containsKey(rcaTyp))
+                        {
+                            n = n + rcaCounts.get(rcaTyp);
+                        }
+                        rcaCounts.put(rcaTyp, n);
+                    }
+                }
+            }
+        }
+
+        String msg = "";
+        if (maxHeavyAtoms > 0 && nHeavyAtoms > maxHeavyAtoms)
+        {
+            msg = "Max atoms constraint violated: " + nHeavyAtoms;
+        }
+        else if (maxMW > 0 && !Double.isNaN(mw) 
+            && mw > maxMW + DENOPTIMConstants.FLOATCOMPARISONTOLERANCE)
+        {
+            msg = "Molecular weight constraint violated: " + mw;
+        }
+        else if (useRotBnd && nRotBnd > maxRotBnd 
+                 && !hasTripleBondEdge(molGraph))
+        {
+            msg = "Max rotatable bonds constraint violated: " + nRotBnd;
+        }
+        else if (checkRCAs)
+        {
+            int nPossRings = 0;
+            Set<String> doneType = new HashSet<>();
+            Map<String,String> rcaTypes = DENOPTIMConstants.RCATYPEMAP;
+            for (String rcaTyp : rcaTypes.keySet())
+            {
+                if (doneType.contains(rcaTyp))
+                {
+                    continue;
+                }
+                int nThisType = rcaCounts.containsKey(rcaTyp) ? 
+                                                  rcaCounts.get(rcaTyp) : 0;
+                int nCompType = rcaCounts.containsKey(rcaTypes.get(rcaTyp)) ?
+                                     rcaCounts.get(rcaTypes.get(rcaTyp)) : 0;
+                if (rcaTyp.equals(rcaTypes.get(rcaTyp)))
+                {
+                    // NB: the molecule-based check counts these only once
+                    nCompType = 0;
+                }
+                if (nThisType > RingClosureParameters.getMaxRcaPerType() ||
+                         nCompType > RingClosureParameters.getMaxRcaPerType())
+                {
+                    msg = "too many RCAs! " + rcaTyp + ":" + nThisType + " "
+                          + rcaTypes.get(rcaTyp) + ":" + nCompType;
+                    break;
+                }
+                if (nThisType < RingClosureParameters.getMinRcaPerType() ||
+                         nCompType < RingClosureParameters.getMinRcaPerType())
+                {
+                    msg = "too few RCAs! " + rcaTyp + ":" + nThisType + " "
+                          + rcaTypes.get(rcaTyp) + ":" + nCompType;
+                    break;
+                }
+                nPossRings = nPossRings + Math.min(nThisType, nCompType);
+                doneType.add(rcaTyp);
+                doneType.add(rcaTypes.get(rcaTyp));
+            }
+            if (msg.equals("") 
+                && nPossRings < RingClosureParameters.getMinRingClosures())
+            {
+                msg = "too few ring candidates";
+            }
+        }
+
+        if (!msg.equals(""))
+        {
+            preFilterRejections.incrementAndGet();
+            msg = "Evaluation of graph (pre-filter): " + msg;
+            DENOPTIMLogger.appLogger.log(Level.INFO, msg);
+            return false;
+        }
+        return true;
+    }
+
+//------------------------------------------------------------------------------
+
+    private static boolean hasTripleBondEdge(DENOPTIMGraph molGraph)
+    {
+        for (DENOPTIMEdge e : molGraph.getEdgeList())
+        {
+            if (e.getBondType() > 2)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the number of graphs rejected by 
+     * {@link #checkGraphSizeConstraints(DENOPTIMGraph)} since the beginning
+     * of this run.
+     */
+
+    public static int getPreFilterRejectionCount()
+    {
+        return preFilterRejections.get();
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the cache of molecular representations shared by all the
+     * evaluations of graphs performed in this JVM by the genetic algorithm.
+     * The combinatorial explorer does not use it, as it never builds the 
+     * same graph twice.
+     */
+
+    public static MolecularRepresentationCache getMolecularRepresentationCache()
+    {
+        return molReprCache;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Returns the SMILES and InChI key of the molecule of a graph where 
+     * rings have been closed, i.e., ring closing attractors have been 
+     * replaced by bonds. Results calculated for equivalent graphs are reused.
+     * Molecular weight and number of rotatable bonds are not calculated.
+     * @param mol the molecule with closed rings
+     * @param molGraph the graph the molecule was built from
+     * @return the representations of the molecule. InChI or SMILES are 
+     * <code>null</code> if they could not be generated.
+     * @throws DENOPTIMException
+     */
+
+    public static MolecularRepresentationCache.Entry 
+                getRepresentationWithClosedRings(IAtomContainer mol, 
+                         DENOPTIMGraph molGraph) throws DENOPTIMException
+    {
+        String cacheKey = MolecularRepresentationCache.getKey(molGraph, true);
+        MolecularRepresentationCache.Entry repr = molReprCache.get(cacheKey);
+        if (repr == null)
+        {
+            String smiles = DENOPTIMMoleculeUtils.getSMILESForMolecule(mol);
+            ObjectPair pr = DENOPTIMMoleculeUtils.getInchiForMolecule(mol);
+            repr = new MolecularRepresentationCache.Entry(
+                        (String) pr.getFirst(), smiles, Double.NaN, -1);
+            molReprCache.put(cacheKey, repr);
+        }
+        return repr;
+    }
+
 //------------------------------------------------------------------------------
 
     /**
@@ -1053,6 +1320,12 @@ public class GraphUtils
             return null;
         }
 
+        // check constraints that do not need the molecular representation
+        if (!checkGraphSizeConstraints(molGraph))
+        {
+            return null;
+        }
+
         // calculate the molecule representation        
         IAtomContainer mol = GraphConversionTool.convertGraphToMolecule(molGraph, true);
         if (mol == null)
@@ -1365,8 +1638,7 @@ public class GraphUtils
         for (Set<DENOPTIMRing> ringSet : allCombsOfRings)
         {
             // clone root graph
-            DENOPTIMGraph newGraph = (DENOPTIMGraph) DenoptimIO.deepCopy(
-                                                                      molGraph);
+            DENOPTIMGraph newGraph = molGraph.deepCopy();
             HashMap<Integer,Integer> vRenum = renumberVerticesGetMap(newGraph);
             newGraph.setGraphId(getUniqueGraphIndex());
 
@@ -1559,15 +1831,15 @@ System.out.println("DB: Found " + clbChains.size() + " for vertex " + scaf);
 //------------------------------------------------------------------------------    
 
     /**
-     * Compare two DENOPTIMGraphs. It returns true only if the two graphs, 
-     * which can be either equal or different spanning trees, project the same 
-     * arrangement of connected verteces. Note that the connections
-     * may be DENOPTIMEdges or cyclic bonds that result only from the 
-     * definition of DENOPTIMRings.
-     * TODO: this first implementation is to be further tested and get mature.
+     * Compare two DENOPTIMGraphs. It returns true only if the two graphs,
+     * which can differ by vertex IDs and order of vertexes and edges,
+     * represent the same graph (see
+     * {@link DENOPTIMGraph#sameAs(DENOPTIMGraph, StringBuilder)}).
+     * The canonical hashes of the graphs are compared first, so that the
+     * pairwise comparison is performed only when the hashes are equal.
      * @param gA the first graph
      * @param gB the second graph
-     * @return <code>true</code> if the two graphs define the same arrangement 
+     * @return <code>true</code> if the two graphs define the same arrangement
      * of verteces and connections.
      * @throws denoptim.exception.DENOPTIMException
      */
@@ -1575,8 +1847,6 @@ System.out.println("DB: Found " + clbChains.size() + " for vertex " + scaf);
      public static boolean equivalentGraphs(DENOPTIMGraph gA, DENOPTIMGraph gB)
                                                         throws DENOPTIMException
      {
-        boolean result = false;
-
         // fast comparison of number of verteces and rings
         if ((gA.getRingCount() != gB.getRingCount()) ||
             (gA.getVertexCount() != gB.getVertexCount()))
@@ -1584,404 +1854,13 @@ System.out.println("DB: Found " + clbChains.size() + " for vertex " + scaf);
             return false;
         }
 
-//TODO del
-System.out.println("Comparing these two graphs: ");
-System.out.println(gA);
-System.out.println(" ");
-System.out.println(gB);
-GenUtils.pause();
-
-        ArrayList<Integer> visitedA = new ArrayList<Integer>();
-        ArrayList<Integer> visitedB = new ArrayList<Integer>();
-        result = exploreGraphs(gA, gB, 0, 0, -1, -1, visitedA, visitedB, 
-                                                                false, false);
-
-//TODO del
-System.out.println("End og equivalentGraphs: "+result);
-System.out.println("VisitedA: "+visitedA);
-System.out.println("VisitedB: "+visitedB);
-GenUtils.pause();
-
-        return result;
-     }
-
-//------------------------------------------------------------------------------
-
-    /**
-     * This method evaluates equality of two given verteces each belonging to
-     * a given graph. If verteces are found to be equal the method moves
-     * (recursively) to one of the neighbour verteces connected by edge or
-     * by cyclic bond (that is, DENOPTIMRing).
-     * @param gA the first graph (A)
-     * @param gB the second graph (B)
-     * @param cvA index current vertex on graph A
-     * @param cvB index current vertex on graph B
-     * @param ceA index corrent edge on A
-     * @param ceB index corrent edge on B
-     * @param visitedA the list of visited IDs on A
-     * @param visitedB the list of visited IDs on B
-     * @param backwardA true if the direction of the exploration on A is
-     * towards the scaffold
-     * @param backwardB true if the direction of the exploration on B is
-     * towards the scaffold
-     * @return <code>true</code> if the current pair of verteces and the whole
-     * branches starting from them, descibe the same arrangement of verteces.
-     */
-
-     private static boolean exploreGraphs(DENOPTIMGraph gA, 
-                                   DENOPTIMGraph gB,
-                                   int cvA,
-                                   int cvB,
-                                   int ceA,
-                                   int ceB,
-                                   ArrayList<Integer> visitedA,
-                                   ArrayList<Integer> visitedB,
-                                   boolean backwardA,
-                                   boolean backwardB)
-                                                throws DENOPTIMException        
-    {
-        boolean areEqual = false;
-
-//TODO del
-System.out.println("Beginning of 'exploreGraphs'------------------------");
-
-        DENOPTIMVertex vA = gA.getVertexAtPosition(cvA);
-        DENOPTIMVertex vB = gB.getVertexAtPosition(cvB);
-
-//TODO del
-System.out.println("VA: "+vA+" vB: "+vB);
-System.out.println("VisitedA: "+visitedA);
-System.out.println("VisitedB: "+visitedB);
-System.out.println("backwardA: "+backwardA);
-System.out.println("backwardB: "+backwardB);
-
-        ArrayList<Integer> addedToVisitedA = new ArrayList<Integer>();
-        ArrayList<Integer> addedToVisitedB = new ArrayList<Integer>();
-
-        // Check vA as ring closing attractor (RCA) vertex
-        ArrayList<DENOPTIMRing> ringsOnVA = new ArrayList<DENOPTIMRing>();
-        for (DENOPTIMRing r : gA.getRings())
-        {
-            if (vA == r.getHeadVertex() || vA == r.getTailVertex())
-            {
-                ringsOnVA.add(r);
-            }
-        }
-        if (ringsOnVA.size() > 1)
-        {
-            throw new DENOPTIMException("Unecpected vertex being head/tail of "
-                                        + "more than one DENOPTIMRing. Check "
-                                        + "graph: " + gA);
-        }
-        // Check vB as ring closing attractor (RCA) vertex
-        ArrayList<DENOPTIMRing> ringsOnVB = new ArrayList<>();
-        for (DENOPTIMRing r : gB.getRings())
-        {
-            if (vB == r.getHeadVertex() || vB == r.getTailVertex())
-            {
-                ringsOnVB.add(r);
-            }
-        }
-        if (ringsOnVB.size() > 1)
-        {
-            throw new DENOPTIMException("Unecpected vertex being head/tail of "
-                                        + "more than one DENOPTIMRing. Check "
-                                        + "graph: " + gB);
-        }
-
-        // In case of RCA vertex move to the next non-RCA vertex in the ring
-        int apVAToBack = -1;
-        boolean nextDirOnA = backwardA;
-        if (ringsOnVA.size() == 1)
-        {
-            DENOPTIMRing r = ringsOnVA.get(0);
-//TODO del
-System.out.println("vA is head/tail of ring "+vA+" "+r);
-            if (vA == r.getHeadVertex())
-            {
-                visitedA.add(vA.getVertexId());
-                addedToVisitedA.add(vA.getVertexId());
-                visitedA.add(r.getTailVertex().getVertexId());
-                addedToVisitedA.add(r.getTailVertex().getVertexId());
-                vA = r.getVertexAtPosition(r.getSize() - 2);
-                ceA = gA.getIndexOfEdgeWithParent(vA.getVertexId());
-                apVAToBack = gA.getEdgeAtPosition(ceA).getTargetDAP();
-            }
-            else if (vA == r.getTailVertex())
-            {
-                visitedA.add(vA.getVertexId());
-                addedToVisitedA.add(vA.getVertexId());
-                visitedA.add(r.getHeadVertex().getVertexId());
-                addedToVisitedA.add(r.getHeadVertex().getVertexId());
-                vA = r.getVertexAtPosition(1);
-                ceA = gA.getIndexOfEdgeWithParent(
-                                        r.getHeadVertex().getVertexId());
-                apVAToBack = gA.getEdgeAtPosition(ceA).getSourceDAP();
-            }
-            nextDirOnA = true;
-//TODO del
-System.out.println("vA: "+vA);
-System.out.println("edge used: "+gA.getEdgeAtPosition(ceA));
-System.out.println("nextDirOnA: "+nextDirOnA);
-System.out.println("apVAToBack: "+apVAToBack);
-
-        }
-        else
-        {
-            if (ceA >= 0)
-            {
-                if (backwardA)
-                {
-                    apVAToBack = gA.getEdgeAtPosition(ceA).getSourceDAP();
-                }
-                else
-                {
-                    apVAToBack = gA.getEdgeAtPosition(ceA).getTargetDAP();
-                }
-            }
-        }
-        // In case of RCA vertex move to the next non-RCA vertex in the ring
-        int apVBToBack = -1;
-        boolean nextDirOnB = backwardB;
-        if (ringsOnVB.size() == 1)
-        {
-            DENOPTIMRing r = ringsOnVB.get(0);
-//TODO del
-System.out.println("vB is head/tail of ring "+vB+" "+r);
-            if (vB == r.getHeadVertex())
-            {
-                visitedB.add(vB.getVertexId());
-                addedToVisitedB.add(vB.getVertexId());
-                visitedB.add(r.getTailVertex().getVertexId());
-                addedToVisitedB.add(r.getTailVertex().getVertexId());
-                vB = r.getVertexAtPosition(r.getSize() - 2);
-                ceB = gB.getIndexOfEdgeWithParent(vB.getVertexId());
-                apVBToBack = gB.getEdgeAtPosition(ceB).getTargetDAP();
-            }
-            else if (vB == r.getTailVertex())
-            {
-                visitedB.add(vB.getVertexId());
-                addedToVisitedB.add(vB.getVertexId());
-                visitedB.add(r.getHeadVertex().getVertexId());
-                addedToVisitedB.add(r.getHeadVertex().getVertexId());
-                vB = r.getVertexAtPosition(1);
-                ceB = gB.getIndexOfEdgeWithParent(
-                                        r.getHeadVertex().getVertexId());
-                apVBToBack = gB.getEdgeAtPosition(ceB).getSourceDAP();
-            }
-            nextDirOnB = true;
-//TODO del
-System.out.println("vB: "+vB);
-System.out.println("edge used: "+gB.getEdgeAtPosition(ceB));
-System.out.println("nextDirOnB: "+nextDirOnB);
-System.out.println("apVBToBack: "+apVBToBack);
-        }
-        else
-        {
-            if (ceB >= 0)
-            {
-                if (backwardB)
-                {
-                    apVBToBack = gB.getEdgeAtPosition(ceB).getSourceDAP();
-                }
-                else
-                {
-                    apVBToBack = gB.getEdgeAtPosition(ceB).getTargetDAP();
-                }
-            }
-        }
-
-        // check if already visited
-        if (visitedA.contains(vA.getVertexId()) && 
-            visitedB.contains(vB.getVertexId()))
-        {
-//TODO del
-System.out.println("returning true-1: "+visitedA.contains(vA.getVertexId())+" "+visitedB.contains(vB.getVertexId()));
-            return true;
-        }
-        else if ((visitedA.contains(vA.getVertexId()) &&
-                   !visitedB.contains(vB.getVertexId())) ||
-                 (!visitedA.contains(vA.getVertexId()) &&
-                   visitedB.contains(vB.getVertexId())))
+        if (gA.getCanonicalHash() != gB.getCanonicalHash())
         {
-//TODO del
-System.out.println("returning false-1: "+visitedA.contains(vA.getVertexId())+" "+visitedB.contains(vB.getVertexId()));
             return false;
         }
 
-        // add to list of visited
-        visitedA.add(vA.getVertexId());
-        addedToVisitedA.add(vA.getVertexId());
-        visitedB.add(vB.getVertexId());
-        addedToVisitedB.add(vB.getVertexId());
-
-        // Compare the current fragments
-//TODO del
-System.out.println("Comparing type:  "+vA.getFragmentType()+" "+vB.getFragmentType());
-System.out.println("Comparing molID: "+vA.getMolId()+" "+vB.getMolId());
-System.out.println("Comparing apID:  "+apVAToBack+" "+apVBToBack);
-        boolean sameFragTyp = (vA.getFragmentType() == vB.getFragmentType());
-        boolean sameGrafID = (vA.getMolId() == vB.getMolId());
-        boolean sameAPtoHere = false;
-        if (apVAToBack<0 && apVBToBack<0)
-        {
-            // There is no edge before the scaffold
-            sameAPtoHere = true;
-        }
-        else
-        {
-            sameAPtoHere = (apVAToBack == apVBToBack);
-        }
-
-        if (sameFragTyp && sameGrafID && sameAPtoHere)
-        {
-//TODO del
-System.out.println("SAME");
-            // move to next level
-            boolean inner = true;
-            for (int nextAp=0; nextAp<vA.getAttachmentPoints().size(); nextAp++)
-            {
-                if (nextAp == apVAToBack)
-                {
-                    continue;
-                }
-
-                int nextVrtxAID = -1;
-                int nextVrtxBID = -1;
-                int nextEdgeAID = -1;
-                int nextEdgeBID = -1;
-
-                boolean branchAIsOver = true;
-                boolean branchBIsOver = true;
-
-                if (nextDirOnA)
-                {
-                    nextEdgeAID = gA.getIndexOfEdgeWithParent(vA.getVertexId());
-                    DENOPTIMEdge e = gA.getEdgeAtPosition(nextEdgeAID);
-                    nextVrtxAID = gA.getIndexOfVertex(e.getSourceVertex());
-                    int nextVrtxAVrtxID = gA.getVertexAtPosition(nextVrtxAID).getVertexId();
-                    if (visitedA.contains(nextVrtxAVrtxID))
-                    {
-                        nextDirOnA = false;
-                    }
-                    else
-                    {
-                        branchAIsOver = false;
-//TODO del
-System.out.println("Edge-A1: "+e);
-                    }
-
-                }
-                if (!nextDirOnA)
-                {
-                    for (int ie=0; ie<gA.getEdgeCount(); ie++)
-                    {
-                        DENOPTIMEdge e = gA.getEdgeAtPosition(ie);
-                        if (e.getSourceVertex() == vA.getVertexId() &&
-                            e.getSourceDAP() == nextAp)
-                        {
-                            nextEdgeAID = ie;
-                            nextVrtxAID =  gA.getIndexOfVertex(
-                                                        e.getTargetVertex());
-//TODO del
-System.out.println("Edge-A2: "+e);
-                            branchAIsOver = false;
-                            break;
-                        }
-                    }
-                }
-
-                if (nextDirOnB)
-                {
-                    nextEdgeBID = gB.getIndexOfEdgeWithParent(vB.getVertexId());
-                    DENOPTIMEdge e = gB.getEdgeAtPosition(nextEdgeBID);
-                    nextVrtxBID = gB.getIndexOfVertex(e.getSourceVertex());
-                    int nextVrtxBVrtxID = gB.getVertexAtPosition(nextVrtxBID).getVertexId();
-                    if (visitedB.contains(nextVrtxBVrtxID))
-                    {
-                        nextDirOnB = false;
-                    }
-                    else
-                    {
-                        branchBIsOver = false;
-//TODO del
-System.out.println("Edge-B1: "+e);
-                    }
-                }
-                if (!nextDirOnB)
-                {
-                    for (int ie=0; ie<gB.getEdgeCount(); ie++)
-                    {
-                        DENOPTIMEdge e = gB.getEdgeAtPosition(ie);
-                        if (e.getSourceVertex() == vB.getVertexId() &&
-                            e.getSourceDAP() == nextAp)
-                        {
-                            nextEdgeBID = ie;
-                            nextVrtxBID = gB.getIndexOfVertex(
-                                                        e.getTargetVertex());
-//TODO del
-System.out.println("Edge-B2: "+e);
-                            branchBIsOver = false;
-                            break;
-                        }
-                    }
-                }
-
-                if (branchAIsOver && branchBIsOver)
-                {
-//TODO del
-System.out.println("Branches are over");
-                    return true;
-                }
-                else if ((branchAIsOver && !branchBIsOver) ||
-                         (!branchAIsOver && branchBIsOver))
-                {
-//TODO del
-System.out.println("Only one branch is over");
-                    return false;
-                }
-
-//TODO del
-System.out.println("Next AP: "+nextAp+" of vertx. "+vA);
-System.out.println("nextVrtxAID: "+nextVrtxAID+" "+nextEdgeAID);
-System.out.println("nextVrtxBID: "+nextVrtxBID+" "+nextEdgeBID);
-
-                inner = exploreGraphs(gA, gB, 
-                                      nextVrtxAID, nextVrtxBID,
-                                      nextEdgeAID, nextEdgeBID,
-                                      visitedA, visitedB,
-                                      nextDirOnA, nextDirOnB);
-
-                if (!inner)
-                {
-                    break;
-                }                
-            }
-            if (inner)
-            {
-                areEqual = true;
-            }
-        }
-        else
-        {
-//TODO del
-System.out.println("DIFFERENT");
-        }
-
-        if (!areEqual)
-        {
-            // Reset flag of visited
-            visitedA.removeAll(addedToVisitedA);
-            visitedB.removeAll(addedToVisitedB);
-        }
-
-
-//TODO del
-System.out.println("End of 'exploreGraphs': "+areEqual+"----------------------------");
-
-        
-        return areEqual;
-    }
+        return gA.sameAs(gB, new StringBuilder());
+     }
 
 //------------------------------------------------------------------------------
     
@@ -2308,7 +2187,7 @@ if(debug)
                                                     throws DENOPTIMException
     {
         // Clone and renumber the subgraph to ensure uniqueness
-        DENOPTIMGraph sgClone = (DENOPTIMGraph) DenoptimIO.deepCopy(subGraph);
+        DENOPTIMGraph sgClone = subGraph.deepCopy();
         GraphUtils.renumberGraphVertices(sgClone);
 
         // Make the connection between molGraph and subGraph
@@ -2810,7 +2689,7 @@ if(debug)
 	    }
 	}
 
-        DENOPTIMGraph modGraph = (DENOPTIMGraph) DenoptimIO.deepCopy(graph);
+        DENOPTIMGraph modGraph = graph.deepCopy();
         for (DENOPTIMGraphEdit edit : edits)
         {
             String task = edit.getType();
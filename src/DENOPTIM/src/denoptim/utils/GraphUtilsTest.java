@@ -0,0 +1,344 @@
+package denoptim.utils;
+
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2026 agent <agent@local>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import javax.vecmath.Point3d;
+
+import org.junit.jupiter.api.Test;
+import org.openscience.cdk.Atom;
+import org.openscience.cdk.AtomContainer;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.silent.Bond;
+
+import denoptim.constants.DENOPTIMConstants;
+import denoptim.exception.DENOPTIMException;
+import denoptim.fragspace.FragmentDescriptors;
+import denoptim.fragspace.FragmentSpace;
+import denoptim.fragspace.FragmentSpaceParameters;
+import denoptim.molecule.DENOPTIMEdge;
+import denoptim.molecule.DENOPTIMFragment;
+import denoptim.molecule.DENOPTIMGraph;
+import denoptim.molecule.DENOPTIMRing;
+import denoptim.molecule.DENOPTIMVertex;
+import denoptim.rings.RingClosureParameters;
+
+/**
+ * Unit test for the checks of graphs performed by GraphUtils
+ *
+ * @author agent
+ */
+
+public class GraphUtilsTest
+{
+    private final String APCS = "apc-S"
+                                + DENOPTIMConstants.SEPARATORAPPROPSCL + "0";
+    private final String APC1 = "apc-1"
+                                + DENOPTIMConstants.SEPARATORAPPROPSCL + "0";
+
+    /**
+     * Index of the chain of five carbon atoms in the fragment library
+     */
+    private static final int CHAIN = 0;
+
+    /**
+     * Index of the ring closing attractors in the fragment library
+     */
+    private static final int ATP = 1;
+    private static final int ATM = 2;
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Defines a fragment space with a one-carbon scaffold with two
+     * attachment points, and fragments with one attachment point each: a
+     * chain of five carbon atoms and two ring closing attractors.
+     */
+
+    private void buildFragmentSpace() throws DENOPTIMException
+    {
+        ArrayList<IAtomContainer> scaffLib = new ArrayList<IAtomContainer>();
+        DENOPTIMFragment scaff = new DENOPTIMFragment();
+        Atom c = new Atom("C", new Point3d(new double[]{0.0, 0.0, 0.0}));
+        c.setImplicitHydrogenCount(2);
+        scaff.addAtom(c);
+        scaff.addAP(0, APCS, new Point3d(new double[]{-1.0, 0.0, 0.0}));
+        scaff.addAP(0, APCS, new Point3d(new double[]{1.0, 0.0, 0.0}));
+        scaffLib.add(new AtomContainer(scaff));
+
+        ArrayList<IAtomContainer> fragLib = new ArrayList<IAtomContainer>();
+        DENOPTIMFragment chain = new DENOPTIMFragment();
+        Atom prev = null;
+        for (int i=0; i<5; i++)
+        {
+            Atom a = new Atom("C", new Point3d(new double[]{1.5*i, 0.0, 0.0}));
+            a.setImplicitHydrogenCount(i == 4 ? 3 : 2);
+            chain.addAtom(a);
+            if (prev != null)
+            {
+                chain.addBond(new Bond(prev, a));
+            }
+            prev = a;
+        }
+        chain.addAP(0, APC1, new Point3d(new double[]{-1.0, 0.0, 0.0}));
+        fragLib.add(new AtomContainer(chain));
+        for (String rcaTyp : new String[]{"ATP", "ATM"})
+        {
+            DENOPTIMFragment rca = new DENOPTIMFragment();
+            Atom a = new Atom(rcaTyp, new Point3d(new double[]{0.0, 0.0, 0.0}));
+            a.setImplicitHydrogenCount(0);
+            rca.addAtom(a);
+            rca.addAP(0, APC1, new Point3d(new double[]{-1.0, 0.0, 0.0}));
+            fragLib.add(new AtomContainer(rca));
+        }
+
+        ArrayList<IAtomContainer> cappLib = new ArrayList<IAtomContainer>();
+
+        HashMap<String,ArrayList<String>> cpMap =
+                                     new HashMap<String,ArrayList<String>>();
+        ArrayList<String> compatible = new ArrayList<String>();
+        compatible.add(APC1);
+        cpMap.put(APCS, compatible);
+
+        HashMap<String,Integer> boMap = new HashMap<String,Integer>();
+        boMap.put(APCS,1);
+        boMap.put(APC1,1);
+
+        HashMap<String,String> capMap = new HashMap<String,String>();
+        HashSet<String> ends = new HashSet<String>();
+        HashMap<String,ArrayList<String>> rcCpMap =
+                                     new HashMap<String,ArrayList<String>>();
+
+        FragmentSpace.defineFragmentSpace(scaffLib,fragLib,cappLib,cpMap,boMap,
+                                                       capMap,ends,rcCpMap);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return a graph with the scaffold holding the two given fragments
+     */
+
+    private DENOPTIMGraph makeGraph(int frag1, int frag2)
+                                                       throws DENOPTIMException
+    {
+        DENOPTIMGraph g = new DENOPTIMGraph();
+        g.addVertex(new DENOPTIMVertex(0, 0,
+                                  FragmentUtils.getAPForFragment(0, 0), 0));
+        int[] frags = new int[]{frag1, frag2};
+        for (int i=0; i<frags.length; i++)
+        {
+            g.addVertex(new DENOPTIMVertex(i+1, frags[i],
+                            FragmentUtils.getAPForFragment(frags[i], 1), 1));
+            g.addEdge(new DENOPTIMEdge(0, i+1, i, 0, 1));
+        }
+        return g;
+    }
+
+//------------------------------------------------------------------------------
+
+    private static FragmentDescriptors getDescriptors(DENOPTIMVertex v)
+                                                       throws DENOPTIMException
+    {
+        return FragmentSpace.getFragmentDescriptors(v.getFragmentType(),
+                                                    v.getMolId());
+    }
+
+//------------------------------------------------------------------------------
+
+    private static void setLimits(int maxHeavyAtoms, double maxMW,
+                          int maxRotBonds) throws DENOPTIMException
+    {
+        FragmentSpaceParameters.interpretKeyword("FS-MAXHEAVYATOM=",
+                                               String.valueOf(maxHeavyAtoms));
+        FragmentSpaceParameters.interpretKeyword("FS-MAXMW=",
+                                               String.valueOf(maxMW));
+        FragmentSpaceParameters.interpretKeyword("FS-MAXROTATABLEBOND=",
+                                               String.valueOf(maxRotBonds));
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testPreFilterRejectsFromVertexData() throws Exception
+    {
+        buildFragmentSpace();
+        int oldMaxHeavyAtoms = FragmentSpaceParameters.getMaxHeavyAtom();
+        double oldMaxMW = FragmentSpaceParameters.getMaxMW();
+        int oldMaxRotBonds = FragmentSpaceParameters.getMaxRotatableBond();
+        int oldMinRCAs = RingClosureParameters.getMinRcaPerType();
+        int oldMaxRCAs = RingClosureParameters.getMaxRcaPerType();
+        try
+        {
+            DENOPTIMGraph g = makeGraph(CHAIN, CHAIN);
+            int nHeavyAtoms = 0;
+            double mw = 0.0;
+            for (DENOPTIMVertex v : g.getVertexList())
+            {
+                nHeavyAtoms = nHeavyAtoms
+                                      + getDescriptors(v).getHeavyAtomCount();
+                mw = mw + getDescriptors(v).getMolecularWeight();
+            }
+            assertEquals(11, nHeavyAtoms, "Heavy atoms from descriptors");
+            assertFalse(Double.isNaN(mw), "Molecular weight from descriptors");
+
+            int rejections = GraphUtils.getPreFilterRejectionCount();
+            setLimits(nHeavyAtoms, mw + 1.0, 0);
+            assertTrue(GraphUtils.checkGraphSizeConstraints(g), "In limits");
+
+            setLimits(nHeavyAtoms - 1, mw + 1.0, 0);
+            assertFalse(GraphUtils.checkGraphSizeConstraints(g), "Heavy atoms");
+
+            setLimits(nHeavyAtoms, mw - 1.0, 0);
+            assertFalse(GraphUtils.checkGraphSizeConstraints(g), "MW");
+            assertEquals(rejections + 2,
+                       GraphUtils.getPreFilterRejectionCount(), "Rejections");
+
+            // ring closing attractors
+            DENOPTIMGraph gRca = makeGraph(ATP, ATM);
+            setLimits(0, 0.0, 0);
+            RingClosureParameters.interpretKeyword("RC-CLOSERINGS", "");
+            RingClosureParameters.interpretKeyword(
+                                           "RC-MAXRCAPERTYPEPERGRAPH=", "1");
+            assertTrue(GraphUtils.checkGraphSizeConstraints(gRca), "One RCA");
+            assertFalse(GraphUtils.checkGraphSizeConstraints(
+                        makeGraph(ATP, ATP)), "Too many RCAs");
+            // the minimum applies to every type of RCA
+            RingClosureParameters.interpretKeyword(
+                                           "RC-MINRCAPERTYPEPERGRAPH=", "1");
+            assertFalse(GraphUtils.checkGraphSizeConstraints(g), "No RCA");
+            assertFalse(GraphUtils.checkGraphSizeConstraints(gRca), "No ATN");
+        }
+        finally
+        {
+            setLimits(oldMaxHeavyAtoms, oldMaxMW, oldMaxRotBonds);
+            RingClosureParameters.interpretKeyword(
+                    "RC-MINRCAPERTYPEPERGRAPH=", String.valueOf(oldMinRCAs));
+            RingClosureParameters.interpretKeyword(
+                    "RC-MAXRCAPERTYPEPERGRAPH=", String.valueOf(oldMaxRCAs));
+            FragmentSpace.clearAll();
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testPreFilterAgreesWithEvaluateGraph() throws Exception
+    {
+        buildFragmentSpace();
+        int oldMaxHeavyAtoms = FragmentSpaceParameters.getMaxHeavyAtom();
+        double oldMaxMW = FragmentSpaceParameters.getMaxMW();
+        int oldMaxRotBonds = FragmentSpaceParameters.getMaxRotatableBond();
+        try
+        {
+            DENOPTIMGraph g = makeGraph(CHAIN, CHAIN);
+            IAtomContainer mol =
+                        GraphConversionTool.convertGraphToMolecule(g, true);
+            int nHeavyAtoms = DENOPTIMMoleculeUtils.getHeavyAtomCount(mol);
+            double mw = DENOPTIMMoleculeUtils.getMolecularWeight(mol);
+
+            // limits met exactly by the molecule
+            setLimits(nHeavyAtoms, mw, 0);
+            assertTrue(GraphUtils.checkGraphSizeConstraints(g), "Pre-filter");
+            Object[] res = GraphUtils.evaluateGraph(g);
+            assertNotNull(res, "Evaluation of accepted graph");
+            IAtomContainer resMol = (IAtomContainer) res[2];
+            assertEquals(nHeavyAtoms,
+                           DENOPTIMMoleculeUtils.getHeavyAtomCount(resMol));
+
+            // limits violated by the molecule
+            setLimits(nHeavyAtoms - 1, 0.0, 0);
+            assertFalse(GraphUtils.checkGraphSizeConstraints(g), "Heavy atoms");
+            assertNull(GraphUtils.evaluateGraph(g), "Heavy atoms");
+            setLimits(0, mw - 1.0, 0);
+            assertFalse(GraphUtils.checkGraphSizeConstraints(g), "MW");
+            assertNull(GraphUtils.evaluateGraph(g), "MW");
+        }
+        finally
+        {
+            setLimits(oldMaxHeavyAtoms, oldMaxMW, oldMaxRotBonds);
+            FragmentSpace.clearAll();
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testRotatableBondsBoundOnlyForAcyclicGraphs() throws Exception
+    {
+        buildFragmentSpace();
+        int oldMaxHeavyAtoms = FragmentSpaceParameters.getMaxHeavyAtom();
+        double oldMaxMW = FragmentSpaceParameters.getMaxMW();
+        int oldMaxRotBonds = FragmentSpaceParameters.getMaxRotatableBond();
+        try
+        {
+            DENOPTIMGraph g = makeGraph(CHAIN, CHAIN);
+            int nRotBonds = 0;
+            for (DENOPTIMVertex v : g.getVertexList())
+            {
+                nRotBonds = nRotBonds 
+                                   + getDescriptors(v).getRotatableBondCount();
+            }
+            assertTrue(nRotBonds > 0, "Rotatable bonds from descriptors");
+
+            setLimits(0, 0.0, nRotBonds);
+            assertTrue(GraphUtils.checkGraphSizeConstraints(g), "Within limit");
+            setLimits(0, 0.0, nRotBonds - 1);
+            assertFalse(GraphUtils.checkGraphSizeConstraints(g), "Acyclic");
+
+            // the bound does not hold for graphs with rings
+            DENOPTIMGraph gRing = makeGraph(CHAIN, CHAIN);
+            ArrayList<DENOPTIMVertex> ringVertices =
+                                              new ArrayList<DENOPTIMVertex>();
+            ringVertices.add(gRing.getVertexWithId(1));
+            ringVertices.add(gRing.getVertexWithId(0));
+            ringVertices.add(gRing.getVertexWithId(2));
+            gRing.addRing(new DENOPTIMRing(ringVertices));
+            assertTrue(GraphUtils.checkGraphSizeConstraints(gRing), "Ring");
+
+            // nor for graphs with triple bonds between fragments
+            DENOPTIMGraph gTriple = new DENOPTIMGraph();
+            for (DENOPTIMVertex v : g.getVertexList())
+            {
+                gTriple.addVertex(v);
+            }
+            gTriple.addEdge(new DENOPTIMEdge(0, 1, 0, 0, 1));
+            gTriple.addEdge(new DENOPTIMEdge(0, 2, 1, 0, 3));
+            assertTrue(GraphUtils.checkGraphSizeConstraints(gTriple),
+                                                              "Triple bond");
+        }
+        finally
+        {
+            setLimits(oldMaxHeavyAtoms, oldMaxMW, oldMaxRotBonds);
+            FragmentSpace.clearAll();
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+}
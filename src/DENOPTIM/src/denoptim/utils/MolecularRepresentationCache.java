@@ -0,0 +1,258 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2026 agent <agent@local>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import denoptim.molecule.DENOPTIMGraph;
+
+/**
+ * Bounded, thread-safe cache of the representations (InChI, SMILES,
+ * molecular weight, and number of rotatable bonds) calculated for the
+ * molecule corresponding to a graph. Entries are identified by the
+ * canonical form of the graph (see {@link DENOPTIMGraph#getCanonicalForm()}),
+ * so that equivalent graphs share the same entry. When the maximum size is
+ * reached, the least recently used entry is discarded.
+ *
+ * @author agent
+ */
+
+public class MolecularRepresentationCache
+{
+    /**
+     * Default maximum number of entries
+     */
+    public static final int DEFAULTMAXSIZE = 10000;
+
+    /**
+     * The entries sorted from the least to the most recently used
+     */
+    private final LinkedHashMap<String,Entry> entries;
+
+    /**
+     * Number of successful lookups
+     */
+    private final AtomicLong hits = new AtomicLong(0);
+
+    /**
+     * Number of unsuccessful lookups
+     */
+    private final AtomicLong misses = new AtomicLong(0);
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Representations of the molecule corresponding to a graph
+     */
+
+    public static class Entry
+    {
+        private final String inchi;
+        private final String smiles;
+        private final double mw;
+        private final int nrot;
+
+        /**
+         * Constructor
+         * @param inchi the InChI key, or <code>null</code> if not available
+         * @param smiles the SMILES string
+         * @param mw the molecular weight, or NaN if not calculated
+         * @param nrot the number of rotatable bonds, or -1 if not calculated
+         */
+
+        public Entry(String inchi, String smiles, double mw, int nrot)
+        {
+            this.inchi = inchi;
+            this.smiles = smiles;
+            this.mw = mw;
+            this.nrot = nrot;
+        }
+
+        public String getInChI()
+        {
+            return inchi;
+        }
+
+        public String getSMILES()
+        {
+            return smiles;
+        }
+
+        public double getMolecularWeight()
+        {
+            return mw;
+        }
+
+        public int getRotatableBondCount()
+        {
+            return nrot;
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Constructor
+     * @param maxSize the maximum number of entries
+     */
+
+    public MolecularRepresentationCache(final int maxSize)
+    {
+        entries = new LinkedHashMap<String,Entry>(16, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String,Entry> e)
+            {
+                return size() > maxSize;
+            }
+        };
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Builds the key identifying the molecular representation of a graph.
+     * @param graph the graph
+     * @param ringsClosed use <code>true</code> if the molecule is built
+     * after closing the rings defined in the graph (i.e., ring closing
+     * attractors have been replaced by bonds), or <code>false</code> if
+     * ring closing attractors are still part of the molecule.
+     * @return the key
+     */
+
+    public static String getKey(DENOPTIMGraph graph, boolean ringsClosed)
+    {
+        return (ringsClosed ? "C" : "O") + graph.getCanonicalForm();
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Looks for the representations of a molecule.
+     * @param key the key identifying the molecule
+     * (see {@link #getKey(DENOPTIMGraph, boolean)})
+     * @return the representations or <code>null</code> if not in this cache
+     */
+
+    public Entry get(String key)
+    {
+        Entry e;
+        synchronized (entries)
+        {
+            e = entries.get(key);
+        }
+        if (e == null)
+        {
+            misses.incrementAndGet();
+        }
+        else
+        {
+            hits.incrementAndGet();
+        }
+        return e;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Stores the representations of a molecule.
+     * @param key the key identifying the molecule
+     * (see {@link #getKey(DENOPTIMGraph, boolean)})
+     * @param entry the representations of the molecule
+     */
+
+    public void put(String key, Entry entry)
+    {
+        synchronized (entries)
+        {
+            entries.put(key, entry);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the number of entries in this cache
+     */
+
+    public int size()
+    {
+        synchronized (entries)
+        {
+            return entries.size();
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the number of lookups that found the requested entry
+     */
+
+    public long getHitCount()
+    {
+        return hits.get();
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the number of lookups that did not find the requested entry
+     */
+
+    public long getMissCount()
+    {
+        return misses.get();
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Removes all entries and resets the counters
+     */
+
+    public void clear()
+    {
+        synchronized (entries)
+        {
+            entries.clear();
+        }
+        hits.set(0);
+        misses.set(0);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return a summary of the usage of this cache for logging
+     */
+
+    public String getStatistics()
+    {
+        return "hits: " + hits.get() + ", misses: " + misses.get()
+                + ", entries: " + size();
+    }
+
+//------------------------------------------------------------------------------
+
+}
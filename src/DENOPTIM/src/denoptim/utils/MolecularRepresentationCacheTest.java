@@ -0,0 +1,68 @@
+package denoptim.utils;
+
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2026 agent <agent@local>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test for MolecularRepresentationCache
+ *
+ * @author agent
+ */
+
+public class MolecularRepresentationCacheTest
+{
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() throws Exception
+    {
+        MolecularRepresentationCache cache =
+                new MolecularRepresentationCache(2);
+        cache.put("a", new MolecularRepresentationCache.Entry("IA", "CA",
+                16.0, 0));
+        cache.put("b", new MolecularRepresentationCache.Entry("IB", "CB",
+                30.0, 1));
+
+        // makes "a" the most recently used
+        assertEquals("CA", cache.get("a").getSMILES());
+
+        cache.put("c", new MolecularRepresentationCache.Entry(null, "CC",
+                Double.NaN, -1));
+        assertEquals(2, cache.size());
+        assertNull(cache.get("b"), "Least recently used entry");
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("c").getInChI());
+
+        assertEquals(3, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getHitCount());
+    }
+
+//------------------------------------------------------------------------------
+
+}
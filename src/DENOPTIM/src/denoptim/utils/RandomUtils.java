@@ -20,16 +20,81 @@ package denoptim.utils;
 
 import java.nio.ByteBuffer;
 import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.apache.commons.math3.random.MersenneTwister;
 
 /**
+ * Source of random numbers. The generator created when initialising the
+ * seed is used only by the thread that initialised it. Any other thread
+ * uses its own stream, derived from the seed of the run, so that no
+ * generator is ever shared between threads. Such streams are numbered in
+ * the order threads first draw from them in a run, so they depend on the
+ * scheduling of the threads. Work units that need to be reproducible
+ * regardless of the thread executing them should bind a stream obtained
+ * from {@link #newStream(long)} with an index that identifies the work
+ * unit. Even so, a run is reproducible only if its work units are created
+ * in a deterministic order, which is not the case of
+ * ParallelEvolutionaryAlgorithm: there, children are created in the order
+ * fitness evaluations complete.
  *
  * @author vishwesv
  */
 public class RandomUtils
 {
-    private static long RNDSEED = 0L;
-    private static MersenneTwister MTRAND = null;
+    private static volatile long RNDSEED = 0L;
+    private static volatile MersenneTwister MTRAND = null;
+
+    /**
+     * The thread that initialised the generator of the run
+     */
+    private static volatile Thread OWNER = null;
+
+    /**
+     * Generator bound to the current thread, if any
+     */
+    private static final ThreadLocal<MersenneTwister> THREADRNG =
+            new ThreadLocal<MersenneTwister>();
+
+    /**
+     * Generator used by threads other than the owner when no generator is
+     * bound to them
+     */
+    private static final ThreadLocal<WorkerStream> WORKERRNG =
+            new ThreadLocal<WorkerStream>();
+
+    /**
+     * Counter of the streams given to threads other than the owner. These
+     * use indexes starting from {@link Long#MIN_VALUE}, i.e., far away from
+     * those given to {@link #newStream(long)} by work units.
+     */
+    private static final AtomicLong NEXTWORKER = new AtomicLong(0);
+
+    /**
+     * Counter of the initialisations of the generator. Streams of threads
+     * other than the owner that were created before the latest
+     * initialisation are discarded.
+     */
+    private static final AtomicInteger INITS = new AtomicInteger(0);
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Stream used by a thread other than the owner
+     */
+
+    private static class WorkerStream
+    {
+        private final int init;
+        private final MersenneTwister rng;
+
+        private WorkerStream(int init, MersenneTwister rng)
+        {
+            this.init = init;
+            this.rng = rng;
+        }
+    }
 
 //------------------------------------------------------------------------------
 
@@ -50,7 +115,7 @@ public class RandomUtils
     public static void initialiseRNG()
     {
         initialiseSeed();
-        MTRAND = new MersenneTwister(RNDSEED);
+        startRun();
     }
     
 //------------------------------------------------------------------------------
@@ -58,14 +123,113 @@ public class RandomUtils
     public static void initialiseRNG(long seed)
     {
         setSeed(seed);
+        startRun();
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Creates the generator of the run and makes any thread other than the
+     * current one draw from a new stream derived from the current seed.
+     */
+
+    private static void startRun()
+    {
         MTRAND = new MersenneTwister(RNDSEED);
+        OWNER = Thread.currentThread();
+        NEXTWORKER.set(0);
+        INITS.incrementAndGet();
     }
     
 //------------------------------------------------------------------------------
 
+    /**
+     * Gets the random number generator of the current thread. This is the
+     * generator bound to the thread with {@link #bindStream(MersenneTwister)},
+     * if any, the generator of the run if the current thread is the one that
+     * initialised it, or a generator owned by the current thread.
+     * @return the random number generator
+     */
+
     public static MersenneTwister getRNG()
     {
-        return MTRAND;
+        MersenneTwister rng = THREADRNG.get();
+        if (rng != null)
+        {
+            return rng;
+        }
+        if (OWNER == null || Thread.currentThread() == OWNER)
+        {
+            return MTRAND;
+        }
+        int init = INITS.get();
+        WorkerStream ws = WORKERRNG.get();
+        if (ws == null || ws.init != init)
+        {
+            ws = new WorkerStream(init, newStream(
+                                Long.MIN_VALUE + NEXTWORKER.getAndIncrement()));
+            WORKERRNG.set(ws);
+        }
+        return ws.rng;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Creates a generator producing an independent stream of random numbers.
+     * The stream is fully determined by the seed of the run and by the
+     * given index, so that work units given the same index produce the same
+     * random numbers no matter which thread executes them.
+     * @param index the index of the stream
+     * @return a new generator
+     */
+
+    public static MersenneTwister newStream(long index)
+    {
+        long mixed = mix(index + 1);
+        return new MersenneTwister(new int[] {
+                (int) (RNDSEED >>> 32), (int) RNDSEED,
+                (int) (mixed >>> 32), (int) mixed});
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Scrambles the bits of a value (the finalizer of the SplitMix64
+     * generator), so that consecutive indexes give unrelated seeds.
+     */
+
+    private static long mix(long z)
+    {
+        z = z * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Makes {@link #getRNG()} return the given generator when called by the
+     * current thread, until {@link #unbindStream()} is called.
+     * @param rng the generator to use in the current thread
+     */
+
+    public static void bindStream(MersenneTwister rng)
+    {
+        THREADRNG.set(rng);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Makes the current thread go back to the generator it used before
+     * calling {@link #bindStream(MersenneTwister)}.
+     */
+
+    public static void unbindStream()
+    {
+        THREADRNG.remove();
     }
 
 //------------------------------------------------------------------------------
@@ -86,7 +250,7 @@ public class RandomUtils
             return false;
         else if (prob == 1.0)
             return true;
-        return MTRAND.nextDouble() < prob;
+        return getRNG().nextDouble() < prob;
     }
 
 //------------------------------------------------------------------------------
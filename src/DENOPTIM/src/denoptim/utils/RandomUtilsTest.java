@@ -0,0 +1,113 @@
+package denoptim.utils;
+
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2026 agent <agent@local>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.math3.random.MersenneTwister;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test for the streams of random numbers
+ *
+ * @author agent
+ */
+
+public class RandomUtilsTest
+{
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testStreams() throws Exception
+    {
+        RandomUtils.initialiseRNG(12345L);
+        final MersenneTwister runRng = RandomUtils.getRNG();
+
+        long a = RandomUtils.newStream(7).nextLong();
+        assertEquals(a, RandomUtils.newStream(7).nextLong(), "Same index");
+        assertNotEquals(a, RandomUtils.newStream(8).nextLong(), "Other index");
+
+        MersenneTwister bound = RandomUtils.newStream(7);
+        RandomUtils.bindStream(bound);
+        assertSame(bound, RandomUtils.getRNG(), "Bound stream");
+        RandomUtils.unbindStream();
+        assertSame(runRng, RandomUtils.getRNG(), "Generator of the run");
+
+        final AtomicReference<MersenneTwister> other =
+                new AtomicReference<MersenneTwister>();
+        Thread t = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                other.set(RandomUtils.getRNG());
+            }
+        };
+        t.start();
+        t.join();
+        assertNotSame(runRng, other.get(), "Stream of another thread");
+
+        RandomUtils.initialiseRNG(12345L);
+        assertEquals(a, RandomUtils.newStream(7).nextLong(), "Same seed");
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testStreamsOfPooledThreadsRestart() throws Exception
+    {
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        Callable<Long> draw = new Callable<Long>()
+        {
+            @Override
+            public Long call()
+            {
+                return RandomUtils.getRNG().nextLong();
+            }
+        };
+        try
+        {
+            RandomUtils.initialiseRNG(12345L);
+            long a = pool.submit(draw).get();
+
+            // the same thread must start again from the stream of the seed
+            RandomUtils.initialiseRNG(12345L);
+            assertEquals(a, (long) pool.submit(draw).get(), "Same seed");
+
+            RandomUtils.initialiseRNG(54321L);
+            assertNotEquals(a, (long) pool.submit(draw).get(), "Other seed");
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+}
@@ -21,14 +21,15 @@ package denoptimga;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 
 import org.apache.commons.io.FileUtils;
@@ -41,10 +42,12 @@ import org.openscience.cdk.isomorphism.mcss.RMap;
 
 import denoptim.constants.DENOPTIMConstants;
 import denoptim.exception.DENOPTIMException;
+import denoptim.fragspace.FragmentDescriptors;
 import denoptim.fragspace.FragmentSpace;
 import denoptim.fragspace.FragmentSpaceParameters;
 import denoptim.fragspace.IdFragmentAndAP;
 import denoptim.io.DenoptimIO;
+import denoptim.io.UIDStore;
 import denoptim.logging.DENOPTIMLogger;
 import denoptim.molecule.DENOPTIMAttachmentPoint;
 import denoptim.molecule.DENOPTIMEdge;
@@ -56,6 +59,7 @@ import denoptim.molecule.SymmetricSet;
 import denoptim.rings.CyclicGraphHandler;
 import denoptim.rings.RingClosureParameters;
 import denoptim.rings.RingClosuresArchive;
+import denoptim.utils.CanonicalGraphIndex;
 import denoptim.utils.DENOPTIMMathUtils;
 import denoptim.utils.DENOPTIMMoleculeUtils;
 import denoptim.utils.DENOPTIMStatUtils;
@@ -63,6 +67,7 @@ import denoptim.utils.FragmentUtils;
 import denoptim.utils.GenUtils;
 import denoptim.utils.GraphConversionTool;
 import denoptim.utils.GraphUtils;
+import denoptim.utils.MolecularRepresentationCache;
 import denoptim.utils.ObjectPair;
 import denoptim.utils.RandomUtils;
 import denoptim.utils.RotationalSpaceUtils;
@@ -80,8 +85,25 @@ public class EAUtils
     
     protected static DecimalFormat df = new DecimalFormat();
 
-    // for each fragment store the reactions associated with it
-    protected static HashMap<Integer, ArrayList<String>> lstFragmentClass;
+    // graphs already submitted to evaluation in this run, if the index is
+    // open (see openEvaluatedGraphsIndex)
+    private static CanonicalGraphIndex evaluatedGraphs = null;
+
+    // graphs already submitted to evaluation in this run, or in any run
+    // sharing the same log file, if the log is open 
+    // (see openEvaluatedGraphsIndex(String))
+    private static VisitedGraphsHandler visitedGraphs = null;
+
+    /**
+     * Maximum number of graphs remembered by the index of evaluated graphs
+     */
+    protected static final int MAXEVALUATEDGRAPHS = 100000;
+
+    // UIDs of the candidates known in this run
+    private static UIDStore uidStore = null;
+
+    // number of graph-to-molecule conversions performed by evaluateGraph
+    private static final AtomicInteger conversions = new AtomicInteger(0);
 
     // flag for debugging
     private static final boolean DEBUG = false;
@@ -506,12 +528,12 @@ public class EAUtils
      * Reconstruct the molecular population from the file.
      * @param filename
      * @param molPopulation
-     * @param lstInchi
+     * @param genDir
      * @throws DENOPTIMException
      */
     protected static void getPopulationFromFile(String filename,
-            ArrayList<DENOPTIMMolecule> molPopulation, HashSet<String> lstInchi,
-            String genDir) throws DENOPTIMException
+            ArrayList<DENOPTIMMolecule> molPopulation, String genDir)
+                                                    throws DENOPTIMException
     {
         ArrayList<IAtomContainer> mols;
         if (GenUtils.getFileExtension(filename).compareToIgnoreCase(".sdf") == 0)
@@ -526,7 +548,6 @@ public class EAUtils
 
         String fsep = System.getProperty("file.separator");
 
-	HashSet<String> uidsFromInitPop = new HashSet();
         for (int i=0; i<mols.size(); i++)
         {
             DENOPTIMGraph graph = null;
@@ -589,7 +610,7 @@ public class EAUtils
             }
 
 	    // Add molecule to population, unless it has previously known UID
-            if (lstInchi.add(molinchi))
+            if (uidStore.addIfAbsent(molinchi))
             {
                 int ctr = GraphUtils.getUniqueMoleculeIndex();
                 String molName = "M" + GenUtils.getPaddedString(8, ctr);
@@ -609,10 +630,8 @@ public class EAUtils
                 pmol.setMoleculeFile(molfile);
                 pmol.setImageFile(null);
                 molPopulation.add(pmol);
-		uidsFromInitPop.add(molinchi);
             }
         }
-	writeUID(GAParameters.getUIDFileOut(),uidsFromInitPop,true);
 
         if (molPopulation.isEmpty())
         {
@@ -626,28 +645,182 @@ public class EAUtils
 
 //------------------------------------------------------------------------------
 
-    protected static void writeUID(String outfile, HashSet<String> lstInchi, 
-                                            boolean append) throws DENOPTIMException
+    /**
+     * Opens the store of the UIDs of the candidates known in this run. Any
+     * UID already in the file is considered as known.
+     * @param uidFile the pathname of the text file with the UIDs
+     * @throws DENOPTIMException
+     */
+
+    protected static void openUIDStore(String uidFile) throws DENOPTIMException
     {
-        StringBuilder sb = new StringBuilder(256);
-        Iterator<String> iter = lstInchi.iterator();
+        uidStore = new UIDStore(uidFile);
+    }
 
-	boolean  first = true;
-        while(iter.hasNext())
+//------------------------------------------------------------------------------
+
+    /**
+     * Closes the store of the UIDs, if open.
+     * @throws DENOPTIMException
+     */
+
+    protected static void closeUIDStore() throws DENOPTIMException
+    {
+        if (uidStore != null)
         {
-	    if (first)
-	    {
-                sb.append(iter.next());
-		first = false;
-	    }
-	    else
-	    {
-                sb.append(System.getProperty("line.separator")).append(iter.next());
-	    }
+            uidStore.close();
+            uidStore = null;
         }
+    }
 
-        DenoptimIO.writeData(outfile, sb.toString(), append);
-        sb.setLength(0);
+//------------------------------------------------------------------------------
+
+    /**
+     * Starts remembering the graphs submitted to fitness evaluation in a run, 
+     * so that graphs equivalent to one of the latest 
+     * {@link #MAXEVALUATEDGRAPHS} submitted graphs are not submitted again 
+     * (see {@link #registerEvaluatedGraph(DENOPTIMGraph)}).
+     * Must be called by the driver of the run, which also has to call 
+     * {@link #closeEvaluatedGraphsIndex()} at the end of the run.
+     */
+
+    protected static void openEvaluatedGraphsIndex()
+    {
+        evaluatedGraphs = new CanonicalGraphIndex(MAXEVALUATEDGRAPHS);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Starts remembering the graphs submitted to fitness evaluation in the 
+     * given log file, so that graphs equivalent to any graph in the log are 
+     * not submitted again. The log file may already contain graphs
+     * from previous runs and can be shared among runs executed at the same
+     * time (see {@link VisitedGraphsHandler}). Unlike the index opened by 
+     * {@link #openEvaluatedGraphsIndex()}, this index is not bounded.
+     * Must be called by the driver of the run, which also has to call 
+     * {@link #closeEvaluatedGraphsIndex()} at the end of the run.
+     * @param visitedGraphsFile the pathname of the log file
+     * @throws DENOPTIMException if the existing log cannot be read
+     */
+
+    protected static void openEvaluatedGraphsIndex(String visitedGraphsFile)
+                                                    throws DENOPTIMException
+    {
+        visitedGraphs = new VisitedGraphsHandler(visitedGraphsFile);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Forgets the graphs evaluated in the run. No graph is rejected as
+     * duplicate of an evaluated graph until the index is opened again.
+     */
+
+    protected static void closeEvaluatedGraphsIndex()
+    {
+        if (evaluatedGraphs != null)
+        {
+            evaluatedGraphs.clear();
+            evaluatedGraphs = null;
+        }
+        visitedGraphs = null;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Registers a graph that is about to be submitted to fitness evaluation.
+     * Candidates with a known UID are rejected by 
+     * {@link #evaluateGraph(DENOPTIMGraph)}, while this method detects the 
+     * graphs that are equivalent to a graph submitted in this run, but whose
+     * candidate is not yet known, for example because its fitness is still
+     * being evaluated. Must be called by the thread submitting the 
+     * candidates, in the order of submission. Since ring closures are chosen
+     * at random, graphs that allow ring closures are never registered.
+     * @param molGraph the graph to register
+     * @return <code>true</code> unless the graph is equivalent to one 
+     * already registered
+     * @throws DENOPTIMException if the log of visited graphs cannot be
+     * updated
+     */
+
+    protected static boolean registerEvaluatedGraph(DENOPTIMGraph molGraph)
+                                                    throws DENOPTIMException
+    {
+        if ((evaluatedGraphs == null && visitedGraphs == null)
+            || RingClosureParameters.allowRingClosures())
+        {
+            return true;
+        }
+        boolean isNew;
+        if (visitedGraphs != null)
+        {
+            isNew = visitedGraphs.appendGraph(molGraph);
+        }
+        else
+        {
+            isNew = evaluatedGraphs.add(molGraph);
+        }
+        if (!isNew)
+        {
+            String msg = "Evaluation of graph: duplicate of a graph already "
+                                        + "submitted " + molGraph.toString();
+            DENOPTIMLogger.appLogger.log(Level.INFO, msg);
+            return false;
+        }
+        return true;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the number of graph-to-molecule conversions performed by
+     * {@link #evaluateGraph(DENOPTIMGraph)} since the beginning of this run
+     */
+
+    protected static int getNumberOfConversions()
+    {
+        return conversions.get();
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Checks if a UID belongs to a candidate that is already known, i.e., 
+     * either imported or registered by the fitness provider in this run.
+     * @param uid the UID to check
+     * @return <code>true</code> if the UID is known
+     * @throws DENOPTIMException
+     */
+
+    protected static boolean isKnownUID(String uid) throws DENOPTIMException
+    {
+        if (uidStore == null || uid.equals("UNDEFINED"))
+        {
+            return false;
+        }
+        return uidStore.contains(uid);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Registers the UID of a candidate whose fitness was not computed by the
+     * external fitness provider, which registers UIDs by itself, i.e., of a
+     * candidate evaluated within this JVM or found in the fitness cache.
+     * @param uid the UID to register
+     * @return <code>false</code> if the UID was already known
+     * @throws DENOPTIMException
+     */
+
+    protected static boolean registerUID(String uid) throws DENOPTIMException
+    {
+        if (uidStore == null || uid.equals("UNDEFINED"))
+        {
+            return true;
+        }
+        return uidStore.addIfAbsent(uid);
     }
 
 //------------------------------------------------------------------------------
@@ -708,25 +881,6 @@ public class EAUtils
         }
     }
 
-//------------------------------------------------------------------------------
-
-    /**
-     * For each fragment, collect the reactions it is involved in
-     * @param mols
-     */
-
-    protected static void poolAPClasses(ArrayList<IAtomContainer> mols)
-    {
-        lstFragmentClass = new HashMap<>();
-        for (int i=0; i<mols.size(); i++)
-        {
-            IAtomContainer mol = mols.get(i);
-            ArrayList<String> lstRcn = FragmentUtils.getClassesForFragment(mol);
-            lstFragmentClass.put(i, lstRcn);
-            //System.err.println(i + " " + lstRcn.toString());
-        }
-    }
-
 //------------------------------------------------------------------------------
 
     /**
@@ -987,6 +1141,7 @@ public class EAUtils
      */
 
     protected static int getCappingFragment(String rcnCap)
+                                                        throws DENOPTIMException
     {
         if (rcnCap == null)
             return -1;
@@ -1012,14 +1167,14 @@ public class EAUtils
      */
 
     protected static ArrayList<Integer> getCompatibleCappingFragments(
-                                                                 String cmpReac)
+                                String cmpReac) throws DENOPTIMException
     {
         ArrayList<Integer> lstFragIdx = new ArrayList<>();
         for (int i=0; i<FragmentSpace.getCappingLibrary().size(); i++)
         {
-            IAtomContainer mol = FragmentSpace.getCappingLibrary().get(i);
-            ArrayList<String> lstRcn = FragmentUtils.getClassesForFragment(mol);
-            if (lstRcn.contains(cmpReac))
+            FragmentDescriptors desc = 
+                                  FragmentSpace.getFragmentDescriptors(2, i);
+            if (desc.getAPClasses().contains(cmpReac))
                 lstFragIdx.add(i);
         }
 
@@ -1159,23 +1314,7 @@ public class EAUtils
 
     protected static ArrayList<Integer> getFragmentList(String cmpReac)
     {
-        ArrayList<Integer> lstFragIdx = new ArrayList<>();
-
-        Iterator<Map.Entry<Integer, ArrayList<String>>> entries =
-                                    lstFragmentClass.entrySet().iterator();
-        while (entries.hasNext())
-        {
-            Map.Entry<Integer, ArrayList<String>> entry = entries.next();
-            Integer key = entry.getKey();
-            ArrayList<String> clst = entry.getValue();
-            if (clst.contains(cmpReac))
-            {
-                if (!lstFragIdx.contains(key))
-                    lstFragIdx.add(key);
-            }
-        }
-
-        return lstFragIdx;
+        return FragmentSpace.getFragmentsWithAPClass(cmpReac);
     }
 
 //------------------------------------------------------------------------------
@@ -1297,7 +1436,9 @@ public class EAUtils
         res[2] = mol;
 
 	// Update the SMILES representation
-        String molsmiles = DENOPTIMMoleculeUtils.getSMILESForMolecule(mol);
+        MolecularRepresentationCache.Entry repr = 
+                      GraphUtils.getRepresentationWithClosedRings(mol, molGraph);
+        String molsmiles = repr.getSMILES();
         if (molsmiles == null)
         {
             String msg = "Evaluation of graph: SMILES is null! "
@@ -1308,14 +1449,21 @@ public class EAUtils
 	res[1] = molsmiles;
 
 	// Update the INCHI key representation
-        ObjectPair pr = DENOPTIMMoleculeUtils.getInchiForMolecule(mol);
-        if (pr.getFirst() == null)
+        String inchi = repr.getInChI();
+        if (inchi == null)
         {
             String msg = "Evaluation of graph: INCHI is null!";
             DENOPTIMLogger.appLogger.log(Level.INFO, msg);
-            pr.setFirst("UNDEFINED");
+            inchi = "UNDEFINED";
+        }
+	res[0] = inchi;
+
+        if (isKnownUID(inchi))
+        {
+            String msg = "Evaluation of graph: UID already known " + inchi;
+            DENOPTIMLogger.appLogger.log(Level.INFO, msg);
+            return false;
         }
-	res[0] = pr.getFirst();
 
         if (DEBUG)
         {
@@ -1443,6 +1591,7 @@ public class EAUtils
      * @return number of heavy atoms in the molecule
      */
     protected static int getNumberOfAtoms(DENOPTIMGraph molGraph)
+                                                        throws DENOPTIMException
     {
         int n = 0;
         ArrayList<DENOPTIMVertex> vlst = molGraph.getVertexList();
@@ -1451,16 +1600,8 @@ public class EAUtils
         {
             int id = vlst.get(i).getMolId();
             int ftype = vlst.get(i).getFragmentType();
-            //System.err.println("FTYPE: " + ftype);
-            if (ftype == 1)
-                n += DENOPTIMMoleculeUtils.getHeavyAtomCount(
-                            FragmentSpace.getFragmentLibrary().get(id));
-            else if (ftype == 2)
-                n += DENOPTIMMoleculeUtils.getHeavyAtomCount(
-                            FragmentSpace.getCappingLibrary().get(id));
-            else
-                n += DENOPTIMMoleculeUtils.getHeavyAtomCount(
-                            FragmentSpace.getScaffoldLibrary().get(id));
+            n += FragmentSpace.getFragmentDescriptors(ftype, id)
+                                                          .getHeavyAtomCount();
         }
         return n;
     }
@@ -1477,10 +1618,10 @@ public class EAUtils
      */
 
     protected static boolean isFragmentAdditionPossible(DENOPTIMGraph molGraph,
-            int fragIdx, int nfrags)
+            int fragIdx, int nfrags) throws DENOPTIMException
     {
-        int n = nfrags * DENOPTIMMoleculeUtils.getHeavyAtomCount(
-                        FragmentSpace.getFragmentLibrary().get(fragIdx));
+        int n = nfrags * FragmentSpace.getFragmentDescriptors(1, fragIdx)
+                                                          .getHeavyAtomCount();
 
         int natom = getNumberOfAtoms(molGraph);
 
@@ -1630,6 +1771,28 @@ public class EAUtils
         return arr;
     }
 
+//------------------------------------------------------------------------------
+
+    /**
+     * Takes a snapshot of the population while holding its lock. The snapshot
+     * is a new list that does not change when fitness tasks add new members
+     * to the population, but the members are shared with the population and
+     * must be treated as read-only. Genetic operators must work on a copy of
+     * the graph of the selected parents, so that copying happens only for
+     * those members that are actually altered.
+     * @param molPopulation the population to take a snapshot of
+     * @return the list of members in the population at the time of the call
+     */
+
+    protected static ArrayList<DENOPTIMMolecule> getPopulationSnapshot
+                                    (ArrayList<DENOPTIMMolecule> molPopulation)
+    {
+        synchronized (molPopulation)
+        {
+            return new ArrayList<DENOPTIMMolecule>(molPopulation);
+        }
+    }
+
 //------------------------------------------------------------------------------
 
     /**
@@ -1638,7 +1801,10 @@ public class EAUtils
      * @return an object array containing the inchi code, the smiles string
      *         and the 2D representation of the molecule
      *         <code>null</code> is returned if inchi/smiles/2D conversion fails
-     *         An additional check is the number of atoms in the graph
+     *         An additional check is the number of atoms in the graph.
+     *         Graphs equivalent to a graph already evaluated reuse its 
+     *         representations, and are rejected without building the 
+     *         molecule if the corresponding UID is known.
      */
 
     protected static Object[] evaluateGraph(DENOPTIMGraph molGraph)
@@ -1651,7 +1817,34 @@ public class EAUtils
             return null;
         }
 
+        // check constraints that do not need the molecular representation
+        if (!GraphUtils.checkGraphSizeConstraints(molGraph))
+        {
+            molGraph.cleanup();
+            return null;
+        }
+
+        // representations already calculated for an equivalent graph. 
+        // Since only graphs that passed all the checks are cached, a hit
+        // can only be rejected because its UID is known.
+        MolecularRepresentationCache molReprCache = 
+                                  GraphUtils.getMolecularRepresentationCache();
+        String cacheKey = MolecularRepresentationCache.getKey(molGraph, false);
+        MolecularRepresentationCache.Entry cached = molReprCache.get(cacheKey);
+        if (cached != null && cached.getInChI() != null
+            && !(FragmentSpace.useAPclassBasedApproach()
+                 && RingClosureParameters.allowRingClosures())
+            && isKnownUID(cached.getInChI()))
+        {
+            String msg = "Evaluation of graph: UID already known " 
+                                                          + cached.getInChI();
+            DENOPTIMLogger.appLogger.log(Level.INFO, msg);
+            molGraph.cleanup();
+            return null;
+        }
+
         // calculate the molecule representation
+        conversions.incrementAndGet();
         GraphConversionTool gct = new GraphConversionTool();
         IAtomContainer mol = gct.convertGraphToMolecule(molGraph,true);
         if (mol == null)
@@ -1686,7 +1879,15 @@ public class EAUtils
 //        }
 
         // hopefully the null shouldn't happen if all goes well
-        String molsmiles = DENOPTIMMoleculeUtils.getSMILESForMolecule(mol);
+        String molsmiles = null;
+        if (cached != null)
+        {
+            molsmiles = cached.getSMILES();
+        }
+        else
+        {
+            molsmiles = DENOPTIMMoleculeUtils.getSMILESForMolecule(mol);
+        }
 //TODO del or make optional
         //String molsmiles = DENOPTIMMoleculeUtils.getSMILESForMoleculeUsingBabel(mol);
         if (molsmiles == null)
@@ -1723,7 +1924,8 @@ public class EAUtils
             }
         }
 
-        double mw = DENOPTIMMoleculeUtils.getMolecularWeight(mol);
+        double mw = cached != null ? cached.getMolecularWeight()
+                                : DENOPTIMMoleculeUtils.getMolecularWeight(mol);
 
         if (FragmentSpaceParameters.getMaxMW() > 0)
         {
@@ -1740,7 +1942,8 @@ public class EAUtils
         }
         mol.setProperty("MOL_WT", mw);
 
-        int nrot = DENOPTIMMoleculeUtils.getNumberOfRotatableBonds(mol);
+        int nrot = cached != null ? cached.getRotatableBondCount()
+                         : DENOPTIMMoleculeUtils.getNumberOfRotatableBonds(mol);
         if (FragmentSpaceParameters.getMaxRotatableBond() > 0)
         {
             if (nrot > FragmentSpaceParameters.getMaxRotatableBond())
@@ -1832,16 +2035,37 @@ public class EAUtils
         }
 
         // get the smiles/Inchi representation
-        ObjectPair pr = DENOPTIMMoleculeUtils.getInchiForMolecule(mol);
-        if (pr.getFirst() == null)
+        String inchi = null;
+        if (cached != null)
+        {
+            inchi = cached.getInChI();
+        }
+        else
+        {
+            ObjectPair pr = DENOPTIMMoleculeUtils.getInchiForMolecule(mol);
+            inchi = (String) pr.getFirst();
+            molReprCache.put(cacheKey, new MolecularRepresentationCache.Entry(
+                                                  inchi, molsmiles, mw, nrot));
+        }
+        if (inchi == null)
         {
             String msg = "Evaluation of graph: INCHI is null!";
             DENOPTIMLogger.appLogger.log(Level.INFO, msg);
-            pr.setFirst("UNDEFINED");
+            inchi = "UNDEFINED";
+        }
+
+        // with ring closures, the final UID is defined in setupRings
+        if (!(FragmentSpace.useAPclassBasedApproach()
+              && RingClosureParameters.allowRingClosures())
+            && isKnownUID(inchi))
+        {
+            String msg = "Evaluation of graph: UID already known " + inchi;
+            DENOPTIMLogger.appLogger.log(Level.INFO, msg);
+            return null;
         }
 
         Object[] res = new Object[3];
-        res[0] = pr.getFirst(); // inchi
+        res[0] = inchi; // inchi
         res[1] = molsmiles; // smiles
         //res[2] = mol2D; // 2d coordinates
         res[2] = mol;
@@ -2106,13 +2330,45 @@ MF: TO BE TESTED
 
 //------------------------------------------------------------------------------
 
-    protected static void readUID(String infile, HashSet<String> lstInchi)
+    /**
+     * Copies the UIDs of previously known individuals into the file that
+     * collects the UIDs in this run.
+     * @param infile the file with the previously known UIDs
+     * @param outfile the file collecting the UIDs of this run
+     * @throws DENOPTIMException
+     */
+
+    protected static void importUIDs(String infile, String outfile)
                                                     throws DENOPTIMException
     {
-        ArrayList<String> lst = DenoptimIO.readList(infile);
-        for (String str:lst)
-            lstInchi.add(str);
-        lst.clear();
+        File in = new File(infile);
+        File out = new File(outfile);
+        try
+        {
+            if (in.getCanonicalPath().equals(out.getCanonicalPath()))
+            {
+                return;
+            }
+            FileUtils.copyFile(in, out);
+
+            // UIDs are read only from terminated lines
+            if (out.length() > 0)
+            {
+                RandomAccessFile rafile = new RandomAccessFile(out, "r");
+                rafile.seek(out.length() - 1);
+                boolean terminated = rafile.read() == '\n';
+                rafile.close();
+                if (!terminated)
+                {
+                    DenoptimIO.writeData(outfile, "", true);
+                }
+            }
+        }
+        catch (IOException ioe)
+        {
+            throw new DENOPTIMException("Cannot import UIDs from " + infile,
+                                                                        ioe);
+        }
     }
 
 //------------------------------------------------------------------------------
@@ -2120,7 +2376,6 @@ MF: TO BE TESTED
     protected static void cleanup()
     {
         fragmentPool.clear();
-        lstFragmentClass.clear();        
     }
   
 //------------------------------------------------------------------------------    
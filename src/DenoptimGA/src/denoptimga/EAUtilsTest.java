@@ -0,0 +1,141 @@
+package denoptimga;
+
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2026 agent <agent@local>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.nio.file.Files;
+
+import org.junit.jupiter.api.Test;
+
+import denoptim.molecule.DENOPTIMGraph;
+import denoptim.utils.GraphUtils;
+import denoptim.utils.MolecularRepresentationCache;
+
+/**
+ * Unit test for EAUtils
+ *
+ * @author agent
+ */
+
+public class EAUtilsTest
+{
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testEvaluateGraphSkipsConversionOfKnownCandidate()
+                                                              throws Exception
+    {
+        File tmpDir = Files.createTempDirectory("_unitEAUtils").toFile();
+        String uidFile = tmpDir + System.getProperty("file.separator")
+                                                                + "UID.txt";
+        FileWriter fw = new FileWriter(uidFile);
+        fw.write("KEY-A\n");
+        fw.close();
+
+        DENOPTIMGraph graph = new DENOPTIMGraph();
+        MolecularRepresentationCache cache =
+                                  GraphUtils.getMolecularRepresentationCache();
+        String key = MolecularRepresentationCache.getKey(graph, false);
+        cache.put(key, new MolecularRepresentationCache.Entry("KEY-A", "C",
+                                                                   16.04, 0));
+        EAUtils.openUIDStore(uidFile);
+        try
+        {
+            int before = EAUtils.getNumberOfConversions();
+            long hits = cache.getHitCount();
+            assertNull(EAUtils.evaluateGraph(graph), "Known candidate");
+            assertEquals(hits + 1, cache.getHitCount(), "Cache hits");
+            assertEquals(before, EAUtils.getNumberOfConversions(),
+                                                              "Conversions");
+        }
+        finally
+        {
+            EAUtils.closeUIDStore();
+            cache.clear();
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testRegisterEvaluatedGraph() throws Exception
+    {
+        DENOPTIMGraph graph = new DENOPTIMGraph();
+        assertTrue(EAUtils.registerEvaluatedGraph(graph), "Index not open");
+        assertTrue(EAUtils.registerEvaluatedGraph(graph), "Index not open");
+
+        EAUtils.openEvaluatedGraphsIndex();
+        try
+        {
+            assertTrue(EAUtils.registerEvaluatedGraph(graph), "New graph");
+            assertFalse(EAUtils.registerEvaluatedGraph(graph.deepCopy()),
+                                                            "Equivalent graph");
+        }
+        finally
+        {
+            EAUtils.closeEvaluatedGraphsIndex();
+        }
+        assertTrue(EAUtils.registerEvaluatedGraph(graph), "Index closed");
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testRegisterEvaluatedGraphInLog() throws Exception
+    {
+        File tmpDir = Files.createTempDirectory("_unitEAUtils").toFile();
+        String logFile = tmpDir + System.getProperty("file.separator")
+                                                              + "GRAPHS.txt";
+        DENOPTIMGraph graph = new DENOPTIMGraph();
+
+        EAUtils.openEvaluatedGraphsIndex(logFile);
+        try
+        {
+            assertTrue(EAUtils.registerEvaluatedGraph(graph), "New graph");
+            assertFalse(EAUtils.registerEvaluatedGraph(graph.deepCopy()),
+                                                            "Equivalent graph");
+        }
+        finally
+        {
+            EAUtils.closeEvaluatedGraphsIndex();
+        }
+
+        // a later run using the same log knows the graph
+        EAUtils.openEvaluatedGraphsIndex(logFile);
+        try
+        {
+            assertFalse(EAUtils.registerEvaluatedGraph(graph), 
+                                                        "Graph from the log");
+        }
+        finally
+        {
+            EAUtils.closeEvaluatedGraphsIndex();
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+}
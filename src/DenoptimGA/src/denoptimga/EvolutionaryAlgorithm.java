@@ -21,6 +21,9 @@ package denoptimga;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import java.util.logging.Level;
 
 import org.apache.commons.io.FilenameUtils;
@@ -29,6 +32,7 @@ import org.openscience.cdk.interfaces.IAtomContainer;
 
 import denoptim.constants.DENOPTIMConstants;
 import denoptim.exception.DENOPTIMException;
+import denoptim.fitness.FitnessCache;
 import denoptim.fragspace.FragmentSpace;
 import denoptim.fragspace.FragmentSpaceParameters;
 import denoptim.io.DenoptimIO;
@@ -37,6 +41,9 @@ import denoptim.molecule.DENOPTIMGraph;
 import denoptim.molecule.DENOPTIMMolecule;
 import denoptim.task.DENOPTIMTask;
 import denoptim.task.DENOPTIMTaskManager;
+import denoptim.task.FitnessBatcher;
+import denoptim.task.FitnessWorkerPool;
+import denoptim.task.ProcessRegistry;
 import denoptim.utils.GenUtils;
 import denoptim.utils.GraphUtils;
 import denoptim.utils.RandomUtils;
@@ -45,6 +52,9 @@ import denoptim.utils.TaskUtils;
 
 
 /**
+ * Evolutionary algorithm evaluating the fitness of one batch of candidates
+ * at a time. The candidates of a batch are generated in parallel by a
+ * fork/join pool, and each work unit uses its own stream of random numbers.
  *
  * @author Vishwesh Venkatraman
  */
@@ -54,11 +64,60 @@ public class EvolutionaryAlgorithm
 {
     private final String fsep = System.getProperty("file.separator");
 
+    /**
+     * Pool of threads generating children
+     */
+    private ForkJoinPool generatorPool = null;
+
+    /**
+     * Index of the next stream of random numbers given to a work unit
+     * generating children
+     */
+    private long nextStream = 0;
+
+    /**
+     * Number of vertex IDs reserved for each work unit generating children
+     */
+    static final int VERTEXIDSPERUNIT = 1000;
+
+//------------------------------------------------------------------------------
+
     public void runGA() throws DENOPTIMException
     {
         StopWatch watch = new StopWatch();
              watch.start();
-        
+
+        generatorPool = new ForkJoinPool(GAParameters.getNumberOfCPU());
+        try
+        {
+            EAUtils.openEvaluatedGraphsIndex(
+                                        GAParameters.getVisitedGraphsFile());
+            runGenerations(watch);
+        }
+        finally
+        {
+            EAUtils.closeEvaluatedGraphsIndex();
+            generatorPool.shutdownNow();
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Closes the stores and pools shared by the fitness evaluations of a run.
+     */
+
+    private static void closeRunResources() throws DENOPTIMException
+    {
+        EAUtils.closeUIDStore();
+        FitnessWorkerPool.shutdownSharedPool();
+        FitnessCache.closeSharedCache();
+    }
+
+//------------------------------------------------------------------------------
+
+    private void runGenerations(StopWatch watch) throws DENOPTIMException
+    {
         StringBuilder sb = new StringBuilder(32);
 
         int ndigits = String.valueOf(GAParameters.getNumberOfGenerations()).length();
@@ -72,25 +131,19 @@ public class EvolutionaryAlgorithm
         // create a fragment pool based on the number of attachment points
         if (!FragmentSpace.useAPclassBasedApproach())
             EAUtils.poolFragments(FragmentSpace.getFragmentLibrary());
-        else
-        {
-            // create a fragment pool based on the reactions each fragment
-            // is associated with
-            EAUtils.poolAPClasses(FragmentSpace.getFragmentLibrary());
-        }
 
         // create the population
 
-        // store all unique molecule ids (can be inchi codes)
-        HashSet<String> lstUID = new HashSet<>(1024);
-
         // first collect UIDs of previously known individuals
         if (!GAParameters.getUIDFileIn().equals(""))
         {
-            EAUtils.readUID(GAParameters.getUIDFileIn(),lstUID);
-            EAUtils.writeUID(GAParameters.getUIDFileOut(),lstUID,false);
+            EAUtils.importUIDs(GAParameters.getUIDFileIn(),
+                                                GAParameters.getUIDFileOut());
         }
 
+        // store all unique molecule ids (can be inchi codes)
+        EAUtils.openUIDStore(GAParameters.getUIDFileOut());
+
         // placeholder for the molecules
         ArrayList<DENOPTIMMolecule> molPopulation = new ArrayList<>();
         
@@ -98,15 +151,11 @@ public class EvolutionaryAlgorithm
         String inifile = GAParameters.getInitialPopulationFile();
         if (inifile.length() > 0)
         {
-            EAUtils.getPopulationFromFile(inifile, molPopulation, lstUID, genDir);
+            EAUtils.getPopulationFromFile(inifile, molPopulation, genDir);
             String msg = "Read " + molPopulation.size() + " molecules from " + inifile;
             DENOPTIMLogger.appLogger.log(Level.INFO, msg);
         }
 
-        // we are done with initial UIDs
-        lstUID.clear();
-        lstUID = null;
-
         initializePopulation(molPopulation, genDir);
 
         sb.append(genDir).append(fsep).append("Gen")
@@ -123,6 +172,7 @@ public class EvolutionaryAlgorithm
                             + String.format("%.6f", sdev);
             DENOPTIMLogger.appLogger.log(Level.SEVERE, msg);
             cleanup(molPopulation);
+            closeRunResources();
             return;
         }
 
@@ -197,6 +247,20 @@ public class EvolutionaryAlgorithm
 
         watch.stop();
 
+        DENOPTIMLogger.appLogger.log(Level.INFO, "Candidates rejected before "
+                + "graph-to-molecule conversion: {0}.\n",
+                GraphUtils.getPreFilterRejectionCount());
+
+        closeRunResources();
+        DENOPTIMLogger.appLogger.info(ProcessRegistry.getSummary());
+
+        DENOPTIMLogger.appLogger.log(Level.INFO, "Cache of molecular "
+                + "representations: {0}.\n",
+                GraphUtils.getMolecularRepresentationCache().getStatistics());
+
+        DENOPTIMLogger.appLogger.log(Level.INFO, "Graph-to-molecule "
+                + "conversions: {0}.\n", EAUtils.getNumberOfConversions());
+
         DENOPTIMLogger.appLogger.log(Level.INFO, "Overall time: {0}.\n",
                                                             watch.toString());
 
@@ -208,7 +272,9 @@ public class EvolutionaryAlgorithm
 
     /**
      * generate children that are not already among the current population
-     * they should be valid molecules that do not violate constraints
+     * they should be valid molecules that do not violate constraints.
+     * Children are generated in parallel (see {@link OffspringGeneration})
+     * and then evaluated by the fitness provider.
      * @param molPopulation
      * @param genDir
      * @return <code>true</code> if new valid molecules are produced such that
@@ -223,37 +289,313 @@ public class EvolutionaryAlgorithm
 
         ArrayList<DENOPTIMTask> tasks = new ArrayList<>();
         
-        double sdev_old = EAUtils.getPopulationSD(molPopulation);
+        // keep a snapshot of the current population for the parents to be
+        // chosen from. Members are shared with the population: the graphs of
+        // the selected parents are copied before being altered.
+        ArrayList<DENOPTIMMolecule> clone_popln =
+                            EAUtils.getPopulationSnapshot(molPopulation);
+
+        int n = GAParameters.getNumberOfChildren() + molPopulation.size();
+
+        int[] attempts = new int[3];
+
+        int numtry = 0;
+        int MAX_TRIES = GAParameters.getMaxTriesFactor();
+
+        while (molPopulation.size() < n)
+        {
+            int needed = n - molPopulation.size();
+            Offspring offspring = generateOffspring(clone_popln, needed);
+            for (int i=0; i<attempts.length; i++)
+            {
+                attempts[i] += offspring.attempts[i];
+            }
+
+            // children are taken in the order of their work units
+            for (int i : acceptOffspring(offspring, needed))
+            {
+                addTask(tasks, molPopulation.size(), offspring.graphs.get(i),
+                        offspring.evaluations.get(i), genDir, n);
+            }
+
+            if (tasks.isEmpty())
+            {
+                numtry++;
+                if (numtry == MAX_TRIES)
+                {
+                    DENOPTIMLogger.appLogger.log(Level.WARNING, "Unable to "
+                            + "generate valid children in {0} attempts.\n",
+                            numtry);
+                    break;
+                }
+                continue;
+            }
+            numtry = 0;
+
+            ArrayList<DENOPTIMMolecule> results =
+                    DENOPTIMTaskManager.executeTasks(tasks,
+                                    FitnessBatcher.getNumberOfTasksInFlight(
+                                            GAParameters.getNumberOfCPU()));
+            tasks.clear();
+
+            if (results != null && results.size() > 0)
+            {
+                molPopulation.addAll(results);
+            }
+        } // end while
+
+        StringBuilder sb = new StringBuilder(256);
+        sb.append("Crossover Attempted: ").append(attempts[0]).append("\n");
+        sb.append("Mutation Attempted: ").append(attempts[1]).append("\n");
+        sb.append("New Molecule Attempted: ").append(attempts[2]).append("\n");
+
+        DENOPTIMLogger.appLogger.info(sb.toString());
+
+        // sort the population
+        Collections.sort(molPopulation, Collections.reverseOrder());
+
+        if (GAParameters.getReplacementStrategy() == 1)
+        {
+
+            int k = molPopulation.size();
+
+            // trim the population to the desired size
+            for (int l=GAParameters.getPopulationSize(); l<k; l++)
+            {
+                molPopulation.get(l).cleanup();
+            }
+            
+            molPopulation.subList(GAParameters.getPopulationSize(), k).clear();
+        }
+        
+        // members of the snapshot that survived are still in the population
+        clone_popln.clear();
+        tasks.clear();
+
+        // check if the new population contains a molecule from the children
+        // produced. If yes, return true
+        boolean updated = false;
         
+        for (DENOPTIMMolecule mol : molPopulation)
+        {
+            if (!codes.contains(mol.getMoleculeUID()))
+            {
+                updated = true;
+                break;
+            }
+        }
+        
+        codes.clear();
+        return updated;
+    }
 
-        // keep a clone of the current population for the parents to be
-        // chosen from
-        ArrayList<DENOPTIMMolecule> clone_popln =
-                (ArrayList<DENOPTIMMolecule>) DenoptimIO.deepCopy(molPopulation);
+//------------------------------------------------------------------------------
 
-        int Xop = -1, Mop = -1, Bop = -1;
+    /**
+     * Runs work units generating children in the fork/join pool. Each work
+     * unit takes the next stream of random numbers, so the outcome depends
+     * on the seed and not on the scheduling of the threads.
+     * @param clone_popln the population to select parents from, or
+     * <code>null</code> to build new graphs from scratch
+     * @param units the number of work units
+     * @return the children in the order of their work units
+     */
 
-        int MAX_EVOLVE_ATTEMPTS = 10;
+    private Offspring generateOffspring(ArrayList<DENOPTIMMolecule> clone_popln,
+                                        int units) throws DENOPTIMException
+    {
+        long firstStream = nextStream;
+        nextStream += units;
+        return generateOffspring(generatorPool, clone_popln, firstStream, 
+                                                                        units);
+    }
 
+//------------------------------------------------------------------------------
 
-        int n = GAParameters.getNumberOfChildren() + molPopulation.size();
+    /**
+     * Runs work units generating children in a fork/join pool. The work 
+     * units use the streams of random numbers starting from the given one,
+     * and the blocks of vertex IDs reserved here, so that they do not 
+     * depend on each other nor on the scheduling of the threads.
+     * @param pool the pool running the work units
+     * @param clone_popln the population to select parents from, or
+     * <code>null</code> to build new graphs from scratch
+     * @param firstStream the stream of random numbers of the first unit
+     * @param units the number of work units
+     * @return the children in the order of their work units
+     */
 
-        int f0 = 0, f1 = 0, f2 = 0;
+    static Offspring generateOffspring(ForkJoinPool pool,
+                        ArrayList<DENOPTIMMolecule> clone_popln,
+                        long firstStream, int units) throws DENOPTIMException
+    {
+        int firstVertexId = GraphUtils.reserveVertexIndexes(
+                                                  units * VERTEXIDSPERUNIT);
+        try
+        {
+            return pool.invoke(new OffspringGeneration(clone_popln,
+                                    firstStream, firstVertexId, 0, units));
+        }
+        catch (RuntimeException re)
+        {
+            if (re.getCause() instanceof DENOPTIMException)
+            {
+                throw (DENOPTIMException) re.getCause();
+            }
+            throw new DENOPTIMException("Generation of children failed.", re);
+        }
+    }
 
+//------------------------------------------------------------------------------
 
-        while (molPopulation.size() < n)
+    /**
+     * Children produced by one or more work units
+     */
+
+    static class Offspring
+    {
+        final ArrayList<DENOPTIMGraph> graphs = new ArrayList<>();
+        final ArrayList<Object[]> evaluations = new ArrayList<>();
+
+        /**
+         * Number of crossover, mutation, and construction attempts
+         */
+        final int[] attempts = new int[3];
+
+        private void add(DENOPTIMGraph graph, Object[] res)
+        {
+            graphs.add(graph);
+            evaluations.add(res);
+        }
+
+        private void append(Offspring other)
+        {
+            graphs.addAll(other.graphs);
+            evaluations.addAll(other.evaluations);
+            for (int i=0; i<attempts.length; i++)
+            {
+                attempts[i] += other.attempts[i];
+            }
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Fork/join task running a range of work units that generate children by
+     * crossover, mutation, or construction of new graphs, and that evaluate
+     * the resulting graphs. The results of the sub-ranges are merged in the
+     * order of the work units.
+     */
+
+    private static class OffspringGeneration extends RecursiveTask<Offspring>
+    {
+        private final ArrayList<DENOPTIMMolecule> clone_popln;
+        private final long firstStream;
+        private final int firstVertexId;
+        private final int from;
+        private final int to;
+
+        private OffspringGeneration(ArrayList<DENOPTIMMolecule> clone_popln,
+                  long firstStream, int firstVertexId, int from, int to)
+        {
+            this.clone_popln = clone_popln;
+            this.firstStream = firstStream;
+            this.firstVertexId = firstVertexId;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Offspring compute()
+        {
+            if (to - from > 1)
+            {
+                int mid = (from + to) >>> 1;
+                OffspringGeneration left = new OffspringGeneration(
+                          clone_popln, firstStream, firstVertexId, from, mid);
+                OffspringGeneration right = new OffspringGeneration(
+                          clone_popln, firstStream, firstVertexId, mid, to);
+                left.fork();
+                Offspring res = right.compute();
+                Offspring leftRes = left.join();
+                leftRes.append(res);
+                return leftRes;
+            }
+            Offspring offspring = new Offspring();
+            if (to == from)
+            {
+                return offspring;
+            }
+            RandomUtils.bindStream(RandomUtils.newStream(firstStream + from));
+            GraphUtils.bindVertexIndexes(
+                        firstVertexId + from * VERTEXIDSPERUNIT,
+                        VERTEXIDSPERUNIT);
+            try
+            {
+                if (clone_popln == null)
+                {
+                    offspring.attempts[2]++;
+                    addEvaluated(offspring, EAUtils.buildGraph());
+                }
+                else
+                {
+                    generateChildren(offspring);
+                }
+            }
+            catch (DENOPTIMException de)
+            {
+                throw new RuntimeException(de);
+            }
+            finally
+            {
+                RandomUtils.unbindStream();
+                GraphUtils.unbindVertexIndexes();
+            }
+            return offspring;
+        }
+
+        /**
+         * Evaluates a graph and collects it if it corresponds to a valid
+         * candidate.
+         */
+        private void addEvaluated(Offspring offspring, DENOPTIMGraph graph)
+                                                      throws DENOPTIMException
+        {
+            if (graph == null)
+            {
+                return;
+            }
+            Object[] res = EAUtils.evaluateGraph(graph);
+            if (res != null)
+            {
+                if (!EAUtils.setupRings(res,graph))
+                {
+                    res = null;
+                }
+            }
+            if (res == null)
+            {
+                graph.cleanup();
+                return;
+            }
+            offspring.add(graph, res);
+        }
+
+        /**
+         * Generates children by crossover and/or mutation of parents selected
+         * in the population, or by construction of a new graph.
+         */
+        private void generateChildren(Offspring offspring)
+                                                      throws DENOPTIMException
         {
             DENOPTIMGraph graph1 = null, graph2 = null, graph3 = null,
                     graph4 = null;
-            Xop = -1;
-            Mop = -1;
-            Bop = -1;
-
-            //System.err.println("Selected parents: " + i1 + " " + i2);
+            int Xop = -1, Mop = -1;
+            int MAX_EVOLVE_ATTEMPTS = 10;
 
             // Do CROSSOVER if probabilistically true
             if (RandomUtils.nextBoolean(GAParameters.getCrossoverProbability()))
-            //if (GenUtils.nextBoolean(GAParameters.getRNG(), GAParameters.getCrossoverProbability()))
             {
                 int numatt = 0;
                 int i1 = -1, i2 = -1;
@@ -265,6 +607,7 @@ public class EvolutionaryAlgorithm
                     if (parents[0] == -1 || parents[1] == -1)
                     {
                         DENOPTIMLogger.appLogger.info("Failed to identify compatible parents for crossover/mutation.");
+                        numatt++;
                         continue;
                     }
 
@@ -276,14 +619,12 @@ public class EvolutionaryAlgorithm
                         continue;
                     }
 
-                    numatt = 0;
                     i1 = parents[0];
                     i2 = parents[1];
                     foundPars = true;
                     break;
                 }
 
-
                 if (foundPars)
                 {
                     String molid1 = FilenameUtils.getBaseName(clone_popln.get(i1).getMoleculeFile());
@@ -292,21 +633,14 @@ public class EvolutionaryAlgorithm
                     int gid1 = clone_popln.get(i1).getMoleculeGraph().getGraphId();
                     int gid2 = clone_popln.get(i2).getMoleculeGraph().getGraphId();
 
-                    //System.err.println("MALE: " + molPopulation.get(i1).getMoleculeGraph().toString());
-                    //System.err.println("FEMALE: " + molPopulation.get(i2).getMoleculeGraph().toString());
-
                     // clone the parents
-                    graph1 = (DENOPTIMGraph) DenoptimIO.deepCopy
-                                        (clone_popln.get(i1).getMoleculeGraph());
-                    graph2 = (DENOPTIMGraph) DenoptimIO.deepCopy
-                                        (clone_popln.get(i2).getMoleculeGraph());
+                    graph1 = clone_popln.get(i1).getMoleculeGraph().deepCopy();
+                    graph2 = clone_popln.get(i2).getMoleculeGraph().deepCopy();
 
-                    f0 += 2;
+                    offspring.attempts[0] += 2;
 
                     if (DENOPTIMGraphOperations.performCrossover(graph1, graph2))
                     {
-                        graph1.setGraphId(GraphUtils.getUniqueGraphIndex());
-                        graph2.setGraphId(GraphUtils.getUniqueGraphIndex());
                         EAUtils.addCappingGroup(graph1);
                         EAUtils.addCappingGroup(graph2);
                         Xop = 1;
@@ -318,21 +652,14 @@ public class EvolutionaryAlgorithm
                     }
                     else
                     {
-                        if (graph1 != null)
-                        {
-                            graph1.cleanup();
-                        }
-                        if (graph2 != null)
-                        {
-                            graph2.cleanup();
-                        }
+                        graph1.cleanup();
+                        graph2.cleanup();
                         graph1 = null; graph2 = null;
                     }
                 }
             }
 
             if (RandomUtils.nextBoolean(GAParameters.getMutationProbability()))
-            //if (GenUtils.nextBoolean(GAParameters.getRNG(), GAParameters.getMutationProbability()))
             {
                 // select mutation
                 // select a random parent from the pool
@@ -354,306 +681,101 @@ public class EvolutionaryAlgorithm
 
                 if (foundPars)
                 {
-                    //System.err.println("SELECTING MUTATION");
-                    graph3 = (DENOPTIMGraph) DenoptimIO.deepCopy
-                                        (clone_popln.get(i3).getMoleculeGraph());
-                    f1 += 1;
+                    graph3 = clone_popln.get(i3).getMoleculeGraph().deepCopy();
+                    offspring.attempts[1] += 1;
 
                     String molid3 = FilenameUtils.getBaseName(clone_popln.get(i3).getMoleculeFile());
                     int gid3 = clone_popln.get(i3).getMoleculeGraph().getGraphId();
 
                     if (EAUtils.performMutation(graph3))
                     {
-                        graph3.setGraphId(GraphUtils.getUniqueGraphIndex());
                         Mop = 1;
                         graph3.setMsg("Mutation: " + molid3 + "|" + gid3);
+                        EAUtils.addCappingGroup(graph3);
                     }
-                    EAUtils.addCappingGroup(graph3);
-                }
-                else
-                {
-                    if (graph3 != null)
+                    else
                     {
                         graph3.cleanup();
+                        graph3 = null;
                     }
-                    graph3 = null;
                 }
             }
 
             if (Xop == -1 && Mop == -1)
             {
-                f2++;
+                offspring.attempts[2]++;
                 graph4 = EAUtils.buildGraph();
 
                 if (graph4 != null)
                 {
-                    Bop = 1;
                     graph4.setMsg("NEW");
                 }
-            }
-
-            if (Bop == 1)
-            {
-                if (graph4 != null)
-                {
-                    Object[] res = EAUtils.evaluateGraph(graph4);
-
-                    if (res != null)
-                    {
-                        if (!EAUtils.setupRings(res,graph4))
-                        {
-                            res = null;
-                        }
-                    }
-
-//TODO: to test more thoroughly
-/*
-                    if (res != null)
-                    {
-                            VisitedGraphsHandler vgh = new VisitedGraphsHandler(
-                                        GAParameters.getVisitedGraphsFile(),
-                                        GAParameters.getScaffoldLibrary(),
-                                        FragmentSpace.getFragmentLibrary(),
-                                        GAParameters.getCappingLibrary(),
-                                        GAParameters.getBondOrderMap());
-
-                        if (!vgh.appendGraph(graph4))
-                        {
-                            res = null;
-                        }
-                    }
-*/
-                                
-                    if (res == null)
-                    {
-                        graph4.cleanup();
-                        graph4 = null;
-                    }
-                    else if (addTask(tasks, molPopulation.size(), graph4, res, genDir, n))
-                    {
-                        ArrayList<DENOPTIMMolecule> results =
-                                DENOPTIMTaskManager.executeTasks(tasks,
-                                                GAParameters.getNumberOfCPU());
-                        tasks.clear();
-
-                        if (results != null && results.size() > 0)
-                        {
-                            molPopulation.addAll(results);
-                        }
-
-                        if (molPopulation.size() == n)
-                            break;
-                    }
-                }
+                addEvaluated(offspring, graph4);
             }
 
             if (Xop == 1)
             {
-                if (graph1 != null)
-                {
-                    Object[] res1 = EAUtils.evaluateGraph(graph1);
-
-                    if (res1 != null)
-                    {
-                        if (!EAUtils.setupRings(res1,graph1))
-                        {
-                            res1 = null;
-                        }
-                    }
-
-//TODO: to test more thoroughly
-/*
-                    if (res1 != null)
-                    {
-                        VisitedGraphsHandler vgh = new VisitedGraphsHandler(
-                                        GAParameters.getVisitedGraphsFile(),
-                                        GAParameters.getScaffoldLibrary(),
-                                        FragmentSpace.getFragmentLibrary(),
-                                        GAParameters.getCappingLibrary(),
-                                        GAParameters.getBondOrderMap());
-
-                        if (!vgh.appendGraph(graph1))
-                        {
-                            res1 = null;
-                        }
-                    }
-*/
-                    if (res1 == null)
-                    {
-                        graph1.cleanup();
-                        graph1 = null;
-                    }
-                    else if (addTask(tasks, molPopulation.size(), graph1, res1, genDir, n))
-                    {
-                        ArrayList<DENOPTIMMolecule> results =
-                                DENOPTIMTaskManager.executeTasks(tasks,
-                                                GAParameters.getNumberOfCPU());
-                        tasks.clear();
-                        if (results != null && results.size() > 0)
-                        {
-                            molPopulation.addAll(results);
-                        }
-
-                        if (molPopulation.size() == n)
-                            break;
-                    }
-                }
-
-                // add graph2
-                if (graph2 != null)
-                {
-                    Object[] res2 = EAUtils.evaluateGraph(graph2);
-
-                    if (res2 != null)
-                    {
-                        if (!EAUtils.setupRings(res2,graph2))
-                        {
-                            res2 = null;
-                        }
-                    }
-
-
-//TODO: to test more thoroughly
-/*
-                    if (res2 != null)
-                    {
-                        VisitedGraphsHandler vgh = new VisitedGraphsHandler(
-                                        GAParameters.getVisitedGraphsFile(),
-                                        GAParameters.getScaffoldLibrary(),
-                                        FragmentSpace.getFragmentLibrary(),
-                                        GAParameters.getCappingLibrary(),
-                                        GAParameters.getBondOrderMap());
-
-                        if (!vgh.appendGraph(graph2))
-                        {
-                            res2 = null;
-                        }
-                    }
-*/
-
-                    if (res2 == null)
-                    {
-                        graph2.cleanup();
-                        graph2 = null;
-                    }
-                    else if (addTask(tasks, molPopulation.size(), graph2, res2, genDir, n))
-                    {
-                        ArrayList<DENOPTIMMolecule> results =
-                                DENOPTIMTaskManager.executeTasks(tasks,
-                                                GAParameters.getNumberOfCPU());
-                        tasks.clear();
-
-                        if (results != null && results.size() > 0)
-                        {
-                            molPopulation.addAll(results);
-                        }
-
-                        if (molPopulation.size() == n)
-                            break;
-                    }
-                }
+                addEvaluated(offspring, graph1);
+                addEvaluated(offspring, graph2);
             }
 
             if (Mop == 1)
             {
-                // add graph3
-                if (graph3 != null)
-                {
-                    Object[] res3 = EAUtils.evaluateGraph(graph3);
-
-                    if (res3 != null)
-                    {
-                        if (!EAUtils.setupRings(res3,graph3))
-                        {
-                            res3 = null;
-                        }
-                    }
-
-
-//TODO: to test more thoroughly
-/*
-                    if (res3 != null)
-                    {
-                        VisitedGraphsHandler vgh = new VisitedGraphsHandler(
-                                        GAParameters.getVisitedGraphsFile(),
-                                        GAParameters.getScaffoldLibrary(),
-                                        FragmentSpace.getFragmentLibrary(),
-                                        GAParameters.getCappingLibrary(),
-                                        GAParameters.getBondOrderMap());
-
-                        if (!vgh.appendGraph(graph3))
-                        {
-                            res3 = null;
-                        }
-                    }
-*/
-
-                    if (res3 == null)
-                    {
-                        graph3.cleanup();
-                        graph3 = null;
-                    }
-                    else if (addTask(tasks, molPopulation.size(), graph3, res3, genDir, n))
-                    {
-                        ArrayList<DENOPTIMMolecule> results =
-                                DENOPTIMTaskManager.executeTasks(tasks,
-                                                GAParameters.getNumberOfCPU());
-                        tasks.clear();
-
-                        if (results != null && results.size() > 0)
-                        {
-                            molPopulation.addAll(results);
-                        }
-
-                        if (molPopulation.size() == n)
-                            break;
-                    }
-                }
+                addEvaluated(offspring, graph3);
             }
-        } // end while
-
-        StringBuilder sb = new StringBuilder(256);
-        sb.append("Crossover Attempted: ").append(f0).append("\n");
-        sb.append("Mutation Attempted: ").append(f1).append("\n");
-        sb.append("New Molecule Attempted: ").append(f2).append("\n");
+        }
+    }
 
-        DENOPTIMLogger.appLogger.info(sb.toString());
+//------------------------------------------------------------------------------
 
-        // sort the population
-        Collections.sort(molPopulation, Collections.reverseOrder());
+    /**
+     * Selects the children to be submitted to fitness evaluation, in the 
+     * order of their work units, and gives them their graph IDs. Children
+     * that are equivalent to a graph already submitted in this run, or that 
+     * have the same UID of a child selected before them, are discarded.
+     * Since this is done after the work units have completed, the selection 
+     * and the IDs do not depend on the scheduling of the work units.
+     * @param offspring the children
+     * @param max the maximum number of children to select
+     * @return the positions of the selected children in the offspring
+     * @throws DENOPTIMException
+     */
 
-        if (GAParameters.getReplacementStrategy() == 1)
+    static ArrayList<Integer> acceptOffspring(Offspring offspring, int max)
+                                                    throws DENOPTIMException
+    {
+        ArrayList<Integer> accepted = new ArrayList<Integer>();
+        Set<String> uids = new HashSet<String>();
+        for (int i=0; i<offspring.graphs.size(); i++)
         {
-
-            int k = molPopulation.size();
-
-            // trim the population to the desired size
-            for (int l=GAParameters.getPopulationSize(); l<k; l++)
+            DENOPTIMGraph graph = offspring.graphs.get(i);
+            Object[] res = offspring.evaluations.get(i);
+            String uid = res[0] == null ? "" : res[0].toString().trim();
+            if (accepted.size() >= max)
             {
-                molPopulation.get(l).cleanup();
+                graph.cleanup();
+                continue;
             }
-            
-            molPopulation.subList(GAParameters.getPopulationSize(), k).clear();
-        }
-        
-        cleanup(clone_popln);
-        tasks.clear();
-
-        // check if the new population contains a molecule from the children
-        // produced. If yes, return true
-        boolean updated = false;
-        
-        for (DENOPTIMMolecule mol : molPopulation)
-        {
-            if (!codes.contains(mol.getMoleculeUID()))
+            if (uids.contains(uid))
             {
-                updated = true;
-                break;
+                DENOPTIMLogger.appLogger.log(Level.INFO, "Evaluation of "
+                                + "graph: UID already in this batch " + uid);
+                graph.cleanup();
+                continue;
+            }
+            if (!EAUtils.registerEvaluatedGraph(graph))
+            {
+                graph.cleanup();
+                continue;
             }
+            if (!uid.equals("") && !uid.startsWith("UNDEFINED"))
+            {
+                uids.add(uid);
+            }
+            graph.setGraphId(GraphUtils.getUniqueGraphIndex());
+            accepted.add(i);
         }
-        
-        codes.clear();
-        return updated;
+        return accepted;
     }
 
 //------------------------------------------------------------------------------
@@ -751,99 +873,42 @@ public class EvolutionaryAlgorithm
 
         ArrayList<DENOPTIMTask> tasks = new ArrayList<>();
 
-        while (molPopulation.size() < GAParameters.getPopulationSize())
+        while (molPopulation.size() < npop)
         {
-            if (t == MAX_TRIES)
+            if (t >= MAX_TRIES)
                 break;
 
-            // generate a random graph
-            DENOPTIMGraph molGraph = EAUtils.buildGraph();
-            //System.err.println(molGraph.toString());
-            if (molGraph == null)
-                continue;
-
-            // check if the graph is valid
-            Object[] res = EAUtils.evaluateGraph(molGraph);
-
-            if (res != null)
+            // generate and evaluate random graphs in parallel
+            int needed = npop - molPopulation.size();
+            Offspring offspring = generateOffspring(null, needed);
+            for (int i : acceptOffspring(offspring, needed))
             {
-                if (!EAUtils.setupRings(res,molGraph))
-                {
-                    res = null;
-                }
+                addTask(tasks, molPopulation.size(), offspring.graphs.get(i),
+                        offspring.evaluations.get(i), genDir, npop);
             }
 
-//TODO: to test more thoroughly and combine with more efficient storage of 
-// the visited graphs
-/*
-            if (res != null)
+            ArrayList<DENOPTIMMolecule> results = null;
+            if (!tasks.isEmpty())
             {
-                VisitedGraphsHandler vgh = new VisitedGraphsHandler(
-                        "/scratch/test_visitedGraphs/OLDGRAPHS.txt",
-//TODO back to this                    GAParameters.getVisitedGraphsFile(),
-                                GAParameters.getScaffoldLibrary(),
-                                FragmentSpace.getFragmentLibrary(),
-                                GAParameters.getCappingLibrary(),
-                                GAParameters.getBondOrderMap());
-*/
-/*
-String strGraph1 = ADD HERE THE STRING REPRESENTATION OF A GRAPH FOR TESTING
-DENOPTIMGraph graphTest1 = GraphUtils.getGraphFromString(strGraph1,
-                                GAParameters.getScaffoldLibrary(),
-                                FragmentSpace.getFragmentLibrary(),
-                                GAParameters.getCappingLibrary(),
-                                GAParameters.getBondOrderMap());
-
-boolean test1 = vgh.appendGraph(graphTest1);
-System.out.println("END OF TEST 1: "+test1);
-GenUtils.pause();
-
-
-
-
-                if (!vgh.appendGraph(molGraph))
-                {
-//TODO del
-System.out.println("=== Graph has a duplicate in database ==========");
-GenUtils.pause();
-                    res = null;
-                }
+                results = DENOPTIMTaskManager.executeTasks(tasks,
+                                     FitnessBatcher.getNumberOfTasksInFlight(
+                                            GAParameters.getNumberOfCPU()));
+                tasks.clear();
             }
-*/
 
-            if (res == null)
+            // add results to the population
+            int added = 0;
+            if (results != null && results.size() > 0)
             {
-                molGraph.cleanup();
-                continue;
+                molPopulation.addAll(results);
+                added = results.size();
             }
 
-            // add to the task list for further processing
-            if (addTask(tasks, molPopulation.size(), molGraph, res, genDir, npop))
-            {
-                //System.err.println("Launching batch of: " + tasks.size());
-                // decrement tries
-                t += tasks.size();
-
-                ArrayList<DENOPTIMMolecule> results =
-                        DENOPTIMTaskManager.executeTasks(tasks,
-                                            GAParameters.getNumberOfCPU());
-                tasks.clear();
-
-                // add results to the population
-                if (results != null && results.size() > 0)
-                {
-                    molPopulation.addAll(results);
-                    // decrement tries
-                    if (t > 0)
-                        t -= tasks.size();
-                }
-
-                if (molPopulation.size() == GAParameters.getPopulationSize())
-                    break;
-            }
+            // count the attempts that did not give a member
+            t += needed - added;
         }
 
-        if (t == MAX_TRIES)
+        if (t >= MAX_TRIES)
         {
             DENOPTIMLogger.appLogger.log(Level.SEVERE,
                     "Unable to initialize molecules in {0} attempts.\n", t);
@@ -0,0 +1,181 @@
+package denoptimga;
+
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2026 agent <agent@local>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.vecmath.Point3d;
+
+import org.junit.jupiter.api.Test;
+import org.openscience.cdk.Atom;
+import org.openscience.cdk.AtomContainer;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.silent.Bond;
+
+import denoptim.constants.DENOPTIMConstants;
+import denoptim.exception.DENOPTIMException;
+import denoptim.fragspace.FragmentSpace;
+import denoptim.molecule.DENOPTIMEdge;
+import denoptim.molecule.DENOPTIMFragment;
+import denoptim.molecule.DENOPTIMGraph;
+import denoptim.molecule.DENOPTIMVertex;
+import denoptim.utils.GraphUtils;
+import denoptim.utils.RandomUtils;
+
+/**
+ * Unit test for EvolutionaryAlgorithm
+ *
+ * @author agent
+ */
+
+public class EvolutionaryAlgorithmTest
+{
+    private final String APCS = "apc-S"
+                                + DENOPTIMConstants.SEPARATORAPPROPSCL + "0";
+    private final String APC1 = "apc-1"
+                                + DENOPTIMConstants.SEPARATORAPPROPSCL + "0";
+
+//------------------------------------------------------------------------------
+
+    private void buildFragmentSpace() throws DENOPTIMException
+    {
+        ArrayList<IAtomContainer> scaffLib = new ArrayList<IAtomContainer>();
+        DENOPTIMFragment scaff = new DENOPTIMFragment();
+        Atom a1 = new Atom("C", new Point3d(new double[]{0.0, 0.0, 0.0}));
+        Atom a2 = new Atom("N", new Point3d(new double[]{1.5, 0.0, 0.0}));
+        Atom a3 = new Atom("O", new Point3d(new double[]{3.0, 0.0, 0.0}));
+        scaff.addAtom(a1);
+        scaff.addAtom(a2);
+        scaff.addAtom(a3);
+        scaff.addBond(new Bond(a1, a2));
+        scaff.addBond(new Bond(a2, a3));
+        scaff.addAP(0, APCS, new Point3d(new double[]{0.0, 1.0, 0.0}));
+        scaff.addAP(1, APCS, new Point3d(new double[]{1.5, 1.0, 0.0}));
+        scaff.addAP(2, APCS, new Point3d(new double[]{3.0, 1.0, 0.0}));
+        scaffLib.add(new AtomContainer(scaff));
+
+        ArrayList<IAtomContainer> fragLib = new ArrayList<IAtomContainer>();
+        String[] elements = new String[] {"C", "N", "O", "S", "P"};
+        for (int i=0; i<elements.length; i++)
+        {
+            DENOPTIMFragment frag = new DENOPTIMFragment();
+            frag.addAtom(new Atom(elements[i], new Point3d(new double[]{
+                                                             0.0, 0.0, 1.0})));
+            frag.addAP(0, APC1, new Point3d(new double[]{0.0, 1.0, 1.0}));
+            fragLib.add(new AtomContainer(frag));
+        }
+
+        ArrayList<IAtomContainer> cappLib = new ArrayList<IAtomContainer>();
+
+        HashMap<String,ArrayList<String>> cpMap =
+                                     new HashMap<String,ArrayList<String>>();
+        ArrayList<String> compatible = new ArrayList<String>();
+        compatible.add(APC1);
+        cpMap.put(APCS, compatible);
+
+        HashMap<String,Integer> boMap = new HashMap<String,Integer>();
+        boMap.put(APCS,1);
+        boMap.put(APC1,1);
+
+        HashMap<String,String> capMap = new HashMap<String,String>();
+        HashSet<String> ends = new HashSet<String>();
+        HashMap<String,ArrayList<String>> rcCpMap =
+                                     new HashMap<String,ArrayList<String>>();
+
+        FragmentSpace.defineFragmentSpace(scaffLib,fragLib,cappLib,cpMap,boMap,
+                                                       capMap,ends,rcCpMap);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Generates and selects new candidates, and describes them with IDs
+     * relative to the values of the counters before the generation.
+     */
+
+    private ArrayList<String> generate(int threads, int units)
+                                                              throws Exception
+    {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        ArrayList<String> descriptions = new ArrayList<String>();
+        EAUtils.openEvaluatedGraphsIndex();
+        try
+        {
+            int v0 = GraphUtils.getUniqueVertexIndex();
+            EvolutionaryAlgorithm.Offspring offspring =
+                   EvolutionaryAlgorithm.generateOffspring(pool, null, 0, units);
+            int g0 = GraphUtils.getUniqueGraphIndex();
+            for (int i : EvolutionaryAlgorithm.acceptOffspring(offspring,
+                                                                       units))
+            {
+                DENOPTIMGraph g = offspring.graphs.get(i);
+                Object[] res = offspring.evaluations.get(i);
+                StringBuilder sb = new StringBuilder();
+                sb.append(g.getGraphId() - g0).append(" ");
+                for (DENOPTIMVertex v : g.getVertexList())
+                {
+                    sb.append(v.getVertexId() - v0).append("_")
+                      .append(v.getFragmentType()).append("_")
+                      .append(v.getMolId()).append(" ");
+                }
+                for (DENOPTIMEdge e : g.getEdgeList())
+                {
+                    sb.append(e.getSourceVertex() - v0).append("-")
+                      .append(e.getTargetVertex() - v0).append("_")
+                      .append(e.getBondType()).append(" ");
+                }
+                sb.append(res[0]).append(" ").append(res[1]);
+                descriptions.add(sb.toString());
+            }
+        }
+        finally
+        {
+            EAUtils.closeEvaluatedGraphsIndex();
+            pool.shutdownNow();
+        }
+        return descriptions;
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testSameSeedSameOffspring() throws Exception
+    {
+        buildFragmentSpace();
+        int units = 16;
+
+        RandomUtils.initialiseRNG(1234L);
+        ArrayList<String> first = generate(1, units);
+
+        RandomUtils.initialiseRNG(1234L);
+        ArrayList<String> second = generate(4, units);
+
+        assertFalse(first.isEmpty(), "No candidate generated");
+        assertEquals(first, second, "Offspring generated with the same seed");
+    }
+
+//------------------------------------------------------------------------------
+
+}
@@ -38,13 +38,17 @@ import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.io.MDLV3000Reader;
 
 import denoptim.exception.DENOPTIMException;
+import denoptim.fitness.FitnessCache;
 import denoptim.fitness.FitnessParameters;
 import denoptim.io.DenoptimIO;
 import denoptim.logging.DENOPTIMLogger;
 import denoptim.molecule.DENOPTIMGraph;
 import denoptim.molecule.DENOPTIMMolecule;
+import denoptim.task.FitnessBatcher;
+import denoptim.task.FitnessWorkerPool;
 import denoptim.task.ProcessHandler;
 import denoptim.utils.DENOPTIMMoleculeUtils;
+import denoptim.utils.RandomUtils;
 
 /**
  *
@@ -60,7 +64,6 @@ public class FTask implements Callable
     private String molinchi;
     private final String workDir;
     private volatile ArrayList<DENOPTIMMolecule> curPopln;
-    private volatile Integer numtry;
     private boolean completed = false;
     private boolean hasException = false;
     private String errMsg = "";
@@ -71,6 +74,13 @@ public class FTask implements Callable
      */
     private String id = null;
 
+    /**
+     * Identifies the stream of random numbers used by an in-JVM fitness
+     * provider. The index of the stream is negative, to keep it away from
+     * those of the work units generating children.
+     */
+    private final int streamId;
+
     private ProcessHandler ph_sc;
 
 //------------------------------------------------------------------------------
@@ -98,7 +108,7 @@ public class FTask implements Callable
     
     public FTask(String m_molName, DENOPTIMGraph m_molGraph, String m_inchi,
             String m_smiles, IAtomContainer m_iac, String m_dir, int m_Id,
-            ArrayList<DENOPTIMMolecule> m_popln, Integer m_try, String m_fileUID)
+            ArrayList<DENOPTIMMolecule> m_popln, String m_fileUID)
     {
         molName = m_molName;
         workDir = m_dir;
@@ -108,9 +118,9 @@ public class FTask implements Callable
         molinchi = m_inchi;
         molGraph = m_molGraph;
         id = "" + m_Id;
+        streamId = m_Id;
         curPopln = m_popln;
         fileUID = m_fileUID;
-        numtry = m_try;
     }
 
 //------------------------------------------------------------------------------
@@ -143,89 +153,106 @@ public class FTask implements Callable
             molInit.setProperty("GraphMsg", molGraph.getMsg());
         }
 
-        //TODO change to allow other kinds of external tools (probably merge FitnessTask and FTask and put it under denoptim.fitness package
-        // write the 2D file
-        DenoptimIO.writeMolecule(molINITFile, molInit, false);
-
-        String shell = System.getenv("SHELL");
-        StringBuilder cmdStr = new StringBuilder();
-        cmdStr.append(shell).append(" ")
-        		.append(FitnessParameters.getExternalFitnessProvider())
-                .append(" ").append(molINITFile).append(" ").append(molFinalFile)
-                .append(" ").append(workDir).append(" ").append(id)
-                .append(" ").append(fileUID);
-        
-        DENOPTIMLogger.appLogger.log(Level.INFO, "Executing: {0}", cmdStr);
-
-        ph_sc = new ProcessHandler(cmdStr.toString(), id);
         try
         {
-            ph_sc.runProcess();
-            cmdStr.setLength(0);
+            IAtomContainer mol3DFinal = null;
+            if (FitnessParameters.useFitnessCache())
+            {
+                // result of a previous evaluation, if any
+                mol3DFinal = FitnessCache.getSharedCache().getResult(molinchi,
+                                                                     molInit);
+            }
+            boolean fromCache = mol3DFinal != null;
+            // only results produced by the fitness provider are cached
+            boolean fromProvider = false;
+            if (fromCache)
+            {
+                DENOPTIMLogger.appLogger.info("Fitness of " + molName
+                                                  + " taken from the cache.");
+            }
+            else if (!FitnessParameters.useExternalFitness())
+            {
+                // the fitness is computed within this JVM, and any random
+                // choice does not depend on which thread runs this task
+                RandomUtils.bindStream(RandomUtils.newStream(-1L - streamId));
+                try
+                {
+                    FitnessParameters.getFitnessProvider().computeFitness(
+                                                           molInit, molGraph);
+                }
+                finally
+                {
+                    RandomUtils.unbindStream();
+                }
+                mol3DFinal = molInit;
+                fromProvider = true;
+            }
+            else if (FitnessParameters.useFitnessBatches())
+            {
+                // the candidate is evaluated together with others
+                FitnessBatcher fb = FitnessBatcher.getSharedBatcher();
+                mol3DFinal = fb.evaluate(molInit, molinchi, workDir, fileUID);
+                fromProvider = mol3DFinal != null;
+                if (!fromProvider)
+                {
+                    mol3DFinal = molInit;
+                    mol3DFinal.setProperty("MOL_ERROR", "#FTask: No result "
+                                     + "from the fitness provider for "
+                                     + molName);
+                }
+                DenoptimIO.writeMolecule(molFinalFile, mol3DFinal, false);
+            }
+            else
+            {
+                if (FitnessParameters.useFitnessWorkers())
+                {
+                    // a persistent worker returns the output file content
+                    String sdf = FitnessWorkerPool.getSharedPool().evaluate(id,
+                            DenoptimIO.writeMoleculeToString(molInit), workDir,
+                            fileUID);
+                    FileUtils.writeStringToFile(new File(molFinalFile), sdf);
+                }
+                else
+                {
+                    runExternalScript(molINITFile, molFinalFile);
+                }
+                mol3DFinal = readFitnessProviderOutput(molFinalFile);
+                fromProvider = mol3DFinal != null;
+                if (!fromProvider)
+                {
+                    mol3DFinal = replaceUnreadableOutput(molFinalFile);
+                }
+            }
 
-            if (ph_sc.getExitCode() != 0)
+            // the external fitness provider registers UIDs by itself
+            boolean duplicate = (fromCache
+                                  || !FitnessParameters.useExternalFitness())
+                                && mol3DFinal.getProperty("MOL_ERROR") == null
+                                && !EAUtils.registerUID(molinchi);
+            if (duplicate)
             {
-                hasException = true;
-                msg = "Failed to execute "
-                             + System.getenv("SHELL")
-                             + " script '"
-                             + FitnessParameters.getExternalFitnessProvider()
-                             + "' on " + molINITFile;
-		errMsg = msg;
-                DENOPTIMLogger.appLogger.severe(msg);
-                DENOPTIMLogger.appLogger.severe(ph_sc.getErrorOutput());
-                throw new DENOPTIMException(msg);
+                mol3DFinal.setProperty("MOL_ERROR", "#FTask: UID already "
+                                                       + "known " + molinchi);
             }
 
-            // read the molecular model returned by the fitness provider
-	    IAtomContainer mol3DFinal = new AtomContainer();
-	    boolean unreadable=false;
-	    try
-	    {
-                mol3DFinal = DenoptimIO.readSingleSDFFile(molFinalFile);
-		if (mol3DFinal.isEmpty())
-		{
-		    unreadable=true;
-		}
-	    }
-	    catch (Throwable t)
-	    {
-		unreadable=true;
-	    }
-
-	    if (unreadable)
-	    {
-                msg = "Unreadable FIT file for " + molName;
-		DENOPTIMLogger.appLogger.log(Level.WARNING, msg);
-		
-		// make a copy of the unreadable FIT file that will be replaced
-		String molFFileCp = workDir + fsep + molName 
-							  + "_UnreadbleFIT.sdf";
-		FileUtils.copyFile(new File(molFinalFile), 
-				   new File(molFFileCp));
-		FileUtils.deleteQuietly(new File(molFinalFile));
-
-		// make a readable FIT file with minimal data
-		mol3DFinal = new AtomContainer();
-		mol3DFinal.addAtom(new Atom("H"));
-		mol3DFinal.setProperty(CDKConstants.TITLE, molName);
-		mol3DFinal.setProperty("MOL_ERROR", 
-			   "#FTask: Unable to retrive data. See " + molFFileCp);
-                mol3DFinal.setProperty("GCODE", molGraph.getGraphId());
-                mol3DFinal.setProperty("GraphENC", molGraph.toString());
-		DenoptimIO.writeMolecule(molFinalFile, mol3DFinal, false);
-	    }
+            if (fromProvider && !duplicate
+                && FitnessParameters.useFitnessCache())
+            {
+                FitnessCache.getSharedCache().putResult(molinchi, mol3DFinal,
+                                                              molFinalFile);
+            }
 
             if (mol3DFinal.getProperty("MOL_ERROR") != null)
             {
                 msg = "Structure " + molName + " has an error.";
                 DENOPTIMLogger.appLogger.info(msg);
                 completed = true;
-
-                synchronized (numtry)
+                if (!FitnessParameters.useExternalFitness() || fromCache)
                 {
-                    numtry++;
+                    // keep a record of the rejected candidate
+                    DenoptimIO.writeMolecule(molFinalFile, mol3DFinal, false);
                 }
+
                 molGraph.cleanup();
                 mol3DFinal.removeAllElements();
                 molInit.removeAllElements();
@@ -287,10 +314,6 @@ public class FTask implements Callable
                 {
                     curPopln.add(newmol);
                 }
-                synchronized (numtry)
-                {
-                    numtry--;
-                }
                 
                 // image creation
                 if (GAParameters.getGraphicsCreationStatus())
@@ -330,7 +353,112 @@ public class FTask implements Callable
     }
 
 //------------------------------------------------------------------------------
-   
+
+    /**
+     * Runs the external fitness provider on the input file, which is created
+     * here, and waits for the creation of the output file.
+     */
+
+    private void runExternalScript(String molINITFile, String molFinalFile)
+                                                            throws Exception
+    {
+        //TODO change to allow other kinds of external tools (probably merge FitnessTask and FTask and put it under denoptim.fitness package
+        // write the 2D file
+        DenoptimIO.writeMolecule(molINITFile, molInit, false);
+
+        String shell = System.getenv("SHELL");
+        StringBuilder cmdStr = new StringBuilder();
+        cmdStr.append(shell).append(" ")
+        		.append(FitnessParameters.getExternalFitnessProvider())
+                .append(" ").append(molINITFile).append(" ").append(molFinalFile)
+                .append(" ").append(workDir).append(" ").append(id)
+                .append(" ").append(fileUID);
+        
+        DENOPTIMLogger.appLogger.log(Level.INFO, "Executing: {0}", cmdStr);
+
+        ph_sc = new ProcessHandler(cmdStr.toString(), id);
+        ph_sc.runProcess(FitnessParameters.getTimeout());
+        cmdStr.setLength(0);
+
+        if (ph_sc.getExitCode() != 0)
+        {
+            hasException = true;
+            String msg = "Failed to execute "
+                         + System.getenv("SHELL")
+                         + " script '"
+                         + FitnessParameters.getExternalFitnessProvider()
+                         + "' on " + molINITFile;
+            if (ph_sc.isTimedOut())
+            {
+                msg = msg + " (time limit exceeded)";
+            }
+            errMsg = msg;
+            DENOPTIMLogger.appLogger.severe(msg);
+            DENOPTIMLogger.appLogger.severe(ph_sc.getErrorOutput());
+            throw new DENOPTIMException(msg);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Reads the molecular model returned by the external fitness provider.
+     * @return the molecular model or <code>null</code> if the output file is
+     * unreadable
+     */
+
+    private IAtomContainer readFitnessProviderOutput(String molFinalFile)
+    {
+        try
+        {
+            IAtomContainer mol3DFinal =
+                                   DenoptimIO.readSingleSDFFile(molFinalFile);
+            if (!mol3DFinal.isEmpty())
+            {
+                return mol3DFinal;
+            }
+        }
+        catch (Throwable t)
+        {
+            // unreadable
+        }
+        return null;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Replaces an unreadable output file of the external fitness provider
+     * by a readable one reporting the error.
+     * @return the molecular model reporting the error
+     */
+
+    private IAtomContainer replaceUnreadableOutput(String molFinalFile)
+                                                            throws Exception
+    {
+        String msg = "Unreadable FIT file for " + molName;
+        DENOPTIMLogger.appLogger.log(Level.WARNING, msg);
+
+        // make a copy of the unreadable FIT file that will be replaced
+        String molFFileCp = workDir + System.getProperty("file.separator")
+                            + molName + "_UnreadbleFIT.sdf";
+        FileUtils.copyFile(new File(molFinalFile), new File(molFFileCp));
+        FileUtils.deleteQuietly(new File(molFinalFile));
+
+        // make a readable FIT file with minimal data
+        IAtomContainer mol3DFinal = new AtomContainer();
+        mol3DFinal.addAtom(new Atom("H"));
+        mol3DFinal.setProperty(CDKConstants.TITLE, molName);
+        mol3DFinal.setProperty("MOL_ERROR",
+                   "#FTask: Unable to retrive data. See " + molFFileCp);
+        mol3DFinal.setProperty("GCODE", molGraph.getGraphId());
+        mol3DFinal.setProperty("GraphENC", molGraph.toString());
+        DenoptimIO.writeMolecule(molFinalFile, mol3DFinal, false);
+        return mol3DFinal;
+    }
+
+//------------------------------------------------------------------------------
+
     /**
      * @return <code>true</code> if the task is completed
      */
@@ -19,12 +19,14 @@
 package denoptimga;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.logging.Level;
 
+import org.apache.commons.io.FileUtils;
 import org.openscience.cdk.CDKConstants;
 import org.openscience.cdk.DefaultChemObjectBuilder;
 import org.openscience.cdk.exception.CDKException;
@@ -32,14 +34,18 @@ import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.io.MDLV3000Reader;
 
 import denoptim.exception.DENOPTIMException;
+import denoptim.fitness.FitnessCache;
 import denoptim.fitness.FitnessParameters;
 import denoptim.io.DenoptimIO;
 import denoptim.logging.DENOPTIMLogger;
 import denoptim.molecule.DENOPTIMGraph;
 import denoptim.molecule.DENOPTIMMolecule;
 import denoptim.task.DENOPTIMTask;
+import denoptim.task.FitnessBatcher;
+import denoptim.task.FitnessWorkerPool;
 import denoptim.task.ProcessHandler;
 import denoptim.utils.DENOPTIMMoleculeUtils;
+import denoptim.utils.RandomUtils;
 
 
 
@@ -112,49 +118,96 @@ public class FitnessTask extends DENOPTIMTask
         } 
         
 
-        // write the 2D file
-        DenoptimIO.writeMolecule(molInitFile, molInit, false);
-
-        //TODO: deal with internal fitness and other kinds of fitness
-
-        //TODO change to allow other kinds of external tools (probably merge FitnessTask and FTask and put it under denoptim.fitness package
-        
-        StringBuilder cmdStr = new StringBuilder();
-        String shell = System.getenv("SHELL");
-        cmdStr.append(shell).append(" ")
-            .append(FitnessParameters.getExternalFitnessProvider())
-            .append(" ").append(molInitFile).append(" ").append(molFinalFile)
-            .append(" ").append(workDir).append(" ").append(super.getId())
-            .append(" ").append(fileUID);
-
-
-        DENOPTIMLogger.appLogger.log(Level.INFO, "Executing: {0}", cmdStr);
-
         String id = super.getId() + "";
-        ph_sc = new ProcessHandler(cmdStr.toString(), id);
-
         try
         {
-            ph_sc.runProcess();
+            IAtomContainer mol3DFinal = null;
+            if (FitnessParameters.useFitnessCache())
+            {
+                // result of a previous evaluation, if any
+                mol3DFinal = FitnessCache.getSharedCache().getResult(molinchi,
+                                                                     molInit);
+            }
+            boolean fromCache = mol3DFinal != null;
+            // only results produced by the fitness provider are cached
+            boolean fromProvider = false;
+            if (fromCache)
+            {
+                DENOPTIMLogger.appLogger.info("Fitness of " + molName
+                                                  + " taken from the cache.");
+                DenoptimIO.writeMolecule(molFinalFile, mol3DFinal, false);
+            }
+            else if (!FitnessParameters.useExternalFitness())
+            {
+                // the fitness is computed within this JVM, and any random
+                // choice does not depend on which thread runs this task
+                RandomUtils.bindStream(RandomUtils.newStream(-1L - super.getId()));
+                try
+                {
+                    FitnessParameters.getFitnessProvider().computeFitness(
+                                                           molInit, molGraph);
+                }
+                finally
+                {
+                    RandomUtils.unbindStream();
+                }
+                DenoptimIO.writeMolecule(molFinalFile, molInit, false);
+                mol3DFinal = molInit;
+                fromProvider = true;
+            }
+            else if (FitnessParameters.useFitnessBatches())
+            {
+                // the candidate is evaluated together with others
+                FitnessBatcher fb = FitnessBatcher.getSharedBatcher();
+                mol3DFinal = fb.evaluate(molInit, molinchi, workDir, fileUID);
+                fromProvider = mol3DFinal != null;
+                if (!fromProvider)
+                {
+                    mol3DFinal = molInit;
+                    mol3DFinal.setProperty("MOL_ERROR", "#FitnessTask: No "
+                              + "result from the fitness provider for "
+                              + molName);
+                }
+                DenoptimIO.writeMolecule(molFinalFile, mol3DFinal, false);
+            }
+            else
+            {
+                if (FitnessParameters.useFitnessWorkers())
+                {
+                    // a persistent worker returns the output file content
+                    String sdf = FitnessWorkerPool.getSharedPool().evaluate(id,
+                            DenoptimIO.writeMoleculeToString(molInit), workDir,
+                            fileUID);
+                    FileUtils.writeStringToFile(new File(molFinalFile), sdf);
+                }
+                else
+                {
+                    runExternalScript(molInitFile, molFinalFile, id);
+                }
 
-            if (ph_sc.getExitCode() != 0)
+                // read the conformation (lowest energy)
+                mol3DFinal = DenoptimIO.readSingleSDFFile(molFinalFile);
+                fromProvider = true;
+            }
+
+            // the external fitness provider registers UIDs by itself
+            boolean duplicate = (fromCache
+                                  || !FitnessParameters.useExternalFitness())
+                                && mol3DFinal.getProperty("MOL_ERROR") == null
+                                && !EAUtils.registerUID(molinchi);
+            if (duplicate)
             {
-                msg = "Failed to execute "
-                             + System.getenv("SHELL")
-                             + " script '"
-                             + FitnessParameters.getExternalFitnessProvider()
-                             + "' on " + molInitFile;
-                DENOPTIMLogger.appLogger.severe(msg);
-                DENOPTIMLogger.appLogger.severe(ph_sc.getErrorOutput());
-                throw new DENOPTIMException(msg);
+                mol3DFinal.setProperty("MOL_ERROR", "#FitnessTask: UID "
+                                               + "already known " + molinchi);
+                DenoptimIO.writeMolecule(molFinalFile, mol3DFinal, false);
             }
-            
-// MF: it is better to let the shell script decide whether to keep the input file
-//            DenoptimIO.deleteFile(molInitFile);
-            cmdStr.setLength(0);
 
-            // read the conformation (lowest energy)
-            IAtomContainer mol3DFinal = DenoptimIO.readSingleSDFFile(molFinalFile);
+            if (fromProvider && !duplicate
+                && FitnessParameters.useFitnessCache())
+            {
+                FitnessCache.getSharedCache().putResult(molinchi, mol3DFinal,
+                                                              molFinalFile);
+            }
 
             if (mol3DFinal.getProperty("MOL_ERROR") != null)
             {
@@ -258,6 +311,55 @@ public class FitnessTask extends DENOPTIMTask
         return newmol;
     }
 
+//------------------------------------------------------------------------------
+
+    /**
+     * Runs the external fitness provider on the input file, which is created
+     * here, and waits for the creation of the output file.
+     */
+
+    private void runExternalScript(String molInitFile, String molFinalFile,
+                                               String id) throws Exception
+    {
+        // write the 2D file
+        DenoptimIO.writeMolecule(molInitFile, molInit, false);
+
+        //TODO change to allow other kinds of external tools (probably merge FitnessTask and FTask and put it under denoptim.fitness package
+        
+        StringBuilder cmdStr = new StringBuilder();
+        String shell = System.getenv("SHELL");
+        cmdStr.append(shell).append(" ")
+            .append(FitnessParameters.getExternalFitnessProvider())
+            .append(" ").append(molInitFile).append(" ").append(molFinalFile)
+            .append(" ").append(workDir).append(" ").append(id)
+            .append(" ").append(fileUID);
+
+
+        DENOPTIMLogger.appLogger.log(Level.INFO, "Executing: {0}", cmdStr);
+
+        ph_sc = new ProcessHandler(cmdStr.toString(), id);
+        ph_sc.runProcess(FitnessParameters.getTimeout());
+
+        if (ph_sc.getExitCode() != 0)
+        {
+            String msg = "Failed to execute "
+                         + System.getenv("SHELL")
+                         + " script '"
+                         + FitnessParameters.getExternalFitnessProvider()
+                         + "' on " + molInitFile;
+            if (ph_sc.isTimedOut())
+            {
+                msg = msg + " (time limit exceeded)";
+            }
+            DENOPTIMLogger.appLogger.severe(msg);
+            DENOPTIMLogger.appLogger.severe(ph_sc.getErrorOutput());
+            throw new DENOPTIMException(msg);
+        }
+            
+// MF: it is better to let the shell script decide whether to keep the input file
+//            DenoptimIO.deleteFile(molInitFile);
+    }
+
 //------------------------------------------------------------------------------
 
     @Override
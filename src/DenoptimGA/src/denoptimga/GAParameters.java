@@ -84,7 +84,12 @@ public class GAParameters
     /**
      * Pathname to the file containing the list of previously visited graph
      */
-    protected static String visitedGraphsFile = "GRAPHS.txt";
+    protected static String visitedGraphsFile = "";
+
+    /**
+     * Default name of the file containing the list of visited graphs
+     */
+    private static final String DEFVISITEDGRAPHSFILENAME = "GRAPHS.txt";
 
     /**
      * Pathname to the file collecting the failed sdf molecules
@@ -535,6 +540,16 @@ public class GAParameters
                     continue;
                 }
 
+                if (line.toUpperCase().startsWith("GA-VISITEDGRAPHSFILE="))
+                {
+                    option = line.substring(line.indexOf("=") + 1).trim();
+                    if (option.length() > 0)
+                    {
+                        visitedGraphsFile = option;
+                    }
+                    continue;
+                }
+
                 if (line.toUpperCase().startsWith("GA-RANDOMSEED="))
                 {
                     option = line.substring(line.indexOf("=") + 1).trim();
@@ -824,6 +839,11 @@ public class GAParameters
             uidFileOut = dataDir + fileSep + DEFUIDFILEOUTNAME;
         }
 
+        if (visitedGraphsFile.equals(""))
+        {
+            visitedGraphsFile = dataDir + fileSep + DEFVISITEDGRAPHSFILENAME;
+        }
+
         try
         {
             DENOPTIMLogger.getInstance().setupLogger(logFile);
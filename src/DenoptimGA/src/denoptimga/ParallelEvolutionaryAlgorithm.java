@@ -18,13 +18,16 @@
 
 package denoptimga;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashSet;
-import java.util.List;
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.Future;
-import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
@@ -35,38 +38,99 @@ import org.openscience.cdk.interfaces.IAtomContainer;
 
 import denoptim.constants.DENOPTIMConstants;
 import denoptim.exception.DENOPTIMException;
+import denoptim.fitness.FitnessCache;
 import denoptim.fragspace.FragmentSpace;
 import denoptim.fragspace.FragmentSpaceParameters;
 import denoptim.io.DenoptimIO;
 import denoptim.logging.DENOPTIMLogger;
 import denoptim.molecule.DENOPTIMGraph;
 import denoptim.molecule.DENOPTIMMolecule;
+import denoptim.task.FitnessBatcher;
+import denoptim.task.FitnessWorkerPool;
+import denoptim.task.ProcessRegistry;
 import denoptim.utils.GenUtils;
 import denoptim.utils.GraphUtils;
 import denoptim.utils.RandomUtils;
 import denoptim.utils.TaskUtils;
 
 /**
+ * Evolutionary algorithm evaluating candidates in parallel. The fitness
+ * evaluations are scheduled in a steady-state fashion: as soon as an
+ * evaluation is completed a new candidate is generated, by selecting parents
+ * from the current population, and submitted. Thus, the number of
+ * evaluations in flight is kept equal to the number of threads (or to
+ * the number of threads times the batch size, when candidates are evaluated
+ * in batches, see {@link FitnessBatcher}), and evaluations are not 
+ * synchronized by the generations, which only define when the population 
+ * is trimmed and reported.
+ * Since children are generated in the order evaluations complete, runs
+ * are not reproducible, even with the same seed and number of threads.
  *
  * @author Vishwesh Venkatraman
+ * @author Marco Foscato
  */
 public class ParallelEvolutionaryAlgorithm
 {
-    final List<Future<String>> futures;
-    final ArrayList<FTask> submitted;
     final ThreadPoolExecutor tcons;
+
+    /**
+     * Provider of the fitness evaluations in order of completion
+     */
+    final CompletionService<Object> ecs;
+
+    /**
+     * The fitness evaluations submitted and not yet collected
+     */
+    final Map<Future<Object>,Evaluation> inFlight;
+
+    /**
+     * Maximum number of fitness evaluations in flight
+     */
+    private final int maxInFlight;
+
+    /**
+     * Number of fitness evaluations collected
+     */
+    private long numEvaluations = 0;
+
+    /**
+     * Total time (nanoseconds) spent by the collected fitness evaluations
+     */
+    private long evaluationTime = 0;
    
     private final String fsep = System.getProperty("file.separator");
+
+//------------------------------------------------------------------------------
+
+    /**
+     * A fitness evaluation in flight
+     */
+
+    private static class Evaluation
+    {
+        private final FTask task;
+        private final long start = System.nanoTime();
+
+        private Evaluation(FTask task)
+        {
+            this.task = task;
+        }
+    }
+
+//------------------------------------------------------------------------------
  
     public ParallelEvolutionaryAlgorithm()
     {
-        futures = new ArrayList<>();
-        submitted = new ArrayList<>();
+        inFlight = new ConcurrentHashMap<>();
+        maxInFlight = FitnessBatcher.getNumberOfTasksInFlight(
+                                              GAParameters.getNumberOfCPU());
 
-        tcons = new ThreadPoolExecutor(GAParameters.getNumberOfCPU(),
-                                GAParameters.getNumberOfCPU(), 0L,
+        // no more than maxInFlight tasks are ever submitted, so the queue
+        // does not grow
+        tcons = new ThreadPoolExecutor(maxInFlight, maxInFlight, 0L,
                                 TimeUnit.MILLISECONDS,
-                                new ArrayBlockingQueue<Runnable>(1));
+                                new LinkedBlockingQueue<Runnable>());
+        ecs = new ExecutorCompletionService<Object>(tcons);
 
 
         Runtime.getRuntime().addShutdownHook(new Thread()
@@ -91,7 +155,7 @@ public class ParallelEvolutionaryAlgorithm
                 }
                 catch (InterruptedException ie)
                 {
-                    cleanup(tcons, futures, submitted);
+                    cleanup();
                     // (Re-)Cancel if current thread also interrupted
                     tcons.shutdownNow();
                     // Preserve interrupt status
@@ -99,55 +163,138 @@ public class ParallelEvolutionaryAlgorithm
                 }
             }
         });
+    }
 
+//------------------------------------------------------------------------------
 
-        // by default the ThreadPoolExecutor will throw an exception
-        tcons.setRejectedExecutionHandler(new RejectedExecutionHandler()
-        {
-            @Override
-            public void rejectedExecution(Runnable r, ThreadPoolExecutor executor)
-            {
-                try
-                {
-                    // this will block if the queue is full
-                    executor.getQueue().put(r);
-                }
-                catch (InterruptedException ex)
-                {
-                    //Logger.getLogger(EvolutionaryAlgorithm.class.getName()).log(Level.SEVERE, null, ex);
-                }
-            }
-        });
+    public void stopRun()
+    {
+        cleanup();
+        tcons.shutdown();
+    }
 
+//------------------------------------------------------------------------------
+
+    /**
+     * Submits a fitness evaluation.
+     */
+
+    @SuppressWarnings("unchecked")
+    private void submit(FTask task)
+    {
+        Future<Object> f = ecs.submit(task);
+        inFlight.put(f, new Evaluation(task));
     }
 
 //------------------------------------------------------------------------------
 
-    public void stopRun()
+    /**
+     * Waits for the completion of any of the fitness evaluations in flight.
+     * @return <code>true</code> if the evaluated candidate has been added to
+     * the population, or <code>false</code> if it has been rejected
+     * @throws DENOPTIMException if the evaluation failed
+     */
+
+    private boolean collectEvaluation() throws DENOPTIMException
     {
-        cleanup(tcons, futures, submitted);
-        tcons.shutdown();
+        Future<Object> f;
+        try
+        {
+            f = ecs.take();
+        }
+        catch (InterruptedException ie)
+        {
+            stopRun();
+            Thread.currentThread().interrupt();
+            throw new DENOPTIMException(ie);
+        }
+        Evaluation ev = inFlight.remove(f);
+        numEvaluations++;
+        evaluationTime = evaluationTime + System.nanoTime() - ev.start;
+        try
+        {
+            return "PASS".equals(f.get());
+        }
+        catch (ExecutionException | InterruptedException ex)
+        {
+            DENOPTIMLogger.appLogger.log(Level.SEVERE, "problems in "
+                                                      + ev.task.toString());
+            DENOPTIMLogger.appLogger.log(Level.SEVERE,
+                                                  ev.task.getErrorMessage());
+            stopRun();
+            throw new DENOPTIMException("Errors found during execution.",
+                                                                           ex);
+        }
     }
 
 //------------------------------------------------------------------------------
 
-    private boolean checkForException()
+    /**
+     * Reports the number of fitness evaluations collected in a period and
+     * the fraction of the available threads that was busy with them.
+     */
+
+    private void logThroughput(String period, long evaluations, long busyTime,
+                                                               long wallTime)
     {
-        boolean hasprobs = false;
-        for (FTask tsk:submitted)
+        double seconds = wallTime / 1.0e9;
+        double usage = wallTime > 0 ? 100.0 * busyTime
+                                            / (wallTime * maxInFlight) : 0.0;
+        DENOPTIMLogger.appLogger.log(Level.INFO, "{0}: {1} fitness "
+                + "evaluations in {2} s ({3} per minute). Usage of {4} "
+                + "threads: {5}%.\n", new Object[] {period, evaluations,
+                String.format("%.1f", seconds),
+                String.format("%.1f", seconds > 0 ? evaluations * 60.0
+                                                          / seconds : 0.0),
+                maxInFlight, String.format("%.1f", usage)});
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Collects the evaluations still in flight and stops the threads
+     * running fitness evaluations.
+     */
+
+    private void stopEvaluations() throws DENOPTIMException
+    {
+        // collect the evaluations still in flight
+        while (!inFlight.isEmpty())
         {
-            if (tsk.foundException())
+            collectEvaluation();
+        }
+
+        // shutdown threadpool
+        tcons.shutdown();
+
+        try
+        {
+            // wait for pending tasks to finish
+            while (!tcons.awaitTermination(5, TimeUnit.SECONDS))
             {
-                hasprobs = true;
-	        DENOPTIMLogger.appLogger.log(Level.SEVERE, "problems in " 
-							      + tsk.toString());
-		DENOPTIMLogger.appLogger.log(Level.SEVERE,
-							 tsk.getErrorMessage());
-                break;
+                // do nothing
             }
         }
+        catch (InterruptedException ex)
+        {
+            DENOPTIMLogger.appLogger.log(Level.SEVERE, null, ex);
+            throw new DENOPTIMException (ex);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Closes the stores and pools shared by the fitness evaluations of a run.
+     * To be called once no evaluation is in flight.
+     */
 
-        return hasprobs;
+    private static void closeRunResources() throws DENOPTIMException
+    {
+        EAUtils.closeUIDStore();
+        EAUtils.closeEvaluatedGraphsIndex();
+        FitnessWorkerPool.shutdownSharedPool();
+        FitnessCache.closeSharedCache();
     }
 
 //------------------------------------------------------------------------------
@@ -156,6 +303,7 @@ public class ParallelEvolutionaryAlgorithm
     {
         StopWatch watch = new StopWatch();
              watch.start();
+        long runStart = System.nanoTime();
 
         // start the threads
         tcons.prestartAllCoreThreads();
@@ -174,40 +322,32 @@ public class ParallelEvolutionaryAlgorithm
         // create a fragment pool based on the number of attachment points
         if (!FragmentSpace.useAPclassBasedApproach())
             EAUtils.poolFragments(FragmentSpace.getFragmentLibrary());
-        else
+
+        // first collect UIDs of previously known individuals
+        if (!GAParameters.getUIDFileIn().equals(""))
         {
-            // create a fragment pool based on the reactions each fragment
-            // is associated with
-            EAUtils.poolAPClasses(FragmentSpace.getFragmentLibrary());
+            EAUtils.importUIDs(GAParameters.getUIDFileIn(),
+                                                GAParameters.getUIDFileOut());
         }
 
-        // store all inchi keys
-        HashSet<String> lstUID = new HashSet<>(1024);
+        // store all unique molecule ids (can be inchi codes)
+        EAUtils.openUIDStore(GAParameters.getUIDFileOut());
 
-        // first collect UIDs of previously known individuals
-	if (!GAParameters.getUIDFileIn().equals(""))
-	{
-//TODO: if same file avoid re-write
-            EAUtils.readUID(GAParameters.getUIDFileIn(),lstUID);
-            EAUtils.writeUID(GAParameters.getUIDFileOut(),lstUID,false); //overwrite
-	}
+        // graphs evaluated in this run
+        EAUtils.openEvaluatedGraphsIndex(GAParameters.getVisitedGraphsFile());
 
         // placeholder for the molecules
         ArrayList<DENOPTIMMolecule> molPopulation = new ArrayList<>();
 
-	// then, get the molecules from the initial population file 
+        // then, get the molecules from the initial population file 
         String inifile = GAParameters.getInitialPopulationFile();
         if (inifile.length() > 0)
         {
-            EAUtils.getPopulationFromFile(inifile, molPopulation, lstUID, genDir);
+            EAUtils.getPopulationFromFile(inifile, molPopulation, genDir);
             String msg = "Read " + molPopulation.size() + " molecules from " + inifile;
             DENOPTIMLogger.appLogger.log(Level.INFO, msg);
         }
 
-	// we are done with initial UIDs
-        lstUID.clear();
-        lstUID = null;
-
         initializePopulation(molPopulation, genDir);
         
         sb.append(genDir).append(fsep).append("Gen")
@@ -215,15 +355,20 @@ public class ParallelEvolutionaryAlgorithm
         String genOutfile = sb.toString();
         sb.setLength(0);
 
-        EAUtils.outputPopulationDetails(molPopulation, genOutfile);
+        // evaluations still in flight may add members to the population
+        ArrayList<DENOPTIMMolecule> snapshot = 
+                                EAUtils.getPopulationSnapshot(molPopulation);
+        EAUtils.outputPopulationDetails(snapshot, genOutfile);
         
-        double sdev = EAUtils.getPopulationSD(molPopulation);
+        double sdev = EAUtils.getPopulationSD(snapshot);
         if (sdev < 0.0001)
         {
             String msg = "Fitness values have little or no difference. STDDEV="
                             + String.format("%.6f", sdev);
             DENOPTIMLogger.appLogger.log(Level.SEVERE, msg);
+            stopEvaluations();
             cleanup(molPopulation);
+            closeRunResources();
             return;
         }
 
@@ -270,7 +415,8 @@ public class ParallelEvolutionaryAlgorithm
             genOutfile = sb.toString();
             sb.setLength(0);
 
-            EAUtils.outputPopulationDetails(molPopulation, genOutfile);
+            EAUtils.outputPopulationDetails(
+                    EAUtils.getPopulationSnapshot(molPopulation), genOutfile);
             
             DENOPTIMLogger.appLogger.log(Level.INFO,"Generation {0}" + " completed\n"
                             + "----------------------------------------"
@@ -289,23 +435,7 @@ public class ParallelEvolutionaryAlgorithm
             curGen++;
         }
 
-        // shutdown threadpool
-        tcons.shutdown();
-
-        try
-        {
-            // wait for pending tasks to finish
-            while (!tcons.awaitTermination(5, TimeUnit.SECONDS))
-            {
-                // do nothing
-            }
-        }
-        catch (InterruptedException ex)
-        {
-            DENOPTIMLogger.appLogger.log(Level.SEVERE, null, ex);
-            throw new DENOPTIMException (ex);
-        }
-
+        stopEvaluations();
 
 
         // sort the population
@@ -330,6 +460,23 @@ public class ParallelEvolutionaryAlgorithm
 
         watch.stop();
 
+        DENOPTIMLogger.appLogger.log(Level.INFO, "Candidates rejected before "
+                + "graph-to-molecule conversion: {0}.\n",
+                GraphUtils.getPreFilterRejectionCount());
+
+        logThroughput("Run", numEvaluations, evaluationTime,
+                                               System.nanoTime() - runStart);
+
+        closeRunResources();
+        DENOPTIMLogger.appLogger.info(ProcessRegistry.getSummary());
+
+        DENOPTIMLogger.appLogger.log(Level.INFO, "Cache of molecular "
+                + "representations: {0}.\n",
+                GraphUtils.getMolecularRepresentationCache().getStatistics());
+
+        DENOPTIMLogger.appLogger.log(Level.INFO, "Graph-to-molecule "
+                + "conversions: {0}.\n", EAUtils.getNumberOfConversions());
+
         DENOPTIMLogger.appLogger.log(Level.INFO, "Overall time: {0}.\n",
                                                             watch.toString());
 
@@ -342,9 +489,11 @@ public class ParallelEvolutionaryAlgorithm
 
     /**
      * generate children that are not already among the current population
-     * they should be valid molecules that do not violate constraints
+     * they should be valid molecules that do not violate constraints.
+     * A new child is generated every time the evaluation of another child
+     * is completed, and the parents are selected among the members of the
+     * population at that time.
      * @param molPopulation
-     * @param lstInchi
      * @param genDir
      * @return <code>true</code> if new valid molecules are produced such that
      * the population is updated with fitter structures
@@ -354,561 +503,129 @@ public class ParallelEvolutionaryAlgorithm
                                 String genDir) throws DENOPTIMException
     {
         // temporary store for inchi codes
-        ArrayList<String> codes = EAUtils.getInchiCodes(molPopulation);
+        ArrayList<String> codes = EAUtils.getInchiCodes(
+                                EAUtils.getPopulationSnapshot(molPopulation));
 
         //double sdev_old = EAUtils.getPopulationSD(molPopulation);
         
-        // keep a clone of the current population for the parents to be
-        // chosen from
-        ArrayList<DENOPTIMMolecule> clone_popln;
-
-        synchronized (molPopulation)
-        {
-            clone_popln =
-                (ArrayList<DENOPTIMMolecule>) DenoptimIO.deepCopy(molPopulation);
-        }
+        long memAtStart = GenUtils.getUsedMemory();
+        long genStart = System.nanoTime();
+        long evalsAtStart = numEvaluations;
+        long evalTimeAtStart = evaluationTime;
+
+        // keep a snapshot of the current population for the parents to be
+        // chosen from. Members are shared with molPopulation: the graphs of
+        // the selected parents are copied before being altered. The
+        // snapshot is renewed whenever a new member enters the population.
+        long snapshotStart = System.nanoTime();
+        ArrayList<DENOPTIMMolecule> clone_popln =
+                                EAUtils.getPopulationSnapshot(molPopulation);
+        long snapshotTime = System.nanoTime() - snapshotStart;
 
         int n = GAParameters.getNumberOfChildren() + clone_popln.size();
 
-        int f0 = 0, f1 = 0, f2 = 0;
+        // counters of crossover, mutation, and construction attempts
+        int[] attempts = new int[3];
 
-        Integer numtry = 0;
+        int numtry = 0;
         int MAX_TRIES = GAParameters.getMaxTriesFactor();
 
-        //System.err.println("EvolvePopulation " + genDir);
-        String molName, inchi, smiles;
-
-        int Xop = -1, Mop = -1, Bop = -1;
-        int MAX_EVOLVE_ATTEMPTS = 10;
+        // children generated but not yet submitted
+        ArrayDeque<DENOPTIMGraph> children = new ArrayDeque<>();
 
         try
         {
             while (true)
             {
-                if (checkForException())
+                if (numtry >= MAX_TRIES)
                 {
-                    stopRun();
-                    throw new DENOPTIMException("Errors found during execution.");
-                }
-
-                synchronized (numtry)
-                {
-                    if (numtry == MAX_TRIES)
-                    {
-//                        MF: the cleanup method removed also uncompleted tasks
-//                        causing their results to be forgotten.
-                        cleanupCompleted(tcons, futures, submitted);
-//                      cleanup(tcons, futures, submitted);
-                        break;
-                    }
+                    break;
                 }
 
                 synchronized (molPopulation)
                 {
                     //System.err.println("PSIZE: " + molPopulation.size());
-                    if (molPopulation.size() == n || molPopulation.size() > n)
-                    {
-                        break;
-                    }
-                }
-
-                DENOPTIMGraph graph1 = null, graph2 = null, graph3 = null,
-                    graph4 = null;
-                Xop = -1;
-                Mop = -1;
-                Bop = -1;
-
-
-                //System.err.println("Selected parents: " + i1 + " " + i2);
-
-                if (RandomUtils.nextBoolean(GAParameters.getCrossoverProbability()))
-                //if (GenUtils.nextBoolean(GAParameters.getRNG(), 
-                //        GAParameters.getCrossoverProbability()))
-                {
-                    int numatt = 0;
-                    int i1 = -1, i2 = -1;
-                    boolean foundPars = false;
-
-                    while (numatt < MAX_EVOLVE_ATTEMPTS)
+                    if (molPopulation.size() >= n)
                     {
-                        int parents[] = EAUtils.selectParents(clone_popln);
-                        if (parents[0] == -1 || parents[1] == -1)
-                        {
-                            DENOPTIMLogger.appLogger.info("Failed to identify compatible parents for crossover/mutation.");
-                            continue;
-                        }
-
-                        // perform crossover
-                        if (parents[0] == parents[1])
-                        {
-                            DENOPTIMLogger.appLogger.info("Crossover has indentical partners.");
-                            numatt++;
-                            continue;
-                        }
-
-                        numatt = 0;
-                        i1 = parents[0];
-                        i2 = parents[1];
-                        foundPars = true;
                         break;
                     }
-
-                    if (foundPars)
-                    {
-                        String molid1 = FilenameUtils.getBaseName(clone_popln.get(i1).getMoleculeFile());
-                        String molid2 = FilenameUtils.getBaseName(clone_popln.get(i2).getMoleculeFile());
-
-                        int gid1 = clone_popln.get(i1).getMoleculeGraph().getGraphId();
-                        int gid2 = clone_popln.get(i2).getMoleculeGraph().getGraphId();
-
-
-                        //System.err.println("MALE: " + clone_popln.get(i1).getMoleculeGraph().toString());
-                        //System.err.println("FEMALE: " + clone_popln.get(i2).getMoleculeGraph().toString());
-
-
-                        // clone the parents
-                        graph1 = (DENOPTIMGraph) DenoptimIO.deepCopy
-                                        (clone_popln.get(i1).getMoleculeGraph());
-                        graph2 = (DENOPTIMGraph) DenoptimIO.deepCopy
-                                        (clone_popln.get(i2).getMoleculeGraph());
-
-                        f0 += 2;
-
-                        if (DENOPTIMGraphOperations.performCrossover(graph1, graph2))
-                        {
-                            graph1.setGraphId(GraphUtils.getUniqueGraphIndex());
-                            graph2.setGraphId(GraphUtils.getUniqueGraphIndex());
-                            EAUtils.addCappingGroup(graph1);
-                            EAUtils.addCappingGroup(graph2);
-                            Xop = 1;
-
-                            graph1.setMsg("Xover: " + molid1 + "|" + gid1 +
-                                                "=" + molid2 + "|" + gid2);
-                            graph2.setMsg("Xover: " + molid1 + "|" + gid1 +
-                                                "=" + molid2 + "|" + gid2);
-                        }
-                        else
-                        {
-                            if (graph1 != null)
-                            {
-                                graph1.cleanup();
-                            }
-                            if (graph2 != null)
-                            {
-                                graph2.cleanup();
-                            }
-                            graph1 = null; graph2 = null;
-                        }
-                    }
                 }
 
-                if (RandomUtils.nextBoolean(GAParameters.getMutationProbability()))
-                //if (GenUtils.nextBoolean(GAParameters.getRNG(), 
-                //    GAParameters.getMutationProbability()))
+                if (inFlight.size() >= maxInFlight)
                 {
-                    // select mutation
-                    // select a random parent from the pool
-
-                    int numatt = 0;
-                    int i3 = -1;
-                    boolean foundPars = false;
-                    while (numatt < MAX_EVOLVE_ATTEMPTS)
+                    if (collectEvaluation())
                     {
-                        i3 = EAUtils.selectSingleParent(clone_popln);
-                        if (i3 == -1)
+                        if (numtry > 0)
                         {
-                            DENOPTIMLogger.appLogger.info("Invalid parent selection.");
-                            numatt++;
-                            continue;
-                        }
-                        foundPars = true;
-                        break;
-                    }
-
-                    if (foundPars)
-                    {
-                        //System.err.println("SELECTING MUTATION");
-                        graph3 = (DENOPTIMGraph) DenoptimIO.deepCopy
-                                            (clone_popln.get(i3).getMoleculeGraph());
-                        f1 += 1;
-
-                        String molid3 = FilenameUtils.getBaseName(clone_popln.get(i3).getMoleculeFile());
-                        int gid3 = clone_popln.get(i3).getMoleculeGraph().getGraphId();
-
-                        if (EAUtils.performMutation(graph3))
-                        {
-                            graph3.setGraphId(GraphUtils.getUniqueGraphIndex());
-                            Mop = 1;
-                            graph3.setMsg("Mutation: " + molid3 + "|" + gid3);
+                            numtry--;
                         }
-                        EAUtils.addCappingGroup(graph3);
+                        snapshotStart = System.nanoTime();
+                        clone_popln = EAUtils.getPopulationSnapshot(
+                                                               molPopulation);
+                        snapshotTime += System.nanoTime() - snapshotStart;
                     }
                     else
                     {
-                        if (graph3 != null)
-                        {
-                            graph3.cleanup();
-                        }
-                        graph3 = null;
-                    }
-                }
-
-                if (Xop == -1 && Mop == -1)
-                {
-                    f2++;
-                    graph4 = EAUtils.buildGraph();
-
-                    if (graph4 != null)
-                    {
-                        Bop = 1;
-                        graph4.setMsg("NEW");
+                        numtry++;
                     }
+                    continue;
                 }
 
-                if (Bop == 1)
+                if (children.isEmpty())
                 {
-                    Object[] res = EAUtils.evaluateGraph(graph4);
-
-                    if (res != null)
+                    generateChildren(clone_popln, children, attempts);
+                    if (children.isEmpty())
                     {
-                        if (!EAUtils.setupRings(res,graph4))
-                        {
-                            res = null;
-                        }
-                    }
-
-                    if (res == null)
-                    {
-                        synchronized(numtry)
-                        {
-                            numtry++;
-                        }
+                        numtry++;
                         continue;
                     }
-                    else
-                    {
-                        synchronized(numtry)
-                        {
-                            numtry = 0;
-                        }
-                    }
-
-                    // Create the task
-                    // check if the molinchi has been encountered before
-                    inchi = res[0].toString().trim();
-
-//                    if (lstUID.contains(inchi))
-//                    {
-//                        synchronized(numtry)
-//                        {
-//                            numtry++;
-//                        }
-//                        continue;
-//                    }
-//                    else
-//                    {
-//                        lstUID.add(inchi);
-//                        synchronized(numtry)
-//                        {
-//                            numtry = 0;
-//                        }
-//                    }
-
-                    // file extensions will be added later
-                    molName = "M" + GenUtils.getPaddedString(DENOPTIMConstants.MOLDIGITS,
-                                            GraphUtils.getUniqueMoleculeIndex());
-
-                    int taskId = TaskUtils.getUniqueTaskIndex();
-
-                    smiles = res[1].toString().trim();
-                    IAtomContainer cmol = (IAtomContainer) res[2];
-
-                    FTask task = new FTask(molName, graph4, inchi, smiles, cmol,
-                                           genDir, taskId, molPopulation,
-                                           numtry,GAParameters.getUIDFileOut());
-
-                    submitted.add(task);
-                    futures.add(tcons.submit(task));
-
-                    synchronized (molPopulation)
-                    {
-                        //System.err.println("PSIZE: " + molPopulation.size());
-
-                        if (molPopulation.size() == n || molPopulation.size() > n)
-                        {
-                            break;
-                        }
-                    }
-
-                }
-                if (Xop == 1)
-                {
-                    if (graph1 != null)
-                    {
-                        Object[] res1 = EAUtils.evaluateGraph(graph1);
-
-                        if (res1 != null)
-                        {
-                            if (!EAUtils.setupRings(res1,graph1))
-                            {
-                                res1 = null;
-                            }
-                        }
-
-                        if (res1 == null)
-                        {
-                            synchronized(numtry)
-                            {
-                                numtry++;
-                            }
-                            continue;
-                        }
-                        else
-                        {
-                            synchronized(numtry)
-                            {
-                                numtry = 0;
-                            }
-                        }
-
-                        // Create the task
-                        // check if the molinchi has been encountered before
-                        inchi = res1[0].toString().trim();
-
-//                        if (lstUID.contains(inchi))
-//                        {
-//                            synchronized(numtry)
-//                            {
-//                                numtry++;
-//                            }
-//                            continue;
-//                        }
-//                        else
-//                        {
-//                            lstUID.add(inchi);
-//                            synchronized(numtry)
-//                            {
-//                                numtry = 0;
-//                            }
-//                        }
-
-                        // file extensions will be added later
-                        molName = "M" +
-                                GenUtils.getPaddedString(DENOPTIMConstants.MOLDIGITS,
-                                                GraphUtils.getUniqueMoleculeIndex());
-
-                        int taskId = TaskUtils.getUniqueTaskIndex();
-
-                        smiles = res1[1].toString().trim();
-                        IAtomContainer cmol = (IAtomContainer) res1[2];
-
-                        FTask task1 = new FTask(molName, graph1, inchi, smiles,
-                                           cmol, genDir, taskId, molPopulation,
-                                           numtry,GAParameters.getUIDFileOut());
-
-                        submitted.add(task1);
-                        futures.add(tcons.submit(task1));
-
-                        synchronized (molPopulation)
-                        {
-                            if (molPopulation.size() == n || molPopulation.size() > n)
-                            {
-                                break;
-                            }
-                        }
-                    }
-
-
-                    // add graph2
-                    if (graph2 != null)
-                    {
-                        Object[] res2 = EAUtils.evaluateGraph(graph2);
-
-                        if (res2 != null)
-                        {
-                            if (!EAUtils.setupRings(res2,graph2))
-                            {
-                                res2 = null;
-                            }
-                        }
-
-                        if (res2 == null)
-                        {
-                            synchronized(numtry)
-                            {
-                                numtry++;
-                            }
-                            continue;
-                        }
-                        else
-                        {
-                            synchronized(numtry)
-                            {
-                                numtry = 0;
-                            }
-                        }
-
-                        // Create the task
-                        // check if the molinchi has been encountered before
-                        inchi = res2[0].toString().trim();
-
-//                        if (lstUID.contains(inchi))
-//                        {
-//                            synchronized(numtry)
-//                            {
-//                                numtry++;
-//                            }
-//                            continue;
-//                        }
-//                        else
-//                        {
-//                            lstUID.add(inchi);
-//                            synchronized(numtry)
-//                            {
-//                                numtry = 0;
-//                            }
-//                        }
-
-                        // file extensions will be added later
-                        molName = "M" +
-                                GenUtils.getPaddedString(DENOPTIMConstants.MOLDIGITS,
-                                                GraphUtils.getUniqueMoleculeIndex());
-
-                        int taskId = TaskUtils.getUniqueTaskIndex();
-
-                        smiles = res2[1].toString().trim();
-                        IAtomContainer cmol = (IAtomContainer) res2[2];
-
-                        FTask task2 = new FTask(molName, graph2, inchi, smiles,
-                                                cmol, genDir, taskId, molPopulation,
-                                                numtry, 
-                                                GAParameters.getUIDFileOut());
-
-                        submitted.add(task2);
-                        futures.add(tcons.submit(task2));
-
-                        synchronized (molPopulation)
-                        {
-                            if (molPopulation.size() == n || molPopulation.size() > n)
-                            {
-                                break;
-                            }
-                        }
-                    }
                 }
 
-                if (Mop == 1)
+                FTask task = createTask(children.poll(), genDir,
+                                                               molPopulation);
+                if (task == null)
                 {
-                    // add graph3
-                    if (graph3 != null)
-                    {
-                        Object[] res3 = EAUtils.evaluateGraph(graph3);
-
-                        if (res3 != null)
-                        {
-                            if (!EAUtils.setupRings(res3,graph3))
-                            {
-                                res3 = null;
-                            }
-                        }
-
-                        if (res3 == null)
-                        {
-                            synchronized(numtry)
-                            {
-                                numtry++;
-                            }
-                            continue;
-                        }
-                        else
-                        {
-                            synchronized(numtry)
-                            {
-                                numtry = 0;
-                            }
-                        }
-
-                        // Create the task
-                        // check if the molinchi has been encountered before
-                        inchi = res3[0].toString().trim();
-
-//                        if (lstUID.contains(inchi))
-//                        {
-//                            synchronized(numtry)
-//                            {
-//                                numtry++;
-//                            }
-//                            continue;
-//                        }
-//                        else
-//                        {
-//                            lstUID.add(inchi);
-//                            synchronized(numtry)
-//                            {
-//                                numtry = 0;
-//                            }
-//                        }
-
-                        // file extensions will be added later
-                        molName = "M" +
-                                GenUtils.getPaddedString(DENOPTIMConstants.MOLDIGITS,
-                                                GraphUtils.getUniqueMoleculeIndex());
-
-                        int taskId = TaskUtils.getUniqueTaskIndex();
-
-                        smiles = res3[1].toString().trim();
-                        IAtomContainer cmol = (IAtomContainer) res3[2];
-
-                        FTask task3 = new FTask(molName, graph3, inchi, smiles,
-                                                cmol, genDir, taskId, molPopulation,
-                                                numtry, 
-                                                GAParameters.getUIDFileOut());
-
-                        submitted.add(task3);
-                        futures.add(tcons.submit(task3));
-
-                        synchronized (molPopulation)
-                        {
-                            if (molPopulation.size() == n || molPopulation.size() > n)
-                            {
-                                break;
-                            }
-                        }
-                    }
+                    numtry++;
+                    continue;
                 }
+                numtry = 0;
+                submit(task);
             } // end while
         }
         catch (DENOPTIMException dex)
         {
-            cleanup(tcons, futures, submitted);
-            tcons.shutdown();
+            stopRun();
             dex.printStackTrace();
             throw dex;
         }
         catch (Exception ex)
         {
-            cleanup(tcons, futures, submitted);
-            tcons.shutdown();
+            stopRun();
             ex.printStackTrace();
             throw new DENOPTIMException(ex);
         }
-
-//        System.err.println("After (*X*).");
-//        for (FitnessTask z : submitted)
-//        {
-//            System.err.println(z.toString());
-//        }
+        finally
+        {
+            for (DENOPTIMGraph child : children)
+            {
+                child.cleanup();
+            }
+            children.clear();
+        }
 
         StringBuilder sb = new StringBuilder(256);
-        sb.append("Crossover Attempted: ").append(f0).append("\n");
-        sb.append("Mutation Attempted: ").append(f1).append("\n");
-        sb.append("New Molecule Attempted: ").append(f2).append("\n");
+        sb.append("Crossover Attempted: ").append(attempts[0]).append("\n");
+        sb.append("Mutation Attempted: ").append(attempts[1]).append("\n");
+        sb.append("New Molecule Attempted: ").append(attempts[2]).append("\n");
 
         DENOPTIMLogger.appLogger.info(sb.toString());
         sb.setLength(0);
 
         // sort the population
-        Collections.sort(molPopulation, Collections.reverseOrder());
+        synchronized(molPopulation)
+        {
+            Collections.sort(molPopulation, Collections.reverseOrder());
+        }
 
 
         if (GAParameters.getReplacementStrategy() == 1)
@@ -928,15 +645,30 @@ public class ParallelEvolutionaryAlgorithm
             }
         }
         
-        cleanup(clone_popln);
+        // the snapshot shares its members with the population: do not clean
+        // them up
+        clone_popln.clear();
+
+        long memAtEnd = GenUtils.getUsedMemory();
+        sb.append("Population snapshots: ").append(String.format("%.3f",
+                snapshotTime / 1.0e6)).append(" ms pause").append("\n");
+        sb.append("Memory used: ").append(memAtEnd / 1048576).append(" MB (")
+                .append(memAtEnd >= memAtStart ? "+" : "")
+                .append((memAtEnd - memAtStart) / 1048576)
+                .append(" MB in this generation)").append("\n");
+        DENOPTIMLogger.appLogger.info(sb.toString());
+        sb.setLength(0);
+
+        logThroughput("Generation", numEvaluations - evalsAtStart,
+                evaluationTime - evalTimeAtStart, System.nanoTime() - genStart);
 
         // check if the new population contains a molecule from the children
         // produced. If yes, return true
         
         boolean updated = false;
-        for (int i=0; i<molPopulation.size(); i++)
+        for (DENOPTIMMolecule mol : EAUtils.getPopulationSnapshot(molPopulation))
         {
-            if (!codes.contains(molPopulation.get(i).getMoleculeUID()))
+            if (!codes.contains(mol.getMoleculeUID()))
             {
                 updated = true;
                 break;
@@ -951,6 +683,195 @@ public class ParallelEvolutionaryAlgorithm
         return updated;
     }
 
+//------------------------------------------------------------------------------
+
+    /**
+     * Generates children by crossover and/or mutation of parents selected
+     * from the given population, or by construction of a new graph.
+     * @param clone_popln the population to select parents from
+     * @param children collector of the generated children
+     * @param attempts counters of the crossover, mutation, and construction
+     * attempts
+     * @throws DENOPTIMException
+     */
+    private void generateChildren(ArrayList<DENOPTIMMolecule> clone_popln,
+            ArrayDeque<DENOPTIMGraph> children, int[] attempts)
+                                                      throws DENOPTIMException
+    {
+        DENOPTIMGraph graph1 = null, graph2 = null, graph3 = null,
+            graph4 = null;
+        int MAX_EVOLVE_ATTEMPTS = 10;
+
+        if (RandomUtils.nextBoolean(GAParameters.getCrossoverProbability()))
+        {
+            int numatt = 0;
+            int i1 = -1, i2 = -1;
+            boolean foundPars = false;
+
+            while (numatt < MAX_EVOLVE_ATTEMPTS)
+            {
+                int parents[] = EAUtils.selectParents(clone_popln);
+                if (parents[0] == -1 || parents[1] == -1)
+                {
+                    DENOPTIMLogger.appLogger.info("Failed to identify compatible parents for crossover/mutation.");
+                    numatt++;
+                    continue;
+                }
+
+                // perform crossover
+                if (parents[0] == parents[1])
+                {
+                    DENOPTIMLogger.appLogger.info("Crossover has indentical partners.");
+                    numatt++;
+                    continue;
+                }
+
+                i1 = parents[0];
+                i2 = parents[1];
+                foundPars = true;
+                break;
+            }
+
+            if (foundPars)
+            {
+                String molid1 = FilenameUtils.getBaseName(clone_popln.get(i1).getMoleculeFile());
+                String molid2 = FilenameUtils.getBaseName(clone_popln.get(i2).getMoleculeFile());
+
+                int gid1 = clone_popln.get(i1).getMoleculeGraph().getGraphId();
+                int gid2 = clone_popln.get(i2).getMoleculeGraph().getGraphId();
+
+                // clone the parents
+                graph1 = clone_popln.get(i1).getMoleculeGraph().deepCopy();
+                graph2 = clone_popln.get(i2).getMoleculeGraph().deepCopy();
+
+                attempts[0] += 2;
+
+                if (DENOPTIMGraphOperations.performCrossover(graph1, graph2))
+                {
+                    graph1.setGraphId(GraphUtils.getUniqueGraphIndex());
+                    graph2.setGraphId(GraphUtils.getUniqueGraphIndex());
+                    EAUtils.addCappingGroup(graph1);
+                    EAUtils.addCappingGroup(graph2);
+
+                    graph1.setMsg("Xover: " + molid1 + "|" + gid1 +
+                                        "=" + molid2 + "|" + gid2);
+                    graph2.setMsg("Xover: " + molid1 + "|" + gid1 +
+                                        "=" + molid2 + "|" + gid2);
+                    children.add(graph1);
+                    children.add(graph2);
+                }
+                else
+                {
+                    graph1.cleanup();
+                    graph2.cleanup();
+                }
+            }
+        }
+
+        if (RandomUtils.nextBoolean(GAParameters.getMutationProbability()))
+        {
+            // select mutation
+            // select a random parent from the pool
+
+            int numatt = 0;
+            int i3 = -1;
+            boolean foundPars = false;
+            while (numatt < MAX_EVOLVE_ATTEMPTS)
+            {
+                i3 = EAUtils.selectSingleParent(clone_popln);
+                if (i3 == -1)
+                {
+                    DENOPTIMLogger.appLogger.info("Invalid parent selection.");
+                    numatt++;
+                    continue;
+                }
+                foundPars = true;
+                break;
+            }
+
+            if (foundPars)
+            {
+                graph3 = clone_popln.get(i3).getMoleculeGraph().deepCopy();
+                attempts[1] += 1;
+
+                String molid3 = FilenameUtils.getBaseName(clone_popln.get(i3).getMoleculeFile());
+                int gid3 = clone_popln.get(i3).getMoleculeGraph().getGraphId();
+
+                if (EAUtils.performMutation(graph3))
+                {
+                    graph3.setGraphId(GraphUtils.getUniqueGraphIndex());
+                    graph3.setMsg("Mutation: " + molid3 + "|" + gid3);
+                    EAUtils.addCappingGroup(graph3);
+                    children.add(graph3);
+                }
+                else
+                {
+                    graph3.cleanup();
+                }
+            }
+        }
+
+        if (children.isEmpty())
+        {
+            attempts[2]++;
+            graph4 = EAUtils.buildGraph();
+
+            if (graph4 != null)
+            {
+                graph4.setMsg("NEW");
+                children.add(graph4);
+            }
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Prepares the fitness evaluation of a candidate.
+     * @param molGraph the graph of the candidate
+     * @param genDir the directory of the current generation
+     * @param molPopulation the population collecting evaluated candidates
+     * @return the task or <code>null</code> if the graph does not correspond
+     * to a valid candidate
+     * @throws DENOPTIMException
+     */
+    private FTask createTask(DENOPTIMGraph molGraph, String genDir,
+                             ArrayList<DENOPTIMMolecule> molPopulation)
+                                                      throws DENOPTIMException
+    {
+        Object[] res = EAUtils.evaluateGraph(molGraph);
+
+        if (res != null)
+        {
+            if (!EAUtils.setupRings(res,molGraph))
+            {
+                res = null;
+            }
+        }
+
+        if (res == null || !EAUtils.registerEvaluatedGraph(molGraph))
+        {
+            molGraph.cleanup();
+            return null;
+        }
+
+        // Create the task
+        String inchi = res[0].toString().trim();
+
+        // file extensions will be added later
+        String molName = "M" +
+                GenUtils.getPaddedString(DENOPTIMConstants.MOLDIGITS,
+                            GraphUtils.getUniqueMoleculeIndex());
+
+        int taskId = TaskUtils.getUniqueTaskIndex();
+
+        String smiles = res[1].toString().trim();
+        IAtomContainer cmol = (IAtomContainer) res[2];
+
+        return new FTask(molName, molGraph, inchi, smiles, cmol, genDir,
+                        taskId, molPopulation, GAParameters.getUIDFileOut());
+    }
+
 //------------------------------------------------------------------------------
 
     private void initializePopulation(ArrayList<DENOPTIMMolecule> molPopulation,
@@ -983,138 +904,90 @@ public class ParallelEvolutionaryAlgorithm
             }
         }
 
-        Integer numtry = 0;
+        long initStart = System.nanoTime();
+        int numtry = 0;
 
         try
         {
             while (true)
             {
-                if (checkForException())
-                {
-                    stopRun();
-                    throw new DENOPTIMException("Errors found during execution.");
-                }
-                synchronized (numtry)
+                if (numtry >= MAX_TRIES)
                 {
-                    if (numtry == MAX_TRIES)
-                    {
-//                      MF: the cleanup method removed also uncompleted tasks
-//                      causing their results to be forgotten.
-                        cleanupCompleted(tcons, futures, submitted);
-//                      cleanup(tcons, futures, submitted);
-                        break;
-                    }
+                    break;
                 }
 
                 synchronized (molPopulation)
                 {
                     //System.err.println("PSIZE: " + molPopulation.size());
-                    if (molPopulation.size() == GAParameters.getPopulationSize() ||
-                            molPopulation.size() > GAParameters.getPopulationSize())
+                    if (molPopulation.size() >= GAParameters.getPopulationSize())
                     {
                         break;
                     }
                 }
 
-
-                // generate a random graph
-                DENOPTIMGraph molGraph = EAUtils.buildGraph();
-                //System.err.println(molGraph.toString());
-
-                if (molGraph == null)
+                if (inFlight.size() >= maxInFlight)
                 {
-                    synchronized(numtry)
+                    if (collectEvaluation())
+                    {
+                        if (numtry > 0)
+                        {
+                            numtry--;
+                        }
+                    }
+                    else
                     {
                         numtry++;
                     }
                     continue;
                 }
-                // check if the graph is valid
-                
-                Object[] res = EAUtils.evaluateGraph(molGraph);
 
-                if (res != null)
-                {
-                    if (!EAUtils.setupRings(res,molGraph))
-                    {
-                        res = null;
-                    }
-                }
+                // generate a random graph
+                DENOPTIMGraph molGraph = EAUtils.buildGraph();
+                //System.err.println(molGraph.toString());
 
-                if (res == null)
+                if (molGraph == null)
                 {
-                    molGraph.cleanup();
-                    synchronized(numtry)
-                    {
-                        numtry++;
-                    }
+                    numtry++;
                     continue;
                 }
-                else
-                {
-                    synchronized(numtry)
-                    {
-                        if(numtry > 0)
-                            numtry--;
-                    }
-                }
-                    
 
-                // Create the task
-                // check if the molinchi has been encountered before
-                String inchi = res[0].toString().trim();
-                
-                /*
-                if (lstInchi.contains(inchi))
+                // check if the graph is valid
+                FTask task = createTask(molGraph, genDir, molPopulation);
+                if (task == null)
                 {
-                    synchronized(numtry)
-                    {
-                        numtry++;
-                    }
+                    numtry++;
                     continue;
                 }
-                else
+                else if (numtry > 0)
                 {
-                    lstInchi.add(inchi);
-                    synchronized(numtry)
-                    {
-                        numtry = 0;
-                    }
+                    numtry--;
                 }
-                */
-
-                // file extensions will be added later
-                String molName = "M" +
-                        GenUtils.getPaddedString(DENOPTIMConstants.MOLDIGITS,
-                                    GraphUtils.getUniqueMoleculeIndex());
-
-                int taskId = TaskUtils.getUniqueTaskIndex();
 
-                String smiles = res[1].toString().trim();
-                IAtomContainer cmol = (IAtomContainer) res[2];
+                submit(task);
+            }
 
-                FTask task = new FTask(molName, molGraph, inchi, smiles, cmol,
-                                        genDir, taskId, molPopulation, numtry,
-                                        GAParameters.getUIDFileOut());
-                submitted.add(task);
-                futures.add(tcons.submit(task));
+            if (numtry < MAX_TRIES)
+            {
+                // the initial population must be complete
+                while (!inFlight.isEmpty())
+                {
+                    collectEvaluation();
+                }
             }
         }
         catch (DENOPTIMException dex)
         {
-            cleanup(tcons, futures, submitted);
-            tcons.shutdown();
+            stopRun();
             throw dex;
         }
         catch (Exception ex)
         {
-            cleanup(tcons, futures, submitted);
-            tcons.shutdown();
+            stopRun();
             throw new DENOPTIMException(ex);
         }
 
 
-        if (numtry == MAX_TRIES)
+        if (numtry >= MAX_TRIES)
         {
             stopRun();
 
@@ -1124,6 +997,9 @@ public class ParallelEvolutionaryAlgorithm
                             numtry + " attempts.");
         }
 
+        logThroughput("Initial population", numEvaluations, evaluationTime,
+                                              System.nanoTime() - initStart);
+
         molPopulation.trimToSize();
 
         // sort population by fitness
@@ -1132,46 +1008,24 @@ public class ParallelEvolutionaryAlgorithm
 
 //------------------------------------------------------------------------------
 
-    private void cleanup(ThreadPoolExecutor tcons, List<Future<String>> futures,
-                            ArrayList<FTask> submitted)
+    /**
+     * Cancels the fitness evaluations in flight.
+     */
+    private void cleanup()
     {
-        for (Future f : futures)
+        for (Map.Entry<Future<Object>,Evaluation> e : inFlight.entrySet())
         {
-            f.cancel(true);
+            e.getKey().cancel(true);
+            e.getValue().task.stopTask();
         }
 
-        for (FTask tsk: submitted)
-        {
-            tsk.stopTask();
-        }
-
-        submitted.clear();
+        inFlight.clear();
 
         tcons.getQueue().clear();
     }
 
 //------------------------------------------------------------------------------
 
-    private void cleanupCompleted(ThreadPoolExecutor tcons,
-                                  List<Future<String>> futures,
-                                      ArrayList<FTask> submitted)
-    {
-        ArrayList<Integer> completed = new ArrayList<>();
-
-        for (int ift=0; ift<submitted.size(); ift++)
-        {
-            if (submitted.get(ift).isCompleted())
-                completed.add(ift);
-        }
-
-        for (int ift=completed.size(); ift>0; ift--)
-        {
-            submitted.remove(submitted.get(ift-1));
-            futures.remove(futures.get(ift-1));
-        }
-    }
-
-//------------------------------------------------------------------------------
 
     private void cleanup(ArrayList<DENOPTIMMolecule> popln)
     {
@@ -2,7 +2,7 @@
  *   DENOPTIM
  *   Copyright (C) 2019 Vishwesh Venkatraman <vishwesh.venkatraman@ntnu.no> and
  *   Marco Foscato <marco.foscato@uib.no>
- * 
+ *
  *   This program is free software: you can redistribute it and/or modify
  *   it under the terms of the GNU Affero General Public License as published
  *   by the Free Software Foundation, either version 3 of the License, or
@@ -24,175 +24,253 @@ import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
-import java.nio.channels.OverlappingFileLockException;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.logging.Level;
-
-import org.openscience.cdk.interfaces.IAtomContainer;
+import java.util.concurrent.ConcurrentHashMap;
 
+import denoptim.exception.DENOPTIMException;
+import denoptim.logging.DENOPTIMLogger;
 import denoptim.molecule.DENOPTIMGraph;
-import denoptim.utils.GraphConversionTool;
-import denoptim.utils.GraphUtils;
+import denoptim.utils.CanonicalGraphIndex;
 
 
 /**
- * This tool scans the list of previously visited DENOPTIMGraphs and
- * compares each member with a candidate new member that is added to the list
- * if it corresponds to a novel graph that is not equivalent to any previously
- * reported graph.
- *
- * WARNING! Under development. Not tested!
+ * Index of previously visited DENOPTIMGraphs. Graphs are identified by their
+ * canonical form (see {@link DENOPTIMGraph#getCanonicalForm()}) and grouped 
+ * by canonical hash. The index is kept in memory
+ * and is persisted as an append-only log file where each line is the 
+ * canonical form of a graph. At construction, any existing log file is
+ * replayed to populate the index, which requires no parsing of graphs.
+ * <p>
+ * The log file can be shared by multiple processes: appending requires an
+ * exclusive lock on the file, and, before appending, the entries written by
+ * any other process since the last read are read and added to the index.
+ * </p>
  *
  * @author Vishwesh Venkatraman
  * @author Marco Foscato
  */
 public class VisitedGraphsHandler
 {
-    
-    private final java.util.logging.Logger LOGGER = 
-       java.util.logging.Logger.getLogger(VisitedGraphsHandler.class.getName());
-    
-    private String graphLibFile = "";
-    private ArrayList<IAtomContainer> libScaff;
-    private ArrayList<IAtomContainer> libFrag;
-    private ArrayList<IAtomContainer> libCap;
-    private HashMap<String, Integer> mp;
+    /**
+     * JVM-wide lock objects, one per log file. File locks are held on
+     * behalf of the whole JVM, so threads must be serialized before
+     * requesting the file lock.
+     */
+    private static final ConcurrentHashMap<String,Object> FILELOCKS =
+            new ConcurrentHashMap<String,Object>();
+
+    /**
+     * Pathname of the log file
+     */
+    private final String graphLibFile;
+
+    /**
+     * Lock object used to serialize the access to the log file
+     */
+    private final Object fileLock;
+
+    /**
+     * Known graphs
+     */
+    private final CanonicalGraphIndex index = new CanonicalGraphIndex();
+
+    /**
+     * Position in the log file up to which entries have been indexed
+     */
+    private long logOffset = 0;
 
 //------------------------------------------------------------------------------
 
     /**
-     * Constructor 
+     * Constructor. Any existing graph in the given file is added to the index.
      * @param graphLibFile the file containing the list of previous graphs
-     * @param libScaff
-     * @param libFrag
-     * @param libCap
+     * @throws DENOPTIMException if the file exists but cannot be read
      */
-    public VisitedGraphsHandler(String graphLibFile,
-                                        ArrayList<IAtomContainer> libScaff,
-                                        ArrayList<IAtomContainer> libFrag,
-                                        ArrayList<IAtomContainer> libCap,
-                                        HashMap<String, Integer> mp)
+    public VisitedGraphsHandler(String graphLibFile) throws DENOPTIMException
     {
         this.graphLibFile = graphLibFile;
-        this.libScaff = libScaff;
-        this.libFrag = libFrag;
-        this.libCap = libCap;
-	this.mp = mp;
+        String path = new File(graphLibFile).getAbsolutePath();
+        FILELOCKS.putIfAbsent(path, new Object());
+        this.fileLock = FILELOCKS.get(path);
+
+        if (new File(graphLibFile).exists())
+        {
+            synchronized (fileLock)
+            {
+                RandomAccessFile rafile = null;
+                try
+                {
+                    rafile = new RandomAccessFile(graphLibFile, "r");
+                    readNewEntries(rafile);
+                }
+                catch (IOException ioe)
+                {
+                    throw new DENOPTIMException("Cannot read visited graphs "
+                                              + "from " + graphLibFile, ioe);
+                }
+                finally
+                {
+                    closeQuietly(rafile);
+                }
+            }
+            DENOPTIMLogger.appLogger.info("Imported " + index.size()
+                                + " visited graphs from " + graphLibFile);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Checks whether the candidate graph is equivalent to any graph in the
+     * index. Only the entries already read from the log file are considered.
+     * @param candGraph the candidate graph
+     * @return <code>true</code> if an equivalent graph is in the index
+     */
+    public boolean contains(DENOPTIMGraph candGraph)
+    {
+        return index.contains(candGraph);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the number of graphs in the index
+     */
+    public int size()
+    {
+        return index.size();
     }
 
 //------------------------------------------------------------------------------
 
     /**
      * Compares the candidate graph with the graphs in the library and, if
-     * the candidate graph is new and not equivalent to those found in the 
+     * the candidate graph is new and not equivalent to those found in the
      * library, appends the new candidate to the list
      * @param candGraph the candidate new graph
      * @return <code>true</code> if the graph is appended to the list.
+     * @throws DENOPTIMException if the log file cannot be read or written
      */
     public boolean appendGraph(DENOPTIMGraph candGraph)
+                                                    throws DENOPTIMException
     {
-        boolean appended = false;
-        
-        RandomAccessFile rafile = null; // The file we'll lock
-        FileChannel channel = null; // The channel to the file
-        FileLock lock = null; // The lock object we hold
-        File lockfile = null;
-        
-        try
+        String canonicalForm = candGraph.getCanonicalForm();
+        if (index.contains(canonicalForm))
         {
-            lockfile = new File(graphLibFile);
-            // Creates a random access file stream to read from, and 
-            // optionally to write to
-            // Create a FileChannel that can read and write that file.
-            // Note that we rely on the java.io package to open the file,
-            // in read/write mode, and then just get a channel from it.
-            // This will create the file if it doesn't exit. We'll arrange
-            // for it to be deleted below, if we succeed in locking it.
-            rafile = new RandomAccessFile(lockfile, "rw");
-            
-            channel = rafile.getChannel();
-            
-            // Try to get an exclusive lock on the file.
-            // This method will return a lock or null, but will not block.
-            // See also FileChannel.lock() for a blocking variant.
-            
-            while (true)
+            return false;
+        }
+
+        synchronized (fileLock)
+        {
+            RandomAccessFile rafile = null;
+            FileLock lock = null;
+            try
             {
-                // Attempts to acquire an exclusive lock on this channel's file
-                // (returns null or throws
-                // an exception if the file is already locked.
-                try 
-                {
-                    lock = channel.tryLock();
-                    if (lock != null)
-                        break;
-                }
-                catch (OverlappingFileLockException e) 
+                rafile = new RandomAccessFile(graphLibFile, "rw");
+                FileChannel channel = rafile.getChannel();
+                lock = channel.lock();
+
+                // Catch up with what other processes have written
+                readNewEntries(rafile);
+                if (index.contains(canonicalForm))
                 {
-                    // thrown when an attempt is made to acquire a lock on a a
-                    // file that overlaps
-                    // a region already locked by the same JVM or when another
-                    // thread is already
-                    // waiting to lock an overlapping region of the same file
-                    System.err.println("Overlapping File Lock Error: " 
-                                                            + e.getMessage());
+                    return false;
                 }
+
+                rafile.seek(rafile.length());
+                rafile.writeBytes(canonicalForm + "\n");
+                channel.force(true);
+                logOffset = rafile.getFilePointer();
+                index.add(canonicalForm);
             }
-            
-	    boolean found = false;
-            for ( String line; (line = rafile.readLine()) != null; )
+            catch (IOException ioe)
             {
-                if (line.trim().length() == 0)
-                    continue;
-
-                DENOPTIMGraph graphInLib = 
-				   GraphConversionTool.getGraphFromString(line);
-
-                if (GraphUtils.equivalentGraphs(candGraph,graphInLib))
-                {
-                    found = true;;
-                    break;
-                }
+                throw new DENOPTIMException("Cannot update visited graphs in "
+                                                         + graphLibFile, ioe);
             }
-            
-            // do all the checks and update the keyfile as required
-            // move the cursor to the end of the file
-            if (!found)
+            finally
             {
-                rafile.seek(channel.position());
-                rafile.writeBytes(candGraph.toString() + "\n");
-                channel.force(true);
-		appended = true;
+                try
+                {
+                    if (lock != null && lock.isValid())
+                    {
+                        lock.release();
+                    }
+                }
+                catch (IOException ioe)
+                {
+                    DENOPTIMLogger.appLogger.warning("Cannot release lock on "
+                                        + graphLibFile + ": " + ioe.getMessage());
+                }
+                closeQuietly(rafile);
             }
         }
-        catch (Exception de)
+        return true;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Reads and indexes the entries of the log file written after the
+     * current offset. Must be called while holding the lock on the file.
+     */
+    private void readNewEntries(RandomAccessFile rafile) throws IOException
+    {
+        if (rafile.length() <= logOffset)
         {
-            LOGGER.log(Level.SEVERE, null, de); 
-            System.exit(-1);
+            return;
         }
-        finally
+        rafile.seek(logOffset);
+        long lastComplete = logOffset;
+        for (String line; (line = rafile.readLine()) != null; )
         {
-            try 
+            if (rafile.getFilePointer() == rafile.length()
+                && !endsWithNewLine(rafile))
             {
-                // close the channel
-                if (channel != null)
-                    channel.close();
-                if (rafile!= null)
-                    rafile.close();
-                // release the lock
-                if (lock != null && lock.isValid())
-                    lock.release();
+                // Incomplete entry: to be read once completed
+                break;
             }
-            catch (IOException e) 
+            lastComplete = rafile.getFilePointer();
+            line = line.trim();
+            if (line.length() == 0)
             {
-                e.printStackTrace();
+                continue;
             }
+            index.add(line);
         }
-    
-        return appended;    
+        logOffset = lastComplete;
     }
-    
+
 //------------------------------------------------------------------------------
-    
+
+    private static boolean endsWithNewLine(RandomAccessFile rafile)
+                                                            throws IOException
+    {
+        long pos = rafile.getFilePointer();
+        rafile.seek(rafile.length() - 1);
+        boolean res = rafile.read() == '\n';
+        rafile.seek(pos);
+        return res;
+    }
+
+//------------------------------------------------------------------------------
+
+    private static void closeQuietly(RandomAccessFile rafile)
+    {
+        if (rafile == null)
+        {
+            return;
+        }
+        try
+        {
+            rafile.close();
+        }
+        catch (IOException ioe)
+        {
+            DENOPTIMLogger.appLogger.warning("Cannot close file: "
+                                                        + ioe.getMessage());
+        }
+    }
+
+//------------------------------------------------------------------------------
+
 }
@@ -0,0 +1,126 @@
+package denoptimga;
+
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2026 agent <agent@local>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+
+import org.junit.jupiter.api.Test;
+
+import denoptim.molecule.DENOPTIMAttachmentPoint;
+import denoptim.molecule.DENOPTIMEdge;
+import denoptim.molecule.DENOPTIMGraph;
+import denoptim.molecule.DENOPTIMVertex;
+
+/**
+ * Unit test for VisitedGraphsHandler
+ *
+ * @author agent
+ */
+
+public class VisitedGraphsHandlerTest
+{
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Builds a chain of vertexes made of the given fragments
+     */
+    private static DENOPTIMGraph makeChain(int... molIds)
+    {
+        DENOPTIMGraph graph = new DENOPTIMGraph();
+        for (int i=0; i<molIds.length; i++)
+        {
+            ArrayList<DENOPTIMAttachmentPoint> aps =
+                    new ArrayList<DENOPTIMAttachmentPoint>();
+            for (int j=0; j<2; j++)
+            {
+                aps.add(new DENOPTIMAttachmentPoint(j, 1, 1));
+            }
+            graph.addVertex(new DENOPTIMVertex(i, molIds[i], aps, 1));
+            if (i > 0)
+            {
+                graph.addEdge(new DENOPTIMEdge(i-1, i, 1, 0, 1));
+            }
+        }
+        return graph;
+    }
+
+//------------------------------------------------------------------------------
+
+    private static File newLogFile() throws Exception
+    {
+        File dir = Files.createTempDirectory("visitedGraphs").toFile();
+        dir.deleteOnExit();
+        File log = new File(dir, "GRAPHS.txt");
+        log.deleteOnExit();
+        return log;
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testReplayOnConstruction() throws Exception
+    {
+        File log = newLogFile();
+        VisitedGraphsHandler first = new VisitedGraphsHandler(log.getPath());
+        assertEquals(0, first.size(), "No log file");
+        assertTrue(first.appendGraph(makeChain(1, 2)), "New graph");
+        assertTrue(first.appendGraph(makeChain(1, 3)), "New graph");
+        assertFalse(first.appendGraph(makeChain(1, 2)), "Equivalent graph");
+        assertEquals(2, Files.readAllLines(log.toPath()).size(), "Entries");
+
+        VisitedGraphsHandler second = new VisitedGraphsHandler(log.getPath());
+        assertEquals(2, second.size(), "Replayed entries");
+        assertTrue(second.contains(makeChain(1, 2)));
+        assertTrue(second.contains(makeChain(1, 3)));
+        assertFalse(second.contains(makeChain(2, 3)));
+        assertFalse(second.appendGraph(makeChain(1, 3)), "Replayed graph");
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testHandlersSharingLog() throws Exception
+    {
+        File log = newLogFile();
+        VisitedGraphsHandler h1 = new VisitedGraphsHandler(log.getPath());
+        VisitedGraphsHandler h2 = new VisitedGraphsHandler(log.getPath());
+
+        assertTrue(h1.appendGraph(makeChain(4, 5, 6)), "New graph");
+        assertFalse(h2.contains(makeChain(4, 5, 6)), "Not yet read");
+
+        // appending catches up with the entries written by the other handler
+        assertFalse(h2.appendGraph(makeChain(4, 5, 6)), "Known to h1");
+        assertTrue(h2.contains(makeChain(4, 5, 6)), "Read when appending");
+        assertTrue(h2.appendGraph(makeChain(4, 5)), "New graph");
+        assertFalse(h1.appendGraph(makeChain(4, 5)), "Known to h2");
+        assertEquals(2, h1.size());
+        assertEquals(2, h2.size());
+        assertEquals(2, Files.readAllLines(log.toPath()).size(), "Entries");
+    }
+
+//------------------------------------------------------------------------------
+
+}
@@ -18,33 +18,38 @@
 
 package fragspaceexplorer;
 
-import java.io.File;
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.time.StopWatch;
 import org.openscience.cdk.interfaces.IAtomContainer;
 
 import denoptim.constants.DENOPTIMConstants;
 import denoptim.exception.DENOPTIMException;
+import denoptim.fitness.FitnessCache;
 import denoptim.fragspace.FragmentSpace;
 import denoptim.fragspace.FragsCombination;
 import denoptim.fragspace.FragsCombinationIterator;
-import denoptim.io.DenoptimIO;
 import denoptim.logging.DENOPTIMLogger;
 import denoptim.molecule.DENOPTIMAttachmentPoint;
 import denoptim.molecule.DENOPTIMGraph;
 import denoptim.molecule.DENOPTIMVertex;
 import denoptim.molecule.SymmetricSet;
+import denoptim.task.FitnessBatcher;
+import denoptim.task.FitnessWorkerPool;
+import denoptim.task.ProcessRegistry;
 import denoptim.utils.FragmentUtils;
 import denoptim.utils.GraphUtils;
 import denoptim.utils.TaskUtils;
@@ -61,14 +66,9 @@ import denoptim.utils.TaskUtils;
 public class CombinatorialExplorerByLayer
 {
     /**
-     * Storage of references to the submitted subtasks as <code>Future</code>
+     * Tracker of the subtasks submitted for the current level
      */
-    final List<Future<String>> futures;
-
-    /**
-     * Storage of references to the submitted subtasks.
-     */
-    final ArrayList<GraphBuildingTask> submitted;
+    private FSETaskTracker tracker = new FSETaskTracker();
 
     /**
      * Asynchronous tasks manager 
@@ -101,6 +101,57 @@ public class CombinatorialExplorerByLayer
      */
     private boolean firstAfterRestart = false;
 
+    /**
+     * Number of combinations of fragments submitted since the latest 
+     * checkpoint
+     */
+    private int itersFromChkPt = 0;
+
+    /**
+     * Minimum number of combinations of fragments on a root graph for the
+     * combinations to be split in ranges generated by parallel producers
+     */
+    private static final int MINCOMBSTOSPLIT = 10000;
+
+    /**
+     * Number of parallel producers generating the combinations of a root 
+     * graph
+     */
+    private final int numProducers = 
+                              Math.max(1, FSEParameters.getNumberOfCPU() / 4);
+
+    /**
+     * Number of consecutive combinations of fragments given to each task
+     */
+    private final int chunkSize = FSEParameters.getTaskChunkSize();
+
+    /**
+     * Ranges of combinations, by ID of the root graph, for the root graphs 
+     * of the current level that have been split in ranges
+     */
+    private final Map<Integer,CombinationRanges> rangesOfRoot = 
+                                      new HashMap<Integer,CombinationRanges>();
+
+//-----------------------------------------------------------------------------
+
+    /**
+     * The ranges in which the combinations of a root graph are split
+     */
+
+    private static class CombinationRanges
+    {
+        /**
+         * Indeces of the first combination of each range
+         */
+        private final ArrayList<ArrayList<Integer>> startIds = 
+                                          new ArrayList<ArrayList<Integer>>();
+
+        /**
+         * End of each range
+         */
+        private final ArrayList<Long> ends = new ArrayList<Long>();
+    }
+
 
 //-----------------------------------------------------------------------------
 
@@ -110,11 +161,11 @@ public class CombinatorialExplorerByLayer
 
     public CombinatorialExplorerByLayer()
     {
-        futures = new ArrayList<>();
-        submitted = new ArrayList<>();
-
-        tpe = new ThreadPoolExecutor(FSEParameters.getNumberOfCPU(),
-                                       FSEParameters.getNumberOfCPU(), 
+        // when candidates are evaluated in batches, most tasks just wait
+        // for their batch
+        int nTasks = FitnessBatcher.getNumberOfTasksInFlight(
+                                              FSEParameters.getNumberOfCPU());
+        tpe = new ThreadPoolExecutor(nTasks, nTasks,
                                        Long.MAX_VALUE,
                                        TimeUnit.NANOSECONDS,
                                        //TimeUnit.MILLISECONDS,
@@ -142,7 +193,7 @@ public class CombinatorialExplorerByLayer
                 }
                 catch (InterruptedException ie)
                 {
-                    cleanup(tpe, futures, submitted);
+                    cleanup(tpe);
                     // (Re-)Cancel if current thread also interrupted
                     tpe.shutdownNow();
                     // Preserve interrupt status
@@ -184,7 +235,7 @@ public class CombinatorialExplorerByLayer
 
     public void stopRun()
     {
-        cleanup(tpe, futures, submitted);
+        cleanup(tpe);
         tpe.shutdown();
     }
 
@@ -198,85 +249,256 @@ public class CombinatorialExplorerByLayer
 
     private boolean subtaskHasException()
     {
-        boolean hasException = false;
-        for (GraphBuildingTask tsk : submitted)
+        thrownByTask = tracker.getException();
+        return thrownByTask != null;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Check for completion of all subtasks
+     * @return <code>true</code> if all subtasks are completed
+     */
+
+    private boolean allTasksCompleted()
+    {
+        return tracker.allCompleted();
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Identify the latest task completed together with all the tasks 
+     * preceding it and use it to create a checkpoint file
+     */
+
+    private void makeCheckPoint() throws DENOPTIMException
+    {
+        GraphBuildingTask tsk = tracker.getLatestSafelyCompletedTask();
+        if (tsk == null)
         {
-            if (tsk.foundException())
+            return;
+        }
+        FSECheckPoint chk = FSEParameters.getCheckPoint();
+        chk.setSafelyCompletedGraphId(tsk.getGraphId());
+        chk.setRootId(tsk.getRootId());
+        chk.setNextIds(tsk.getNextIds());
+        setRangesOfCheckPoint(chk, tsk);
+        chk.setLevel(tsk.getLevel());
+        chk.setUnqVrtId(GraphUtils.getUniqueVertexIndex());
+        chk.setUnqGraphId(GraphUtils.getUniqueGraphIndex());
+        chk.setUnqMolId(GraphUtils.getUniqueMoleculeIndex());
+        // graphs up to the checkpoint must be on disk before it
+        FSEUtils.syncGraphWriter();
+        FSEUtils.serializeCheckPoint();
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Sets in the checkpoint the starting point of each range of combinations
+     * when the task used to create the checkpoint comes from a root graph
+     * with combinations split in ranges. Since all tasks preceding that task
+     * are completed, each range restarts after the latest of its safely 
+     * completed tasks, if any, or from its beginning.
+     * @param chk the checkpoint
+     * @param tsk the task used to create the checkpoint
+     */
+
+    private void setRangesOfCheckPoint(FSECheckPoint chk, 
+                                                        GraphBuildingTask tsk)
+    {
+        ArrayList<ArrayList<Integer>> rangesNextIds = 
+                                            new ArrayList<ArrayList<Integer>>();
+        ArrayList<Long> rangesEnds = new ArrayList<Long>();
+        CombinationRanges ranges;
+        synchronized (this)
+        {
+            ranges = rangesOfRoot.get(tsk.getRootId());
+        }
+        if (tsk.getRangeId() > -1 && ranges != null)
+        {
+            rangesNextIds.addAll(ranges.startIds);
+            rangesEnds.addAll(ranges.ends);
+            for (Map.Entry<Integer,ArrayList<Integer>> e : 
+                                   tracker.getSafeNextIdsOfRanges().entrySet())
             {
-                hasException = true;
-                thrownByTask = tsk.getException();
-                break;
+                rangesNextIds.set(e.getKey(), e.getValue());
             }
         }
+        chk.setRanges(rangesNextIds, rangesEnds);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Gives the IDs to a task and submits it. Tasks generated by parallel 
+     * producers are submitted one at a time so that the order of submission
+     * is also the order of the graph IDs, as needed by the checkpoints.
+     * @param task the task to submit
+     */
 
-        return hasException;
+    private synchronized void submitTask(GraphBuildingTask task) 
+                                                        throws DENOPTIMException
+    {
+        if (subtaskHasException())
+        {
+            stopRun();
+            String msg = "Exception in submitted task.";
+            throw new DENOPTIMException(msg,thrownByTask);
+        }
+        task.setIds(TaskUtils.getUniqueTaskIndex());
+        tracker.submit(task, tpe);
+        if (itersFromChkPt >= FSEParameters.getCheckPointStep())
+        {
+            itersFromChkPt = 0;
+            makeCheckPoint();
+        }
+        itersFromChkPt = itersFromChkPt + task.getNumberOfCombinations();
     }
 
 //------------------------------------------------------------------------------
 
     /**
-     * Check for completion of all subtasks
-     * @return <code>true</code> if all subtasks are completed
+     * Takes the next chunk of consecutive combinations of fragments and 
+     * makes the task processing them.
+     * @param rootGraph the root graph
+     * @param fcf the iterator over the combinations, which must have a next
+     * combination
+     * @param level the current relative level
+     * @return the task, still without IDs
      */
 
-    private boolean allTasksCompleted()
+    private GraphBuildingTask makeTask(DENOPTIMGraph rootGraph, 
+                   FragsCombinationIterator fcf, int level) 
+                                                        throws DENOPTIMException
+    {
+        ArrayList<FragsCombination> combs = new ArrayList<FragsCombination>();
+        ArrayList<ArrayList<Integer>> combsNextIds = 
+                                            new ArrayList<ArrayList<Integer>>();
+        while (combs.size() < chunkSize && fcf.hasNext())
+        {
+            combs.add(fcf.next());
+            combsNextIds.add(new ArrayList<Integer>(fcf.getNextIds()));
+        }
+        return new GraphBuildingTask(rootGraph, combs, combsNextIds, level);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Splits the combinations of fragments on a root graph in as many ranges
+     * as the parallel producers.
+     * @param fcf the iterator over the combinations
+     * @return the iterators over the ranges
+     */
+
+    private ArrayList<FragsCombinationIterator> splitCombinations(
+                                                   FragsCombinationIterator fcf)
     {
-        boolean allDone = true;
-        for (GraphBuildingTask tsk : submitted)
+        ArrayList<FragsCombinationIterator> ranges = 
+                                    new ArrayList<FragsCombinationIterator>();
+        ranges.add(fcf);
+        for (int i=0; i<ranges.size() && ranges.size()<numProducers; i++)
         {
-            if (!tsk.isCompleted())
+            FragsCombinationIterator other = ranges.get(i).trySplit();
+            if (other != null)
             {
-                allDone = false;
-                break;
+                ranges.add(other);
             }
         }
-
-        return allDone;
+        return ranges;
     }
 
 //------------------------------------------------------------------------------
 
     /**
-     * Identify the task preceding the earliest non-completed task and use it to
-     * create a checkpoint file
+     * Generates and submits the tasks for the ranges of combinations of 
+     * a root graph. Each range is given to its own producer thread.
+     * @param rootGraph the root graph
+     * @param ranges the iterators over the ranges of combinations
+     * @param level the current relative level
+     * @return the number of submitted combinations
      */
 
-    private void makeCheckPoint() throws DENOPTIMException
+    private int submitTasksFromRanges(final DENOPTIMGraph rootGraph,
+                              final ArrayList<FragsCombinationIterator> ranges,
+                                      final int level) throws DENOPTIMException
     {
-        for (int i=0; i<submitted.size(); i++)
+        CombinationRanges info = new CombinationRanges();
+        for (FragsCombinationIterator range : ranges)
+        {
+            info.startIds.add(new ArrayList<Integer>(range.getNextIds()));
+            info.ends.add(range.getEndOfRange());
+        }
+        synchronized (this)
+        {
+            rangesOfRoot.put(rootGraph.getGraphId(), info);
+        }
+
+        ExecutorService producers = Executors.newFixedThreadPool(
+                ranges.size(), new ThreadFactory()
         {
-            GraphBuildingTask tsk = submitted.get(i);
-            int idToChkPt = -1;
-            boolean storeChkPt = false;
-            if (!tsk.isCompleted() && i>0)
+            @Override
+            public Thread newThread(Runnable r)
             {
-                if (submitted.get(i-1).isCompleted())
+                Thread t = new Thread(r, "TaskProducer");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        ArrayList<Future<Integer>> results = new ArrayList<Future<Integer>>();
+        for (int i=0; i<ranges.size(); i++)
+        {
+            final int rangeId = i;
+            final FragsCombinationIterator range = ranges.get(i);
+            results.add(producers.submit(new Callable<Integer>()
+            {
+                @Override
+                public Integer call() throws DENOPTIMException
                 {
-                    // The last completed task preceeding the first uncompleted
-                    idToChkPt = i-1;
-                    storeChkPt = true;
+                    int numCombs = 0;
+                    while (range.hasNext() 
+                           && !Thread.currentThread().isInterrupted())
+                    {
+                        GraphBuildingTask task = makeTask(rootGraph,range,
+                                                                         level);
+                        task.setRangeId(rangeId);
+                        submitTask(task);
+                        numCombs = numCombs + task.getNumberOfCombinations();
+                    }
+                    return numCombs;
                 }
-            }
-            else if (tsk.isCompleted() && (i==submitted.size()-1))
+            }));
+        }
+
+        int numCombs = 0;
+        try
+        {
+            for (Future<Integer> result : results)
             {
-                idToChkPt = i;
-                storeChkPt = true;
+                numCombs = numCombs + result.get();
             }
-            if (storeChkPt)
+        }
+        catch (InterruptedException ie)
+        {
+            Thread.currentThread().interrupt();
+            throw new DENOPTIMException("Interrupted while submitting tasks.",
+                                                                           ie);
+        }
+        catch (ExecutionException ee)
+        {
+            if (ee.getCause() instanceof DENOPTIMException)
             {
-                tsk = submitted.get(idToChkPt);
-                FSECheckPoint chk = FSEParameters.getCheckPoint();
-                chk.setSafelyCompletedGraphId(tsk.getGraphId());
-                chk.setRootId(tsk.getRootId());
-                chk.setNextIds(tsk.getNextIds());
-                chk.setLevel(tsk.getLevel());
-                chk.setUnqVrtId(GraphUtils.getUniqueVertexIndex());
-                chk.setUnqGraphId(GraphUtils.getUniqueGraphIndex());
-                chk.setUnqMolId(GraphUtils.getUniqueMoleculeIndex());
-                FSEUtils.serializeCheckPoint();
-                break;
+                throw (DENOPTIMException) ee.getCause();
             }
+            throw new DENOPTIMException(ee.getCause());
+        }
+        finally
+        {
+            producers.shutdownNow();
         }
+        return numCombs;
     }
 
 //------------------------------------------------------------------------------
@@ -289,13 +511,7 @@ public class CombinatorialExplorerByLayer
 
     private int countSubTasks()
     {
-        int tot = 0;
-        for (GraphBuildingTask tsk : submitted)
-        {
-            tot = tot + tsk.getNumberOfSubTasks();
-        }
-
-        return tot;
+        return tracker.getNumberOfSubTasks();
     }
 
 //------------------------------------------------------------------------------
@@ -311,7 +527,13 @@ public class CombinatorialExplorerByLayer
         watch.start();
 
         tpe.prestartAllCoreThreads();
-  
+
+        // UIDs registered by the external tasks
+        if (FSEParameters.submitExternalTask())
+        {
+            FSEUtils.openUIDStore(FSEParameters.getUIDFileName());
+        }
+
         int level = -1;
         if (restartFromChkPt)
         {
@@ -339,27 +561,17 @@ public class CombinatorialExplorerByLayer
                   + ".txt'). ";
             DENOPTIMLogger.appLogger.log(Level.WARNING,msg);
 
-            Collection<File> lst = FileUtils.listFiles(
-                                  new File(FSEUtils.getNameOfStorageDir(level)),
-                                       new String[] {DENOPTIMConstants.SERGFILENAMEEXT},
-                                                                         false);
-	    // Keep only safely completed serialized graphs
-	    serFromChkRestart = lst.size();
-	    for (File f : lst)
-	    {
-		String fName = f.getName();
-		int serGrphID = Integer.parseInt(fName.substring(
-				            DENOPTIMConstants.SERGFILENAMEROOT.length(),
-                          fName.length()-DENOPTIMConstants.SERGFILENAMEEXT.length()-1));
-		if (serGrphID > chk.getLatestSafelyCompletedGraphId())
-		{
-		    msg = "Removing non-safely completed graph '" + fName + "'";
-                    DENOPTIMLogger.appLogger.log(Level.WARNING,msg);
-		    serFromChkRestart--;
-		    DenoptimIO.deleteFile(FSEUtils.getNameOfStorageDir(level) 
-					              + File.separator + fName);
-		}
-	    }
+            // Keep only safely completed graphs
+            FSEGraphStore store = FSEUtils.getGraphStore(level);
+            int removed = store.removeGraphsAbove(
+                                      chk.getLatestSafelyCompletedGraphId());
+            if (removed > 0)
+            {
+                msg = "Removing " + removed + " non-safely completed graphs "
+                      + "of level " + level;
+                DENOPTIMLogger.appLogger.log(Level.WARNING,msg);
+            }
+            serFromChkRestart = store.size();
         }
 
         boolean interrupted = false;
@@ -380,11 +592,8 @@ public class CombinatorialExplorerByLayer
                     long millis = (endTime - startTime);
                     if (allTasksCompleted())
                     {
-                        Collection<File> lst = FileUtils.listFiles(
-                                  new File(FSEUtils.getNameOfStorageDir(level)),
-                                       new String[] {DENOPTIMConstants.SERGFILENAMEEXT},
-                                                                         false);
-                        int outCount = lst.size() - serFromChkRestart;
+                        int outCount = FSEUtils.countGraphsOfLevel(level)
+                                                          - serFromChkRestart;
                         int totSubmSubTasks = countSubTasks();
                         if (outCount != totSubmSubTasks  &&  level > -1)
                         {
@@ -438,7 +647,11 @@ public class CombinatorialExplorerByLayer
             }
 
             // Clean queue
-            cleanup(tpe, futures, submitted);
+            cleanup(tpe);
+            rangesOfRoot.clear();
+
+            // Graphs of this level are the roots of the next one
+            FSEUtils.closeGraphStore(level);
 
             // Level and all tasks completed
             if (interrupted)
@@ -463,18 +676,7 @@ public class CombinatorialExplorerByLayer
             if (numSubTasks == 0)
             {
                 // Needed to perceive prev.lev. when restarting from checkpoint
-                try
-                {
-                    Collection<File> lstRootsForNextLev = FileUtils.listFiles(
-                                new File(FSEUtils.getNameOfStorageDir(level-1)),
-                                       new String[] {DENOPTIMConstants.SERGFILENAMEEXT},
-                                                                         false);
-                    if (lstRootsForNextLev.size() == 0)
-                    {
-                        noRoot = true;
-                    }
-                }
-                catch (Throwable t)
+                if (FSEUtils.countGraphsOfLevel(level-1) == 0)
                 {
                     noRoot = true;
                 }
@@ -498,10 +700,18 @@ public class CombinatorialExplorerByLayer
 
         // shutdown threadpool
         tpe.shutdown();
+        FSEUtils.closeGraphStores();
+        FSEUtils.closeUIDStore();
+        FitnessWorkerPool.shutdownSharedPool();
+        FitnessCache.closeSharedCache();
+        DENOPTIMLogger.appLogger.info(ProcessRegistry.getSummary());
 
         // closing messages
         watch.stop();
-        msg = "Overall time: " + watch.toString() + ". " 
+        msg = "Candidates rejected before graph-to-molecule conversion: "
+            + GraphUtils.getPreFilterRejectionCount() + ". "
+            + DENOPTIMConstants.EOL
+            + "Overall time: " + watch.toString() + ". " 
             + DENOPTIMConstants.EOL
             + "FragSpaceExplorer run completed." + DENOPTIMConstants.EOL;
         DENOPTIMLogger.appLogger.log(Level.INFO, msg);
@@ -567,49 +777,110 @@ public class CombinatorialExplorerByLayer
         }
 
         // Iterate through the previous level
+        String prevLevDirName = FSEUtils.getNameOfStorageDir(level-1);
+        if (!FSEGraphStore.exists(prevLevDirName))
+        {
+            String msg = "Previous level folder '" + prevLevDirName 
+                         + "' not found!";
+            throw new DENOPTIMException(msg);
+        }
+        // Roots are decoded by a few threads ahead of the submission of tasks
+        int numDecoders = Math.max(1, FSEParameters.getNumberOfCPU() / 4);
+        FSERootPrefetcher roots = new FSERootPrefetcher(
+                          FSEGraphStore.openReader(prevLevDirName),numDecoders);
+        try
+        {
+            return exploreCombinationsOnRoots(roots,level);
+        }
+        finally
+        {
+            try
+            {
+                roots.close();
+            }
+            catch (Throwable t)
+            {
+                // nothing to do: the store is only read
+            }
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Generate graphs by exploring all combination of fragments on the root
+     * graphs streamed from the store of the previous level.
+     * @param roots the stream of the graphs of the previous level
+     * @param level the current relative level
+     * @return the number of submitted tasks
+     * @throws DENOPTIMException
+     */
+    private int exploreCombinationsOnRoots(FSERootPrefetcher roots,
+                                           int level) throws DENOPTIMException
+    {
         String msg = "";
         int numSubTasks = 0;
         int cntRoot = 0;
         int total = 0;
-        int itersFromChkPt = 0;
-        String prevLevDirName = FSEUtils.getNameOfStorageDir(level-1);
-        File prevLevDir = new File(prevLevDirName);
-        if (!DenoptimIO.checkExists(prevLevDirName))
+        itersFromChkPt = 0;
+        // When restarting, roots preceding that of the checkpoint are done
+        if (restartFromChkPt)
         {
-             msg = "Previous level folder '" + prevLevDirName + "' not found!";
-            throw new DENOPTIMException(msg);
+            int chkRootId = FSEParameters.getCheckPoint().getRootId();
+            try
+            {
+                cntRoot = roots.skipUntil(chkRootId);
+            }
+            catch (DENOPTIMException de)
+            {
+                msg = "Root graph " + chkRootId + " of the checkpoint not "
+                      + "found in level " + (level-1);
+                throw new DENOPTIMException(msg,de);
+            }
         }
-        Collection<File> files = FileUtils.listFiles(new File(prevLevDirName),
-                       new String[] {DENOPTIMConstants.SERGFILENAMEEXT}, false);
-        ArrayList<File> lstFiles = new ArrayList(files);
-        Collections.sort(lstFiles);
-        for (File file : lstFiles) 
+        while (roots.hasNext()) 
         {
+            FSERootPrefetcher.Root rec = roots.next();
             cntRoot++;
-            if (restartFromChkPt && 
-               FSEParameters.getCheckPoint().serFileAlreadyUsed(file.getName()))
-            {
-                continue;
-            }
 
-            DENOPTIMGraph rootGraph = DenoptimIO.deserializeDENOPTIMGraph(file);
+            DENOPTIMGraph rootGraph = rec.getGraph();
 
             // Get combination factory
             FragsCombinationIterator fcf = new FragsCombinationIterator(
                                                                      rootGraph);
 
+            // Combinations of large root graphs are split in ranges
+            ArrayList<FragsCombinationIterator> ranges = null;
             if (restartFromChkPt && firstAfterRestart)
             {
                 firstAfterRestart = false;
-                fcf.setStartingPoint(
-                                    FSEParameters.getCheckPoint().getNextIds());
+                FSECheckPoint chk = FSEParameters.getCheckPoint();
+                if (chk.hasRanges())
+                {
+                    ranges = new ArrayList<FragsCombinationIterator>();
+                    for (int r=0; r<chk.getRangesEnds().size(); r++)
+                    {
+                        ranges.add(fcf.getRange(chk.getRangesNextIds().get(r),
+                                                  chk.getRangesEnds().get(r)));
+                    }
+                }
+                else
+                {
+                    fcf.setStartingPoint(chk.getNextIds());
+                }
+            }
+            if (ranges == null && numProducers > 1
+                && fcf.getTotNumbCombs() >= MINCOMBSTOSPLIT)
+            {
+                ranges = splitCombinations(fcf);
             }
 
             // Print summary
             if (verbosity > 0)
             {
                 StringBuilder sb = new StringBuilder(512);
-                sb.append("Root: " + file.getName() + DENOPTIMConstants.EOL);
+                sb.append("Root: graph " + rec.getGraphId() 
+                                                     + DENOPTIMConstants.EOL);
                 sb.append(" - #Usable APs on root = "); 
                 sb.append(fcf.getNumRootAPs() + DENOPTIMConstants.EOL);
                 sb.append(" - Size of candidates sets = "); 
@@ -624,35 +895,17 @@ public class CombinatorialExplorerByLayer
             // Iterate over all combinations 
             try
             {
-                while (fcf.hasNext())
+                if (ranges != null)
                 {
-                    if (subtaskHasException())
-                    {
-                        stopRun();
-                        msg = "Exception in submitted task.";
-                        throw new DENOPTIMException(msg,thrownByTask);
-                    }
-
-                    int tId = TaskUtils.getUniqueTaskIndex();
-                    FragsCombination fragsToAdd = fcf.next();
-
-                    GraphBuildingTask task = new GraphBuildingTask(tId,
-                                                                      rootGraph,
-                                                                     fragsToAdd,
-                                                                         level);
-
-                    ArrayList<Integer> nextIds = fcf.getNextIds();
-                    task.setNextIds(nextIds);
-
-                    submitted.add(task);
-                    futures.add(tpe.submit(task));
-                    numSubTasks++;
-                    if (itersFromChkPt >= FSEParameters.getCheckPointStep())
-                    {
-                        itersFromChkPt = 0;
-                        makeCheckPoint();
-                    }
-                    itersFromChkPt++;
+                    numSubTasks = numSubTasks 
+                               + submitTasksFromRanges(rootGraph,ranges,level);
+                }
+                while (ranges == null && fcf.hasNext())
+                {
+                    GraphBuildingTask task = makeTask(rootGraph,fcf,level);
+                    submitTask(task);
+                    numSubTasks = numSubTasks 
+                                  + task.getNumberOfCombinations();
 
                     // Code meant only for preparation of checkpoint files
 		    // The two following variables define at which point in the
@@ -729,20 +982,30 @@ public class CombinatorialExplorerByLayer
             }
             catch (DENOPTIMException dex)
             {
-                cleanup(tpe, futures, submitted);
+                cleanup(tpe);
                 tpe.shutdown();
                 throw dex;
             }
             catch (Exception ex)
             {
-                cleanup(tpe, futures, submitted);
+                cleanup(tpe);
                 tpe.shutdown();
                 throw new DENOPTIMException(ex);
             }
 
+            int numGenCombs = fcf.getNumGeneratedCombs();
+            if (ranges != null)
+            {
+                numGenCombs = 0;
+                for (FragsCombinationIterator range : ranges)
+                {
+                    numGenCombs = numGenCombs + range.getNumGeneratedCombs();
+                }
+            }
+
             if (verbosity > 0)
             {
-                msg = fcf.getNumGeneratedCombs() + "/"
+                msg = numGenCombs + "/"
                       + fcf.getTotNumbCombs() + " combination generated "
                       + "for level " + level + " of graph " + cntRoot;
                 if (verbosity > 1)
@@ -751,7 +1014,7 @@ public class CombinatorialExplorerByLayer
                 }
                 DENOPTIMLogger.appLogger.log(Level.INFO, msg);
             }
-            total = total + fcf.getNumGeneratedCombs();
+            total = total + numGenCombs;
         }
 
         msg = "Total number of combination of fragments generated "
@@ -821,54 +1084,13 @@ public class CombinatorialExplorerByLayer
      * clean all reference to submitted tasks
      */
 
-    private void cleanup(ThreadPoolExecutor tpe, List<Future<String>> futures,
-                            ArrayList<GraphBuildingTask> submitted)
+    private void cleanup(ThreadPoolExecutor tpe)
     {
-        for (Future f : futures)
-        {
-            f.cancel(true);
-        }
-
-        for (GraphBuildingTask tsk: submitted)
-        {
-            tsk.stopTask();
-        }
-
-        submitted.clear();
+        tracker.cancelAll();
 
         tpe.getQueue().clear();
-    }
-
-//------------------------------------------------------------------------------
 
-    /**
-     * clean all reference to submitted tasks that are completed
-     */
-
-    private void cleanupCompleted(List<Future<String>> futures,
-                                         ArrayList<GraphBuildingTask> submitted)
-                                                        throws DENOPTIMException
-    {
-        ArrayList<Integer> completed = new ArrayList<>();
-
-        for (int ift=0; ift<submitted.size(); ift++)
-        {
-            if (submitted.get(ift).isCompleted())
-                completed.add(ift);
-        }
-
-        for (int ift=completed.size(); ift>0; ift--)
-        {
-            submitted.remove(submitted.get(ift-1));
-            try
-            {
-                futures.get(ift-1).get();
-            }
-            catch (Throwable t)
-            {
-                throw new DENOPTIMException(t);
-            }
-        }
+        tracker = new FSETaskTracker();
     }
 
 //------------------------------------------------------------------------------    
@@ -18,7 +18,6 @@
 
 package fragspaceexplorer;
 
-import java.io.File;
 import java.io.Serializable;
 import java.util.ArrayList;
 
@@ -74,12 +73,27 @@ public class FSECheckPoint implements Serializable
      */
     private ArrayList<Integer> nextIds;
 
+    /**
+     * When the combinations of the root graph are split in ranges, the set
+     * of indeces for the next iteration in each range
+     */
+    private ArrayList<ArrayList<Integer>> rangesNextIds;
+
+    /**
+     * When the combinations of the root graph are split in ranges, the 
+     * end of each range (see {@link 
+     * denoptim.fragspace.FragsCombinationIterator#getEndOfRange()})
+     */
+    private ArrayList<Long> rangesEnds;
+
 
 //-----------------------------------------------------------------------------
 
     public FSECheckPoint()
     {
         nextIds = new ArrayList<Integer>();
+        rangesNextIds = new ArrayList<ArrayList<Integer>>();
+        rangesEnds = new ArrayList<Long>();
     }
 
 //-----------------------------------------------------------------------------
@@ -117,6 +131,32 @@ public class FSECheckPoint implements Serializable
 	return nextIds;
     }
 
+//-----------------------------------------------------------------------------
+
+    /**
+     * @return <code>true</code> if the combinations of the root graph were
+     * split in ranges
+     */
+
+    public boolean hasRanges()
+    {
+        return rangesEnds != null && rangesEnds.size() > 0;
+    }
+
+//-----------------------------------------------------------------------------
+
+    public ArrayList<ArrayList<Integer>> getRangesNextIds()
+    {
+        return rangesNextIds;
+    }
+
+//-----------------------------------------------------------------------------
+
+    public ArrayList<Long> getRangesEnds()
+    {
+        return rangesEnds;
+    }
+
 //-----------------------------------------------------------------------------
 
     public int getLatestSafelyCompletedGraphId()
@@ -134,34 +174,31 @@ public class FSECheckPoint implements Serializable
 //-----------------------------------------------------------------------------
 
     /**
-     * @param file the name of the binary file containing a serialized 
-     * <code>DENOPTIMGraph</code>.
-     * @return <code>true</code> if the graph from the given file has been 
-     * fully explored before.
+     * Set the indeces that identify the combination of fragments next to the
+     * latest one that has been properly processed.
      */
-    
-    public boolean serFileAlreadyUsed(String filename)
+
+    public void setNextIds(ArrayList<Integer> m_nextIds)
     {
-	File candFile = new File(filename);
-	File doneFile = new File(FSEUtils.getBaseNameOfStorageFile(rootId));
-	int res = candFile.compareTo(doneFile);
-	if (res < 0)
-	{
-	    return true;
-	}
-	return false;
+	nextIds = m_nextIds;
     }
 
 //-----------------------------------------------------------------------------
 
     /**
-     * Set the indeces that identify the combination of fragments next to the
-     * latest one that has been properly processed.
+     * Set the indeces that identify, in each range of combinations of the 
+     * root graph, the combination of fragments next to the latest one that
+     * has been properly processed. Both lists are empty if the combinations
+     * are not split in ranges.
+     * @param m_rangesNextIds the indeces for each range
+     * @param m_rangesEnds the end of each range
      */
 
-    public void setNextIds(ArrayList<Integer> m_nextIds)
+    public void setRanges(ArrayList<ArrayList<Integer>> m_rangesNextIds,
+                                                   ArrayList<Long> m_rangesEnds)
     {
-	nextIds = m_nextIds;
+        rangesNextIds = m_rangesNextIds;
+        rangesEnds = m_rangesEnds;
     }
 
 //-----------------------------------------------------------------------------
@@ -244,6 +281,11 @@ public class FSECheckPoint implements Serializable
 	sb.append(", graphId=").append(graphId);
 	sb.append(", rootId=").append(rootId);
 	sb.append(", nextIds=").append(nextIds);
+	if (hasRanges())
+	{
+	    sb.append(", rangesNextIds=").append(rangesNextIds);
+	    sb.append(", rangesEnds=").append(rangesEnds);
+	}
 	return sb.toString();
     }
 
@@ -0,0 +1,751 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2026 agent <agent@local>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package fragspaceexplorer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import denoptim.exception.DENOPTIMException;
+import denoptim.molecule.DENOPTIMGraph;
+
+/**
+ * Append-only storage of the graphs of one level of a fragment space
+ * exploration. Graphs are appended to large segment files, and an index
+ * file records, for each graph, the graph ID, the ID of the root graph it
+ * was built from, and the position of the graph in the segments. The index
+ * defines the order of the graphs, which is the order in which they were
+ * appended. Each graph is stored as its Java serialized form, compressed.
+ * The index starts with a header identifying the format and its version,
+ * so that stores written in another format are rejected rather than
+ * misread.
+ * <p>
+ * A record is appended to its segment before its index entry, so the
+ * graphs listed in the index are always complete. Records or entries
+ * truncated by the termination of the JVM are discarded when the store is
+ * opened again.
+ *
+ * @author agent
+ */
+
+public class FSEGraphStore
+{
+    /**
+     * Name of the index file
+     */
+    public static final String INDEXFILENAME = "graphs.idx";
+
+    /**
+     * Root of the name of the segment files
+     */
+    public static final String SEGMENTROOT = "graphs_";
+
+    /**
+     * Extension of the segment files
+     */
+    public static final String SEGMENTEXT = ".seg";
+
+    /**
+     * Default size (bytes) above which a new segment is started
+     */
+    static final long MAXSEGMENTSIZE = 1L << 30;
+
+    /**
+     * Size (bytes) of an index entry: graph ID, root ID, segment, length,
+     * and offset
+     */
+    static final int ENTRYSIZE = 24;
+
+    /**
+     * Identifier of the format of the index (i.e., "FSEG")
+     */
+    static final int MAGIC = 0x46534547;
+
+    /**
+     * Version of the format of index and segments
+     */
+    static final int VERSION = 1;
+
+    /**
+     * Size (bytes) of the header of the index: identifier and version
+     */
+    static final int HEADERSIZE = 8;
+
+    /**
+     * The folder of the store
+     */
+    private final String dirName;
+
+    /**
+     * Size (bytes) above which a new segment is started
+     */
+    private final long maxSegmentSize;
+
+    private FileOutputStream indexOut;
+    private FileOutputStream segmentOut;
+    private DataOutputStream index;
+    private BufferedOutputStream segment;
+    private int segmentId = 0;
+    private long segmentSize = 0;
+    private int size = 0;
+
+//------------------------------------------------------------------------------
+
+    /**
+     * A graph read from the store
+     */
+
+    public static class Record
+    {
+        private final int graphId;
+        private final int rootId;
+        private final byte[] data;
+
+        private Record(int graphId, int rootId, byte[] data)
+        {
+            this.graphId = graphId;
+            this.rootId = rootId;
+            this.data = data;
+        }
+
+        public int getGraphId()
+        {
+            return graphId;
+        }
+
+        public int getRootId()
+        {
+            return rootId;
+        }
+
+        /**
+         * Decodes the graph
+         * @return the graph
+         * @throws DENOPTIMException if the record cannot be decoded
+         */
+        public DENOPTIMGraph getGraph() throws DENOPTIMException
+        {
+            return decode(data);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Sequential reader of the graphs of a store, in the order of the index
+     */
+
+    public static class Reader implements Closeable
+    {
+        private final String dirName;
+        private final DataInputStream index;
+        private final int numEntries;
+        private int numRead = 0;
+        private RandomAccessFile segment = null;
+        private int segmentId = -1;
+
+        private Reader(String dirName) throws IOException
+        {
+            this.dirName = dirName;
+            File indexFile = new File(getIndexFileName(dirName));
+            this.numEntries = count(dirName);
+            this.index = new DataInputStream(new BufferedInputStream(
+                                      new FileInputStream(indexFile), 65536));
+            if (indexFile.length() >= HEADERSIZE)
+            {
+                try
+                {
+                    checkHeader(index, dirName);
+                }
+                catch (IOException ioe)
+                {
+                    index.close();
+                    throw ioe;
+                }
+            }
+        }
+
+        public boolean hasNext()
+        {
+            return numRead < numEntries;
+        }
+
+        /**
+         * Reads the next record
+         * @return the record
+         * @throws DENOPTIMException if the store cannot be read
+         */
+        public Record next() throws DENOPTIMException
+        {
+            try
+            {
+                int graphId = index.readInt();
+                int rootId = index.readInt();
+                int segId = index.readInt();
+                int length = index.readInt();
+                long offset = index.readLong();
+                numRead++;
+                if (segId != segmentId)
+                {
+                    if (segment != null)
+                    {
+                        segment.close();
+                    }
+                    segment = new RandomAccessFile(
+                            getSegmentFileName(dirName, segId), "r");
+                    segmentId = segId;
+                }
+                byte[] data = new byte[length];
+                segment.seek(offset);
+                segment.readFully(data);
+                return new Record(graphId, rootId, data);
+            }
+            catch (IOException ioe)
+            {
+                throw new DENOPTIMException("Cannot read graph store "
+                                                           + dirName, ioe);
+            }
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            index.close();
+            if (segment != null)
+            {
+                segment.close();
+            }
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Opens a store for appending graphs. The folder and the files are
+     * created if needed.
+     * @param dirName the folder of the store
+     * @throws DENOPTIMException if the store cannot be opened
+     */
+
+    public FSEGraphStore(String dirName) throws DENOPTIMException
+    {
+        this(dirName, MAXSEGMENTSIZE);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Opens a store for appending graphs, with a given size of the
+     * segments.
+     * @param dirName the folder of the store
+     * @param maxSegmentSize the size (bytes) above which a new segment is
+     * started
+     * @throws DENOPTIMException if the store cannot be opened
+     */
+
+    FSEGraphStore(String dirName, long maxSegmentSize)
+                                                       throws DENOPTIMException
+    {
+        this.dirName = dirName;
+        this.maxSegmentSize = maxSegmentSize;
+        try
+        {
+            File dir = new File(dirName);
+            if (!dir.isDirectory() && !dir.mkdirs())
+            {
+                throw new IOException("Cannot create folder " + dirName);
+            }
+            recover();
+            openForAppend();
+        }
+        catch (IOException ioe)
+        {
+            throw new DENOPTIMException("Cannot open graph store " + dirName,
+                                                                         ioe);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Writes the header of a new index, or checks that of an existing one.
+     * Then discards index entries that point beyond the end of their
+     * segment, and any data following the last indexed record.
+     */
+
+    private void recover() throws IOException
+    {
+        File indexFile = new File(getIndexFileName(dirName));
+        RandomAccessFile raf = new RandomAccessFile(indexFile, "rw");
+        long end = 0;
+        try
+        {
+            if (raf.length() < HEADERSIZE)
+            {
+                // new store, or the header was not completely written
+                raf.setLength(0);
+                raf.writeInt(MAGIC);
+                raf.writeInt(VERSION);
+            }
+            else
+            {
+                checkHeader(raf, dirName);
+            }
+            long numEntries = (raf.length() - HEADERSIZE) / ENTRYSIZE;
+            segmentId = 0;
+            while (numEntries > 0)
+            {
+                raf.seek(HEADERSIZE + (numEntries - 1) * ENTRYSIZE + 8);
+                int segId = raf.readInt();
+                int length = raf.readInt();
+                long offset = raf.readLong();
+                if (new File(getSegmentFileName(dirName, segId)).length()
+                                                             >= offset + length)
+                {
+                    segmentId = segId;
+                    end = offset + length;
+                    break;
+                }
+                numEntries--;
+            }
+            raf.setLength(HEADERSIZE + numEntries * ENTRYSIZE);
+            size = (int) numEntries;
+        }
+        finally
+        {
+            raf.close();
+        }
+
+        // New records go right after the last indexed one
+        RandomAccessFile seg = new RandomAccessFile(
+                getSegmentFileName(dirName, segmentId), "rw");
+        try
+        {
+            seg.setLength(end);
+        }
+        finally
+        {
+            seg.close();
+        }
+        segmentSize = end;
+        int next = segmentId + 1;
+        while (new File(getSegmentFileName(dirName, next)).delete())
+        {
+            next++;
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    private void openForAppend() throws IOException
+    {
+        openIndex();
+        openSegment(true);
+    }
+
+//------------------------------------------------------------------------------
+
+    private void openIndex() throws IOException
+    {
+        indexOut = new FileOutputStream(getIndexFileName(dirName), true);
+        index = new DataOutputStream(new BufferedOutputStream(indexOut, 8192));
+    }
+
+//------------------------------------------------------------------------------
+
+    private void openSegment(boolean append) throws IOException
+    {
+        segmentOut = new FileOutputStream(
+                getSegmentFileName(dirName, segmentId), append);
+        segment = new BufferedOutputStream(segmentOut, 65536);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Appends a graph to the store.
+     * @param graph the graph
+     * @param rootId the ID of the root graph used to build the graph
+     * @throws DENOPTIMException if the graph cannot be stored
+     */
+
+    public void append(DENOPTIMGraph graph, int rootId)
+                                                       throws DENOPTIMException
+    {
+        append(graph.getGraphId(), rootId, encode(graph));
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Appends an encoded graph to the store.
+     * @param graphId the ID of the graph
+     * @param rootId the ID of the root graph used to build the graph
+     * @param data the graph as encoded by {@link #encode(DENOPTIMGraph)}
+     * @throws DENOPTIMException if the graph cannot be stored
+     */
+
+    public synchronized void append(int graphId, int rootId, byte[] data)
+                                                       throws DENOPTIMException
+    {
+        try
+        {
+            if (segmentSize > 0 && segmentSize + data.length > maxSegmentSize)
+            {
+                segment.close();
+                segmentId++;
+                segmentSize = 0;
+                openSegment(false);
+            }
+            segment.write(data);
+            index.writeInt(graphId);
+            index.writeInt(rootId);
+            index.writeInt(segmentId);
+            index.writeInt(data.length);
+            index.writeLong(segmentSize);
+            segmentSize = segmentSize + data.length;
+            size++;
+        }
+        catch (IOException ioe)
+        {
+            throw new DENOPTIMException("Cannot append graph " + graphId
+                                        + " to graph store " + dirName, ioe);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the number of graphs in the store
+     */
+
+    public synchronized int size()
+    {
+        return size;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Writes any buffered data to the files. Records are written before
+     * their index entries.
+     * @throws DENOPTIMException if the data cannot be written
+     */
+
+    public synchronized void flush() throws DENOPTIMException
+    {
+        try
+        {
+            segment.flush();
+            index.flush();
+        }
+        catch (IOException ioe)
+        {
+            throw new DENOPTIMException("Cannot write graph store " + dirName,
+                                                                         ioe);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Writes any buffered data to the files and forces the files to be
+     * written to the storage device. Records are written before their index
+     * entries.
+     * @throws DENOPTIMException if the data cannot be written
+     */
+
+    public synchronized void sync() throws DENOPTIMException
+    {
+        try
+        {
+            segment.flush();
+            segmentOut.getFD().sync();
+            index.flush();
+            indexOut.getFD().sync();
+        }
+        catch (IOException ioe)
+        {
+            throw new DENOPTIMException("Cannot write graph store " + dirName,
+                                                                         ioe);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Removes from the index the graphs with ID higher than the given one.
+     * The records of such graphs remain in the segments but are not read
+     * anymore.
+     * @param graphId the highest graph ID to keep
+     * @return the number of graphs removed
+     * @throws DENOPTIMException if the index cannot be rewritten
+     */
+
+    public synchronized int removeGraphsAbove(int graphId)
+                                                       throws DENOPTIMException
+    {
+        flush();
+        int removed = 0;
+        File indexFile = new File(getIndexFileName(dirName));
+        File tmpFile = new File(getIndexFileName(dirName) + ".tmp");
+        try
+        {
+            index.close();
+            DataInputStream in = new DataInputStream(new BufferedInputStream(
+                                        new FileInputStream(indexFile), 65536));
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tmpFile),
+                                                                      65536));
+            try
+            {
+                byte[] header = new byte[HEADERSIZE];
+                in.readFully(header);
+                out.write(header);
+                byte[] entry = new byte[ENTRYSIZE];
+                for (int i=0; i<size; i++)
+                {
+                    in.readFully(entry);
+                    if (ByteBuffer.wrap(entry).getInt() > graphId)
+                    {
+                        removed++;
+                        continue;
+                    }
+                    out.write(entry);
+                }
+            }
+            finally
+            {
+                in.close();
+                out.close();
+            }
+            if (!indexFile.delete() || !tmpFile.renameTo(indexFile))
+            {
+                throw new IOException("Cannot replace " + indexFile);
+            }
+            size = size - removed;
+            openIndex();
+        }
+        catch (IOException ioe)
+        {
+            throw new DENOPTIMException("Cannot rewrite index of graph store "
+                                                          + dirName, ioe);
+        }
+        return removed;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Writes any buffered data and closes the files.
+     * @throws DENOPTIMException if the data cannot be written
+     */
+
+    public synchronized void close() throws DENOPTIMException
+    {
+        try
+        {
+            segment.close();
+            index.close();
+        }
+        catch (IOException ioe)
+        {
+            throw new DENOPTIMException("Cannot close graph store " + dirName,
+                                                                         ioe);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @param dirName the folder of a store
+     * @return <code>true</code> if the folder contains a store
+     */
+
+    public static boolean exists(String dirName)
+    {
+        return new File(getIndexFileName(dirName)).exists();
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Counts the graphs of a store that is not open for appending.
+     * @param dirName the folder of the store
+     * @return the number of graphs
+     */
+
+    public static int count(String dirName)
+    {
+        long length = new File(getIndexFileName(dirName)).length();
+        if (length < HEADERSIZE)
+        {
+            return 0;
+        }
+        return (int) ((length - HEADERSIZE) / ENTRYSIZE);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Reads the header of an index and checks that the format is the one
+     * written by this class.
+     * @param in the index, positioned at its beginning
+     * @param dirName the folder of the store
+     * @throws IOException if the index is of another format or version
+     */
+
+    private static void checkHeader(DataInput in, String dirName)
+                                                            throws IOException
+    {
+        if (in.readInt() != MAGIC)
+        {
+            throw new IOException("Folder " + dirName + " does not contain "
+                                                  + "a graph store.");
+        }
+        int version = in.readInt();
+        if (version != VERSION)
+        {
+            throw new IOException("Graph store " + dirName + " has format "
+                    + "version " + version + ", but only version " + VERSION
+                    + " can be read.");
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Opens a sequential reader of a store. The store must not be appended
+     * while being read.
+     * @param dirName the folder of the store
+     * @return the reader
+     * @throws DENOPTIMException if the store cannot be read
+     */
+
+    public static Reader openReader(String dirName) throws DENOPTIMException
+    {
+        try
+        {
+            return new Reader(dirName);
+        }
+        catch (IOException ioe)
+        {
+            throw new DENOPTIMException("Cannot read graph store " + dirName,
+                                                                         ioe);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    private static String getIndexFileName(String dirName)
+    {
+        return dirName + File.separator + INDEXFILENAME;
+    }
+
+//------------------------------------------------------------------------------
+
+    private static String getSegmentFileName(String dirName, int segId)
+    {
+        return dirName + File.separator + SEGMENTROOT
+                            + String.format("%04d", segId) + SEGMENTEXT;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Encodes a graph as stored in the segments
+     * @param graph the graph
+     * @return the encoded graph
+     * @throws DENOPTIMException if the graph cannot be serialized
+     */
+
+    public static byte[] encode(DENOPTIMGraph graph) throws DENOPTIMException
+    {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(4096);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try
+        {
+            ObjectOutputStream oos = new ObjectOutputStream(
+                                   new DeflaterOutputStream(bos, deflater));
+            oos.writeObject(graph);
+            oos.close();
+        }
+        catch (IOException ioe)
+        {
+            throw new DENOPTIMException("Cannot serialize graph "
+                                                 + graph.getGraphId(), ioe);
+        }
+        finally
+        {
+            deflater.end();
+        }
+        return bos.toByteArray();
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Decodes a graph encoded by {@link #encode(DENOPTIMGraph)}
+     * @param data the encoded graph
+     * @return the graph
+     * @throws DENOPTIMException if the graph cannot be deserialized
+     */
+
+    public static DENOPTIMGraph decode(byte[] data) throws DENOPTIMException
+    {
+        Inflater inflater = new Inflater();
+        try
+        {
+            ObjectInputStream ois = new ObjectInputStream(
+                    new InflaterInputStream(new ByteArrayInputStream(data),
+                                                                  inflater));
+            DENOPTIMGraph graph = (DENOPTIMGraph) ois.readObject();
+            ois.close();
+            return graph;
+        }
+        catch (IOException | ClassNotFoundException e)
+        {
+            throw new DENOPTIMException("Cannot deserialize graph.", e);
+        }
+        finally
+        {
+            inflater.end();
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,248 @@
+package fragspaceexplorer;
+
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2026 agent <agent@local>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+
+import org.junit.jupiter.api.Test;
+
+import denoptim.exception.DENOPTIMException;
+import denoptim.molecule.DENOPTIMGraph;
+
+/**
+ * Unit test for the storage of the graphs of a level
+ *
+ * @author agent
+ */
+
+public class FSEGraphStoreTest
+{
+
+//------------------------------------------------------------------------------
+
+    private static String newStoreDir() throws Exception
+    {
+        return Files.createTempDirectory("_unitFSEStore").toFile()
+                                                                   + "/level";
+    }
+
+//------------------------------------------------------------------------------
+
+    private static DENOPTIMGraph makeGraph(int graphId)
+    {
+        DENOPTIMGraph g = new DENOPTIMGraph();
+        g.setGraphId(graphId);
+        return g;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the IDs of graph and root of all the graphs in the store, as
+     * read from the decoded graphs
+     */
+
+    private static ArrayList<String> readAll(String dirName) throws Exception
+    {
+        ArrayList<String> ids = new ArrayList<String>();
+        FSEGraphStore.Reader reader = FSEGraphStore.openReader(dirName);
+        try
+        {
+            while (reader.hasNext())
+            {
+                FSEGraphStore.Record rec = reader.next();
+                assertEquals(rec.getGraphId(), rec.getGraph().getGraphId(),
+                                                        "ID of decoded graph");
+                ids.add(rec.getGraphId() + "<" + rec.getRootId());
+            }
+        }
+        finally
+        {
+            reader.close();
+        }
+        return ids;
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testRoundTrip() throws Exception
+    {
+        String dirName = newStoreDir();
+        assertFalse(FSEGraphStore.exists(dirName));
+        FSEGraphStore store = new FSEGraphStore(dirName);
+        ArrayList<String> expected = new ArrayList<String>();
+        for (int i=0; i<10; i++)
+        {
+            store.append(makeGraph(100 + i), i % 3);
+            expected.add((100 + i) + "<" + (i % 3));
+        }
+        assertEquals(10, store.size());
+        store.close();
+
+        assertTrue(FSEGraphStore.exists(dirName));
+        assertEquals(10, FSEGraphStore.count(dirName));
+        assertEquals(expected, readAll(dirName), "Graphs in the store");
+
+        // appending to a reopened store
+        store = new FSEGraphStore(dirName);
+        assertEquals(10, store.size());
+        store.append(makeGraph(200), 5);
+        expected.add("200<5");
+        assertEquals(1, store.removeGraphsAbove(150), "Removed graphs");
+        expected.remove(expected.size()-1);
+        store.append(makeGraph(150), 6);
+        expected.add("150<6");
+        store.close();
+        assertEquals(expected, readAll(dirName), "Graphs after reopening");
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testTruncatedTail() throws Exception
+    {
+        String dirName = newStoreDir();
+        FSEGraphStore store = new FSEGraphStore(dirName);
+        ArrayList<String> expected = new ArrayList<String>();
+        for (int i=0; i<5; i++)
+        {
+            store.append(makeGraph(i), 0);
+            expected.add(i + "<0");
+        }
+        store.close();
+
+        // an incomplete index entry, as left by a JVM terminated while
+        // writing it
+        File index = new File(dirName, FSEGraphStore.INDEXFILENAME);
+        RandomAccessFile raf = new RandomAccessFile(index, "rw");
+        raf.setLength(raf.length() + FSEGraphStore.ENTRYSIZE / 2);
+        raf.close();
+        assertEquals(5, FSEGraphStore.count(dirName));
+
+        // a record whose data was not completely written
+        File segment = new File(dirName, FSEGraphStore.SEGMENTROOT + "0000"
+                                                 + FSEGraphStore.SEGMENTEXT);
+        raf = new RandomAccessFile(segment, "rw");
+        raf.setLength(raf.length() - 1);
+        raf.close();
+        expected.remove(expected.size()-1);
+
+        store = new FSEGraphStore(dirName);
+        assertEquals(4, store.size(), "Graphs after recovery");
+        assertEquals(FSEGraphStore.HEADERSIZE + 4 * FSEGraphStore.ENTRYSIZE,
+                                          index.length(), "Size of index");
+        store.append(makeGraph(9), 1);
+        expected.add("9<1");
+        store.close();
+        assertEquals(expected, readAll(dirName), "Graphs after recovery");
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testSegmentRollover() throws Exception
+    {
+        String dirName = newStoreDir();
+        int recordSize = FSEGraphStore.encode(makeGraph(0)).length;
+        // three records per segment (encoded graphs differ by few bytes)
+        long maxSize = 3 * recordSize + recordSize / 2;
+        FSEGraphStore store = new FSEGraphStore(dirName, maxSize);
+        ArrayList<String> expected = new ArrayList<String>();
+        for (int i=0; i<8; i++)
+        {
+            store.append(makeGraph(i), 0);
+            expected.add(i + "<0");
+        }
+        store.close();
+
+        for (int seg=0; seg<3; seg++)
+        {
+            assertTrue(new File(dirName, FSEGraphStore.SEGMENTROOT
+                    + String.format("%04d", seg) + FSEGraphStore.SEGMENTEXT)
+                                             .exists(), "Segment " + seg);
+        }
+        assertEquals(expected, readAll(dirName), "Graphs across segments");
+
+        // the first record of the last segment is incomplete: the store
+        // continues from the previous segment
+        File last = new File(dirName, FSEGraphStore.SEGMENTROOT + "0002"
+                                                 + FSEGraphStore.SEGMENTEXT);
+        RandomAccessFile raf = new RandomAccessFile(last, "rw");
+        raf.setLength(recordSize - 1);
+        raf.close();
+        expected.remove(expected.size()-1);
+        expected.remove(expected.size()-1);
+
+        store = new FSEGraphStore(dirName, maxSize);
+        assertEquals(6, store.size(), "Graphs after recovery");
+        assertFalse(last.exists(), "Segment following the last record");
+        store.append(makeGraph(10), 2);
+        expected.add("10<2");
+        store.close();
+        assertEquals(expected, readAll(dirName), "Graphs after recovery");
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testFormatVersion() throws Exception
+    {
+        String dirName = newStoreDir();
+        FSEGraphStore store = new FSEGraphStore(dirName);
+        store.append(makeGraph(1), 0);
+        store.close();
+
+        File index = new File(dirName, FSEGraphStore.INDEXFILENAME);
+        RandomAccessFile raf = new RandomAccessFile(index, "rw");
+        raf.seek(4);
+        raf.writeInt(FSEGraphStore.VERSION + 1);
+        raf.close();
+
+        try
+        {
+            new FSEGraphStore(dirName);
+            fail("Store of another version opened for appending");
+        }
+        catch (DENOPTIMException de)
+        {
+            assertTrue(de.getCause().getMessage().contains("version"));
+        }
+        try
+        {
+            FSEGraphStore.openReader(dirName);
+            fail("Store of another version opened for reading");
+        }
+        catch (DENOPTIMException de)
+        {
+            assertTrue(de.getCause().getMessage().contains("version"));
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,529 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2026 agent <agent@local>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package fragspaceexplorer;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+
+import denoptim.constants.DENOPTIMConstants;
+import denoptim.exception.DENOPTIMException;
+import denoptim.logging.DENOPTIMLogger;
+
+/**
+ * Writes the graphs generated by the tasks of a fragment space exploration
+ * to the store of their level (see {@link FSEGraphStore}) and to the text
+ * index of the level. Tasks only put the encoded graphs in a lock-free
+ * queue. A single thread takes the graphs from the queue, appends them to
+ * the files, and forces the files to the storage device once for a whole
+ * group of graphs (i.e., group commit), that is, when the queue is empty or
+ * when {@link #MAXBATCH} graphs have been written.
+ *
+ * @author agent
+ */
+
+public class FSEGraphWriter
+{
+    /**
+     * Maximum number of graphs written between two commits
+     */
+    static final int MAXBATCH = 1024;
+
+    /**
+     * Number of queued graphs above which tasks wait for the writer
+     */
+    static final int MAXQUEUEDEPTH = 4096;
+
+    /**
+     * Level value of barriers that do not close any level
+     */
+    private static final int NOLEVEL = Integer.MIN_VALUE;
+
+    /**
+     * The queue of graphs and barriers
+     */
+    private final ConcurrentLinkedQueue<Object> queue =
+            new ConcurrentLinkedQueue<Object>();
+
+    /**
+     * Number of items in the queue
+     */
+    private final AtomicInteger depth = new AtomicInteger(0);
+
+    /**
+     * The thread writing the files
+     */
+    private final Thread writer;
+
+    /**
+     * The files of the levels being written. Used only by the writer thread.
+     */
+    private final Map<Integer,Sink> sinks = new HashMap<Integer,Sink>();
+
+    /**
+     * The first error occurred when writing, if any
+     */
+    private volatile Throwable failure = null;
+
+    private volatile boolean closed = false;
+
+    // Statistics updated by the writer thread
+    private volatile int maxDepth = 0;
+    private volatile long numGraphs = 0;
+    private volatile long numCommits = 0;
+    private volatile long totCommitTime = 0;
+    private volatile long maxCommitTime = 0;
+
+//------------------------------------------------------------------------------
+
+    /**
+     * A graph to be written
+     */
+
+    private static class Record
+    {
+        private final int level;
+        private final int graphId;
+        private final int rootId;
+        private final byte[] data;
+        private final String indexLine;
+
+        private Record(int level, int graphId, int rootId, byte[] data,
+                                                              String indexLine)
+        {
+            this.level = level;
+            this.graphId = graphId;
+            this.rootId = rootId;
+            this.data = data;
+            this.indexLine = indexLine;
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * A request to commit everything queued before the request, and possibly
+     * to close the text index of a level
+     */
+
+    private static class Barrier
+    {
+        private final int closeLevel;
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        private Barrier(int closeLevel)
+        {
+            this.closeLevel = closeLevel;
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * The files of a level
+     */
+
+    private static class Sink
+    {
+        private final FSEGraphStore store;
+        private final FileOutputStream indexOut;
+        private final Writer index;
+        private boolean dirty = false;
+
+        private Sink(int level) throws DENOPTIMException, IOException
+        {
+            store = FSEUtils.getGraphStore(level);
+            indexOut = new FileOutputStream(
+                          FSEUtils.getNameOfStorageIndexFile(level), true);
+            index = new BufferedWriter(new OutputStreamWriter(indexOut));
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Constructor. Starts the writer thread.
+     */
+
+    public FSEGraphWriter()
+    {
+        writer = new Thread("FSEGraphWriter")
+        {
+            @Override
+            public void run()
+            {
+                writeQueue();
+            }
+        };
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Queues a graph for writing. Returns immediately unless the queue is
+     * full.
+     * @param level the level of the graph
+     * @param graphId the ID of the graph
+     * @param rootId the ID of the root graph used to build the graph
+     * @param data the graph as encoded by
+     * {@link FSEGraphStore#encode(denoptim.molecule.DENOPTIMGraph)}
+     * @param indexLine the line listing the graph in the text index
+     * @throws DENOPTIMException if writing failed or the writer is closed
+     */
+
+    public void write(int level, int graphId, int rootId, byte[] data,
+                                  String indexLine) throws DENOPTIMException
+    {
+        checkState();
+        // reserve a place in the queue, so that concurrent tasks cannot
+        // exceed the maximum depth
+        while (true)
+        {
+            int d = depth.get();
+            if (d < MAXQUEUEDEPTH)
+            {
+                if (depth.compareAndSet(d, d + 1))
+                {
+                    break;
+                }
+                continue;
+            }
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+            checkState();
+        }
+        queue.offer(new Record(level, graphId, rootId, data, indexLine));
+        LockSupport.unpark(writer);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Waits until all the graphs queued before calling this method have been
+     * committed.
+     * @throws DENOPTIMException if writing failed
+     */
+
+    public void sync() throws DENOPTIMException
+    {
+        await(new Barrier(NOLEVEL));
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Commits all the queued graphs and closes the text index of a level.
+     * No more graphs of that level must be queued.
+     * @param level the level
+     * @throws DENOPTIMException if writing failed
+     */
+
+    public void closeLevel(int level) throws DENOPTIMException
+    {
+        await(new Barrier(level));
+    }
+
+//------------------------------------------------------------------------------
+
+    private void await(Barrier barrier) throws DENOPTIMException
+    {
+        checkState();
+        depth.incrementAndGet();
+        queue.offer(barrier);
+        LockSupport.unpark(writer);
+        try
+        {
+            // the writer may have stopped before seeing the barrier
+            while (!barrier.done.await(100, TimeUnit.MILLISECONDS))
+            {
+                if (!writer.isAlive() && barrier.done.getCount() > 0)
+                {
+                    checkState();
+                    throw new DENOPTIMException("Writer of graphs stopped.");
+                }
+            }
+        }
+        catch (InterruptedException ie)
+        {
+            Thread.currentThread().interrupt();
+            throw new DENOPTIMException("Interrupted while waiting for "
+                                                    + "graphs to be stored.", ie);
+        }
+        checkState();
+    }
+
+//------------------------------------------------------------------------------
+
+    private void checkState() throws DENOPTIMException
+    {
+        if (failure != null)
+        {
+            throw new DENOPTIMException("Cannot store graphs.", failure);
+        }
+        if (closed)
+        {
+            throw new DENOPTIMException("Writer of graphs is closed.");
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * The loop of the writer thread
+     */
+
+    private void writeQueue()
+    {
+        int pending = 0;
+        while (true)
+        {
+            Object item = queue.poll();
+            if (item == null)
+            {
+                if (pending > 0)
+                {
+                    commit();
+                    pending = 0;
+                }
+                if (closed)
+                {
+                    break;
+                }
+                LockSupport.park(this);
+                continue;
+            }
+            int d = depth.getAndDecrement();
+            if (d > maxDepth)
+            {
+                maxDepth = d;
+            }
+
+            if (item instanceof Record)
+            {
+                if (failure == null)
+                {
+                    write((Record) item);
+                    pending++;
+                    if (pending >= MAXBATCH)
+                    {
+                        commit();
+                        pending = 0;
+                    }
+                }
+            }
+            else
+            {
+                Barrier barrier = (Barrier) item;
+                if (pending > 0)
+                {
+                    commit();
+                    pending = 0;
+                }
+                if (barrier.closeLevel != NOLEVEL)
+                {
+                    closeSink(barrier.closeLevel);
+                }
+                barrier.done.countDown();
+            }
+        }
+        for (Integer level : sinks.keySet().toArray(new Integer[0]))
+        {
+            closeSink(level);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    private void write(Record rec)
+    {
+        try
+        {
+            Sink sink = sinks.get(rec.level);
+            if (sink == null)
+            {
+                sink = new Sink(rec.level);
+                sinks.put(rec.level, sink);
+            }
+            sink.store.append(rec.graphId, rec.rootId, rec.data);
+            sink.index.write(rec.indexLine + DENOPTIMConstants.EOL);
+            sink.dirty = true;
+            numGraphs++;
+        }
+        catch (Throwable t)
+        {
+            fail(t);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Forces the written data to the storage device
+     */
+
+    private void commit()
+    {
+        if (failure != null)
+        {
+            return;
+        }
+        long start = System.nanoTime();
+        try
+        {
+            for (Sink sink : sinks.values())
+            {
+                if (!sink.dirty)
+                {
+                    continue;
+                }
+                sink.store.sync();
+                sink.index.flush();
+                sink.indexOut.getFD().sync();
+                sink.dirty = false;
+            }
+        }
+        catch (Throwable t)
+        {
+            fail(t);
+        }
+        long time = System.nanoTime() - start;
+        numCommits++;
+        totCommitTime = totCommitTime + time;
+        if (time > maxCommitTime)
+        {
+            maxCommitTime = time;
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    private void closeSink(int level)
+    {
+        Sink sink = sinks.remove(level);
+        if (sink == null)
+        {
+            return;
+        }
+        try
+        {
+            sink.index.close();
+        }
+        catch (Throwable t)
+        {
+            fail(t);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    private void fail(Throwable t)
+    {
+        if (failure == null)
+        {
+            failure = t;
+            DENOPTIMLogger.appLogger.log(Level.SEVERE, "Cannot store graphs.",
+                                                                           t);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Commits all the queued graphs, closes the files, and stops the writer
+     * thread.
+     * @throws DENOPTIMException if writing failed
+     */
+
+    public void close() throws DENOPTIMException
+    {
+        if (closed)
+        {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(writer);
+        try
+        {
+            writer.join();
+        }
+        catch (InterruptedException ie)
+        {
+            Thread.currentThread().interrupt();
+            throw new DENOPTIMException("Interrupted while waiting for "
+                                                + "graphs to be stored.", ie);
+        }
+        if (failure != null)
+        {
+            throw new DENOPTIMException("Cannot store graphs.", failure);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the number of graphs waiting to be written
+     */
+
+    public int getQueueDepth()
+    {
+        return depth.get();
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the highest number of items found in the queue
+     */
+
+    public int getMaxQueueDepth()
+    {
+        return maxDepth;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return a summary of the activity of the writer
+     */
+
+    public String getSummary()
+    {
+        long commits = numCommits;
+        double avgLatency = commits == 0 ? 0.0
+                : totCommitTime / 1.0e6 / commits;
+        return String.format("Graph writer: %d graphs in %d commits, "
+                + "queue depth %d (max %d), flush latency %.2f ms "
+                + "(max %.2f ms)", numGraphs, commits, getQueueDepth(),
+                getMaxQueueDepth(), avgLatency, maxCommitTime / 1.0e6);
+    }
+
+//------------------------------------------------------------------------------
+
+}
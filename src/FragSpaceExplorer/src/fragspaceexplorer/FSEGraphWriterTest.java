@@ -0,0 +1,242 @@
+package fragspaceexplorer;
+
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2026 agent <agent@local>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import denoptim.exception.DENOPTIMException;
+
+/**
+ * Unit test for the writer of the graphs generated by the tasks
+ *
+ * @author agent
+ */
+
+public class FSEGraphWriterTest
+{
+    private static final byte[] DATA = new byte[] {1, 2, 3, 4};
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Runs a test with the given folder as root of the stores of graphs
+     */
+
+    private interface StoreTest
+    {
+        public void run(String dbRoot) throws Exception;
+    }
+
+    private static void runWithDBRoot(String dbRoot, StoreTest test)
+                                                              throws Exception
+    {
+        String oldRoot = FSEParameters.getDBRoot();
+        FSEParameters.interpretKeyword("FSE-DBROOTFOLDER=" + dbRoot);
+        try
+        {
+            test.run(dbRoot);
+        }
+        finally
+        {
+            FSEUtils.closeGraphStores();
+            FSEParameters.interpretKeyword("FSE-DBROOTFOLDER=" + oldRoot);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    private static int countLines(String fileName) throws Exception
+    {
+        return Files.readAllLines(new File(fileName).toPath()).size();
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testSyncCommitsQueuedGraphs() throws Exception
+    {
+        String dbRoot = Files.createTempDirectory("_unitFSEWriter").toString();
+        runWithDBRoot(dbRoot, new StoreTest() {
+            public void run(String dbRoot) throws Exception
+            {
+                final FSEGraphWriter writer = new FSEGraphWriter();
+                final int perThread = FSEGraphWriter.MAXQUEUEDEPTH;
+                ExecutorService pool = Executors.newFixedThreadPool(4);
+                try
+                {
+                    Future<?>[] futures = new Future<?>[4];
+                    for (int t=0; t<futures.length; t++)
+                    {
+                        final int first = t * perThread;
+                        futures[t] = pool.submit(new Runnable() {
+                            public void run()
+                            {
+                                try
+                                {
+                                    for (int i=first; i<first+perThread; i++)
+                                    {
+                                        writer.write(0, i, -1, DATA,
+                                                                 "Graph " + i);
+                                    }
+                                }
+                                catch (DENOPTIMException de)
+                                {
+                                    throw new RuntimeException(de);
+                                }
+                            }
+                        });
+                    }
+                    for (Future<?> f : futures)
+                    {
+                        f.get(60, TimeUnit.SECONDS);
+                    }
+                }
+                finally
+                {
+                    pool.shutdownNow();
+                }
+
+                writer.sync();
+                int expected = 4 * perThread;
+                assertEquals(0, writer.getQueueDepth(), "Queue after sync");
+                // the barrier of sync is queued regardless of the depth
+                assertTrue(writer.getMaxQueueDepth()
+                                        <= FSEGraphWriter.MAXQUEUEDEPTH + 1,
+                        "Queue depth " + writer.getMaxQueueDepth());
+                assertEquals(expected, FSEGraphStore.count(
+                        FSEUtils.getNameOfStorageDir(0)), "Stored graphs");
+                assertEquals(expected, countLines(
+                        FSEUtils.getNameOfStorageIndexFile(0)), "Listed graphs");
+                writer.close();
+            }
+        });
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testCloseLevel() throws Exception
+    {
+        String dbRoot = Files.createTempDirectory("_unitFSEWriter").toString();
+        runWithDBRoot(dbRoot, new StoreTest() {
+            public void run(String dbRoot) throws Exception
+            {
+                FSEGraphWriter writer = new FSEGraphWriter();
+                for (int i=0; i<3; i++)
+                {
+                    writer.write(0, i, -1, DATA, "Graph " + i);
+                }
+                writer.write(1, 10, 0, DATA, "Graph 10");
+                writer.closeLevel(0);
+                assertEquals(3, countLines(
+                        FSEUtils.getNameOfStorageIndexFile(0)), "Level 0");
+                assertEquals(3, FSEGraphStore.count(
+                        FSEUtils.getNameOfStorageDir(0)), "Stored in level 0");
+
+                // the other level is still open
+                writer.write(1, 11, 0, DATA, "Graph 11");
+                writer.closeLevel(1);
+                assertEquals(2, countLines(
+                        FSEUtils.getNameOfStorageIndexFile(1)), "Level 1");
+
+                // closing a level without graphs has no effect
+                writer.closeLevel(2);
+                writer.close();
+                assertTrue(!new File(FSEUtils.getNameOfStorageDir(2)).exists(),
+                                                       "Folder of level 2");
+                try
+                {
+                    writer.write(0, 3, -1, DATA, "Graph 3");
+                    fail("Graph written after closing the writer");
+                }
+                catch (DENOPTIMException de)
+                {
+                    // expected
+                }
+            }
+        });
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testFailureIsReported() throws Exception
+    {
+        // the stores cannot be created within a regular file
+        File notADir = File.createTempFile("_unitFSEWriter", ".txt");
+        String dbRoot = notADir.getAbsolutePath() + File.separator + "db";
+        runWithDBRoot(dbRoot, new StoreTest() {
+            public void run(String dbRoot) throws Exception
+            {
+                FSEGraphWriter writer = new FSEGraphWriter();
+                writer.write(0, 1, -1, DATA, "Graph 1");
+                try
+                {
+                    writer.sync();
+                    fail("Failure not reported by sync");
+                }
+                catch (DENOPTIMException de)
+                {
+                    assertTrue(de.getCause() != null, "Cause of the failure");
+                }
+                try
+                {
+                    writer.write(0, 2, -1, DATA, "Graph 2");
+                    fail("Graph queued after a failure");
+                }
+                catch (DENOPTIMException de)
+                {
+                    // expected
+                }
+                try
+                {
+                    writer.closeLevel(0);
+                    fail("Failure not reported when closing the level");
+                }
+                catch (DENOPTIMException de)
+                {
+                    // expected
+                }
+                try
+                {
+                    writer.close();
+                    fail("Failure not reported when closing the writer");
+                }
+                catch (DENOPTIMException de)
+                {
+                    // expected
+                }
+            }
+        });
+    }
+
+//------------------------------------------------------------------------------
+
+}
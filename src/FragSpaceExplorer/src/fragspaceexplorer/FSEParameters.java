@@ -119,6 +119,12 @@ public class FSEParameters
      */
     private static int chkptStep = 100;
 
+    /**
+     * Number of consecutive combinations of fragments processed by each 
+     * graph building task
+     */
+    private static int taskChunkSize = 1;
+
     /**
      * Checkpoint for restarting an interrupted FSE run
      */
@@ -239,6 +245,13 @@ public class FSEParameters
 	return chkptStep;
     }
 
+//-----------------------------------------------------------------------------
+
+    public static int getTaskChunkSize()
+    {
+        return taskChunkSize;
+    }
+
 //-----------------------------------------------------------------------------
 
     public static String getCheckPointName()
@@ -423,6 +436,17 @@ public class FSEParameters
                 msg = "Unable to understand value " + key + "'" + value + "'";
                 throw new DENOPTIMException(msg);
             }
+            break;
+        case "FSE-TASKCHUNKSIZE=":
+            try
+            {
+                taskChunkSize = Integer.parseInt(value);
+            }
+            catch (Throwable t)
+            {
+                msg = "Unable to understand value " + key + "'" + value + "'";
+                throw new DENOPTIMException(msg);
+            }
             break;
 		case "FSE-DBROOTFOLDER=":
 		    dbRootDir = value;
@@ -582,6 +606,13 @@ public class FSEParameters
             throw new DENOPTIMException(msg);
 	}
 
+        if (taskChunkSize < 1)
+        {
+            msg = "The number of combinations of fragments per task must be "
+                  + "larger than zero.";
+            throw new DENOPTIMException(msg);
+        }
+
         if (FragmentSpaceParameters.fsParamsInUse())
         {
             FragmentSpaceParameters.checkParameters();
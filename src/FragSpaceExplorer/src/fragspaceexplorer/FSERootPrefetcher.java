@@ -0,0 +1,253 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2026 agent <agent@local>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package fragspaceexplorer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import denoptim.exception.DENOPTIMException;
+import denoptim.molecule.DENOPTIMGraph;
+
+/**
+ * Streams the root graphs of a level from its {@link FSEGraphStore}.
+ * The records are read sequentially, but decoded by a few threads ahead of
+ * the consumer. At most a fixed number of roots are read ahead, and roots
+ * are given to the consumer in the order of the store, as needed by the
+ * checkpoints of the exploration.
+ *
+ * @author agent
+ */
+
+public class FSERootPrefetcher implements Closeable
+{
+    /**
+     * Number of roots read ahead of the consumer per decoding thread
+     */
+    private static final int DEPTHPERTHREAD = 4;
+
+    /**
+     * The source of records
+     */
+    private final FSEGraphStore.Reader reader;
+
+    /**
+     * The threads decoding the records
+     */
+    private final ExecutorService decoders;
+
+    /**
+     * The roots read ahead, in the order of the store
+     */
+    private final ArrayDeque<Root> window = new ArrayDeque<Root>();
+
+    /**
+     * Maximum number of roots read ahead
+     */
+    private final int depth;
+
+    /**
+     * A record read, but not yet given to the decoders
+     */
+    private FSEGraphStore.Record held = null;
+
+//------------------------------------------------------------------------------
+
+    /**
+     * A root graph being decoded
+     */
+
+    public static class Root
+    {
+        private final int graphId;
+        private final Future<DENOPTIMGraph> graph;
+
+        private Root(int graphId, Future<DENOPTIMGraph> graph)
+        {
+            this.graphId = graphId;
+            this.graph = graph;
+        }
+
+        public int getGraphId()
+        {
+            return graphId;
+        }
+
+        /**
+         * Waits for the graph to be decoded
+         * @return the graph
+         * @throws DENOPTIMException if the graph cannot be decoded
+         */
+        public DENOPTIMGraph getGraph() throws DENOPTIMException
+        {
+            try
+            {
+                return graph.get();
+            }
+            catch (InterruptedException ie)
+            {
+                Thread.currentThread().interrupt();
+                throw new DENOPTIMException("Interrupted while decoding root "
+                                                        + "graph " + graphId, ie);
+            }
+            catch (ExecutionException ee)
+            {
+                if (ee.getCause() instanceof DENOPTIMException)
+                {
+                    throw (DENOPTIMException) ee.getCause();
+                }
+                throw new DENOPTIMException("Cannot decode root graph "
+                                                    + graphId, ee.getCause());
+            }
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Constructor
+     * @param reader the reader of the store of the level
+     * @param numThreads the number of threads decoding the roots
+     */
+
+    public FSERootPrefetcher(FSEGraphStore.Reader reader, int numThreads)
+    {
+        this.reader = reader;
+        this.depth = DEPTHPERTHREAD * numThreads;
+        this.decoders = Executors.newFixedThreadPool(numThreads,
+                new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(Runnable r)
+            {
+                Thread t = new Thread(r, "RootDecoder");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Discards, without decoding them, the roots preceding a given one,
+     * which becomes the next root. Must be called before any root is taken.
+     * @param graphId the ID of the graph to be returned next
+     * @return the number of roots discarded
+     * @throws DENOPTIMException if the graph is not found
+     */
+
+    public int skipUntil(int graphId) throws DENOPTIMException
+    {
+        int skipped = 0;
+        while (reader.hasNext())
+        {
+            FSEGraphStore.Record rec = reader.next();
+            if (rec.getGraphId() == graphId)
+            {
+                held = rec;
+                return skipped;
+            }
+            skipped++;
+        }
+        throw new DENOPTIMException("Root graph " + graphId + " not found.");
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return <code>true</code> if there are more roots
+     * @throws DENOPTIMException if the store cannot be read
+     */
+
+    public boolean hasNext() throws DENOPTIMException
+    {
+        fill();
+        return !window.isEmpty();
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Takes the next root. Its graph may still be being decoded.
+     * @return the next root
+     * @throws DENOPTIMException if the store cannot be read
+     */
+
+    public Root next() throws DENOPTIMException
+    {
+        fill();
+        Root root = window.poll();
+        if (root == null)
+        {
+            throw new DENOPTIMException("No more root graphs.");
+        }
+        fill();
+        return root;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Reads records and gives them to the decoders until the window is full
+     */
+
+    private void fill() throws DENOPTIMException
+    {
+        while (window.size() < depth && (held != null || reader.hasNext()))
+        {
+            final FSEGraphStore.Record rec = held != null ? held
+                                                          : reader.next();
+            held = null;
+            Future<DENOPTIMGraph> graph = decoders.submit(
+                    new Callable<DENOPTIMGraph>()
+            {
+                @Override
+                public DENOPTIMGraph call() throws DENOPTIMException
+                {
+                    return rec.getGraph();
+                }
+            });
+            window.add(new Root(rec.getGraphId(), graph));
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Stops the decoders and closes the reader
+     */
+
+    @Override
+    public void close() throws IOException
+    {
+        decoders.shutdownNow();
+        window.clear();
+        reader.close();
+    }
+
+//------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,185 @@
+package fragspaceexplorer;
+
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2026 agent <agent@local>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.nio.file.Files;
+import java.util.ArrayList;
+
+import org.junit.jupiter.api.Test;
+
+import denoptim.exception.DENOPTIMException;
+import denoptim.molecule.DENOPTIMGraph;
+
+/**
+ * Unit test for the streaming of root graphs
+ *
+ * @author agent
+ */
+
+public class FSERootPrefetcherTest
+{
+    /**
+     * IDs of the graphs in the order of the store
+     */
+    private static final int[] GRAPHIDS = new int[] {
+            7, 3, 11, 5, 2, 13, 1, 17, 8, 4, 19, 6, 23, 9, 10, 12};
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Creates a store with the graphs of {@link #GRAPHIDS}, where the
+     * record of the given graph cannot be decoded
+     */
+
+    private static String makeStore(int badGraphId) throws Exception
+    {
+        String dirName = Files.createTempDirectory("_unitFSERoots").toFile()
+                                                                   + "/level";
+        FSEGraphStore store = new FSEGraphStore(dirName);
+        for (int id : GRAPHIDS)
+        {
+            if (id == badGraphId)
+            {
+                store.append(id, 0, new byte[] {1, 2, 3, 4});
+                continue;
+            }
+            DENOPTIMGraph g = new DENOPTIMGraph();
+            g.setGraphId(id);
+            store.append(g, 0);
+        }
+        store.close();
+        return dirName;
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testRootsInOrderOfStore() throws Exception
+    {
+        String dirName = makeStore(-1);
+        for (int numThreads : new int[] {1, 3})
+        {
+            FSERootPrefetcher roots = new FSERootPrefetcher(
+                                 FSEGraphStore.openReader(dirName), numThreads);
+            ArrayList<Integer> ids = new ArrayList<Integer>();
+            try
+            {
+                while (roots.hasNext())
+                {
+                    FSERootPrefetcher.Root root = roots.next();
+                    assertEquals(root.getGraphId(),
+                                 root.getGraph().getGraphId(), "Decoded graph");
+                    ids.add(root.getGraphId());
+                }
+            }
+            finally
+            {
+                roots.close();
+            }
+            assertEquals(GRAPHIDS.length, ids.size(), "Number of roots");
+            for (int i=0; i<GRAPHIDS.length; i++)
+            {
+                assertEquals(GRAPHIDS[i], (int) ids.get(i), "Root " + i
+                                            + " with " + numThreads + " threads");
+            }
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testSkipUntil() throws Exception
+    {
+        String dirName = makeStore(-1);
+        FSERootPrefetcher roots = new FSERootPrefetcher(
+                                          FSEGraphStore.openReader(dirName), 2);
+        try
+        {
+            assertEquals(5, roots.skipUntil(GRAPHIDS[5]), "Skipped roots");
+            for (int i=5; i<GRAPHIDS.length; i++)
+            {
+                assertEquals(GRAPHIDS[i], roots.next().getGraph().getGraphId(),
+                                                                 "Root " + i);
+            }
+            assertFalse(roots.hasNext());
+        }
+        finally
+        {
+            roots.close();
+        }
+
+        roots = new FSERootPrefetcher(FSEGraphStore.openReader(dirName), 2);
+        try
+        {
+            roots.skipUntil(-5);
+            fail("Skipped to a graph that is not in the store");
+        }
+        catch (DENOPTIMException de)
+        {
+            // expected
+        }
+        finally
+        {
+            roots.close();
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testDecodeErrorReachesConsumer() throws Exception
+    {
+        int bad = GRAPHIDS[4];
+        String dirName = makeStore(bad);
+        FSERootPrefetcher roots = new FSERootPrefetcher(
+                                          FSEGraphStore.openReader(dirName), 2);
+        int failures = 0;
+        ArrayList<Integer> ids = new ArrayList<Integer>();
+        try
+        {
+            while (roots.hasNext())
+            {
+                FSERootPrefetcher.Root root = roots.next();
+                ids.add(root.getGraphId());
+                try
+                {
+                    root.getGraph();
+                }
+                catch (DENOPTIMException de)
+                {
+                    assertEquals(bad, root.getGraphId(), "Failing root");
+                    failures++;
+                }
+            }
+        }
+        finally
+        {
+            roots.close();
+        }
+        assertEquals(1, failures, "Decoding failures");
+        assertEquals(GRAPHIDS.length, ids.size(), "Roots after the failure");
+    }
+
+//------------------------------------------------------------------------------
+
+}
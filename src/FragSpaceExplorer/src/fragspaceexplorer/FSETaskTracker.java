@@ -0,0 +1,300 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2026 agent <agent@local>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package fragspaceexplorer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Keeps track of the {@link GraphBuildingTask}s submitted during the
+ * exploration of a level. Only the tasks that are running, and those
+ * completed before some of the tasks preceding them, are retained. Anything
+ * else is accounted for by counters, so the memory used does not grow with
+ * the number of submitted tasks.
+ * The tracker identifies the latest task that was completed together with all
+ * the tasks submitted before it, i.e., the latest safely completed task, which
+ * is used to make checkpoints.
+ *
+ * @author agent
+ */
+
+public class FSETaskTracker
+{
+    /**
+     * Number of submitted tasks. Also the position of the next task in the
+     * order of submission.
+     */
+    private long numSubmitted = 0;
+
+    /**
+     * Number of tasks completed without exceptions
+     */
+    private long numCompleted = 0;
+
+    /**
+     * Number of graphs stored by the completed tasks
+     */
+    private int numSubTasks = 0;
+
+    /**
+     * The first exception thrown by a task, if any
+     */
+    private Throwable exception = null;
+
+    /**
+     * Tasks that have not ended yet, by position in the order of submission
+     */
+    private final TreeMap<Long,Entry> running = new TreeMap<Long,Entry>();
+
+    /**
+     * Tasks completed while a task submitted before them is not, by position
+     * in the order of submission
+     */
+    private final TreeMap<Long,GraphBuildingTask> completedAhead =
+                                           new TreeMap<Long,GraphBuildingTask>();
+
+    /**
+     * Position of the first task that is not safely completed
+     */
+    private long firstNotSafe = 0;
+
+    /**
+     * The latest safely completed task
+     */
+    private GraphBuildingTask latestSafe = null;
+
+    /**
+     * For the root graph of the latest safely completed task, the set of
+     * indeces following the latest safely completed task of each range of
+     * combinations, by index of the range
+     */
+    private final Map<Integer,ArrayList<Integer>> safeNextIdsOfRanges =
+                                     new HashMap<Integer,ArrayList<Integer>>();
+
+//------------------------------------------------------------------------------
+
+    /**
+     * A running task and its handle in the executor
+     */
+
+    private static class Entry
+    {
+        private final GraphBuildingTask task;
+        private final FutureTask<Object> future;
+
+        private Entry(GraphBuildingTask task, FutureTask<Object> future)
+        {
+            this.task = task;
+            this.future = future;
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Submits a task to an executor and starts tracking it. The task must
+     * have its IDs already.
+     * @param task the task
+     * @param executor the executor
+     */
+
+    public void submit(final GraphBuildingTask task, Executor executor)
+    {
+        final long pos;
+        FutureTask<Object> future;
+        synchronized (this)
+        {
+            pos = numSubmitted;
+            numSubmitted++;
+            future = new FutureTask<Object>(task)
+            {
+                @Override
+                protected void done()
+                {
+                    ended(pos, task);
+                }
+            };
+            running.put(pos, new Entry(task, future));
+        }
+        // NB: outside the lock as the executor may block until a running
+        // task ends, which needs the lock
+        executor.execute(future);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Accounts for a task that ended, either completed, failed, or cancelled
+     */
+
+    private synchronized void ended(long pos, GraphBuildingTask task)
+    {
+        if (running.remove(pos) == null)
+        {
+            return;
+        }
+        if (!task.isCompleted())
+        {
+            if (exception == null && task.foundException())
+            {
+                exception = task.getException();
+            }
+            return;
+        }
+        numCompleted++;
+        numSubTasks = numSubTasks + task.getNumberOfSubTasks();
+        completedAhead.put(pos, task);
+        while (!completedAhead.isEmpty()
+               && completedAhead.firstKey() == firstNotSafe)
+        {
+            GraphBuildingTask safe = completedAhead.pollFirstEntry().getValue();
+            firstNotSafe++;
+            if (latestSafe != null && latestSafe.getRootId() != safe.getRootId())
+            {
+                safeNextIdsOfRanges.clear();
+            }
+            if (safe.getRangeId() > -1)
+            {
+                safeNextIdsOfRanges.put(safe.getRangeId(), safe.getNextIds());
+            }
+            latestSafe = safe;
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the latest task that was completed together with all the tasks
+     * submitted before it, or <code>null</code> if there is no such task
+     */
+
+    public synchronized GraphBuildingTask getLatestSafelyCompletedTask()
+    {
+        return latestSafe;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return for the root graph of the latest safely completed task, and
+     * for each range of its combinations, the set of indeces following the
+     * latest safely completed task of that range. Ranges without safely
+     * completed tasks are not included.
+     */
+
+    public synchronized Map<Integer,ArrayList<Integer>>
+                                                   getSafeNextIdsOfRanges()
+    {
+        return new HashMap<Integer,ArrayList<Integer>>(safeNextIdsOfRanges);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return <code>true</code> if all submitted tasks have been completed
+     */
+
+    public synchronized boolean allCompleted()
+    {
+        return numCompleted == numSubmitted;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the first exception thrown by a task, or <code>null</code>
+     */
+
+    public synchronized Throwable getException()
+    {
+        return exception;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the number of submitted tasks
+     */
+
+    public synchronized long getNumberOfSubmitted()
+    {
+        return numSubmitted;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the number of tasks completed without exceptions
+     */
+
+    public synchronized long getNumberOfCompleted()
+    {
+        return numCompleted;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the number of graphs stored by the completed tasks
+     */
+
+    public synchronized int getNumberOfSubTasks()
+    {
+        return numSubTasks;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the number of tasks retained by this tracker
+     */
+
+    public synchronized int getNumberOfRetainedTasks()
+    {
+        return running.size() + completedAhead.size();
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Cancels the tasks that have not ended and stops their external
+     * processes.
+     */
+
+    public void cancelAll()
+    {
+        ArrayList<Entry> toStop;
+        synchronized (this)
+        {
+            toStop = new ArrayList<Entry>(running.values());
+        }
+        for (Entry e : toStop)
+        {
+            e.future.cancel(true);
+            e.task.stopTask();
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,245 @@
+package fragspaceexplorer;
+
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2026 agent <agent@local>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import org.junit.jupiter.api.Test;
+
+import denoptim.fragspace.FragsCombination;
+import denoptim.molecule.DENOPTIMGraph;
+
+/**
+ * Unit test for the tracker of the tasks of a level
+ *
+ * @author agent
+ */
+
+public class FSETaskTrackerTest
+{
+
+//------------------------------------------------------------------------------
+
+    /**
+     * A task that does not build any graph
+     */
+
+    private static class FakeTask extends GraphBuildingTask
+    {
+        private final boolean fails;
+        private boolean done = false;
+        private Throwable thrown = null;
+
+        private FakeTask(DENOPTIMGraph root, int rangeId, int nextId,
+                                                                 boolean fails)
+        {
+            super(root, new ArrayList<FragsCombination>(),
+                  new ArrayList<ArrayList<Integer>>(Arrays.asList(
+                        new ArrayList<Integer>(Arrays.asList(nextId)))), 0);
+            setRangeId(rangeId);
+            this.fails = fails;
+        }
+
+        @Override
+        public Object call() throws Exception
+        {
+            if (fails)
+            {
+                thrown = new Exception("Failing task");
+                throw new Exception(thrown);
+            }
+            done = true;
+            return "PASS";
+        }
+
+        @Override
+        public boolean isCompleted()
+        {
+            return done;
+        }
+
+        @Override
+        public boolean foundException()
+        {
+            return thrown != null;
+        }
+
+        @Override
+        public Throwable getException()
+        {
+            return thrown;
+        }
+
+        @Override
+        public int getNumberOfSubTasks()
+        {
+            return 1;
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Executor that runs the tasks only when asked to
+     */
+
+    private static class ManualExecutor implements Executor
+    {
+        private final ArrayList<Runnable> tasks = new ArrayList<Runnable>();
+
+        @Override
+        public void execute(Runnable r)
+        {
+            tasks.add(r);
+        }
+
+        private void run(int i)
+        {
+            tasks.get(i).run();
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    private static DENOPTIMGraph makeRoot(int graphId)
+    {
+        DENOPTIMGraph g = new DENOPTIMGraph();
+        g.setGraphId(graphId);
+        return g;
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testTasksCompletedOutOfOrder() throws Exception
+    {
+        FSETaskTracker tracker = new FSETaskTracker();
+        ManualExecutor executor = new ManualExecutor();
+        DENOPTIMGraph root = makeRoot(1);
+        FakeTask[] tasks = new FakeTask[5];
+        for (int i=0; i<tasks.length; i++)
+        {
+            tasks[i] = new FakeTask(root, -1, i+1, false);
+            tracker.submit(tasks[i], executor);
+        }
+        assertEquals(5, tracker.getNumberOfRetainedTasks());
+
+        // completed after a task that is still running: not safe
+        executor.run(2);
+        executor.run(1);
+        assertNull(tracker.getLatestSafelyCompletedTask());
+        assertEquals(5, tracker.getNumberOfRetainedTasks());
+
+        // completing the first task makes the following ones safe
+        executor.run(0);
+        assertSame(tasks[2], tracker.getLatestSafelyCompletedTask());
+        assertEquals(2, tracker.getNumberOfRetainedTasks());
+
+        executor.run(4);
+        assertSame(tasks[2], tracker.getLatestSafelyCompletedTask());
+        assertFalse(tracker.allCompleted());
+
+        executor.run(3);
+        assertSame(tasks[4], tracker.getLatestSafelyCompletedTask());
+        assertEquals(0, tracker.getNumberOfRetainedTasks());
+        assertTrue(tracker.allCompleted());
+        assertEquals(5, tracker.getNumberOfSubTasks());
+        assertNull(tracker.getException());
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testFailedTaskIsNeverSafe() throws Exception
+    {
+        FSETaskTracker tracker = new FSETaskTracker();
+        ManualExecutor executor = new ManualExecutor();
+        DENOPTIMGraph root = makeRoot(1);
+        FakeTask[] tasks = new FakeTask[3];
+        for (int i=0; i<tasks.length; i++)
+        {
+            tasks[i] = new FakeTask(root, -1, i+1, i == 1);
+            tracker.submit(tasks[i], executor);
+        }
+        executor.run(2);
+        executor.run(1);
+        executor.run(0);
+        assertSame(tasks[0], tracker.getLatestSafelyCompletedTask());
+        assertSame(tasks[1].getException(), tracker.getException());
+        assertEquals(2, tracker.getNumberOfCompleted());
+        assertFalse(tracker.allCompleted());
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testSafeNextIdsOfRanges() throws Exception
+    {
+        FSETaskTracker tracker = new FSETaskTracker();
+        ManualExecutor executor = new ManualExecutor();
+        DENOPTIMGraph rootA = makeRoot(1);
+        DENOPTIMGraph rootB = makeRoot(2);
+
+        // the producers of two ranges of root A submit alternately
+        FakeTask a0 = new FakeTask(rootA, 0, 10, false);
+        FakeTask a1 = new FakeTask(rootA, 1, 20, false);
+        FakeTask a2 = new FakeTask(rootA, 0, 11, false);
+        FakeTask a3 = new FakeTask(rootA, 1, 21, false);
+        FakeTask b0 = new FakeTask(rootB, -1, 30, false);
+        for (FakeTask t : new FakeTask[] {a0, a1, a2, a3, b0})
+        {
+            tracker.submit(t, executor);
+        }
+
+        // the latest of range 1 completes first
+        executor.run(3);
+        executor.run(1);
+        assertTrue(tracker.getSafeNextIdsOfRanges().isEmpty());
+
+        executor.run(0);
+        Map<Integer,ArrayList<Integer>> safe = tracker.getSafeNextIdsOfRanges();
+        assertEquals(2, safe.size(), "Ranges with safe tasks");
+        assertEquals(Arrays.asList(10), safe.get(0), "Range 0");
+        assertEquals(Arrays.asList(20), safe.get(1), "Range 1");
+
+        executor.run(2);
+        safe = tracker.getSafeNextIdsOfRanges();
+        assertEquals(Arrays.asList(11), safe.get(0), "Range 0");
+        assertEquals(Arrays.asList(21), safe.get(1), "Range 1");
+        assertSame(a3, tracker.getLatestSafelyCompletedTask());
+
+        // the next root is not split in ranges
+        executor.run(4);
+        assertSame(b0, tracker.getLatestSafelyCompletedTask());
+        assertTrue(tracker.getSafeNextIdsOfRanges().isEmpty(),
+                                                     "Ranges of another root");
+    }
+
+//------------------------------------------------------------------------------
+
+}
@@ -24,14 +24,13 @@ import java.io.FileOutputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.util.ArrayList;
-import java.util.regex.Pattern;
-
-import org.apache.commons.io.FileUtils;
+import java.util.HashMap;
+import java.util.Map;
 
 import denoptim.constants.DENOPTIMConstants;
 import denoptim.exception.DENOPTIMException;
-import denoptim.io.DenoptimIO;
-import denoptim.io.SingletonFileAccess;
+import denoptim.io.UIDStore;
+import denoptim.logging.DENOPTIMLogger;
 import denoptim.molecule.DENOPTIMGraph;
 
 
@@ -43,6 +42,15 @@ import denoptim.molecule.DENOPTIMGraph;
 
 public class FSEUtils
 {
+    // UIDs of the candidates known in this run
+    private static UIDStore uidStore = null;
+
+    // Stores of graphs open for appending, by level
+    private static final Map<Integer,FSEGraphStore> graphStores =
+                                       new HashMap<Integer,FSEGraphStore>();
+
+    // Writer of the graphs generated by the tasks
+    private static FSEGraphWriter graphWriter = null;
 
 //------------------------------------------------------------------------------
 
@@ -60,72 +68,10 @@ public class FSEUtils
         return dirName;
     }
 
-//------------------------------------------------------------------------------
-
-    /** 
-     * @return the graphId from the name of the storage file
-     */
-
-    public static int getGraphIdFromStorageFile(String fileName) 
-							throws DENOPTIMException
-    {
-	String msg ="";
-	if (fileName.contains(Pattern.quote(DENOPTIMConstants.SERGFILENAMEROOT)) && 
-            fileName.contains(Pattern.quote(".")))
-	{
-	     msg = "Failed attempt to extract a graphId from String '" 
-			 + fileName + "'";
-	    throw new DENOPTIMException(msg);
-	}
-	String[] p1 = fileName.split(Pattern.quote(DENOPTIMConstants.SERGFILENAMEROOT));
-	String[] p2 = p1[1].split(Pattern.quote("."));
-	int graphId = -1;
-	try
-	{
-	    graphId = Integer.parseInt(p2[0]);
-	}
-	catch (Throwable t)
-	{
-	    throw new DENOPTIMException(msg);
-	}
-	return graphId;
-    }
-
 //------------------------------------------------------------------------------
 
     /**
-     * @return the basename of a FragSpaceExplorer storage file
-     */
-   
-    public static String getBaseNameOfStorageFile(int graphId)
-    {
-	String baseName = DENOPTIMConstants.SERGFILENAMEROOT
-                          + graphId + "."
-                          + DENOPTIMConstants.SERGFILENAMEEXT;
-	return baseName;
-    }
-
-//------------------------------------------------------------------------------
-
-    /**
-     * @return the pathname of a FragSpaceExplorer storage file
-     */
-
-    public static String getNameOfStorageFile(int level, int graphId)
-    {
-        String fileName = FSEParameters.getDBRoot()
-                          + DENOPTIMConstants.FSEP
-                          + DENOPTIMConstants.FSEIDXNAMEROOT
-                          + level
-                          + DENOPTIMConstants.FSEP
-			  + getBaseNameOfStorageFile(graphId);
-        return fileName;
-    }
-
-//------------------------------------------------------------------------------
-
-    /**
-     * @return the pathname of a FragSpaceExplorer storage file where
+     * @return the pathname of the text file listing the graphs of a level
      */
 
     public static String getNameOfStorageIndexFile(int level)
@@ -143,7 +89,7 @@ public class FSEUtils
 //------------------------------------------------------------------------------
 
     /**
-     * Serilize all <code>DENOPTIMGraph</code>s to file.
+     * Stores all <code>DENOPTIMGraph</code>s of a level.
      * The pathname of the output file is given by the value of 
      * <code>level</code> and the parameters from <code>FSEParameters</code>.
      * @param lstGraphs
@@ -169,8 +115,12 @@ public class FSEUtils
 //------------------------------------------------------------------------------
 
     /**
-     * Serialize a <code>DENOPTIMGraph</code> to a file.
-     * The pathname of the output file is given by the value of 
+     * Stores a <code>DENOPTIMGraph</code> in the store of its level (see
+     * {@link FSEGraphStore}) and lists it in the index file of the level.
+     * The graph is encoded by the calling thread and queued for the
+     * writer of graphs (see {@link FSEGraphWriter}), so the graph is on disk
+     * only after {@link #syncGraphWriter()}.
+     * The pathnames are given by the value of 
      * <code>level</code> and the parameters from <code>FSEParameters</code>.
      * @param graph the graph to store
      * @param level the level of modification from which the graph is generated
@@ -183,26 +133,152 @@ public class FSEUtils
                             int rootId, ArrayList<Integer> nextIds) 
 							throws DENOPTIMException
     {
-	String outDir = getNameOfStorageDir(level);
-	if (!DenoptimIO.checkExists(outDir))
-	{
-	    try
-	    {
-		FileUtils.forceMkdir(new File(outDir));
-	    }
-	    catch (Throwable t)
-	    {
-		String msg = "Cannot create folder " + outDir;
-		throw new DENOPTIMException(msg,t);
-	    }
-	}
-
-        String fileSer = getNameOfStorageFile(level,graph.getGraphId());
-	String indexFile = getNameOfStorageIndexFile(level);
 	String indexLine = graph.toString() + " => " + graph.getGraphId() + " " 
 			   + rootId + " " + nextIds;
-	SingletonFileAccess.getInstance().serializeToFile(fileSer,graph,true);
-	SingletonFileAccess.getInstance().writeData(indexFile,indexLine,true);
+	getGraphWriter().write(level, graph.getGraphId(), rootId,
+			       FSEGraphStore.encode(graph), indexLine);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the writer of graphs, which is started the first time this
+     * method is called
+     */
+
+    protected static synchronized FSEGraphWriter getGraphWriter()
+    {
+        if (graphWriter == null)
+        {
+            graphWriter = new FSEGraphWriter();
+        }
+        return graphWriter;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Waits until all the graphs given to
+     * {@link #storeGraphOfLevel(DENOPTIMGraph, int, int, ArrayList)} so far
+     * are on disk.
+     */
+
+    protected static void syncGraphWriter() throws DENOPTIMException
+    {
+        // NOTE: not synchronized on this class, as the writer thread needs
+        // the lock to get the stores of graphs
+        FSEGraphWriter writer;
+        synchronized (FSEUtils.class)
+        {
+            writer = graphWriter;
+        }
+        if (writer != null)
+        {
+            writer.sync();
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Gets the store of the graphs of a level, opening it for appending the
+     * first time this method is called for that level.
+     * @param level the level
+     * @return the store of the graphs of the level
+     */
+
+    protected static synchronized FSEGraphStore getGraphStore(int level)
+                                                        throws DENOPTIMException
+    {
+        FSEGraphStore store = graphStores.get(level);
+        if (store == null)
+        {
+            store = new FSEGraphStore(getNameOfStorageDir(level));
+            graphStores.put(level,store);
+        }
+        return store;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Writes all the queued graphs of a level and closes the store of the 
+     * graphs of that level, if open. The graphs of
+     * a level can be read only after closing its store.
+     * @param level the level
+     */
+
+    protected static void closeGraphStore(int level) throws DENOPTIMException
+    {
+        FSEGraphWriter writer;
+        synchronized (FSEUtils.class)
+        {
+            writer = graphWriter;
+        }
+        if (writer != null)
+        {
+            writer.closeLevel(level);
+            DENOPTIMLogger.appLogger.info(writer.getSummary());
+        }
+        synchronized (FSEUtils.class)
+        {
+            FSEGraphStore store = graphStores.remove(level);
+            if (store != null)
+            {
+                store.close();
+            }
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Stops the writer of graphs and closes the stores of graphs that are
+     * still open.
+     */
+
+    protected static void closeGraphStores() throws DENOPTIMException
+    {
+        FSEGraphWriter writer;
+        synchronized (FSEUtils.class)
+        {
+            writer = graphWriter;
+            graphWriter = null;
+        }
+        if (writer != null)
+        {
+            writer.close();
+        }
+        synchronized (FSEUtils.class)
+        {
+            for (FSEGraphStore store : graphStores.values())
+            {
+                store.close();
+            }
+            graphStores.clear();
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the number of graphs stored for a level, including those still
+     * queued for writing
+     */
+
+    protected static int countGraphsOfLevel(int level) 
+                                                        throws DENOPTIMException
+    {
+        syncGraphWriter();
+        synchronized (FSEUtils.class)
+        {
+            FSEGraphStore store = graphStores.get(level);
+            if (store != null)
+            {
+                return store.size();
+            }
+            return FSEGraphStore.count(getNameOfStorageDir(level));
+        }
     }
 
 //------------------------------------------------------------------------------
@@ -279,6 +355,75 @@ public class FSEUtils
 	return chkpt;
     }
 
+//------------------------------------------------------------------------------
+
+    /**
+     * Opens the store of the UIDs of the candidates known in this run. Any
+     * UID already in the file is considered as known.
+     * @param uidFile the pathname of the text file with the UIDs
+     * @throws DENOPTIMException
+     */
+
+    protected static void openUIDStore(String uidFile) throws DENOPTIMException
+    {
+        uidStore = new UIDStore(uidFile);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Closes the store of the UIDs, if open.
+     * @throws DENOPTIMException
+     */
+
+    protected static void closeUIDStore() throws DENOPTIMException
+    {
+        if (uidStore != null)
+        {
+            uidStore.close();
+            uidStore = null;
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Checks if a UID belongs to a candidate that is already known, i.e., 
+     * registered by the external task in this or in a previous run.
+     * @param uid the UID to check
+     * @return <code>true</code> if the UID is known
+     * @throws DENOPTIMException
+     */
+
+    protected static boolean isKnownUID(String uid) throws DENOPTIMException
+    {
+        if (uidStore == null || uid.equals("UNDEFINED"))
+        {
+            return false;
+        }
+        return uidStore.contains(uid);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Registers the UID of a candidate whose fitness was not computed by the
+     * external fitness provider, which registers UIDs by itself, i.e., of a
+     * candidate evaluated within this JVM or found in the fitness cache.
+     * @param uid the UID to register
+     * @return <code>false</code> if the UID was already known
+     * @throws DENOPTIMException
+     */
+
+    protected static boolean registerUID(String uid) throws DENOPTIMException
+    {
+        if (uidStore == null || uid.equals("UNDEFINED"))
+        {
+            return true;
+        }
+        return uidStore.addIfAbsent(uid);
+    }
+
 //------------------------------------------------------------------------------
 
 } 
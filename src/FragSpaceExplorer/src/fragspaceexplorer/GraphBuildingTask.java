@@ -18,17 +18,20 @@
 
 package fragspaceexplorer;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.logging.Level;
 
+import org.apache.commons.io.FileUtils;
 import org.openscience.cdk.CDKConstants;
 import org.openscience.cdk.interfaces.IAtomContainer;
 
 import denoptim.constants.DENOPTIMConstants;
 import denoptim.exception.DENOPTIMException;
+import denoptim.fitness.FitnessCache;
 import denoptim.fitness.FitnessParameters;
 import denoptim.fragspace.FragmentSpace;
 import denoptim.fragspace.FragmentSpaceParameters;
@@ -41,6 +44,8 @@ import denoptim.molecule.DENOPTIMEdge;
 import denoptim.molecule.DENOPTIMGraph;
 import denoptim.molecule.DENOPTIMVertex;
 import denoptim.molecule.SymmetricSet;
+import denoptim.task.FitnessBatcher;
+import denoptim.task.FitnessWorkerPool;
 import denoptim.task.ProcessHandler;
 import denoptim.utils.DENOPTIMMoleculeUtils;
 import denoptim.utils.FragmentUtils;
@@ -48,6 +53,7 @@ import denoptim.utils.GenUtils;
 import denoptim.utils.GraphConversionTool;
 import denoptim.utils.GraphUtils;
 import denoptim.utils.ObjectPair;
+import denoptim.utils.RandomUtils;
 
 
 /**
@@ -74,6 +80,11 @@ public class GraphBuildingTask implements Callable
      */
     private Throwable thrownExc;
 
+    /**
+     * The root graph. It is shared with other tasks, so it is never modified.
+     */
+    private DENOPTIMGraph rootGraph;
+
     /**
      * The graph that is expanded
      */
@@ -96,15 +107,32 @@ public class GraphBuildingTask implements Callable
     private int level;
 
     /**
-     * Pointer defining the active combination for this task
+     * The combinations of fragments processed by this task, in the order of
+     * the space of combinations
+     */
+    private ArrayList<FragsCombination> combs;
+
+    /**
+     * The set of indeces identifying the combination following each of the
+     * combinations processed by this task
      */
-    private FragsCombination fragsToAdd;
+    private ArrayList<ArrayList<Integer>> combsNextIds;
+
+    /**
+     * The graph ID given to the graph built from each combination
+     */
+    private int[] graphIds;
 
     /**
      * A user-assigned id for this task.
      */
     private String id = null;
 
+    /**
+     * Index of the stream of random numbers used by this task
+     */
+    private int streamId;
+
     /**
      * Number of subtasks
      */
@@ -116,11 +144,18 @@ public class GraphBuildingTask implements Callable
     private ProcessHandler ph_sc;
 
     /**
-     * Vector of indeces identifying the next combination of fragments.
+     * Vector of indeces identifying the combination of fragments following
+     * the last one processed by this task.
      * This is used only to store info needed to make checkpoint files.
      */
     private ArrayList<Integer> nextIds;
 
+    /**
+     * Index of the range of combinations this task belongs to, or -1 if the
+     * combinations of the root graph are not split in ranges.
+     */
+    private int rangeId = -1;
+
     /**
      * Verbosity level
      */
@@ -154,7 +189,8 @@ public class GraphBuildingTask implements Callable
 //------------------------------------------------------------------------------
 
     /**
-     * @return the total number of serial subtasks performed by this task.
+     * @return the total number of serial subtasks performed by this task,
+     * that is, the number of graphs stored.
      */
 
     public int getNumberOfSubTasks()
@@ -162,6 +198,17 @@ public class GraphBuildingTask implements Callable
         return nSubTasks;
     }
 
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the number of combinations of fragments processed by this task
+     */
+
+    public int getNumberOfCombinations()
+    {
+        return graphIds.length;
+    }
+
 //------------------------------------------------------------------------------
    
     /**
@@ -188,7 +235,8 @@ public class GraphBuildingTask implements Callable
 
     /**
      * Returns the set of indeces that identify the position of the
-     * the (next) combination of fragment in the space of combinations.
+     * the (next) combination of fragment in the space of combinations, i.e.,
+     * the combination following the last one processed by this task.
      */
 
     public ArrayList<Integer> getNextIds()
@@ -223,7 +271,8 @@ public class GraphBuildingTask implements Callable
 
     /**
      * Set the set of indeces that identify the position of the
-     * the (next) combination of fragment in the space of combinations.
+     * the (next) combination of fragment in the space of combinations, i.e.,
+     * the combination following the last one processed by this task.
      */
 
     public void setNextIds(ArrayList<Integer> nextIds) throws DENOPTIMException
@@ -231,6 +280,7 @@ public class GraphBuildingTask implements Callable
         try
         {
             this.nextIds = (ArrayList) nextIds.clone();
+            combsNextIds.set(combsNextIds.size()-1, this.nextIds);
         }
         catch (Throwable t)
         {
@@ -238,6 +288,29 @@ public class GraphBuildingTask implements Callable
         }
     }
 
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the index of the range of combinations this task belongs to, 
+     * or -1 if the combinations of the root graph are not split in ranges.
+     */
+
+    public int getRangeId()
+    {
+        return rangeId;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Set the index of the range of combinations this task belongs to.
+     */
+
+    public void setRangeId(int rangeId)
+    {
+        this.rangeId = rangeId;
+    }
+
 //------------------------------------------------------------------------------
    
     /**
@@ -248,23 +321,76 @@ public class GraphBuildingTask implements Callable
                                      FragsCombination m_fragsToAdd, int m_level)
                                                         throws DENOPTIMException
     {
-        id = "" + m_Id;
-        try
+        this(m_molGraph, m_fragsToAdd, m_level);
+        setIds(m_Id);
+    }
+
+//------------------------------------------------------------------------------
+   
+    /**
+     * Constructor of a task that gets its IDs only later, with 
+     * {@link #setIds(int)}, which must be called before submitting the task.
+     */
+ 
+    public GraphBuildingTask(DENOPTIMGraph m_molGraph, 
+                                     FragsCombination m_fragsToAdd, int m_level)
+                                                        throws DENOPTIMException
+    {
+        this(m_molGraph, new ArrayList<FragsCombination>(), 
+                                  new ArrayList<ArrayList<Integer>>(), m_level);
+        combs.add(m_fragsToAdd);
+        combsNextIds.add(null);
+        graphIds = new int[1];
+    }
+
+//------------------------------------------------------------------------------
+   
+    /**
+     * Constructor of a task processing a block of consecutive combinations 
+     * of fragments. The task gets its IDs only later, with 
+     * {@link #setIds(int)}, which must be called before submitting the task.
+     * @param m_molGraph the root graph. The graph is not modified.
+     * @param m_combs the combinations of fragments, in the order of the space
+     * of combinations
+     * @param m_combsNextIds the set of indeces identifying the combination 
+     * following each combination
+     * @param m_level the current level
+     */
+ 
+    public GraphBuildingTask(DENOPTIMGraph m_molGraph, 
+                                         ArrayList<FragsCombination> m_combs,
+                                    ArrayList<ArrayList<Integer>> m_combsNextIds,
+                                                                    int m_level)
+    {
+        rootGraph = m_molGraph;
+        rootId = m_molGraph.getGraphId();
+        combs = m_combs;
+        combsNextIds = m_combsNextIds;
+        graphIds = new int[m_combs.size()];
+        if (m_combsNextIds.size() > 0)
         {
-            molGraph = (DENOPTIMGraph) DenoptimIO.deepCopy(m_molGraph);
-            molGraph.setGraphId(GraphUtils.getUniqueGraphIndex());
-            rootId = m_molGraph.getGraphId();
-            graphId = molGraph.getGraphId();
+            nextIds = m_combsNextIds.get(m_combsNextIds.size()-1);
         }
-        catch (DENOPTIMException de)
+        level = m_level;      
+    }
+
+//------------------------------------------------------------------------------
+   
+    /**
+     * Sets the ID of this task and gives a new unique ID to each graph built
+     * by this task.
+     * @param m_Id the ID of the task
+     */
+ 
+    public void setIds(int m_Id)
+    {
+        id = "" + m_Id;
+        streamId = m_Id;
+        for (int i=0; i<graphIds.length; i++)
         {
-            hasException = true;
-            thrownExc = de;
-            String msg = "Unable to copy root graph";
-            throw new DENOPTIMException(msg,de);
+            graphIds[i] = GraphUtils.getUniqueGraphIndex();
         }
-        fragsToAdd = m_fragsToAdd;
-        level = m_level;      
+        graphId = graphIds[graphIds.length-1];
     }
 
 //------------------------------------------------------------------------------
@@ -276,10 +402,50 @@ public class GraphBuildingTask implements Callable
     @Override
     public Object call() throws Exception
     {
+        // The random choices (e.g., of ring-closing chains) made by this task
+        // do not depend on which thread executes it
+        RandomUtils.bindStream(RandomUtils.newStream(streamId));
         try
         {
+            for (int i=0; i<combs.size(); i++)
+            {
+                buildGraph(combs.get(i), combsNextIds.get(i), graphIds[i]);
+            }
+        }
+        finally
+        {
+            RandomUtils.unbindStream();
+        }
+
+        // Completed tasks may be kept for bookkeeping, so release the graphs
+        molGraph = null;
+        combs = null;
+        completed = true;
+        return "PASS";
+    }
+    
+//------------------------------------------------------------------------------
+    
+    /**
+     * Builds, stores, and possibly evaluates the graph corresponding to one
+     * combination of fragments on the root graph.
+     * @param fragsToAdd the combination of fragments
+     * @param combNextIds the set of indeces identifying the next combination
+     * @param newGraphId the graph ID to give to the new graph
+     */
+
+    private void buildGraph(FragsCombination fragsToAdd, 
+                  ArrayList<Integer> combNextIds, int newGraphId) 
+                                                               throws Exception
+    {
+        try
+        {
+            molGraph = rootGraph.deepCopy();
+            molGraph.setGraphId(newGraphId);
+            graphId = newGraphId;
+
             String msg = "Call GraphBuildingTask " + id 
-                         + " (Lev:" + level + ", comb:" + nextIds + ")";
+                         + " (Lev:" + level + ", comb:" + combNextIds + ")";
             if (verbosity > 1)
             {
                 msg = msg + DENOPTIMConstants.EOL + " - Fragsments to add: ";
@@ -339,7 +505,7 @@ public class GraphBuildingTask implements Callable
     
                 DENOPTIMVertex trgVrtx = new DENOPTIMVertex(tVId, tFId, tFAPs,
                                                                          tFTyp);
-                IAtomContainer mol = FragmentSpace.getFragment(tFTyp, tFId);
+                IAtomContainer mol = FragmentSpace.getFragmentView(tFTyp, tFId);
                 ArrayList<SymmetricSet> symAPs =
                                         FragmentUtils.getMatchingAP(mol, tFAPs);
                 trgVrtx.setSymmetricAP(symAPs);
@@ -380,10 +546,10 @@ public class GraphBuildingTask implements Callable
                     DENOPTIMLogger.appLogger.info(msg);
                 }
 
-                nSubTasks = 1;
+                nSubTasks++;
 
                 // Store graph
-                FSEUtils.storeGraphOfLevel(molGraph,level,rootId,nextIds);
+                FSEUtils.storeGraphOfLevel(molGraph,level,rootId,combNextIds);
             }
             else
             {
@@ -409,7 +575,7 @@ public class GraphBuildingTask implements Callable
                 int sz = altCyclicGraphs.size();
                 if (sz>0 && !needsCaps)
                 {
-                    nSubTasks = sz;
+                    nSubTasks = nSubTasks + sz;
 
                     if (verbosity > 0)
                     {
@@ -486,13 +652,14 @@ public class GraphBuildingTask implements Callable
                             altRes[0] = pr.getFirst(); 
                       
                             // Store graph
-                            FSEUtils.storeGraphOfLevel(g,level,rootId,nextIds);
+                            FSEUtils.storeGraphOfLevel(g,level,rootId,
+                                                                   combNextIds);
                             graphId = gId;
     
                             // Optionally perform external task
                             if (FSEParameters.submitExternalTask())
                             {
-                                executeExternalBASHScript(altRes,gId);
+                                evaluateFitness(altRes,g);
                             }
                         }
                         catch (Throwable t)
@@ -504,10 +671,11 @@ public class GraphBuildingTask implements Callable
                 }
                 else
                 {
-                    nSubTasks = 1;
+                    nSubTasks++;
 
                     // Store graph
-                    FSEUtils.storeGraphOfLevel(molGraph,level,rootId,nextIds);
+                    FSEUtils.storeGraphOfLevel(molGraph,level,rootId,
+                                                                   combNextIds);
                    
                     // Optionally perform external task 
                     if (FSEParameters.submitExternalTask() && !needsCaps)
@@ -518,7 +686,7 @@ public class GraphBuildingTask implements Callable
                     	fseRes[2] = res [2];
                     	fseRes[3] = rootId;
                     	fseRes[4] = level;
-                        executeExternalBASHScript(fseRes, molGraph.getGraphId());
+                        evaluateFitness(fseRes, molGraph);
                     }
                 }
             }
@@ -531,25 +699,32 @@ public class GraphBuildingTask implements Callable
             thrownExc = t;
             throw new Exception(t);
         }
-
-        completed = true;
-        return "PASS";
     }
     
 //------------------------------------------------------------------------------
     
     /**
-     * Execute the external script.
+     * Evaluates the fitness of a graph with the configured fitness provider,
+     * which is either an external script or a provider running within the JVM.
      * @param res the vector containing the results from the evaluation of the
      * graph representation
-     * @param gId the ID of the graph for which the external task is submitted
+     * @param graph the graph for which the external task is submitted
      */
 
-    private void executeExternalBASHScript(Object[] res, int gId) 
+    private void evaluateFitness(Object[] res, DENOPTIMGraph graph)
                                                                 throws Throwable
     {
         // prepare variables
         String molinchi = res[0].toString().trim();
+        if (FSEUtils.isKnownUID(molinchi))
+        {
+            if (verbosity > 0)
+            {
+                DENOPTIMLogger.appLogger.log(Level.INFO, "Skipping external "
+                                     + "task on known UID {0}", molinchi);
+            }
+            return;
+        }
         String molsmiles = res[1].toString().trim();
         IAtomContainer molInit = (IAtomContainer) res[2];
         String parentGraphId = res[3].toString().trim();
@@ -572,11 +747,122 @@ public class GraphBuildingTask implements Callable
 
         molInit.setProperty(CDKConstants.TITLE, molName);
 
+        if (FitnessParameters.useFitnessCache())
+        {
+            // result of a previous evaluation, if any
+            IAtomContainer cached = FitnessCache.getSharedCache().getResult(
+                                                           molinchi, molInit);
+            if (cached != null)
+            {
+                if (verbosity > 0)
+                {
+                    DENOPTIMLogger.appLogger.log(Level.INFO, "Fitness of {0} "
+                                      + "taken from the cache.", molinchi);
+                }
+                if (isDuplicate(molinchi, cached))
+                {
+                    return;
+                }
+                DenoptimIO.writeMolecule(molFinalFile, cached, false);
+                return;
+            }
+        }
+
+        if (!FitnessParameters.useExternalFitness())
+        {
+            // the fitness is computed within this JVM
+            FitnessParameters.getFitnessProvider().computeFitness(molInit,
+                                                                      graph);
+            if (isDuplicate(molinchi, molInit))
+            {
+                return;
+            }
+            DenoptimIO.writeMolecule(molFinalFile, molInit, false);
+            storeInCache(molinchi, molInit, molFinalFile);
+            return;
+        }
+
+        if (FitnessParameters.useFitnessBatches())
+        {
+            // the candidate is evaluated together with others
+            FitnessBatcher fb = FitnessBatcher.getSharedBatcher();
+            IAtomContainer molFinal = fb.evaluate(molInit, molinchi, workDir,
+                                              FSEParameters.getUIDFileName());
+            if (molFinal == null)
+            {
+                // not a result of the fitness provider: not cached
+                molInit.setProperty(DENOPTIMConstants.MOLERRORTAG,
+                             "#GraphBuildingTask: No result from the fitness "
+                             + "provider for " + molName);
+                DenoptimIO.writeMolecule(molFinalFile, molInit, false);
+                return;
+            }
+            DenoptimIO.writeMolecule(molFinalFile, molFinal, false);
+            storeInCache(molinchi, molFinal, molFinalFile);
+            return;
+        }
+
+        if (FitnessParameters.useFitnessWorkers())
+        {
+            // a persistent worker returns the content of the output file
+            String sdf = FitnessWorkerPool.getSharedPool().evaluate(id,
+                    DenoptimIO.writeMoleculeToString(molInit), workDir,
+                    FSEParameters.getUIDFileName());
+            FileUtils.writeStringToFile(new File(molFinalFile), sdf);
+            storeInCache(molinchi, null, molFinalFile);
+            return;
+        }
+
+        runExternalScript(molInit, molInitFile, molFinalFile);
+        storeInCache(molinchi, null, molFinalFile);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Registers the UID of a candidate that was not evaluated by the external
+     * fitness provider, which registers UIDs by itself.
+     * @param uid the UID of the candidate
+     * @param result the result of the evaluation of the candidate
+     * @return <code>true</code> if the result is acceptable but the UID was
+     * already registered by another task
+     */
+
+    private boolean isDuplicate(String uid, IAtomContainer result)
+                                                      throws DENOPTIMException
+    {
+        if (result.getProperty(DENOPTIMConstants.MOLERRORTAG) != null
+            || FSEUtils.registerUID(uid))
+        {
+            return false;
+        }
+        if (verbosity > 0)
+        {
+            DENOPTIMLogger.appLogger.log(Level.INFO, "Skipping result for "
+                                     + "known UID {0}", uid);
+        }
+        return true;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Runs the external BASH script that evaluates the fitness of a
+     * molecule.
+     * @param molInit the molecule to evaluate
+     * @param molInitFile the pathname of the input of the script
+     * @param molFinalFile the pathname of the output of the script
+     * @throws DENOPTIMException if the script fails
+     */
+
+    private void runExternalScript(IAtomContainer molInit, String molInitFile,
+                           String molFinalFile) throws DENOPTIMException
+    {
+        String workDir = FSEParameters.getWorkDirectory();
+
         // write current graph to file as molecular objects
         DenoptimIO.writeMolecule(molInitFile, molInit, false);
 
-        //TODO: deal with internal fitness and other kinds of fitness
-
         //TODO change to allow other kinds of external tools (probably merge FitnessTask and FTask and put it under denoptim.fitness package
 
         // build command
@@ -600,7 +886,7 @@ public class GraphBuildingTask implements Callable
 
         try
         {
-            ph_sc.runProcess();
+            ph_sc.runProcess(FitnessParameters.getTimeout());
             if (ph_sc.getExitCode() != 0)
             {
                 String msg = "Failed to execute "
@@ -608,6 +894,10 @@ public class GraphBuildingTask implements Callable
                              + " script '"
                              + FitnessParameters.getExternalFitnessProvider()
                              + "' on " + molInitFile;
+                if (ph_sc.isTimedOut())
+                {
+                    msg = msg + " (time limit exceeded)";
+                }
                 DENOPTIMLogger.appLogger.severe(msg);
                 DENOPTIMLogger.appLogger.severe(ph_sc.getErrorOutput());
                 throw new DENOPTIMException(msg);
@@ -620,6 +910,38 @@ public class GraphBuildingTask implements Callable
         }
     }
 
+//------------------------------------------------------------------------------
+
+    /**
+     * Stores the result of a fitness evaluation in the persistent cache, if
+     * the cache is in use.
+     * @param uid the UID of the candidate
+     * @param result the result, or <code>null</code> to read it from the file
+     * @param molFinalFile the pathname of the file with the result
+     */
+
+    private void storeInCache(String uid, IAtomContainer result,
+                              String molFinalFile) throws DENOPTIMException
+    {
+        if (!FitnessParameters.useFitnessCache())
+        {
+            return;
+        }
+        if (result == null)
+        {
+            try
+            {
+                result = DenoptimIO.readSingleSDFFile(molFinalFile);
+            }
+            catch (DENOPTIMException de)
+            {
+                // unreadable results are not cached
+                return;
+            }
+        }
+        FitnessCache.getSharedCache().putResult(uid, result, molFinalFile);
+    }
+
 //------------------------------------------------------------------------------
    
     /**
@@ -0,0 +1,176 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2026 agent <agent@local>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package benchmarks;
+
+import java.util.Locale;
+
+/**
+ * Tool running micro-benchmarks on performance-sensitive parts of DENOPTIM.
+ * Each benchmark is identified by a name given as first argument.
+ *
+ * @author agent
+ */
+
+public class Benchmarks
+{
+    /**
+     * Time spent on warming up each measurement (nanoseconds)
+     */
+    private static long warmupTime = 500000000L;
+
+    /**
+     * Time spent on each measurement (nanoseconds)
+     */
+    private static long measureTime = 2000000000L;
+
+//------------------------------------------------------------------------------
+
+    /**
+     * A piece of work whose throughput is to be measured
+     */
+    public interface Operation
+    {
+        public void run() throws Exception;
+    }
+
+//------------------------------------------------------------------------------
+    /**
+     * @param args the command line arguments
+     */
+    public static void main(String[] args)
+    {
+        if (args.length < 1)
+        {
+            printUsage();
+            System.exit(-1);
+        }
+        if (args.length > 1)
+        {
+            measureTime = (long) (Double.parseDouble(args[1]) * 1.0e9);
+            warmupTime = measureTime / 4;
+        }
+
+        try
+        {
+            switch (args[0].toUpperCase())
+            {
+                case "GRAPHOPS":
+                    GraphOperationsBenchmark.run();
+                    break;
+
+                case "GRAPHCOPY":
+                    GraphCopyBenchmark.run();
+                    break;
+
+                case "FSETASKS":
+                    FSETaskBenchmark.run();
+                    break;
+
+                case "GASCHEDULE":
+                    GAScheduleBenchmark.run();
+                    break;
+
+                default:
+                    printUsage();
+                    System.exit(-1);
+            }
+        }
+        catch (Throwable t)
+        {
+            t.printStackTrace();
+            System.exit(-1);
+        }
+        System.exit(0);
+    }
+
+//------------------------------------------------------------------------------
+
+    private static void printUsage()
+    {
+        System.err.println("Usage: java -jar Benchmarks.jar <benchmark> "
+                                                           + "[seconds]");
+        System.err.println("Available benchmarks:");
+        System.err.println("  GRAPHOPS   graph operators on graphs of "
+                                                 + "increasing size");
+        System.err.println("  GRAPHCOPY  copy of graphs by serialization "
+                                                 + "and by deepCopy()");
+        System.err.println("  FSETASKS   submission of FragSpaceExplorer "
+                                         + "tasks by chunks of combinations");
+        System.err.println("  GASCHEDULE fitness evaluations with and "
+                                        + "without generational barrier");
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Measures the throughput of an operation. The operation is first run
+     * for a warm up period, and then for the measurement period.
+     * @param op the operation to measure
+     * @return the number of operations per second
+     * @throws Exception if the operation fails
+     */
+    public static double measure(Operation op) throws Exception
+    {
+        long end = System.nanoTime() + warmupTime;
+        while (System.nanoTime() < end)
+        {
+            op.run();
+        }
+
+        long count = 0;
+        long start = System.nanoTime();
+        end = start + measureTime;
+        long now = start;
+        while (now < end)
+        {
+            op.run();
+            count++;
+            now = System.nanoTime();
+        }
+        return count / ((now - start) / 1.0e9);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Prints one line of results
+     * @param benchmark the name of the measurement
+     * @param size the size of the system
+     * @param opsPerSec the measured throughput
+     */
+    public static void report(String benchmark, int size, double opsPerSec)
+    {
+        System.out.println(String.format(Locale.ENGLISH, "%-30s %6d %14.1f",
+                                                 benchmark, size, opsPerSec));
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Prints the header of the table of results
+     */
+    public static void reportHeader()
+    {
+        System.out.println(String.format(Locale.ENGLISH, "%-30s %6s %14s",
+                                              "Benchmark", "Size", "ops/s"));
+    }
+
+//------------------------------------------------------------------------------
+
+}
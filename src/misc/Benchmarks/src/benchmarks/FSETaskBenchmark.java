@@ -0,0 +1,282 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2026 agent <agent@local>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+import javax.vecmath.Point3d;
+
+import org.openscience.cdk.Atom;
+import org.openscience.cdk.AtomContainer;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.silent.Bond;
+
+import denoptim.constants.DENOPTIMConstants;
+import denoptim.exception.DENOPTIMException;
+import denoptim.fragspace.FragmentSpace;
+import denoptim.fragspace.FragsCombination;
+import denoptim.fragspace.FragsCombinationIterator;
+import denoptim.molecule.DENOPTIMFragment;
+import denoptim.molecule.DENOPTIMGraph;
+import denoptim.molecule.DENOPTIMVertex;
+import denoptim.molecule.SymmetricSet;
+import denoptim.utils.FragmentUtils;
+import fragspaceexplorer.FSETaskTracker;
+import fragspaceexplorer.GraphBuildingTask;
+
+/**
+ * Overhead per combination of fragments of the submission of the tasks of
+ * FragSpaceExplorer, on a synthetic fragment space made of one scaffold with
+ * {@link #NUMAPS} attachment points and {@link #NUMFRAGS} fragments with one
+ * attachment point each. All the combinations on the scaffold are
+ * generated, given to tasks, and submitted to an executor that cancels the
+ * tasks instead of running them, so no graph is built. The legacy scheme,
+ * with one task per combination and lists of tasks and futures, is compared
+ * with {@link FSETaskTracker} and tasks processing chunks of combinations.
+ * Results are given as combinations per second, and the number of tasks
+ * retained once all combinations have been submitted is also reported.
+ *
+ * @author agent
+ */
+
+public class FSETaskBenchmark
+{
+    /**
+     * Number of attachment points on the scaffold
+     */
+    static final int NUMAPS = 3;
+
+    /**
+     * Number of fragments
+     */
+    static final int NUMFRAGS = 20;
+
+    /**
+     * Sizes of the chunks of combinations given to each task
+     */
+    static final int[] CHUNKSIZES = new int[] {1, 10, 100, 1000};
+
+    private static final String APCS = "apc-S"
+                                + DENOPTIMConstants.SEPARATORAPPROPSCL + "0";
+    private static final String APC1 = "apc-1"
+                                + DENOPTIMConstants.SEPARATORAPPROPSCL + "0";
+
+    /**
+     * Executor that cancels the tasks instead of running them
+     */
+    private static final Executor DISCARD = new Executor()
+    {
+        @Override
+        public void execute(Runnable r)
+        {
+            ((FutureTask<?>) r).cancel(false);
+        }
+    };
+
+//------------------------------------------------------------------------------
+
+    public static void run() throws Exception
+    {
+        buildFragmentSpace();
+        final DENOPTIMGraph root = makeRootGraph();
+        final long numCombs = new FragsCombinationIterator(root)
+                                                            .getTotNumbCombs();
+        System.out.println("Combinations per pass: " + numCombs);
+
+        Benchmarks.reportHeader();
+
+        final ArrayList<Object> legacyRetained = new ArrayList<Object>();
+        double legacy = Benchmarks.measure(new Benchmarks.Operation() {
+            public void run() throws Exception
+            {
+                legacyRetained.clear();
+                legacyRetained.addAll(submitLegacy(root));
+            }
+        });
+        Benchmarks.report("legacy lists, combs/s", 1, legacy * numCombs);
+        Benchmarks.report("legacy lists, retained tasks", 1,
+                                                      legacyRetained.size());
+
+        for (final int chunkSize : CHUNKSIZES)
+        {
+            final FSETaskTracker[] last = new FSETaskTracker[1];
+            double chunked = Benchmarks.measure(new Benchmarks.Operation() {
+                public void run() throws Exception
+                {
+                    last[0] = submitChunks(root, chunkSize);
+                }
+            });
+            Benchmarks.report("tracker, combs/s", chunkSize,
+                                                           chunked * numCombs);
+            Benchmarks.report("tracker, retained tasks", chunkSize,
+                                          last[0].getNumberOfRetainedTasks());
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Submits one task per combination and keeps the tasks and their futures
+     * in lists, as done before the introduction of {@link FSETaskTracker}.
+     * @param root the root graph
+     * @return the retained tasks and futures
+     */
+
+    private static ArrayList<Object> submitLegacy(DENOPTIMGraph root)
+                                                        throws DENOPTIMException
+    {
+        ArrayList<Object> submitted = new ArrayList<Object>();
+        ArrayList<Object> futures = new ArrayList<Object>();
+        FragsCombinationIterator fcf = new FragsCombinationIterator(root);
+        int tId = 0;
+        while (fcf.hasNext())
+        {
+            GraphBuildingTask task = new GraphBuildingTask(tId++, root,
+                                                               fcf.next(), -1);
+            task.setNextIds(fcf.getNextIds());
+            FutureTask<Object> future = new FutureTask<Object>(task);
+            DISCARD.execute(future);
+            submitted.add(task);
+            futures.add(future);
+        }
+        submitted.addAll(futures);
+        return submitted;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Submits the combinations in chunks to a new {@link FSETaskTracker}.
+     * @param root the root graph
+     * @param chunkSize the number of combinations per task
+     * @return the tracker
+     */
+
+    private static FSETaskTracker submitChunks(DENOPTIMGraph root,
+                                     int chunkSize) throws DENOPTIMException
+    {
+        FSETaskTracker tracker = new FSETaskTracker();
+        FragsCombinationIterator fcf = new FragsCombinationIterator(root);
+        int tId = 0;
+        while (fcf.hasNext())
+        {
+            ArrayList<FragsCombination> combs =
+                                            new ArrayList<FragsCombination>();
+            ArrayList<ArrayList<Integer>> combsNextIds =
+                                            new ArrayList<ArrayList<Integer>>();
+            while (combs.size() < chunkSize && fcf.hasNext())
+            {
+                combs.add(fcf.next());
+                combsNextIds.add(new ArrayList<Integer>(fcf.getNextIds()));
+            }
+            GraphBuildingTask task = new GraphBuildingTask(root, combs,
+                                                             combsNextIds, -1);
+            task.setIds(tId++);
+            tracker.submit(task, DISCARD);
+        }
+        return tracker;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Defines the synthetic fragment space
+     */
+
+    private static void buildFragmentSpace() throws DENOPTIMException
+    {
+        ArrayList<IAtomContainer> scaffLib = new ArrayList<IAtomContainer>();
+        DENOPTIMFragment scaff = new DENOPTIMFragment();
+        // Different elements to avoid symmetric attachment points
+        String[] elements = new String[] {"C", "N", "O", "S", "P", "Si"};
+        Atom prev = null;
+        for (int i=0; i<NUMAPS; i++)
+        {
+            Atom a = new Atom(elements[i % elements.length],
+                              new Point3d(new double[]{1.5*i, 0.0, 0.0}));
+            scaff.addAtom(a);
+            if (prev != null)
+            {
+                scaff.addBond(new Bond(prev, a));
+            }
+            prev = a;
+        }
+        for (int i=0; i<NUMAPS; i++)
+        {
+            scaff.addAP(i, APCS, new Point3d(new double[]{1.5*i, 1.0, 0.0}));
+        }
+        scaffLib.add(new AtomContainer(scaff));
+
+        ArrayList<IAtomContainer> fragLib = new ArrayList<IAtomContainer>();
+        for (int i=0; i<NUMFRAGS; i++)
+        {
+            DENOPTIMFragment frag = new DENOPTIMFragment();
+            frag.addAtom(new Atom("C", new Point3d(new double[]{0.0, 0.0,
+                                                                   1.0*i})));
+            frag.addAP(0, APC1, new Point3d(new double[]{0.0, 1.0, 1.0*i}));
+            fragLib.add(new AtomContainer(frag));
+        }
+
+        ArrayList<IAtomContainer> cappLib = new ArrayList<IAtomContainer>();
+
+        HashMap<String,ArrayList<String>> cpMap =
+                                     new HashMap<String,ArrayList<String>>();
+        ArrayList<String> compatible = new ArrayList<String>();
+        compatible.add(APC1);
+        cpMap.put(APCS, compatible);
+
+        HashMap<String,Integer> boMap = new HashMap<String,Integer>();
+        boMap.put(APCS,1);
+        boMap.put(APC1,1);
+
+        HashMap<String,String> capMap = new HashMap<String,String>();
+        HashSet<String> ends = new HashSet<String>();
+        HashMap<String,ArrayList<String>> rcCpMap =
+                                     new HashMap<String,ArrayList<String>>();
+
+        FragmentSpace.defineFragmentSpace(scaffLib,fragLib,cappLib,cpMap,boMap,
+                                                       capMap,ends,rcCpMap);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return a graph made only of the scaffold of the synthetic fragment
+     * space
+     */
+
+    private static DENOPTIMGraph makeRootGraph() throws DENOPTIMException
+    {
+        DENOPTIMGraph g = new DENOPTIMGraph();
+        g.setGraphId(0);
+        DENOPTIMVertex v = new DENOPTIMVertex(1, 0,
+                                   FragmentUtils.getAPForFragment(0,0), 0);
+        v.setLevel(-1);
+        v.setSymmetricAP(new ArrayList<SymmetricSet>());
+        g.addVertex(v);
+        return g;
+    }
+
+//------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,199 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2026 agent <agent@local>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Throughput of the fitness evaluations of the genetic algorithm with the
+ * two schemes used to keep the threads busy: the generational barrier,
+ * where all the children of a batch have to be evaluated before the next
+ * batch is submitted (as in EvolutionaryAlgorithm and in the former
+ * ParallelEvolutionaryAlgorithm), and the steady state, where a new
+ * evaluation is submitted as soon as any other completes (as in
+ * ParallelEvolutionaryAlgorithm). Evaluations are simulated by sleeping
+ * for times drawn from a log-normal distribution, with median
+ * {@link #MEDIANMS} ms, so that few evaluations take much longer than the
+ * others, as with external fitness providers. Both schemes are given the
+ * same sequence of evaluation times.
+ * Results are given as evaluations per second for increasing numbers of
+ * threads, and the batch size of the barrier scheme is the number of
+ * children per generation, here {@link #CHILDRENPERTHREAD} times the
+ * number of threads.
+ *
+ * @author agent
+ */
+
+public class GAScheduleBenchmark
+{
+    /**
+     * Numbers of threads evaluating the fitness
+     */
+    static final int[] NUMTHREADS = new int[] {2, 4, 8};
+
+    /**
+     * Number of children per generation per thread
+     */
+    static final int CHILDRENPERTHREAD = 2;
+
+    /**
+     * Number of evaluations per measured operation
+     */
+    static final int NUMEVALS = 64;
+
+    /**
+     * Median duration of an evaluation (milliseconds)
+     */
+    static final double MEDIANMS = 5.0;
+
+    /**
+     * Width of the log-normal distribution of the durations
+     */
+    static final double SIGMA = 1.0;
+
+//------------------------------------------------------------------------------
+
+    public static void run() throws Exception
+    {
+        Benchmarks.reportHeader();
+        for (final int threads : NUMTHREADS)
+        {
+            final ExecutorService pool = Executors.newFixedThreadPool(threads);
+            final int batchSize = CHILDRENPERTHREAD * threads;
+            try
+            {
+                double barrier = Benchmarks.measure(new Benchmarks.Operation() {
+                    public void run() throws Exception
+                    {
+                        runWithBarrier(pool, batchSize, getDurations());
+                    }
+                });
+                Benchmarks.report("barrier, evals/s", threads,
+                                                          barrier * NUMEVALS);
+
+                double steady = Benchmarks.measure(new Benchmarks.Operation() {
+                    public void run() throws Exception
+                    {
+                        runSteadyState(pool, threads, getDurations());
+                    }
+                });
+                Benchmarks.report("steady state, evals/s", threads,
+                                                           steady * NUMEVALS);
+            }
+            finally
+            {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the durations of the evaluations (milliseconds), always the
+     * same ones
+     */
+
+    private static long[] getDurations()
+    {
+        Random rng = new Random(NUMEVALS);
+        long[] durations = new long[NUMEVALS];
+        for (int i=0; i<NUMEVALS; i++)
+        {
+            durations[i] = Math.round(MEDIANMS
+                                    * Math.exp(SIGMA * rng.nextGaussian()));
+        }
+        return durations;
+    }
+
+//------------------------------------------------------------------------------
+
+    private static Callable<Object> newEvaluation(final long duration)
+    {
+        return new Callable<Object>() {
+            public Object call() throws Exception
+            {
+                Thread.sleep(duration);
+                return "PASS";
+            }
+        };
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Submits batches of evaluations and waits for the whole batch to
+     * complete before submitting the next one.
+     */
+
+    private static void runWithBarrier(ExecutorService pool, int batchSize,
+                                          long[] durations) throws Exception
+    {
+        int next = 0;
+        while (next < durations.length)
+        {
+            ArrayList<Callable<Object>> batch =
+                                             new ArrayList<Callable<Object>>();
+            while (batch.size() < batchSize && next < durations.length)
+            {
+                batch.add(newEvaluation(durations[next++]));
+            }
+            for (Future<Object> f : pool.invokeAll(batch))
+            {
+                f.get();
+            }
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Keeps as many evaluations in flight as there are threads, and submits
+     * a new evaluation every time one completes.
+     */
+
+    private static void runSteadyState(ExecutorService pool, int maxInFlight,
+                                          long[] durations) throws Exception
+    {
+        ExecutorCompletionService<Object> ecs =
+                                   new ExecutorCompletionService<Object>(pool);
+        int next = 0;
+        int inFlight = 0;
+        while (next < durations.length || inFlight > 0)
+        {
+            if (inFlight < maxInFlight && next < durations.length)
+            {
+                ecs.submit(newEvaluation(durations[next++]));
+                inFlight++;
+                continue;
+            }
+            ecs.take().get();
+            inFlight--;
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+}
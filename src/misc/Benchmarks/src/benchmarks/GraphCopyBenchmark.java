@@ -0,0 +1,113 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2026 agent <agent@local>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package benchmarks;
+
+import java.util.ArrayList;
+
+import denoptim.exception.DENOPTIMException;
+import denoptim.io.DenoptimIO;
+import denoptim.molecule.DENOPTIMGraph;
+import denoptim.molecule.DENOPTIMRing;
+import denoptim.molecule.DENOPTIMVertex;
+import denoptim.molecule.SymmetricSet;
+import denoptim.rings.ClosableChain;
+
+/**
+ * Throughput of the copy of graphs by serialization 
+ * (<code>DenoptimIO.deepCopy</code>) and by <code>DENOPTIMGraph.deepCopy</code>
+ * on synthetic graphs of 10, 50 and 200 vertexes that include rings,
+ * symmetric sets and closable chains.
+ *
+ * @author agent
+ */
+
+public class GraphCopyBenchmark
+{
+
+//------------------------------------------------------------------------------
+
+    public static void run() throws Exception
+    {
+        Benchmarks.reportHeader();
+        for (int size : GraphOperationsBenchmark.SIZES)
+        {
+            final DENOPTIMGraph template = makeGraph(size);
+
+            double serial = Benchmarks.measure(new Benchmarks.Operation() {
+                public void run() throws Exception
+                {
+                    DenoptimIO.deepCopy(template);
+                }
+            });
+            Benchmarks.report("copy by serialization", size, serial);
+
+            double structural = Benchmarks.measure(new Benchmarks.Operation() {
+                public void run()
+                {
+                    template.deepCopy();
+                }
+            });
+            Benchmarks.report("structural copy", size, structural);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Builds a tree graph (see 
+     * {@link GraphOperationsBenchmark#makeTreeGraph(int)}) where each pair of
+     * sibling vertexes forms a symmetric set and a ring, and where each ring
+     * is also given as closable chain.
+     * @param size the number of vertexes
+     * @return the graph
+     * @throws DENOPTIMException
+     */
+
+    public static DENOPTIMGraph makeGraph(int size) throws DENOPTIMException
+    {
+        DENOPTIMGraph g = GraphOperationsBenchmark.makeTreeGraph(size);
+        ArrayList<ClosableChain> chains = new ArrayList<ClosableChain>();
+        for (int i=1; i+1<size; i=i+2)
+        {
+            DENOPTIMVertex left = g.getVertexWithId(i);
+            DENOPTIMVertex right = g.getVertexWithId(i+1);
+            DENOPTIMVertex parent = g.getParent(i);
+
+            SymmetricSet ss = new SymmetricSet();
+            ss.add(i);
+            ss.add(i+1);
+            g.addSymmetricSetOfVertices(ss);
+
+            ArrayList<DENOPTIMVertex> vr = new ArrayList<DENOPTIMVertex>();
+            vr.add(left);
+            vr.add(parent);
+            vr.add(right);
+            g.addRing(new DENOPTIMRing(vr));
+
+            chains.add(new ClosableChain(left.getMolId() + "/1/ap0ap1_"
+                        + parent.getMolId() + "/0/ap1ap2_"
+                        + right.getMolId() + "/1/ap0ap1"));
+        }
+        g.setCandidateClosableChains(chains);
+        return g;
+    }
+
+//------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,167 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2026 agent <agent@local>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package benchmarks;
+
+import java.util.ArrayList;
+
+import org.apache.commons.math3.random.MersenneTwister;
+
+import denoptim.molecule.DENOPTIMAttachmentPoint;
+import denoptim.molecule.DENOPTIMEdge;
+import denoptim.molecule.DENOPTIMGraph;
+import denoptim.molecule.DENOPTIMVertex;
+import denoptim.utils.GraphUtils;
+import denoptimga.DENOPTIMGraphOperations;
+
+/**
+ * Throughput of graph operators (crossover, deletion, and the navigation of
+ * parent/child relations they rely on) on synthetic graphs of 10, 50 and 200
+ * vertexes, and of the growth of such graphs, where each vertex is looked
+ * up right after the addition of the previous one.
+ *
+ * @author agent
+ */
+
+public class GraphOperationsBenchmark
+{
+    /**
+     * Sizes of the graphs used in the benchmark
+     */
+    public static final int[] SIZES = new int[] {10, 50, 200};
+
+//------------------------------------------------------------------------------
+
+    public static void run() throws Exception
+    {
+        Benchmarks.reportHeader();
+        for (int size : SIZES)
+        {
+            final DENOPTIMGraph template = makeTreeGraph(size);
+            final MersenneTwister rng = new MersenneTwister(size);
+
+            double lookups = Benchmarks.measure(new Benchmarks.Operation() {
+                public void run()
+                {
+                    navigateGraph(template);
+                }
+            });
+            Benchmarks.report("navigation", size, lookups);
+
+            final int graphSize = size;
+            double growth = Benchmarks.measure(new Benchmarks.Operation() {
+                public void run()
+                {
+                    makeTreeGraph(graphSize);
+                }
+            });
+            Benchmarks.report("growth", graphSize, growth);
+
+            double xovers = Benchmarks.measure(new Benchmarks.Operation() {
+                public void run() throws Exception
+                {
+                    DENOPTIMGraph male = template.deepCopy();
+                    DENOPTIMGraph female = template.deepCopy();
+                    GraphUtils.renumberGraphVertices(male);
+                    GraphUtils.renumberGraphVertices(female);
+                    int mvid = male.getVertexAtPosition(
+                                  1 + rng.nextInt(size - 1)).getVertexId();
+                    int fvid = female.getVertexAtPosition(
+                                  1 + rng.nextInt(size - 1)).getVertexId();
+                    DENOPTIMGraphOperations.performCrossover(male, mvid,
+                                                                female, fvid);
+                }
+            });
+            Benchmarks.report("crossover (incl. copy)", size, xovers);
+
+            double deletions = Benchmarks.measure(new Benchmarks.Operation() {
+                public void run() throws Exception
+                {
+                    DENOPTIMGraph g = template.deepCopy();
+                    int vid = g.getVertexAtPosition(
+                                  1 + rng.nextInt(size - 1)).getVertexId();
+                    GraphUtils.deleteVertex(g, vid);
+                }
+            });
+            Benchmarks.report("deletion (incl. copy)", size, deletions);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Visits all vertexes asking for their parent, children, and branch.
+     * This is the access pattern of crossover and mutation operators, and of
+     * the setup of rings.
+     */
+    private static void navigateGraph(DENOPTIMGraph g)
+    {
+        for (int i=0; i<g.getVertexCount(); i++)
+        {
+            int vid = g.getVertexAtPosition(i).getVertexId();
+            g.getVertexWithId(vid);
+            g.getParent(vid);
+            g.getEdgeWithParent(vid);
+            g.getChildVertices(vid);
+        }
+        ArrayList<Integer> branch = new ArrayList<Integer>();
+        GraphUtils.getChildren(g, g.getVertexAtPosition(0).getVertexId(),
+                                                                       branch);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Builds a graph where each vertex has three attachment points: one used
+     * to bind the parent and two available for children. Vertexes are added
+     * breadth first, so the result is a balanced binary tree.
+     * @param size the number of vertexes
+     * @return the graph
+     */
+    public static DENOPTIMGraph makeTreeGraph(int size)
+    {
+        DENOPTIMGraph g = new DENOPTIMGraph();
+        for (int i=0; i<size; i++)
+        {
+            ArrayList<DENOPTIMAttachmentPoint> aps =
+                                     new ArrayList<DENOPTIMAttachmentPoint>();
+            for (int j=0; j<3; j++)
+            {
+                aps.add(new DENOPTIMAttachmentPoint(j, 1, 1));
+            }
+            DENOPTIMVertex v = new DENOPTIMVertex(i, i, aps, i==0 ? 0 : 1);
+            g.addVertex(v);
+            if (i == 0)
+            {
+                v.setLevel(-1);
+                continue;
+            }
+            int parentId = (i-1)/2;
+            int parentAP = (i-1)%2 + 1;
+            DENOPTIMVertex parent = g.getVertexWithId(parentId);
+            v.setLevel(parent.getLevel() + 1);
+            parent.updateAttachmentPoint(parentAP, -1);
+            v.updateAttachmentPoint(0, -1);
+            g.addEdge(new DENOPTIMEdge(parentId, i, parentAP, 0, 1));
+        }
+        return g;
+    }
+
+//------------------------------------------------------------------------------
+
+}